@@ -0,0 +1,208 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares a JMH result file against a baseline, both in CSV format (<code>-rf csv</code>), and
+ * reports the benchmarks that got slower than the allowed tolerance. Exits with status 1 if any
+ * regression is found, so that it can be used in a build job.
+ * <p>
+ * Usage: <code>BaselineComparator &lt;baseline.csv&gt; &lt;results.csv&gt; [tolerance]</code>,
+ * where the tolerance is the allowed slowdown, as a fraction (defaults to 0.1, that is, 10%)
+ * </p>
+ *
+ * @author Andrea Aime - GeoSolutions
+ */
+public class BaselineComparator {
+
+    static final double DEFAULT_TOLERANCE = 0.1;
+
+    /**
+     * A single benchmark score
+     */
+    static class Score {
+        String mode;
+
+        double value;
+
+        double error;
+
+        String unit;
+
+        Score(String mode, double value, double error, String unit) {
+            this.mode = mode;
+            this.value = value;
+            this.error = error;
+            this.unit = unit;
+        }
+
+        /**
+         * Returns true if higher scores are better (throughput), false otherwise (times)
+         */
+        boolean isHigherBetter() {
+            return "thrpt".equals(mode);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BaselineComparator <baseline.csv> <results.csv> "
+                    + "[tolerance]");
+            System.exit(2);
+        }
+        double tolerance = args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_TOLERANCE;
+        Map<String, Score> baseline = read(new File(args[0]));
+        Map<String, Score> results = read(new File(args[1]));
+        List<String> regressions = compare(baseline, results, tolerance);
+        for (String regression : regressions) {
+            System.out.println(regression);
+        }
+        if (!regressions.isEmpty()) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Compares the results with the baseline, returning a description of each regression found.
+     * Benchmarks missing from either side are skipped, the score errors are taken into account
+     * so that noisy benchmarks are not reported.
+     */
+    static List<String> compare(Map<String, Score> baseline, Map<String, Score> results,
+            double tolerance) {
+        List<String> regressions = new ArrayList<String>();
+        for (Map.Entry<String, Score> entry : results.entrySet()) {
+            Score base = baseline.get(entry.getKey());
+            Score score = entry.getValue();
+            if (base == null || !base.mode.equals(score.mode) || !base.unit.equals(score.unit)) {
+                continue;
+            }
+            double change;
+            if (score.isHigherBetter()) {
+                change = (base.value - base.error) - (score.value + score.error);
+            } else {
+                change = (score.value - score.error) - (base.value + base.error);
+            }
+            if (change > base.value * tolerance) {
+                regressions.add(String.format("%s: %.3f %s, baseline %.3f %s (%+.1f%%)",
+                        entry.getKey(), score.value, score.unit, base.value, base.unit,
+                        (score.value - base.value) / base.value * 100));
+            }
+        }
+        return regressions;
+    }
+
+    /**
+     * Reads a JMH CSV result file, keyed by benchmark name and parameters
+     */
+    static Map<String, Score> read(File file) throws IOException {
+        Map<String, Score> scores = new LinkedHashMap<String, Score>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new FileInputStream(file), "UTF-8"));
+        try {
+            List<String> header = parseLine(reader.readLine());
+            int benchmark = header.indexOf("Benchmark");
+            int mode = header.indexOf("Mode");
+            int score = header.indexOf("Score");
+            int unit = header.indexOf("Unit");
+            int error = -1;
+            for (int i = 0; i < header.size(); i++) {
+                if (header.get(i).startsWith("Score Error")) {
+                    error = i;
+                }
+            }
+            if (benchmark < 0 || mode < 0 || score < 0 || unit < 0) {
+                throw new IOException(file + " is not a JMH CSV result file");
+            }
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().length() == 0) {
+                    continue;
+                }
+                List<String> values = parseLine(line);
+                StringBuilder key = new StringBuilder(values.get(benchmark));
+                for (int i = 0; i < header.size(); i++) {
+                    if (header.get(i).startsWith("Param: ") && i < values.size()
+                            && values.get(i).length() > 0) {
+                        key.append(' ').append(header.get(i).substring(7)).append('=')
+                                .append(values.get(i));
+                    }
+                }
+                double errorValue = error >= 0 ? parseNumber(values.get(error)) : 0;
+                if (Double.isNaN(errorValue)) {
+                    errorValue = 0;
+                }
+                scores.put(key.toString(), new Score(values.get(mode),
+                        parseNumber(values.get(score)), errorValue, values.get(unit)));
+            }
+        } finally {
+            reader.close();
+        }
+        return scores;
+    }
+
+    /**
+     * Splits a CSV line, handling quoted values
+     */
+    static List<String> parseLine(String line) {
+        List<String> result = new ArrayList<String>();
+        if (line == null) {
+            return result;
+        }
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                if (quoted && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else {
+                    quoted = !quoted;
+                }
+            } else if (c == ',' && !quoted) {
+                result.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        result.add(current.toString());
+        return result;
+    }
+
+    /**
+     * Parses a number, accepting both dot and comma as the decimal separator, as JMH uses the
+     * default locale
+     */
+    static double parseNumber(String value) {
+        value = value.trim();
+        if (value.length() == 0 || "NaN".equals(value)) {
+            return Double.NaN;
+        }
+        return Double.parseDouble(value.replace(',', '.'));
+    }
+}
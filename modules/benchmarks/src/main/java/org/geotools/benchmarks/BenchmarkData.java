@@ -0,0 +1,198 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+import org.geotools.data.DataUtilities;
+import org.geotools.data.FeatureWriter;
+import org.geotools.data.Transaction;
+import org.geotools.data.shapefile.ShapefileDataStore;
+import org.geotools.data.shapefile.ShapefileDataStoreFactory;
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.MultiPolygon;
+import com.vividsolutions.jts.geom.Polygon;
+
+/**
+ * Generates the datasets used by the benchmarks. All the data is derived from a fixed random
+ * seed, so that the same dataset is generated on every run and on every machine, making the
+ * results comparable with the baseline.
+ *
+ * @author Andrea Aime - GeoSolutions
+ */
+public class BenchmarkData {
+
+    /**
+     * The seed used for all the datasets
+     */
+    public static final long SEED = 20140901;
+
+    /**
+     * The area covered by the generated data, in WGS84
+     */
+    public static final double MIN_X = -10, MIN_Y = 35, MAX_X = 30, MAX_Y = 60;
+
+    static final GeometryFactory GF = new GeometryFactory();
+
+    static final String[] CATEGORIES = { "residential", "commercial", "industrial", "park",
+            "water", "forest", "farmland" };
+
+    /**
+     * The feature type of the generated polygon datasets
+     */
+    public static SimpleFeatureType getPolygonType(String typeName) {
+        SimpleFeatureTypeBuilder tb = new SimpleFeatureTypeBuilder();
+        tb.setName(typeName);
+        tb.add("the_geom", MultiPolygon.class, DefaultGeographicCRS.WGS84);
+        tb.add("name", String.class);
+        tb.add("category", String.class);
+        tb.add("population", Integer.class);
+        tb.add("density", Double.class);
+        return tb.buildFeatureType();
+    }
+
+    /**
+     * Writes a shapefile with the specified number of irregular polygons, randomly distributed
+     * in the data area, with a size inversely proportional to their number
+     *
+     * @param directory The target directory
+     * @param typeName The shapefile name, without extension
+     * @param count The number of polygons
+     * @param vertices The number of vertices of each polygon
+     * @return The shp file
+     */
+    public static File createPolygonShapefile(File directory, String typeName, int count,
+            int vertices) throws IOException {
+        File file = new File(directory, typeName + ".shp");
+        Map<String, Serializable> params = new HashMap<String, Serializable>();
+        params.put(ShapefileDataStoreFactory.URLP.key, DataUtilities.fileToURL(file));
+        params.put(ShapefileDataStoreFactory.CREATE_SPATIAL_INDEX.key, Boolean.TRUE);
+        ShapefileDataStore store = (ShapefileDataStore) new ShapefileDataStoreFactory()
+                .createNewDataStore(params);
+        try {
+            store.createSchema(getPolygonType(typeName));
+            FeatureWriter<SimpleFeatureType, SimpleFeature> writer = store
+                    .getFeatureWriterAppend(Transaction.AUTO_COMMIT);
+            try {
+                Random random = new Random(SEED);
+                double radius = Math.sqrt((MAX_X - MIN_X) * (MAX_Y - MIN_Y) / count) / 2;
+                for (int i = 0; i < count; i++) {
+                    SimpleFeature f = writer.next();
+                    f.setAttribute("the_geom", GF.createMultiPolygon(new Polygon[] { randomPolygon(
+                            random, radius, vertices) }));
+                    f.setAttribute("name", "feature." + i);
+                    f.setAttribute("category", CATEGORIES[random.nextInt(CATEGORIES.length)]);
+                    f.setAttribute("population", random.nextInt(100000));
+                    f.setAttribute("density", random.nextDouble() * 1000);
+                    writer.write();
+                }
+            } finally {
+                writer.close();
+            }
+        } finally {
+            store.dispose();
+        }
+        return file;
+    }
+
+    /**
+     * Creates a temporary directory to hold the benchmark data
+     */
+    public static File createTempDirectory(String prefix) throws IOException {
+        return Files.createTempDirectory(prefix).toFile();
+    }
+
+    /**
+     * Deletes a temporary directory along with its contents
+     */
+    public static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    /**
+     * Builds a star shaped polygon around a random center
+     */
+    static Polygon randomPolygon(Random random, double radius, int vertices) {
+        double cx = MIN_X + radius + random.nextDouble() * (MAX_X - MIN_X - 2 * radius);
+        double cy = MIN_Y + radius + random.nextDouble() * (MAX_Y - MIN_Y - 2 * radius);
+        Coordinate[] coords = new Coordinate[vertices + 1];
+        for (int i = 0; i < vertices; i++) {
+            // going clockwise, as the shapefile outer rings are
+            double angle = -2 * Math.PI * i / vertices;
+            double r = radius * (0.5 + random.nextDouble() / 2);
+            coords[i] = new Coordinate(cx + r * Math.cos(angle), cy + r * Math.sin(angle));
+        }
+        coords[vertices] = new Coordinate(coords[0]);
+        return GF.createPolygon(GF.createLinearRing(coords), null);
+    }
+
+    /**
+     * Returns an array of interleaved x/y geographic coordinates in the data area
+     */
+    public static double[] randomCoordinates(int points) {
+        Random random = new Random(SEED);
+        double[] coords = new double[points * 2];
+        for (int i = 0; i < points; i++) {
+            coords[i * 2] = MIN_X + random.nextDouble() * (MAX_X - MIN_X);
+            coords[i * 2 + 1] = MIN_Y + random.nextDouble() * (MAX_Y - MIN_Y);
+        }
+        return coords;
+    }
+
+    /**
+     * Returns a GML 3.1 document containing a single multi surface, made of the specified number
+     * of polygons, using posList to encode the coordinates
+     */
+    public static String createGMLMultiSurface(int polygons, int vertices) {
+        Random random = new Random(SEED);
+        double radius = Math.sqrt((MAX_X - MIN_X) * (MAX_Y - MIN_Y) / polygons) / 2;
+        StringBuilder sb = new StringBuilder();
+        sb.append("<gml:MultiSurface xmlns:gml=\"http://www.opengis.net/gml\">");
+        for (int i = 0; i < polygons; i++) {
+            Polygon polygon = randomPolygon(random, radius, vertices);
+            sb.append("<gml:surfaceMember><gml:Polygon><gml:exterior><gml:LinearRing>");
+            sb.append("<gml:posList>");
+            for (Coordinate c : polygon.getExteriorRing().getCoordinates()) {
+                sb.append(String.format(Locale.ENGLISH, "%.8f %.8f ", c.x, c.y));
+            }
+            sb.setLength(sb.length() - 1);
+            sb.append("</gml:posList>");
+            sb.append("</gml:LinearRing></gml:exterior></gml:Polygon></gml:surfaceMember>");
+        }
+        sb.append("</gml:MultiSurface>");
+        return sb.toString();
+    }
+}
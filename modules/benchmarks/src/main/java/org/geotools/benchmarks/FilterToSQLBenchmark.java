@@ -0,0 +1,99 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.geotools.data.jdbc.FilterToSQL;
+import org.geotools.factory.CommonFactoryFinder;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory2;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the encoding of filters into SQL with {@link FilterToSQL}, for a simple comparison,
+ * a typical mix of logic and comparison filters, and a large OR, as generated by feature id
+ * and "IN" like filters
+ *
+ * @author Andrea Aime - GeoSolutions
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class FilterToSQLBenchmark {
+
+    static final FilterFactory2 FF = CommonFactoryFinder.getFilterFactory2();
+
+    SimpleFeatureType featureType;
+
+    Filter simple;
+
+    Filter mixed;
+
+    Filter largeOr;
+
+    @Setup
+    public void setup() {
+        featureType = BenchmarkData.getPolygonType("polygons");
+        simple = FF.equals(FF.property("category"), FF.literal("park"));
+        mixed = FF.and(FF.or(FF.equals(FF.property("category"), FF.literal("park")),
+                FF.like(FF.property("name"), "feature.1*")), FF.and(
+                FF.between(FF.property("population"), FF.literal(1000), FF.literal(50000)),
+                FF.not(FF.isNull(FF.property("density")))));
+        List<Filter> equalities = new ArrayList<Filter>();
+        for (int i = 0; i < 500; i++) {
+            equalities.add(FF.equals(FF.property("name"), FF.literal("feature." + i)));
+        }
+        largeOr = FF.or(equalities);
+    }
+
+    @Benchmark
+    public String encodeSimple() throws Exception {
+        return encode(simple);
+    }
+
+    @Benchmark
+    public String encodeMixed() throws Exception {
+        return encode(mixed);
+    }
+
+    @Benchmark
+    public String encodeLargeOr() throws Exception {
+        return encode(largeOr);
+    }
+
+    String encode(Filter filter) throws Exception {
+        FilterToSQL encoder = new FilterToSQL();
+        encoder.setFeatureType(featureType);
+        return encoder.encodeToString(filter);
+    }
+}
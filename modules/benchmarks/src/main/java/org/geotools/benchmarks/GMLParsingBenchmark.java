@@ -0,0 +1,71 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.geotools.gml3.GMLConfiguration;
+import org.geotools.xml.Parser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the parsing of GML 3.1 geometries with the xsd-gml3 parser, on a multi surface whose
+ * coordinates are encoded as posList, the most common encoding in WFS 1.1 responses
+ *
+ * @author Andrea Aime - GeoSolutions
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class GMLParsingBenchmark {
+
+    @Param({ "1000" })
+    int polygons;
+
+    @Param({ "10", "100" })
+    int vertices;
+
+    GMLConfiguration configuration;
+
+    byte[] document;
+
+    @Setup
+    public void setup() throws Exception {
+        configuration = new GMLConfiguration();
+        document = BenchmarkData.createGMLMultiSurface(polygons, vertices).getBytes("UTF-8");
+    }
+
+    @Benchmark
+    public Object parse() throws Exception {
+        Parser parser = new Parser(configuration);
+        return parser.parse(new ByteArrayInputStream(document));
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.benchmarks;
+
+import java.awt.Rectangle;
+import java.awt.geom.Rectangle2D;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.geotools.renderer.label.LabelIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.index.quadtree.Quadtree;
+
+/**
+ * Measures the label conflict resolution done by the label cache: each candidate label is
+ * checked against the ones already placed, and added if there is no conflict. The grid based
+ * {@link LabelIndex} is compared with the JTS quadtree based implementation it replaced.
+ *
+ * @author Andrea Aime - GeoSolutions
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class LabelIndexBenchmark {
+
+    static final Rectangle AREA = new Rectangle(0, 0, 1024, 768);
+
+    /**
+     * The space required around each label
+     */
+    static final double SPACE_AROUND = 2;
+
+    @Param({ "1000", "10000" })
+    int labels;
+
+    Rectangle2D[] candidates;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(BenchmarkData.SEED);
+        candidates = new Rectangle2D[labels];
+        for (int i = 0; i < labels; i++) {
+            double width = 40 + random.nextDouble() * 80;
+            double height = 10 + random.nextDouble() * 10;
+            double x = random.nextDouble() * (AREA.getWidth() - width);
+            double y = random.nextDouble() * (AREA.getHeight() - height);
+            candidates[i] = new Rectangle2D.Double(x, y, width, height);
+        }
+    }
+
+    @Benchmark
+    public int gridIndex() {
+        LabelIndex index = new LabelIndex(AREA);
+        int placed = 0;
+        for (Rectangle2D bounds : candidates) {
+            if (!index.labelsWithinDistance(bounds, SPACE_AROUND)) {
+                index.addLabel(null, bounds);
+                placed++;
+            }
+        }
+        return placed;
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public int quadtreeIndex() {
+        Quadtree index = new Quadtree();
+        int placed = 0;
+        for (Rectangle2D bounds : candidates) {
+            Envelope query = new Envelope(bounds.getMinX(), bounds.getMaxX(), bounds.getMinY(),
+                    bounds.getMaxY());
+            query.expandBy(SPACE_AROUND);
+            boolean conflict = false;
+            for (Envelope placedBounds : (List<Envelope>) index.query(query)) {
+                if (placedBounds.intersects(query)) {
+                    conflict = true;
+                    break;
+                }
+            }
+            if (!conflict) {
+                Envelope envelope = new Envelope(bounds.getMinX(), bounds.getMaxX(),
+                        bounds.getMinY(), bounds.getMaxY());
+                index.insert(envelope, envelope);
+                placed++;
+            }
+        }
+        return placed;
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.geotools.geometry.jts.JTS;
+import org.geotools.referencing.CRS;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.referencing.operation.MathTransform;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+
+/**
+ * Measures {@link MathTransform#transform(double[], int, double[], int, int)} on coordinate
+ * arrays, compared to transforming one point at a time, and the transformation of JTS
+ * geometries. The target CRS are parsed from WKT, so no EPSG database is needed.
+ *
+ * @author Andrea Aime - GeoSolutions
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class MathTransformBenchmark {
+
+    static final String UTM_32N = "PROJCS[\"WGS 84 / UTM zone 32N\",GEOGCS[\"WGS 84\","
+            + "DATUM[\"WGS_1984\",SPHEROID[\"WGS 84\",6378137,298.257223563]],"
+            + "PRIMEM[\"Greenwich\",0],UNIT[\"degree\",0.0174532925199433]],"
+            + "PROJECTION[\"Transverse_Mercator\"],PARAMETER[\"latitude_of_origin\",0],"
+            + "PARAMETER[\"central_meridian\",9],PARAMETER[\"scale_factor\",0.9996],"
+            + "PARAMETER[\"false_easting\",500000],PARAMETER[\"false_northing\",0],"
+            + "UNIT[\"metre\",1]]";
+
+    static final String WEB_MERCATOR = "PROJCS[\"WGS 84 / Pseudo-Mercator\",GEOGCS[\"WGS 84\","
+            + "DATUM[\"WGS_1984\",SPHEROID[\"WGS 84\",6378137,298.257223563]],"
+            + "PRIMEM[\"Greenwich\",0],UNIT[\"degree\",0.0174532925199433]],"
+            + "PROJECTION[\"Mercator_1SP\"],PARAMETER[\"central_meridian\",0],"
+            + "PARAMETER[\"scale_factor\",1],PARAMETER[\"false_easting\",0],"
+            + "PARAMETER[\"false_northing\",0],UNIT[\"metre\",1]]";
+
+    static final String LAMBERT_ED50 = "PROJCS[\"ED50 / Lambert\",GEOGCS[\"ED50\","
+            + "DATUM[\"European_Datum_1950\",SPHEROID[\"International 1924\",6378388,297],"
+            + "TOWGS84[-87,-98,-121,0,0,0,0]],PRIMEM[\"Greenwich\",0],"
+            + "UNIT[\"degree\",0.0174532925199433]],PROJECTION[\"Lambert_Conformal_Conic_2SP\"],"
+            + "PARAMETER[\"standard_parallel_1\",40],PARAMETER[\"standard_parallel_2\",55],"
+            + "PARAMETER[\"latitude_of_origin\",45],PARAMETER[\"central_meridian\",10],"
+            + "PARAMETER[\"false_easting\",0],PARAMETER[\"false_northing\",0],"
+            + "UNIT[\"metre\",1]]";
+
+    /**
+     * The target projection, the last one includes a datum shift, and thus a chain of
+     * concatenated transforms
+     */
+    @Param({ "utm", "mercator", "lambert-ed50" })
+    String target;
+
+    @Param({ "10000" })
+    int points;
+
+    MathTransform transform;
+
+    double[] source;
+
+    double[] dest;
+
+    Geometry geometry;
+
+    @Setup
+    public void setup() throws Exception {
+        String wkt;
+        if ("utm".equals(target)) {
+            wkt = UTM_32N;
+        } else if ("mercator".equals(target)) {
+            wkt = WEB_MERCATOR;
+        } else {
+            wkt = LAMBERT_ED50;
+        }
+        CoordinateReferenceSystem crs = CRS.parseWKT(wkt);
+        transform = CRS.findMathTransform(DefaultGeographicCRS.WGS84, crs, true);
+        source = BenchmarkData.randomCoordinates(points);
+        dest = new double[source.length];
+
+        // a long line, as found in real world data
+        Random random = new Random(BenchmarkData.SEED);
+        Coordinate[] coords = new Coordinate[points];
+        double x = 10, y = 47;
+        for (int i = 0; i < points; i++) {
+            x += (random.nextDouble() - 0.5) / 100;
+            y += (random.nextDouble() - 0.5) / 100;
+            coords[i] = new Coordinate(x, y);
+        }
+        geometry = new GeometryFactory().createLineString(coords);
+    }
+
+    @Benchmark
+    public double[] transformArray() throws Exception {
+        transform.transform(source, 0, dest, 0, points);
+        return dest;
+    }
+
+    @Benchmark
+    public double[] transformPointByPoint() throws Exception {
+        for (int i = 0; i < points; i++) {
+            transform.transform(source, i * 2, dest, i * 2, 1);
+        }
+        return dest;
+    }
+
+    @Benchmark
+    public Geometry transformGeometry() throws Exception {
+        return JTS.transform(geometry, transform);
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.benchmarks;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.geotools.data.DataUtilities;
+import org.geotools.data.shapefile.ShapefileDataStore;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.map.FeatureLayer;
+import org.geotools.map.MapContent;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.geotools.renderer.lite.StreamingRenderer;
+import org.geotools.styling.Font;
+import org.geotools.styling.PolygonSymbolizer;
+import org.geotools.styling.Rule;
+import org.geotools.styling.Style;
+import org.geotools.styling.StyleBuilder;
+import org.geotools.styling.TextSymbolizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link StreamingRenderer#paint(Graphics2D, Rectangle, ReferencedEnvelope)} on a
+ * polygon shapefile, with and without labels, at full extent and zoomed in
+ *
+ * @author Andrea Aime - GeoSolutions
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class RenderingBenchmark {
+
+    static final int SIZE = 768;
+
+    @Param({ "20000" })
+    int count;
+
+    @Param({ "false", "true" })
+    boolean labels;
+
+    File directory;
+
+    ShapefileDataStore store;
+
+    MapContent map;
+
+    BufferedImage image;
+
+    ReferencedEnvelope fullExtent;
+
+    ReferencedEnvelope zoomedExtent;
+
+    @Setup
+    public void setup() throws IOException {
+        directory = BenchmarkData.createTempDirectory("rendering-benchmark");
+        File file = BenchmarkData.createPolygonShapefile(directory, "polygons", count, 16);
+        store = new ShapefileDataStore(DataUtilities.fileToURL(file));
+
+        StyleBuilder sb = new StyleBuilder();
+        PolygonSymbolizer polygon = sb.createPolygonSymbolizer(Color.LIGHT_GRAY, Color.BLACK, 1);
+        Rule rule = sb.createRule(polygon);
+        if (labels) {
+            TextSymbolizer text = sb.createTextSymbolizer(Color.BLACK, (Font) null, "name");
+            rule.symbolizers().add(text);
+        }
+        Style style = sb.createStyle();
+        style.featureTypeStyles().add(sb.createFeatureTypeStyle(null, rule));
+
+        map = new MapContent();
+        map.addLayer(new FeatureLayer(store.getFeatureSource(), style));
+
+        image = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_4BYTE_ABGR);
+        fullExtent = new ReferencedEnvelope(BenchmarkData.MIN_X, BenchmarkData.MAX_X,
+                BenchmarkData.MIN_Y, BenchmarkData.MAX_Y, DefaultGeographicCRS.WGS84);
+        zoomedExtent = new ReferencedEnvelope(5, 10, 45, 50, DefaultGeographicCRS.WGS84);
+    }
+
+    @TearDown
+    public void tearDown() {
+        map.dispose();
+        store.dispose();
+        BenchmarkData.delete(directory);
+    }
+
+    @Benchmark
+    public BufferedImage paintFullExtent() {
+        return paint(fullExtent);
+    }
+
+    @Benchmark
+    public BufferedImage paintZoomedIn() {
+        return paint(zoomedExtent);
+    }
+
+    BufferedImage paint(ReferencedEnvelope extent) {
+        Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, SIZE, SIZE);
+            graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                    RenderingHints.VALUE_ANTIALIAS_ON);
+            StreamingRenderer renderer = new StreamingRenderer();
+            renderer.setMapContent(map);
+            renderer.paint(graphics, new Rectangle(SIZE, SIZE), extent);
+        } finally {
+            graphics.dispose();
+        }
+        return image;
+    }
+}
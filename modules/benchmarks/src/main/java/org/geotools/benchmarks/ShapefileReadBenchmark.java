@@ -0,0 +1,130 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.geotools.data.DataUtilities;
+import org.geotools.data.Query;
+import org.geotools.data.shapefile.ShapefileDataStore;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.data.simple.SimpleFeatureSource;
+import org.geotools.factory.CommonFactoryFinder;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory2;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the throughput of {@link ShapefileDataStore} reads: full scans, bounding box
+ * queries using the spatial index, and attribute filters
+ *
+ * @author Andrea Aime - GeoSolutions
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ShapefileReadBenchmark {
+
+    static final FilterFactory2 FF = CommonFactoryFinder.getFilterFactory2();
+
+    @Param({ "10000", "100000" })
+    int count;
+
+    File directory;
+
+    ShapefileDataStore store;
+
+    SimpleFeatureSource source;
+
+    Filter bboxFilter;
+
+    Filter attributeFilter;
+
+    @Setup
+    public void setup() throws IOException {
+        directory = BenchmarkData.createTempDirectory("shapefile-benchmark");
+        File file = BenchmarkData.createPolygonShapefile(directory, "polygons", count, 16);
+        store = new ShapefileDataStore(DataUtilities.fileToURL(file));
+        source = store.getFeatureSource();
+        // about 4% of the data area
+        bboxFilter = FF.bbox("the_geom", 0, 45, 8, 50, "EPSG:4326");
+        attributeFilter = FF.and(FF.equals(FF.property("category"), FF.literal("park")),
+                FF.greater(FF.property("population"), FF.literal(50000)));
+    }
+
+    @TearDown
+    public void tearDown() {
+        store.dispose();
+        BenchmarkData.delete(directory);
+    }
+
+    @Benchmark
+    public int fullScan(Blackhole blackhole) throws IOException {
+        return consume(new Query(source.getSchema().getTypeName()), blackhole);
+    }
+
+    @Benchmark
+    public int fullScanAttributesOnly(Blackhole blackhole) throws IOException {
+        Query query = new Query(source.getSchema().getTypeName(), Filter.INCLUDE, new String[] {
+                "name", "population" });
+        return consume(query, blackhole);
+    }
+
+    @Benchmark
+    public int bboxScan(Blackhole blackhole) throws IOException {
+        return consume(new Query(source.getSchema().getTypeName(), bboxFilter), blackhole);
+    }
+
+    @Benchmark
+    public int attributeFilterScan(Blackhole blackhole) throws IOException {
+        return consume(new Query(source.getSchema().getTypeName(), attributeFilter), blackhole);
+    }
+
+    int consume(Query query, Blackhole blackhole) throws IOException {
+        int count = 0;
+        SimpleFeatureIterator it = source.getFeatures(query).features();
+        try {
+            while (it.hasNext()) {
+                SimpleFeature feature = it.next();
+                blackhole.consume(feature.getDefaultGeometry());
+                blackhole.consume(feature.getAttribute(1));
+                count++;
+            }
+        } finally {
+            it.close();
+        }
+        return count;
+    }
+}
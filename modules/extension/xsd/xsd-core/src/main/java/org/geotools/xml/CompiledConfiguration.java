@@ -0,0 +1,154 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.xml;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import javax.xml.namespace.QName;
+
+import org.eclipse.xsd.XSDFeature;
+import org.eclipse.xsd.XSDSchema;
+import org.geotools.xml.impl.BindingLoader;
+import org.geotools.xml.impl.BindingWalker;
+
+/**
+ * A snapshot of a {@link Configuration} that can be built once and shared among any number of
+ * {@link Parser} and {@link Encoder} instances, also concurrently.
+ * <p>
+ * Setting up a parser or an encoder from a plain configuration requires collecting the bindings
+ * of the whole dependency tree, and then walking the schema type hierarchy to find out which
+ * bindings apply to each element, every single time. A compiled configuration does the first
+ * once and for all, and remembers the result of the second across documents:
+ * <ul>
+ * <li>the schema of the configuration is resolved upfront</li>
+ * <li>the bindings are collected into an immutable lookup table, keyed by element/type name</li>
+ * <li>the binding names found walking the type hierarchy of each element are cached, so that
+ * later documents only need to instantiate the bindings in their own context</li>
+ * </ul>
+ * </p>
+ * <p>
+ * The snapshot is taken at construction time, changes to the configuration bindings or to the
+ * flags driving them won't be visible afterwards, a new compiled configuration has to be built
+ * instead. Bindings registered as instances (as opposed to classes) are shared among all the
+ * parsers and encoders using this object, so they must be thread safe. Parser properties and the
+ * context are still setup against the original configuration for each document.
+ * </p>
+ * <p>
+ * Example usage:
+ * <pre>
+ * <code>
+ *  //once, at startup
+ *  CompiledConfiguration compiled = new CompiledConfiguration(new GMLConfiguration());
+ *
+ *  //then for each request, in any thread
+ *  Parser parser = new Parser(compiled);
+ *  Object result = parser.parse(input);
+ * </code>
+ * </pre>
+ * </p>
+ *
+ * @author Andrea Aime - GeoSolutions
+ */
+public class CompiledConfiguration {
+
+    /**
+     * The original configuration
+     */
+    final Configuration configuration;
+
+    /**
+     * The resolved schema
+     */
+    final XSDSchema schema;
+
+    /**
+     * The immutable binding lookup table, QName to binding class or instance
+     */
+    final Map bindings;
+
+    /**
+     * Loader working off the immutable bindings, it creates a new binding instance at each call
+     * and can thus be shared
+     */
+    final BindingLoader bindingLoader;
+
+    /**
+     * Binding names of each schema component, features are weakly referenced so that schemas
+     * pulled in by instance documents can be garbage collected along with their cache entries
+     */
+    final Map<XSDFeature, QName[]> chains;
+
+    /**
+     * Compiles the specified configuration.
+     *
+     * @param configuration The configuration to compile, must not be <code>null</code>
+     * @throws IOException If the configuration schema could not be loaded
+     */
+    public CompiledConfiguration(Configuration configuration) throws IOException {
+        if (configuration == null) {
+            throw new NullPointerException("configuration");
+        }
+        this.configuration = configuration;
+        this.schema = configuration.getXSD().getSchema();
+        this.bindings = Collections.unmodifiableMap(new HashMap(configuration.setupBindings()));
+        this.bindingLoader = new BindingLoader(bindings);
+        this.chains = Collections.synchronizedMap(new WeakHashMap<XSDFeature, QName[]>());
+    }
+
+    /**
+     * The configuration this object has been compiled from.
+     */
+    public Configuration getConfiguration() {
+        return configuration;
+    }
+
+    /**
+     * The schema of the configuration.
+     */
+    public XSDSchema getSchema() {
+        return schema;
+    }
+
+    /**
+     * The bindings of the configuration and all of its dependencies, keyed by {@link QName}.
+     * The map is immutable.
+     */
+    public Map getBindings() {
+        return bindings;
+    }
+
+    /**
+     * Returns the binding loader backed by the compiled bindings. This method is for internal use
+     * only.
+     */
+    public BindingLoader getBindingLoader() {
+        return bindingLoader;
+    }
+
+    /**
+     * Creates a new binding walker sharing the binding hierarchy cache of this configuration.
+     * The walker itself is not thread safe, a new one must be created for each parser/encoder.
+     * This method is for internal use only.
+     */
+    public BindingWalker createBindingWalker() {
+        return new BindingWalker(bindingLoader, chains);
+    }
+}
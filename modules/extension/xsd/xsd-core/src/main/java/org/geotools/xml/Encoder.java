@@ -215,12 +215,34 @@ public class Encoder {
      * @param schema The schema instance.
      */
     public Encoder(Configuration configuration, XSDSchema schema) {
+        this(configuration, schema, new BindingLoader(configuration.setupBindings()));
+    }
+
+    /**
+     * Creates an encoder from a compiled configuration, reusing its schema, bindings and
+     * binding hierarchies instead of setting them up from scratch.
+     *
+     * @param configuration The compiled encoder configuration.
+     *
+     * @since 12.0
+     */
+    public Encoder(CompiledConfiguration configuration) {
+        this(configuration.getConfiguration(), configuration.getSchema(), configuration
+                .getBindingLoader(), configuration.createBindingWalker());
+    }
+
+    private Encoder(Configuration configuration, XSDSchema schema, BindingLoader bindingLoader) {
+        this(configuration, schema, bindingLoader, new BindingWalker(bindingLoader));
+    }
+
+    private Encoder(Configuration configuration, XSDSchema schema, BindingLoader bindingLoader,
+            BindingWalker bindingWalker) {
         this.schema = schema;
 
         index = new SchemaIndexImpl(new XSDSchema[] { schema });
 
-        bindingLoader = new BindingLoader(configuration.setupBindings());
-        bindingWalker = new BindingWalker(bindingLoader);
+        this.bindingLoader = bindingLoader;
+        this.bindingWalker = bindingWalker;
 
         //create the context
         context = new DefaultPicoContainer();
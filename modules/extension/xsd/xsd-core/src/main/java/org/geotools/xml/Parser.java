@@ -97,6 +97,28 @@ public class Parser {
         configuration.setupParser(this);
     }
 
+    /**
+     * Creates a new instance of the parser from a compiled configuration.
+     * <p>
+     * The bindings and binding hierarchies are taken from the compiled configuration instead of
+     * being setup from scratch, which makes this constructor the preferred one when the same
+     * configuration is used to parse many documents.
+     * </p>
+     *
+     * @param configuration The compiled parser configuration, must never be <code>null</code>.
+     *
+     * @since 12.0
+     */
+    public Parser(CompiledConfiguration configuration) {
+        if (configuration == null) {
+            throw new NullPointerException("configuration");
+        }
+
+        handler = new ParserHandler(configuration);
+
+        configuration.getConfiguration().setupParser(this);
+    }
+
     /**
      * Creates a new instance of the parser.
      *
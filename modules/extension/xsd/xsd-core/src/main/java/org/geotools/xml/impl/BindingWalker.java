@@ -28,6 +28,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Stack;
 import javax.xml.namespace.QName;
 
@@ -46,14 +47,29 @@ public class BindingWalker implements TypeWalker.Visitor {
     BindingLoader loader;
     
     SoftValueHashMap /*<XSDFeature,BindingExecutionChain>*/ chains;
+    
+    /** binding names cache shared among walkers, may be null */
+    Map<XSDFeature, QName[]> names;
     TypeWalker typeWalker;
     MutablePicoContainer context;
     ArrayList bindings;
+    ArrayList<QName> bindingNames;
     XSDFeature component;
     XSDTypeDefinition container;
 
     public BindingWalker(BindingLoader factory) {
+        this(factory, null);
+    }
+
+    /**
+     * Creates a walker that looks up the binding names of each component in the specified
+     * cache before walking its type hierarchy, and populates it on a miss. The cache can be
+     * shared among walkers, but it must be thread safe and be used only with loaders backed
+     * by the same bindings.
+     */
+    public BindingWalker(BindingLoader factory, Map<XSDFeature, QName[]> names) {
         this.loader = factory;
+        this.names = names;
 
         chains = new SoftValueHashMap(100);
         typeWalker = new TypeWalker();
@@ -137,6 +153,7 @@ public class BindingWalker implements TypeWalker.Visitor {
         if (binding != null) {
             //add the binding
             bindings.add(binding);
+            bindingNames.add(bindingName);
 
             //check execution mode, if override break out
             if (binding.getExecutionMode() == Binding.OVERRIDE) {
@@ -151,11 +168,25 @@ public class BindingWalker implements TypeWalker.Visitor {
         MutablePicoContainer context) {
         BindingExecutionChain chain = (BindingExecutionChain) chains.get(component);
 
+        if (chain == null && names != null) {
+            //did another walker already figure out the bindings?
+            QName[] cached = names.get(component);
+            if (cached != null) {
+                List bindings = new ArrayList(cached.length);
+                for (QName name : cached) {
+                    bindings.add(loader.loadBinding(name, context));
+                }
+                chain = new BindingExecutionChain(bindings);
+                chains.put(component, chain);
+            }
+        }
+
         if (chain == null) {
             this.container = container;
             this.component = component;
             this.context = context;
             this.bindings = new ArrayList();
+            this.bindingNames = new ArrayList<QName>();
 
             //first walk the type hierarchy to get the binding objects
             typeWalker.walk(component.getType(), this);
@@ -172,15 +203,21 @@ public class BindingWalker implements TypeWalker.Visitor {
                         //override, clear the binding list
                         bindings.clear();
                         bindings.add(binding);
+                        bindingNames.clear();
+                        bindingNames.add(qName);
                     } else {
                         //not override, add as first
                         bindings.add(0, binding);
+                        bindingNames.add(0, qName);
                     }
                 }
             }
 
             chain = new BindingExecutionChain(bindings);
             chains.put(component, chain);
+            if (names != null) {
+                names.put(component, bindingNames.toArray(new QName[bindingNames.size()]));
+            }
         }
 
         chain.execute(visitor);
@@ -0,0 +1,240 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.xml.impl;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * A list of doubles backed by a primitive array, used as the pre-parsed value of xs:double
+ * lists. The list is parsed straight out of the element text, without splitting it into tokens
+ * and without boxing the values. Bindings that know about this class can grab the backing array
+ * via {@link #toDoubleArray()}, others will see a plain {@link java.util.List} of {@link Double}.
+ *
+ * @author Andrea Aime - GeoSolutions
+ */
+public class DoubleList extends AbstractList<Double> implements RandomAccess {
+
+    /**
+     * Powers of ten that can be represented exactly as doubles
+     */
+    static final double[] POWERS_OF_TEN = new double[23];
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    /**
+     * Largest mantissa that can be represented exactly as a double (2^53)
+     */
+    static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    double[] values;
+
+    int size;
+
+    public DoubleList(double[] values, int size) {
+        this.values = values;
+        this.size = size;
+    }
+
+    /**
+     * Parses a whitespace separated list of doubles.
+     *
+     * @return The parsed list, or null if the text is empty or contains a value that is not a
+     *         valid xs:double, in which case the caller should fall back on the generic parsing
+     *         path to report the error
+     */
+    public static DoubleList parse(CharSequence text) {
+        double[] values = new double[Math.max(4, text.length() / 8)];
+        int size = 0;
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            // skip the separators
+            while (i < length && isWhitespace(text.charAt(i))) {
+                i++;
+            }
+            if (i == length) {
+                break;
+            }
+            int start = i;
+            while (i < length && !isWhitespace(text.charAt(i))) {
+                i++;
+            }
+
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            try {
+                values[size++] = parseDouble(text, start, i);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        if (size == 0) {
+            return null;
+        }
+        return new DoubleList(values, size);
+    }
+
+    /**
+     * Parses a xs:double from a portion of a char sequence, without building a string for it.
+     * Numbers with up to 15 significant digits and a small exponent, which covers the vast
+     * majority of coordinates found in GML documents, are parsed directly, the others are
+     * delegated to {@link Double#parseDouble(String)}.
+     *
+     * @param text The text containing the number
+     * @param start The index of the first char of the number
+     * @param end The index after the last char of the number
+     * @throws NumberFormatException If the text is not a valid number
+     */
+    public static double parseDouble(CharSequence text, int start, int end) {
+        if (start >= end) {
+            throw new NumberFormatException("Empty value");
+        }
+        int i = start;
+        boolean negative = false;
+        char c = text.charAt(i);
+        if (c == '-' || c == '+') {
+            negative = c == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int exponent = 0;
+        int digits = 0;
+        boolean found = false;
+        boolean exact = true;
+        // integer part
+        while (i < end && (c = text.charAt(i)) >= '0' && c <= '9') {
+            found = true;
+            if (digits < 18) {
+                mantissa = mantissa * 10 + (c - '0');
+                if (mantissa != 0) {
+                    digits++;
+                }
+            } else {
+                exponent++;
+                exact = false;
+            }
+            i++;
+        }
+        // fractional part
+        if (i < end && text.charAt(i) == '.') {
+            i++;
+            while (i < end && (c = text.charAt(i)) >= '0' && c <= '9') {
+                found = true;
+                if (digits < 18) {
+                    mantissa = mantissa * 10 + (c - '0');
+                    if (mantissa != 0) {
+                        digits++;
+                    }
+                    exponent--;
+                } else {
+                    exact = false;
+                }
+                i++;
+            }
+        }
+        if (!found) {
+            return parseSlow(text, start, end);
+        }
+        // exponent
+        if (i < end && ((c = text.charAt(i)) == 'e' || c == 'E')) {
+            i++;
+            boolean negativeExponent = false;
+            if (i < end && ((c = text.charAt(i)) == '-' || c == '+')) {
+                negativeExponent = c == '-';
+                i++;
+            }
+            int exp = 0;
+            int expStart = i;
+            while (i < end && (c = text.charAt(i)) >= '0' && c <= '9') {
+                if (exp < 10000) {
+                    exp = exp * 10 + (c - '0');
+                }
+                i++;
+            }
+            if (i == expStart) {
+                throw new NumberFormatException("Invalid number: " + text.subSequence(start, end));
+            }
+            exponent += negativeExponent ? -exp : exp;
+        }
+        if (i != end) {
+            // trailing garbage, let the JDK decide (e.g. "1.0d" is accepted by it)
+            return parseSlow(text, start, end);
+        }
+
+        if (exact && mantissa < MAX_EXACT_MANTISSA && exponent > -POWERS_OF_TEN.length
+                && exponent < POWERS_OF_TEN.length) {
+            // both the mantissa and the power of ten are exact, a single operation
+            // gives back a correctly rounded result
+            double value = mantissa;
+            if (exponent < 0) {
+                value /= POWERS_OF_TEN[-exponent];
+            } else if (exponent > 0) {
+                value *= POWERS_OF_TEN[exponent];
+            }
+            return negative ? -value : value;
+        }
+        return parseSlow(text, start, end);
+    }
+
+    static double parseSlow(CharSequence text, int start, int end) {
+        String value = text.subSequence(start, end).toString();
+        if ("INF".equals(value)) {
+            return Double.POSITIVE_INFINITY;
+        } else if ("-INF".equals(value)) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        return Double.parseDouble(value);
+    }
+
+    static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\n' || c == '\t' || c == '\r';
+    }
+
+    @Override
+    public Double get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return values[index];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the values as a primitive array. The backing array is returned as is, without
+     * copies, when it has the same size as the list.
+     */
+    public double[] toDoubleArray() {
+        if (values.length == size) {
+            return values;
+        }
+        values = Arrays.copyOf(values, size);
+        return values;
+    }
+}
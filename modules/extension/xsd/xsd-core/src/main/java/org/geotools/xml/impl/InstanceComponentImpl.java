@@ -35,7 +35,7 @@ public abstract class InstanceComponentImpl implements InstanceComponent {
     String name;
 
     /** text **/
-    StringBuffer text;
+    StringBuilder text;
 
     public XSDNamedComponent getDeclaration() {
         // TODO Auto-generated method stub
@@ -63,25 +63,33 @@ public abstract class InstanceComponentImpl implements InstanceComponent {
     }
 
     public void setText(String text) {
-        this.text = (text != null) ? new StringBuffer(text) : new StringBuffer();
+        this.text = (text != null) ? new StringBuilder(text) : new StringBuilder();
     }
 
     public void addText(String text) {
         if (this.text != null) {
             this.text.append(text);
         } else {
-            this.text = new StringBuffer(text);
+            this.text = new StringBuilder(text);
         }
     }
 
     public void addText(char[] ch, int start, int length) {
         if (text == null) {
-            text = new StringBuffer();
+            text = new StringBuilder();
         }
 
         text.append(ch, start, length);
     }
 
+    /**
+     * Returns the accumulated text without copying it into a new string, allowing large
+     * text contents (e.g. coordinate lists) to be scanned in place
+     */
+    CharSequence getTextSequence() {
+        return (text != null) ? text : "";
+    }
+
     /**
      * By default indicate the elements name
      */
@@ -35,6 +35,7 @@ import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import javax.xml.namespace.QName;
@@ -48,6 +49,8 @@ import org.geotools.xml.Node;
 import org.geotools.xml.Schemas;
 import org.geotools.xml.SimpleBinding;
 import org.geotools.xml.impl.BindingWalker.Visitor;
+import org.geotools.xs.XS;
+import org.geotools.xs.bindings.XSDoubleBinding;
 import org.geotools.xs.facets.Whitespace;
 
 
@@ -191,6 +194,18 @@ public class ParseExecutor implements Visitor {
             }
         }
 
+        if (type != null && type.getVariety() == XSDVariety.LIST_LITERAL
+                && instance instanceof InstanceComponentImpl && isDoubleList(type, instance)) {
+            //fast path for lists of doubles (e.g. gml coordinates), scan the values straight 
+            // out of the text buffer instead of splitting it and parsing each value through 
+            // the item type bindings
+            DoubleList doubles = DoubleList.parse(((InstanceComponentImpl) instance)
+                    .getTextSequence());
+            if (doubles != null) {
+                return doubles;
+            }
+        }
+
         String text = instance.getText();
 
         if (type != null) {
@@ -335,6 +350,27 @@ public class ParseExecutor implements Visitor {
         return text;
     }
 
+    /**
+     * Checks if the list type is a plain list of xs:double whose items would be parsed by the
+     * default xs:double binding, in which case the values can be parsed directly
+     */
+    boolean isDoubleList(XSDSimpleTypeDefinition type, InstanceComponent instance) {
+        XSDSimpleTypeDefinition itemType = type.getItemTypeDefinition();
+        if (itemType == null || !XS.NAMESPACE.equals(itemType.getTargetNamespace())
+                || !XS.DOUBLE.getLocalPart().equals(itemType.getName())) {
+            return false;
+        }
+
+        // the item bindings could have been overridden, or an element binding could be
+        // registered for the items, play it safe and use the generic path in that case
+        Map bindings = parser.getBindingLoader().bindings;
+        if (bindings.get(XS.DOUBLE) != XSDoubleBinding.class) {
+            return false;
+        }
+        return instance.getName() == null
+                || !bindings.containsKey(new QName(instance.getNamespace(), instance.getName()));
+    }
+
     protected Object parseFacets(InstanceComponent instance) {
         XSDTypeDefinition type = instance.getTypeDefinition();
 
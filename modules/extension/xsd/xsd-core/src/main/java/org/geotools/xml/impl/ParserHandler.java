@@ -39,6 +39,7 @@ import org.eclipse.xsd.XSDTypeDefinition;
 import org.eclipse.xsd.util.XSDSchemaLocationResolver;
 import org.eclipse.xsd.util.XSDSchemaLocator;
 import org.geotools.xml.BindingFactory;
+import org.geotools.xml.CompiledConfiguration;
 import org.geotools.xml.Configuration;
 import org.geotools.xml.ElementInstance;
 import org.geotools.xml.ParserDelegate;
@@ -105,6 +106,9 @@ public class ParserHandler extends DefaultHandler {
     /** parser config **/
     Configuration config;
 
+    /** compiled parser config, if any **/
+    CompiledConfiguration compiled;
+
     /** context, container **/
     MutablePicoContainer context;
 
@@ -143,6 +147,15 @@ public class ParserHandler extends DefaultHandler {
         uriHandlers.add(new HTTPURIHandler());
     }
 
+    /**
+     * Creates a handler that reuses the bindings and the binding hierarchies of a compiled
+     * configuration, instead of setting them up again for each document.
+     */
+    public ParserHandler(CompiledConfiguration compiled) {
+        this(compiled.getConfiguration());
+        this.compiled = compiled;
+    }
+
     public Configuration getConfiguration() {
         return config;
     }
@@ -460,7 +473,8 @@ public class ParserHandler extends DefaultHandler {
                 } else {
                     //just use the schema from configuration
                     try {
-                        schemas = new XSDSchema[] { config.getXSD().getSchema() };
+                        schemas = new XSDSchema[] { compiled != null ? compiled.getSchema()
+                                : config.getXSD().getSchema() };
                     } catch (IOException e) {
                         throw (SAXException) new SAXException().initCause(e);
                     }
@@ -794,10 +808,17 @@ O:          for (int i = 0; i < schemas.length; i++) {
     }
 
     protected void configure(Configuration config) {
+        handlerFactory = new HandlerFactoryImpl();
+        if (compiled != null) {
+            //bindings are already setup, and the walker can share the binding hierarchies
+            bindingLoader = compiled.getBindingLoader();
+            bindingWalker = compiled.createBindingWalker();
+            return;
+        }
+
         //configure the bindings
         Map bindings = config.setupBindings();
         
-        handlerFactory = new HandlerFactoryImpl();
         bindingLoader = new BindingLoader(bindings);
         bindingWalker = new BindingWalker(bindingLoader);
     }
@@ -0,0 +1,112 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.xml;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.xml.namespace.QName;
+
+import junit.framework.TestCase;
+
+import org.geotools.ml.Envelope;
+import org.geotools.ml.MLConfiguration;
+import org.geotools.ml.Mail;
+import org.geotools.ml.bindings.ML;
+import org.geotools.ml.bindings.MLSchemaLocationResolver;
+import org.geotools.xs.XS;
+
+/**
+ *
+ *
+ * @source $URL$
+ */
+public class CompiledConfigurationTest extends TestCase {
+
+    public void testBindings() throws Exception {
+        MLConfiguration configuration = new MLConfiguration();
+        CompiledConfiguration compiled = new CompiledConfiguration(configuration);
+        assertSame(configuration, compiled.getConfiguration());
+        assertEquals(ML.NAMESPACE, compiled.getSchema().getTargetNamespace());
+        assertEquals(configuration.setupBindings(), compiled.getBindings());
+        assertNotNull(compiled.getBindings().get(XS.STRING));
+
+        try {
+            compiled.getBindings().remove(XS.STRING);
+            fail("Bindings should be immutable");
+        } catch (UnsupportedOperationException e) {
+            // fine
+        }
+    }
+
+    public void testParse() throws Exception {
+        CompiledConfiguration compiled = new CompiledConfiguration(new MLConfiguration());
+        // parse the same document several times, the later ones use the cached hierarchies
+        for (int i = 0; i < 3; i++) {
+            List mails = (List) new Parser(compiled).parse(MLSchemaLocationResolver.class
+                    .getResourceAsStream("mails.xml"));
+            assertEquals(2, mails.size());
+            assertEquals(0, ((Mail) mails.get(0)).getId().intValue());
+            assertEquals(1, ((Mail) mails.get(1)).getId().intValue());
+            assertFalse(compiled.chains.isEmpty());
+        }
+    }
+
+    public void testParseConcurrent() throws Exception {
+        final CompiledConfiguration compiled = new CompiledConfiguration(new MLConfiguration());
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<List>> futures = new ArrayList<Future<List>>();
+            for (int i = 0; i < 32; i++) {
+                futures.add(executor.submit(new Callable<List>() {
+
+                    public List call() throws Exception {
+                        Parser parser = new Parser(compiled);
+                        return (List) parser.parse(MLSchemaLocationResolver.class
+                                .getResourceAsStream("mails.xml"));
+                    }
+                }));
+            }
+            for (Future<List> future : futures) {
+                List mails = future.get();
+                assertEquals(2, mails.size());
+                assertEquals(1, ((Mail) mails.get(1)).getId().intValue());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    public void testEncode() throws Exception {
+        Mail mail = new Mail(BigInteger.valueOf(10), "hi", new Envelope("me@me.org",
+                "you@you.org", Calendar.getInstance(), "hey", null), null);
+        QName name = new QName(ML.NAMESPACE, "mails");
+
+        MLConfiguration configuration = new MLConfiguration();
+        String expected = new Encoder(configuration).encodeAsString(mail, name);
+        CompiledConfiguration compiled = new CompiledConfiguration(configuration);
+        assertEquals(expected, new Encoder(compiled).encodeAsString(mail, name));
+        // second round, with the binding hierarchies cached
+        assertEquals(expected, new Encoder(compiled).encodeAsString(mail, name));
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.xml.impl;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ *
+ *
+ * @source $URL$
+ */
+public class DoubleListTest extends TestCase {
+
+    public void testParseList() throws Exception {
+        DoubleList list = DoubleList.parse("  1 2.5\n\t-3e2 \r\n 4.25E-1  ");
+        assertEquals(4, list.size());
+        double[] values = list.toDoubleArray();
+        assertEquals(4, values.length);
+        assertEquals(1d, values[0], 0d);
+        assertEquals(2.5d, values[1], 0d);
+        assertEquals(-300d, values[2], 0d);
+        assertEquals(0.425d, values[3], 0d);
+        assertEquals(Double.valueOf(2.5), list.get(1));
+    }
+
+    public void testGrowList() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            sb.append(i).append(' ');
+        }
+        DoubleList list = DoubleList.parse(sb);
+        assertEquals(1000, list.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals((double) i, list.get(i), 0d);
+        }
+    }
+
+    public void testInvalid() throws Exception {
+        assertNull(DoubleList.parse(""));
+        assertNull(DoubleList.parse("  \n "));
+        assertNull(DoubleList.parse("1 2 abc"));
+        assertNull(DoubleList.parse("1 2e"));
+    }
+
+    public void testSpecialValues() throws Exception {
+        DoubleList list = DoubleList.parse("INF -INF NaN -0");
+        assertEquals(Double.POSITIVE_INFINITY, list.get(0), 0d);
+        assertEquals(Double.NEGATIVE_INFINITY, list.get(1), 0d);
+        assertTrue(Double.isNaN(list.get(2)));
+        assertEquals(Double.doubleToLongBits(-0d), Double.doubleToLongBits(list.get(3)));
+    }
+
+    public void testSameAsJdk() throws Exception {
+        String[] values = new String[] { "0", "0.1", "-0.000123", "123456789.123456789",
+                "1.7976931348623157E308", "4.9E-324", "9007199254740993", "1e22", "1e23",
+                "-180.0", "45.123456789012345678", "00012.500", "+3.5", ".5", "5." };
+        for (String value : values) {
+            assertEquals(value, Double.parseDouble(value),
+                    DoubleList.parseDouble(value, 0, value.length()), 0d);
+        }
+
+        // random coordinates, as they would be written out by an encoder
+        Random random = new Random(0);
+        for (int i = 0; i < 10000; i++) {
+            String value = String.valueOf((random.nextDouble() - 0.5) * 360);
+            assertEquals(value, Double.parseDouble(value),
+                    DoubleList.parseDouble(value, 0, value.length()), 0d);
+        }
+    }
+}
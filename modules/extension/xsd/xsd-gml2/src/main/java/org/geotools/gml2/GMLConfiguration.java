@@ -83,6 +83,13 @@ public class GMLConfiguration extends Configuration {
      */
     public static final QName ENCODE_FEATURE_MEMBER = new QName( "org.geotools.gml", "encodeFeatureMember" );
 
+    /**
+     * Boolean property which controls whether simple feature collections are encoded by a 
+     * specialized streaming encoder that writes the features, their attributes and geometries
+     * straight to the output, instead of walking the generic schema bindings for each of them.
+     */
+    public static final QName OPTIMIZED_ENCODING = new QName( "org.geotools.gml", "optimizedEncoding" );
+
     /**
      * Srs name style to encode srsName URI's with
      */
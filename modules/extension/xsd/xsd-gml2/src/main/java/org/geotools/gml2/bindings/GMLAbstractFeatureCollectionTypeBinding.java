@@ -23,10 +23,16 @@ import javax.xml.namespace.QName;
 import org.geotools.data.simple.SimpleFeatureCollection;
 import org.geotools.feature.FeatureCollection;
 import org.geotools.gml2.GML;
+import org.geotools.gml2.SrsSyntax;
+import org.geotools.gml2.simple.FeatureCollectionEncoderDelegate;
+import org.geotools.gml2.simple.GML2FeatureCollectionEncoderDelegate;
+import org.geotools.gml2.simple.QualifiedName;
 import org.geotools.xml.AbstractComplexBinding;
+import org.geotools.xml.Configuration;
 import org.geotools.xml.ElementInstance;
 import org.geotools.xml.Node;
 import org.opengis.feature.simple.SimpleFeature;
+import org.xml.sax.helpers.NamespaceSupport;
 
 
 /**
@@ -60,6 +66,21 @@ import org.opengis.feature.simple.SimpleFeature;
  * @source $URL$
  */
 public class GMLAbstractFeatureCollectionTypeBinding extends AbstractComplexBinding {
+    Configuration configuration;
+    NamespaceSupport namespaces;
+    SrsSyntax srsSyntax;
+
+    public GMLAbstractFeatureCollectionTypeBinding() {
+        this(null, null, null);
+    }
+
+    public GMLAbstractFeatureCollectionTypeBinding(Configuration configuration,
+            NamespaceSupport namespaces, SrsSyntax srsSyntax) {
+        this.configuration = configuration;
+        this.namespaces = namespaces;
+        this.srsSyntax = srsSyntax;
+    }
+
     /**
      * @generated
      */
@@ -108,4 +129,16 @@ public class GMLAbstractFeatureCollectionTypeBinding extends AbstractComplexBind
 
         return fc;
     }
+
+    public Object getProperty(Object object, QName name) throws Exception {
+        //stream out all the feature members directly if so configured
+        if (GML.featureMember.equals(name) && FeatureCollectionEncoderDelegate.isEnabled(configuration)
+                && FeatureCollectionEncoderDelegate.canEncode(object)) {
+            return new GML2FeatureCollectionEncoderDelegate((SimpleFeatureCollection) object,
+                    QualifiedName.build(GML.featureMember, namespaces), configuration, namespaces,
+                    srsSyntax);
+        }
+
+        return super.getProperty(object, name);
+    }
 }
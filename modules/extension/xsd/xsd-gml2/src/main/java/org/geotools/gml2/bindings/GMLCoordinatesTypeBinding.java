@@ -16,6 +16,7 @@
  */
 package org.geotools.gml2.bindings;
 
+import java.util.Arrays;
 import java.util.StringTokenizer;
 
 import javax.xml.namespace.QName;
@@ -24,6 +25,7 @@ import org.geotools.gml2.GML;
 import org.geotools.xml.AbstractComplexBinding;
 import org.geotools.xml.ElementInstance;
 import org.geotools.xml.Node;
+import org.geotools.xml.impl.DoubleList;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 
@@ -121,6 +123,16 @@ public class GMLCoordinatesTypeBinding extends AbstractComplexBinding {
         //do the parsing
         String text = instance.getText();
 
+        if (".".equals(decimal) && cs.length() == 1 && ts.length() == 1
+                && isWhitespace(ts.charAt(0)) && !isWhitespace(cs.charAt(0))
+                && cs.charAt(0) != '.') {
+            //fast path for the common separators, scan the ordinates in place
+            CoordinateSequence seq = parseCoordinates(text, cs.charAt(0));
+            if (seq != null) {
+                return seq;
+            }
+        }
+
         //eliminate newlines, repeated spaces, etc
         final String anyBlankSeq = "\\s+";
         final String singleSpace = " ";
@@ -179,6 +191,76 @@ public class GMLCoordinatesTypeBinding extends AbstractComplexBinding {
         return seq;
     }
 
+    /**
+     * Parses the coordinates without building intermediate strings for the tuples and the 
+     * ordinates. Returns null if the text cannot be handled, in which case the generic parsing 
+     * code is used instead
+     */
+    CoordinateSequence parseCoordinates(String text, char cs) {
+        double[] ordinates = new double[Math.max(4, text.length() / 8)];
+        int count = 0;
+        int dimension = -1;
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            //skip tuple separators
+            while (i < length && isWhitespace(text.charAt(i))) {
+                i++;
+            }
+            if (i == length) {
+                break;
+            }
+
+            int tupleDimension = 0;
+            while (true) {
+                int start = i;
+                char c;
+                while (i < length && (c = text.charAt(i)) != cs && !isWhitespace(c)) {
+                    i++;
+                }
+                if (count == ordinates.length) {
+                    ordinates = Arrays.copyOf(ordinates, count * 2);
+                }
+                try {
+                    ordinates[count++] = DoubleList.parseDouble(text, start, i);
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+                tupleDimension++;
+
+                if (i < length && text.charAt(i) == cs) {
+                    i++;
+                } else {
+                    break;
+                }
+            }
+
+            if (dimension == -1) {
+                dimension = tupleDimension;
+            } else if (dimension != tupleDimension) {
+                return null;
+            }
+        }
+
+        if (count == 0 || dimension > 3) {
+            return null;
+        }
+
+        int size = count / dimension;
+        CoordinateSequence seq = csFactory.create(size, dimension);
+        for (int j = 0, k = 0; j < size; j++) {
+            for (int d = 0; d < dimension; d++) {
+                seq.setOrdinate(j, d, ordinates[k++]);
+            }
+        }
+
+        return seq;
+    }
+
+    static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\n' || c == '\t' || c == '\r';
+    }
+
     public Element encode(Object object, Document document, Element value)
         throws Exception {
         CoordinateSequence coordinates = (CoordinateSequence) object;
@@ -0,0 +1,370 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gml2.simple;
+
+import java.sql.Time;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.logging.Logger;
+
+import javax.xml.namespace.QName;
+
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.gml2.GMLConfiguration;
+import org.geotools.gml2.SrsSyntax;
+import org.geotools.gml2.bindings.GML2EncodingUtils;
+import org.geotools.util.Converters;
+import org.geotools.util.logging.Logging;
+import org.geotools.xml.Configuration;
+import org.geotools.xml.Encoder;
+import org.geotools.xml.EncoderDelegate;
+import org.geotools.xml.XSD;
+import org.geotools.xml.impl.DatatypeConverterImpl;
+import org.geotools.xs.XS;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeDescriptor;
+import org.opengis.geometry.BoundingBox;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.NamespaceSupport;
+
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryCollection;
+import com.vividsolutions.jts.geom.LineString;
+import com.vividsolutions.jts.geom.LinearRing;
+import com.vividsolutions.jts.geom.MultiLineString;
+import com.vividsolutions.jts.geom.MultiPoint;
+import com.vividsolutions.jts.geom.MultiPolygon;
+import com.vividsolutions.jts.geom.Point;
+import com.vividsolutions.jts.geom.Polygon;
+
+/**
+ * Base class for the streaming encoders of simple feature collections.
+ * <p>
+ * The generic {@link Encoder} walks the schema bindings for every feature, attribute and
+ * geometry it encodes, building a DOM element for each of them. When the features are simple
+ * their structure is fully known in advance, so this delegate computes it once per collection,
+ * and then writes the features straight to the output {@link ContentHandler}.
+ * </p>
+ * <p>
+ * The delegate is used by the feature collection bindings when the
+ * {@link GMLConfiguration#OPTIMIZED_ENCODING} property is set, and only for collections that
+ * {@link #canEncode(Object) can be encoded}, the others keep on going through the generic
+ * encoder. The geometries that are not plain JTS ones are encoded by the generic encoder as well.
+ * </p>
+ *
+ * @author Andrea Aime - GeoSolutions
+ */
+public abstract class FeatureCollectionEncoderDelegate implements EncoderDelegate {
+
+    static final Logger LOGGER = Logging.getLogger("org.geotools.gml");
+
+    protected final SimpleFeatureCollection features;
+
+    protected final QualifiedName member;
+
+    protected final XSD gml;
+
+    protected final Configuration configuration;
+
+    protected final NamespaceSupport namespaces;
+
+    protected final SrsSyntax srsSyntax;
+
+    protected final boolean encodeBounds;
+
+    protected final QualifiedName boundedBy;
+
+    protected final String gmlPrefix;
+
+    protected final String xsPrefix;
+
+    /**
+     * Reusable attribute holder, cleared before each use
+     */
+    protected final AttributesImpl atts = new AttributesImpl();
+
+    /**
+     * The encoder for the geometries not handled directly, created on demand and reused for
+     * all of them, as setting up an encoder is expensive
+     */
+    protected Encoder genericEncoder;
+
+    /**
+     * @param features The features to be encoded
+     * @param member The element wrapping each feature, or null if the features are to be written
+     *        one after the other without any wrapper
+     * @param gml The GML schema, used to determine the GML namespace
+     * @param configuration The configuration driving the encoding
+     * @param namespaces The namespace mappings of the encoder
+     * @param srsSyntax The syntax used to encode the srsName attributes
+     */
+    protected FeatureCollectionEncoderDelegate(SimpleFeatureCollection features,
+            QualifiedName member, XSD gml, Configuration configuration,
+            NamespaceSupport namespaces, SrsSyntax srsSyntax) {
+        this.features = features;
+        this.member = member;
+        this.gml = gml;
+        this.configuration = configuration;
+        this.namespaces = namespaces;
+        this.srsSyntax = srsSyntax;
+        this.encodeBounds = !configuration.hasProperty(GMLConfiguration.NO_FEATURE_BOUNDS);
+
+        String prefix = namespaces.getPrefix(gml.getNamespaceURI());
+        this.gmlPrefix = prefix != null ? prefix : "gml";
+        this.boundedBy = gml("boundedBy");
+        prefix = namespaces.getPrefix(XS.NAMESPACE);
+        this.xsPrefix = prefix != null ? prefix : "xs";
+    }
+
+    /**
+     * Returns true if the optimized encoding has been enabled in the configuration
+     */
+    public static boolean isEnabled(Configuration configuration) {
+        return configuration != null
+                && configuration.hasProperty(GMLConfiguration.OPTIMIZED_ENCODING);
+    }
+
+    /**
+     * Returns true if the object is a simple feature collection whose attributes can all be
+     * written out directly
+     */
+    public static boolean canEncode(Object object) {
+        if (!(object instanceof SimpleFeatureCollection)) {
+            return false;
+        }
+        SimpleFeatureType schema = ((SimpleFeatureCollection) object).getSchema();
+        if (schema == null || schema.getName().getNamespaceURI() == null) {
+            return false;
+        }
+        for (AttributeDescriptor ad : schema.getAttributeDescriptors()) {
+            if (ad.getMaxOccurs() > 1 || !isDirectlyEncodable(ad.getType().getBinding())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static boolean isDirectlyEncodable(Class<?> binding) {
+        return Geometry.class.isAssignableFrom(binding)
+                || CharSequence.class.isAssignableFrom(binding)
+                || Number.class.isAssignableFrom(binding) || Boolean.class.equals(binding)
+                || Character.class.equals(binding) || Date.class.isAssignableFrom(binding)
+                || Calendar.class.isAssignableFrom(binding);
+    }
+
+    /**
+     * Builds a name in the GML namespace
+     */
+    protected QualifiedName gml(String localPart) {
+        return new QualifiedName(gml.getNamespaceURI(), localPart, gmlPrefix);
+    }
+
+    public void encode(ContentHandler output) throws Exception {
+        GMLWriter writer = new GMLWriter(output);
+
+        // work out the feature type structure once
+        SimpleFeatureType schema = features.getSchema();
+        String namespaceURI = schema.getName().getNamespaceURI();
+        String prefix = namespaces.getPrefix(namespaceURI);
+        boolean declare = false;
+        if (prefix == null) {
+            if (namespaceURI.equals(namespaces.getURI(""))) {
+                prefix = "";
+            } else {
+                prefix = "feature";
+                declare = true;
+                writer.startPrefixMapping(prefix, namespaceURI);
+            }
+        }
+        QualifiedName featureName = new QualifiedName(namespaceURI, schema.getTypeName(), prefix);
+        List<AttributeDescriptor> descriptors = schema.getAttributeDescriptors();
+        QualifiedName[] attributeNames = new QualifiedName[descriptors.size()];
+        for (int i = 0; i < attributeNames.length; i++) {
+            attributeNames[i] = featureName.derive(descriptors.get(i).getLocalName());
+        }
+        // the generic encoder uses the feature type crs for all geometries, look it up once
+        String srsName = getSrsName(schema.getCoordinateReferenceSystem());
+
+        SimpleFeatureIterator it = features.features();
+        try {
+            while (it.hasNext()) {
+                SimpleFeature feature = it.next();
+                if (member != null) {
+                    writer.startElement(member, null);
+                }
+                encodeFeature(writer, feature, featureName, descriptors, attributeNames,
+                        srsName);
+                if (member != null) {
+                    writer.endElement(member);
+                }
+            }
+        } finally {
+            it.close();
+        }
+
+        if (declare) {
+            writer.endPrefixMapping(prefix);
+        }
+    }
+
+    protected void encodeFeature(GMLWriter writer, SimpleFeature feature,
+            QualifiedName featureName, List<AttributeDescriptor> descriptors,
+            QualifiedName[] attributeNames, String srsName) throws Exception {
+        atts.clear();
+        addFeatureIdentifier(atts, feature.getID());
+        writer.startElement(featureName, atts);
+
+        if (encodeBounds) {
+            BoundingBox bounds = feature.getBounds();
+            if (bounds != null && !bounds.isEmpty()) {
+                writer.startElement(boundedBy, null);
+                encodeEnvelope(writer, bounds, srsName);
+                writer.endElement(boundedBy);
+            }
+        }
+
+        for (int i = 0; i < attributeNames.length; i++) {
+            Object value = feature.getAttribute(i);
+            QualifiedName name = attributeNames[i];
+            if (value == null) {
+                // same rules as the generic encoder
+                AttributeDescriptor descriptor = descriptors.get(i);
+                if (descriptor.getMinOccurs() > 0 && descriptor.isNillable()) {
+                    atts.clear();
+                    atts.addAttribute(XS.NAMESPACE, "nil", xsPrefix + ":nil", "CDATA", "true");
+                    writer.element(name, atts, null);
+                }
+            } else if (value instanceof Geometry) {
+                writer.startElement(name, null);
+                Geometry geometry = (Geometry) value;
+                if (!isEmpty(geometry)) {
+                    if (isDirectlyEncodable(geometry)) {
+                        encodeGeometry(writer, geometry, srsName);
+                    } else {
+                        encodeGeneric(writer, geometry);
+                    }
+                }
+                writer.endElement(name);
+            } else {
+                writer.element(name, null, encodeValue(value));
+            }
+        }
+
+        writer.endElement(featureName);
+    }
+
+    /**
+     * Returns true if the geometry is one of the plain JTS classes handled by
+     * {@link #encodeGeometry(GMLWriter, Geometry, String)}
+     */
+    protected boolean isDirectlyEncodable(Geometry geometry) {
+        Class<?> clazz = geometry.getClass();
+        return clazz == Point.class || clazz == LineString.class || clazz == LinearRing.class
+                || clazz == Polygon.class || clazz == MultiPoint.class
+                || clazz == MultiLineString.class || clazz == MultiPolygon.class
+                || clazz == GeometryCollection.class;
+    }
+
+    static boolean isEmpty(Geometry geometry) {
+        if (geometry.isEmpty()) {
+            // multi geometries with empty members are not considered to be empty
+            return !(geometry instanceof GeometryCollection)
+                    || geometry.getNumGeometries() == 0;
+        }
+        return false;
+    }
+
+    /**
+     * Encodes a geometry the streaming encoder does not know about through the generic encoder
+     */
+    protected void encodeGeneric(GMLWriter writer, Geometry geometry) throws Exception {
+        if (genericEncoder == null) {
+            genericEncoder = new Encoder(configuration);
+            genericEncoder.setInline(true);
+        }
+        genericEncoder.encode(geometry, getGeometryElement(), writer.getHandler());
+    }
+
+    /**
+     * Encodes a non geometric attribute value the same way the XML schema bindings do
+     */
+    protected String encodeValue(Object value) {
+        if (value instanceof String) {
+            return (String) value;
+        } else if (value instanceof java.sql.Date) {
+            return DatatypeConverterImpl.getInstance().printDate(toCalendar((Date) value));
+        } else if (value instanceof Time) {
+            return DatatypeConverterImpl.getInstance().printTime(toCalendar((Date) value));
+        } else if (value instanceof Date) {
+            return DatatypeConverterImpl.getInstance().printDateTime(toCalendar((Date) value));
+        } else if (value instanceof Calendar) {
+            return DatatypeConverterImpl.getInstance().printDateTime((Calendar) value);
+        } else if (value instanceof Double
+                && ((Double) value).doubleValue() == Double.POSITIVE_INFINITY) {
+            return "INF";
+        }
+
+        String converted = Converters.convert(value, String.class);
+        return converted != null ? converted : value.toString();
+    }
+
+    Calendar toCalendar(Date date) {
+        Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("GMT"));
+        calendar.clear();
+        calendar.setTimeInMillis(date.getTime());
+        return calendar;
+    }
+
+    /**
+     * Turns the crs into a srsName, or returns null if the crs is null or cannot be encoded
+     */
+    protected String getSrsName(CoordinateReferenceSystem crs) {
+        if (crs == null) {
+            return null;
+        }
+        return GML2EncodingUtils.toURI(crs, srsSyntax);
+    }
+
+    /**
+     * Adds the attribute holding the feature identifier
+     */
+    protected abstract void addFeatureIdentifier(AttributesImpl atts, String id);
+
+    /**
+     * Encodes the feature bounds
+     */
+    protected abstract void encodeEnvelope(GMLWriter writer, BoundingBox bounds, String srsName)
+            throws Exception;
+
+    /**
+     * Encodes a geometry, including its root element
+     */
+    protected abstract void encodeGeometry(GMLWriter writer, Geometry geometry, String srsName)
+            throws Exception;
+
+    /**
+     * The abstract geometry element, used to encode geometries through the generic encoder
+     */
+    protected abstract QName getGeometryElement();
+
+}
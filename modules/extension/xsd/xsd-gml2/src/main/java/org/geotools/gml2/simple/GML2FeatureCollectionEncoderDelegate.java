@@ -0,0 +1,202 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gml2.simple;
+
+import javax.xml.namespace.QName;
+
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.gml2.GML;
+import org.geotools.gml2.SrsSyntax;
+import org.geotools.xml.Configuration;
+import org.opengis.geometry.BoundingBox;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.NamespaceSupport;
+
+import com.vividsolutions.jts.geom.CoordinateSequence;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryCollection;
+import com.vividsolutions.jts.geom.LineString;
+import com.vividsolutions.jts.geom.MultiLineString;
+import com.vividsolutions.jts.geom.MultiPoint;
+import com.vividsolutions.jts.geom.MultiPolygon;
+import com.vividsolutions.jts.geom.Point;
+import com.vividsolutions.jts.geom.Polygon;
+
+/**
+ * Streaming encoder for GML 2 simple feature collections, see
+ * {@link FeatureCollectionEncoderDelegate}
+ *
+ * @author Andrea Aime - GeoSolutions
+ */
+public class GML2FeatureCollectionEncoderDelegate extends FeatureCollectionEncoderDelegate {
+
+    final QualifiedName box;
+
+    final QualifiedName coordinates;
+
+    final QualifiedName point;
+
+    final QualifiedName lineString;
+
+    final QualifiedName linearRing;
+
+    final QualifiedName polygon;
+
+    final QualifiedName outerBoundaryIs;
+
+    final QualifiedName innerBoundaryIs;
+
+    final QualifiedName multiPoint;
+
+    final QualifiedName pointMember;
+
+    final QualifiedName multiLineString;
+
+    final QualifiedName lineStringMember;
+
+    final QualifiedName multiPolygon;
+
+    final QualifiedName polygonMember;
+
+    final QualifiedName multiGeometry;
+
+    final QualifiedName geometryMember;
+
+    final AttributesImpl coordinatesAtts = new AttributesImpl();
+
+    public GML2FeatureCollectionEncoderDelegate(SimpleFeatureCollection features,
+            QualifiedName member, Configuration configuration, NamespaceSupport namespaces,
+            SrsSyntax srsSyntax) {
+        super(features, member, GML.getInstance(), configuration, namespaces, srsSyntax);
+        this.box = gml("Box");
+        this.coordinates = gml("coordinates");
+        this.point = gml("Point");
+        this.lineString = gml("LineString");
+        this.linearRing = gml("LinearRing");
+        this.polygon = gml("Polygon");
+        this.outerBoundaryIs = gml("outerBoundaryIs");
+        this.innerBoundaryIs = gml("innerBoundaryIs");
+        this.multiPoint = gml("MultiPoint");
+        this.pointMember = gml("pointMember");
+        this.multiLineString = gml("MultiLineString");
+        this.lineStringMember = gml("lineStringMember");
+        this.multiPolygon = gml("MultiPolygon");
+        this.polygonMember = gml("polygonMember");
+        this.multiGeometry = gml("MultiGeometry");
+        this.geometryMember = gml("geometryMember");
+
+        coordinatesAtts.addAttribute("", "decimal", "decimal", "CDATA", ".");
+        coordinatesAtts.addAttribute("", "cs", "cs", "CDATA", ",");
+        coordinatesAtts.addAttribute("", "ts", "ts", "CDATA", " ");
+    }
+
+    @Override
+    protected void addFeatureIdentifier(AttributesImpl atts, String id) {
+        if (id != null) {
+            atts.addAttribute("", "fid", "fid", "CDATA", id);
+        }
+    }
+
+    @Override
+    protected void encodeEnvelope(GMLWriter writer, BoundingBox bounds, String srsName)
+            throws Exception {
+        writer.startElement(box, srsName(srsName));
+        writer.startElement(coordinates, coordinatesAtts);
+        writer.ordinates(',', bounds.getMinX(), bounds.getMinY());
+        writer.characters(" ");
+        writer.ordinates(',', bounds.getMaxX(), bounds.getMaxY());
+        writer.endElement(coordinates);
+        writer.endElement(box);
+    }
+
+    AttributesImpl srsName(String srsName) {
+        atts.clear();
+        if (srsName != null) {
+            atts.addAttribute("", "srsName", "srsName", "CDATA", srsName);
+        }
+        return atts;
+    }
+
+    @Override
+    protected void encodeGeometry(GMLWriter writer, Geometry geometry, String srsName)
+            throws Exception {
+        encodeGeometry(writer, geometry, srsName(srsName));
+    }
+
+    void encodeGeometry(GMLWriter writer, Geometry geometry, AttributesImpl atts)
+            throws Exception {
+        if (geometry instanceof Point) {
+            writer.startElement(point, atts);
+            encodeCoordinates(writer, ((Point) geometry).getCoordinateSequence());
+            writer.endElement(point);
+        } else if (geometry instanceof LineString) {
+            // also handles linear rings, they can only appear as polygon boundaries in GML 2
+            writer.startElement(lineString, atts);
+            encodeCoordinates(writer, ((LineString) geometry).getCoordinateSequence());
+            writer.endElement(lineString);
+        } else if (geometry instanceof Polygon) {
+            Polygon poly = (Polygon) geometry;
+            writer.startElement(polygon, atts);
+            encodeRing(writer, outerBoundaryIs, poly.getExteriorRing());
+            for (int i = 0; i < poly.getNumInteriorRing(); i++) {
+                encodeRing(writer, innerBoundaryIs, poly.getInteriorRingN(i));
+            }
+            writer.endElement(polygon);
+        } else if (geometry instanceof MultiPoint) {
+            encodeMembers(writer, (GeometryCollection) geometry, atts, multiPoint, pointMember);
+        } else if (geometry instanceof MultiLineString) {
+            encodeMembers(writer, (GeometryCollection) geometry, atts, multiLineString,
+                    lineStringMember);
+        } else if (geometry instanceof MultiPolygon) {
+            encodeMembers(writer, (GeometryCollection) geometry, atts, multiPolygon,
+                    polygonMember);
+        } else {
+            encodeMembers(writer, (GeometryCollection) geometry, atts, multiGeometry,
+                    geometryMember);
+        }
+    }
+
+    void encodeRing(GMLWriter writer, QualifiedName boundary, LineString ring) throws Exception {
+        writer.startElement(boundary, null);
+        writer.startElement(linearRing, null);
+        encodeCoordinates(writer, ring.getCoordinateSequence());
+        writer.endElement(linearRing);
+        writer.endElement(boundary);
+    }
+
+    void encodeMembers(GMLWriter writer, GeometryCollection collection, AttributesImpl atts,
+            QualifiedName container, QualifiedName member) throws Exception {
+        writer.startElement(container, atts);
+        for (int i = 0; i < collection.getNumGeometries(); i++) {
+            writer.startElement(member, null);
+            encodeGeometry(writer, collection.getGeometryN(i), (AttributesImpl) null);
+            writer.endElement(member);
+        }
+        writer.endElement(container);
+    }
+
+    void encodeCoordinates(GMLWriter writer, CoordinateSequence cs) throws Exception {
+        writer.startElement(coordinates, coordinatesAtts);
+        writer.coordinates(cs);
+        writer.endElement(coordinates);
+    }
+
+    @Override
+    protected QName getGeometryElement() {
+        return GML._Geometry;
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gml2.simple;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+
+import com.vividsolutions.jts.geom.CoordinateSequence;
+
+/**
+ * Thin wrapper around a {@link ContentHandler} used by the streaming encoders. The text is
+ * written out of a reusable character buffer, and the ordinates are appended to it directly,
+ * without going through intermediate strings.
+ *
+ * @author Andrea Aime - GeoSolutions
+ */
+public class GMLWriter {
+
+    static final Attributes NO_ATTRIBUTES = new AttributesImpl();
+
+    /**
+     * The buffered text is handed over to the content handler once it grows past this size
+     */
+    static final int FLUSH_THRESHOLD = 4096;
+
+    final ContentHandler handler;
+
+    final StringBuilder text = new StringBuilder();
+
+    char[] buffer = new char[FLUSH_THRESHOLD * 2];
+
+    public GMLWriter(ContentHandler handler) {
+        this.handler = handler;
+    }
+
+    public void startElement(QualifiedName name, Attributes attributes) throws SAXException {
+        handler.startElement(name.namespaceURI, name.localPart, name.qualifiedName,
+                attributes == null ? NO_ATTRIBUTES : attributes);
+    }
+
+    public void endElement(QualifiedName name) throws SAXException {
+        handler.endElement(name.namespaceURI, name.localPart, name.qualifiedName);
+    }
+
+    /**
+     * Writes out a single element with the specified text content
+     */
+    public void element(QualifiedName name, Attributes attributes, String value)
+            throws SAXException {
+        startElement(name, attributes);
+        if (value != null) {
+            characters(value);
+        }
+        endElement(name);
+    }
+
+    public void characters(String value) throws SAXException {
+        int length = value.length();
+        if (length > buffer.length) {
+            buffer = new char[length];
+        }
+        value.getChars(0, length, buffer, 0);
+        handler.characters(buffer, 0, length);
+    }
+
+    /**
+     * Writes out the sequence as a GML 3 position list, that is, the ordinates separated by
+     * spaces, using the specified number of dimensions
+     */
+    public void positions(CoordinateSequence cs, int dimension) throws SAXException {
+        int size = cs.size();
+        for (int i = 0; i < size; i++) {
+            for (int d = 0; d < dimension; d++) {
+                if (i > 0 || d > 0) {
+                    text.append(' ');
+                }
+                text.append(cs.getOrdinate(i, d));
+            }
+            if (text.length() > FLUSH_THRESHOLD) {
+                flush();
+            }
+        }
+        flush();
+    }
+
+    /**
+     * Writes out the sequence as a GML 2 coordinates list, with the default separators, skipping
+     * the NaN ordinates the same way as the generic coordinates binding does
+     */
+    public void coordinates(CoordinateSequence cs) throws SAXException {
+        int size = cs.size();
+        int dimension = cs.getDimension();
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            text.append(cs.getOrdinate(i, 0));
+            if (dimension > 1) {
+                double y = cs.getOrdinate(i, 1);
+                if (!Double.isNaN(y)) {
+                    text.append(',').append(y);
+                    if (dimension > 2) {
+                        double z = cs.getOrdinate(i, 2);
+                        if (!Double.isNaN(z)) {
+                            text.append(',').append(z);
+                        }
+                    }
+                }
+            }
+            if (text.length() > FLUSH_THRESHOLD) {
+                flush();
+            }
+        }
+        flush();
+    }
+
+    /**
+     * Writes out a list of ordinates separated by the specified character
+     */
+    public void ordinates(char separator, double... ordinates) throws SAXException {
+        for (int i = 0; i < ordinates.length; i++) {
+            if (i > 0) {
+                text.append(separator);
+            }
+            text.append(ordinates[i]);
+        }
+        flush();
+    }
+
+    void flush() throws SAXException {
+        int length = text.length();
+        if (length == 0) {
+            return;
+        }
+        if (length > buffer.length) {
+            buffer = new char[length];
+        }
+        text.getChars(0, length, buffer, 0);
+        handler.characters(buffer, 0, length);
+        text.setLength(0);
+    }
+
+    public void startPrefixMapping(String prefix, String uri) throws SAXException {
+        handler.startPrefixMapping(prefix, uri);
+    }
+
+    public void endPrefixMapping(String prefix) throws SAXException {
+        handler.endPrefixMapping(prefix);
+    }
+
+    /**
+     * The content handler this writer is encoding to
+     */
+    public ContentHandler getHandler() {
+        return handler;
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gml2.simple;
+
+import javax.xml.namespace.QName;
+
+import org.xml.sax.helpers.NamespaceSupport;
+
+/**
+ * An element or attribute name whose prefixed form is computed once, so that the streaming
+ * encoders do not need to build it again every time the element is written out.
+ *
+ * @author Andrea Aime - GeoSolutions
+ */
+public class QualifiedName {
+
+    final String namespaceURI;
+
+    final String localPart;
+
+    final String prefix;
+
+    final String qualifiedName;
+
+    public QualifiedName(String namespaceURI, String localPart, String prefix) {
+        this.namespaceURI = namespaceURI == null ? "" : namespaceURI;
+        this.localPart = localPart;
+        this.prefix = prefix == null ? "" : prefix;
+        if (this.prefix.isEmpty()) {
+            this.qualifiedName = localPart;
+        } else {
+            this.qualifiedName = prefix + ":" + localPart;
+        }
+    }
+
+    /**
+     * Builds a qualified name using the prefix the namespace is mapped to, or the prefix of the
+     * name itself if the namespace is not mapped
+     */
+    public static QualifiedName build(QName name, NamespaceSupport namespaces) {
+        String prefix = namespaces.getPrefix(name.getNamespaceURI());
+        if (prefix == null) {
+            prefix = name.getPrefix();
+        }
+        return new QualifiedName(name.getNamespaceURI(), name.getLocalPart(), prefix);
+    }
+
+    /**
+     * Returns a new name in the same namespace, and with the same prefix
+     */
+    public QualifiedName derive(String localPart) {
+        return new QualifiedName(namespaceURI, localPart, prefix);
+    }
+
+    public String getNamespaceURI() {
+        return namespaceURI;
+    }
+
+    public String getLocalPart() {
+        return localPart;
+    }
+
+    public String getPrefix() {
+        return prefix;
+    }
+
+    public String getQualifiedName() {
+        return qualifiedName;
+    }
+
+    @Override
+    public String toString() {
+        return "{" + namespaceURI + "}" + qualifiedName;
+    }
+}
@@ -105,4 +105,18 @@ public class GMLCoordinatesTypeBindingTest extends AbstractGMLBindingTest {
         assertEquals(c.getCoordinate(1), new Coordinate(9.10, 11.12));
         assertEquals(c.getCoordinate(2), new Coordinate(13.14, 15.16));
     }
+
+    public void testParse3D() throws Exception {
+        coordinates.setText("1,2,3 4,5,6");
+
+        Node node = createNode(coordinates, null, null, null, null);
+        GMLCoordinatesTypeBinding strategy = (GMLCoordinatesTypeBinding) container
+            .getComponentInstanceOfType(GMLCoordinatesTypeBinding.class);
+
+        CoordinateSequence c = (CoordinateSequence) strategy.parse(coordinates, node, null);
+        assertNotNull(c);
+        assertEquals(2, c.size());
+        assertTrue(c.getCoordinate(0).equals3D(new Coordinate(1, 2, 3)));
+        assertTrue(c.getCoordinate(1).equals3D(new Coordinate(4, 5, 6)));
+    }
 }
@@ -0,0 +1,81 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gml2.simple;
+
+import junit.framework.TestCase;
+
+import org.geotools.data.DataUtilities;
+import org.geotools.data.collection.ListFeatureCollection;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.gml2.GML;
+import org.geotools.gml2.GMLConfiguration;
+import org.geotools.gml2.TEST;
+import org.geotools.gml2.TestConfiguration;
+import org.geotools.xml.Encoder;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import com.vividsolutions.jts.io.WKTReader;
+
+/**
+ * Checks the GML 2 streaming encoder output
+ *
+ * @source $URL$
+ */
+public class GML2FeatureCollectionEncoderDelegateTest extends TestCase {
+
+    public void testEncode() throws Exception {
+        SimpleFeatureType type = DataUtilities.createType(TEST.NAMESPACE, "Roads",
+                "geom:Geometry,name:String");
+        ListFeatureCollection features = new ListFeatureCollection(type);
+        SimpleFeatureBuilder fb = new SimpleFeatureBuilder(type);
+        WKTReader reader = new WKTReader();
+        fb.add(reader.read("POINT(1 2)"));
+        fb.add("first");
+        features.add(fb.buildFeature("Roads.1"));
+        fb.add(reader.read("POLYGON((0 0, 10 0, 10 10, 0 10, 0 0), (1 1, 2 1, 2 2, 1 1))"));
+        fb.add("second");
+        features.add(fb.buildFeature("Roads.2"));
+
+        TestConfiguration configuration = new TestConfiguration();
+        configuration.getProperties().add(GMLConfiguration.OPTIMIZED_ENCODING);
+        Document dom = new Encoder(configuration).encodeAsDOM(features,
+                TEST.TestFeatureCollection);
+
+        NodeList members = dom.getElementsByTagNameNS(GML.NAMESPACE, "featureMember");
+        assertEquals(2, members.getLength());
+        Element first = (Element) ((Element) members.item(0)).getElementsByTagNameNS(
+                TEST.NAMESPACE, "Roads").item(0);
+        assertEquals("Roads.1", first.getAttribute("fid"));
+        assertEquals("first", first.getElementsByTagNameNS(TEST.NAMESPACE, "name").item(0)
+                .getTextContent());
+        assertEquals("1.0,2.0", first.getElementsByTagNameNS(GML.NAMESPACE, "Point").item(0)
+                .getTextContent());
+        assertEquals("1.0,2.0 1.0,2.0", first.getElementsByTagNameNS(GML.NAMESPACE, "Box")
+                .item(0).getTextContent());
+
+        Element second = (Element) members.item(1);
+        assertEquals(1, second.getElementsByTagNameNS(GML.NAMESPACE, "outerBoundaryIs")
+                .getLength());
+        assertEquals(1, second.getElementsByTagNameNS(GML.NAMESPACE, "innerBoundaryIs")
+                .getLength());
+        assertEquals("1.0,1.0 2.0,1.0 2.0,2.0 1.0,1.0", second.getElementsByTagNameNS(
+                GML.NAMESPACE, "innerBoundaryIs").item(0).getTextContent());
+    }
+}
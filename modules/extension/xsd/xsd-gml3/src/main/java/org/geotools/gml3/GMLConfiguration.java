@@ -118,6 +118,12 @@ public class GMLConfiguration extends Configuration {
      */
     public static final QName ENCODE_FEATURE_MEMBER = org.geotools.gml2.GMLConfiguration.ENCODE_FEATURE_MEMBER;
 
+    /**
+     * Boolean property which controls whether simple feature collections are encoded by a 
+     * specialized streaming encoder rather than by the generic schema bindings.
+     */
+    public static final QName OPTIMIZED_ENCODING = org.geotools.gml2.GMLConfiguration.OPTIMIZED_ENCODING;
+
     /**
      * Boolean property which controls whether geometry and envelope objects are encoded with an 
      * srs dimension attribute.
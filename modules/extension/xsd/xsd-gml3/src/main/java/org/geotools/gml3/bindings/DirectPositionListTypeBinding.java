@@ -102,8 +102,7 @@ public class DirectPositionListTypeBinding extends AbstractComplexBinding {
         int crsDimension = GML3ParsingUtils.dimensions(node);
         CoordinateReferenceSystem crs = GML3ParsingUtils.crs(node);
 
-        // double[] values = (double[]) value;
-        Double[] values = (Double[]) value;
+        double[] values = (double[]) value;
         BigInteger coordinatesCount = (BigInteger) node.getAttributeValue("count");
 
         if (coordinatesCount == null) {
@@ -127,7 +126,7 @@ public class DirectPositionListTypeBinding extends AbstractComplexBinding {
         if (dim == 1) {
             for (int i = 0; i < coordCount; i++) {
                 dps[i] = new DirectPosition1D(crs);
-                dps[i].setOrdinate(0, values[i].doubleValue());
+                dps[i].setOrdinate(0, values[i]);
             }
         } else if(dim == 2){
             int ordinateIdx = 0;
@@ -135,8 +134,8 @@ public class DirectPositionListTypeBinding extends AbstractComplexBinding {
             // 1 or it should be inferred from the crs
             for (int coordIndex = 0; coordIndex < coordCount; coordIndex++) {
                 dps[coordIndex] = new DirectPosition2D(crs);
-                dps[coordIndex].setOrdinate(0, values[ordinateIdx].doubleValue());
-                dps[coordIndex].setOrdinate(1, values[ordinateIdx + 1].doubleValue());
+                dps[coordIndex].setOrdinate(0, values[ordinateIdx]);
+                dps[coordIndex].setOrdinate(1, values[ordinateIdx + 1]);
                 ordinateIdx += crsDimension;
             }
         } else {
@@ -145,9 +144,9 @@ public class DirectPositionListTypeBinding extends AbstractComplexBinding {
             // 1 or it should be inferred from the crs
             for (int coordIndex = 0; coordIndex < coordCount; coordIndex++) {
                 dps[coordIndex] = new DirectPosition3D(crs); 
-                dps[coordIndex].setOrdinate(0, values[ordinateIdx].doubleValue());
-                dps[coordIndex].setOrdinate(1, values[ordinateIdx + 1].doubleValue());
-                dps[coordIndex].setOrdinate(2, values[ordinateIdx + 2].doubleValue());
+                dps[coordIndex].setOrdinate(0, values[ordinateIdx]);
+                dps[coordIndex].setOrdinate(1, values[ordinateIdx + 1]);
+                dps[coordIndex].setOrdinate(2, values[ordinateIdx + 2]);
                 ordinateIdx += crsDimension;
             }
 
@@ -102,22 +102,21 @@ public class DirectPositionTypeBinding extends AbstractComplexBinding {
         throws Exception {
         CoordinateReferenceSystem crs = GML3ParsingUtils.crs(node);
 
-        //double[] position = (double[]) value;
-        Double[] position = (Double[]) value;
+        double[] position = (double[]) value;
         DirectPosition dp = null;
 
         if (position.length < 2) {
             dp = (crs != null) ? new DirectPosition1D(crs) : new DirectPosition1D();
-            dp.setOrdinate(0, position[0].doubleValue());
+            dp.setOrdinate(0, position[0]);
         } else if (position.length < 3 ){
             dp = (crs != null) ? new DirectPosition2D(crs) : new DirectPosition2D();
-            dp.setOrdinate(0, position[0].doubleValue());
-            dp.setOrdinate(1, position[1].doubleValue());
+            dp.setOrdinate(0, position[0]);
+            dp.setOrdinate(1, position[1]);
         } else {
         	dp = (crs != null) ? new DirectPosition3D(crs) : new DirectPosition3D();
-            dp.setOrdinate(0, position[0].doubleValue());
-            dp.setOrdinate(1, position[1].doubleValue());
-            dp.setOrdinate(2, position[2].doubleValue());
+            dp.setOrdinate(0, position[0]);
+            dp.setOrdinate(1, position[1]);
+            dp.setOrdinate(2, position[2]);
         }
 
         return dp;
@@ -23,6 +23,7 @@ import javax.xml.namespace.QName;
 import org.geotools.gml3.GML;
 import org.geotools.xml.AbstractSimpleBinding;
 import org.geotools.xml.InstanceComponent;
+import org.geotools.xml.impl.DoubleList;
 
 
 /**
@@ -67,8 +68,7 @@ public class DoubleListBinding extends AbstractSimpleBinding {
      * @generated modifiable
      */
     public Class getType() {
-        //return double[].class;
-        return Double[].class;
+        return double[].class;
     }
 
     /**
@@ -79,17 +79,17 @@ public class DoubleListBinding extends AbstractSimpleBinding {
      */
     public Object parse(InstanceComponent instance, Object value)
         throws Exception {
-        List list = (List) value;
+        if (value instanceof DoubleList) {
+            // fast path, the values have already been parsed into an array
+            return ((DoubleList) value).toDoubleArray();
+        }
 
-        return list.toArray(new Double[list.size()]);
+        List list = (List) value;
+        double[] doubles = new double[list.size()];
+        for (int i = 0; i < doubles.length; i++) {
+            doubles[i] = ((Number) list.get(i)).doubleValue();
+        }
 
-        //        String[] values = ((String) value).split(" +");
-        //        double[] doubles = new double[values.length];
-        //
-        //        for (int i = 0; i < values.length; i++) {
-        //            doubles[i] = Double.parseDouble(values[i]);
-        //        }
-        //
-        //        return doubles;
+        return doubles;
     }
 }
@@ -21,14 +21,20 @@ import java.util.List;
 
 import javax.xml.namespace.QName;
 
+import org.geotools.data.simple.SimpleFeatureCollection;
 import org.geotools.feature.DefaultFeatureCollection;
 import org.geotools.feature.DefaultFeatureCollections;
 import org.geotools.feature.FeatureCollection;
+import org.geotools.gml2.SrsSyntax;
+import org.geotools.gml2.simple.FeatureCollectionEncoderDelegate;
 import org.geotools.gml3.GML;
+import org.geotools.gml3.simple.GML3FeatureCollectionEncoderDelegate;
 import org.geotools.xml.AbstractComplexBinding;
+import org.geotools.xml.Configuration;
 import org.geotools.xml.ElementInstance;
 import org.geotools.xml.Node;
 import org.opengis.feature.simple.SimpleFeature;
+import org.xml.sax.helpers.NamespaceSupport;
 
 
 /**
@@ -57,6 +63,23 @@ import org.opengis.feature.simple.SimpleFeature;
  * @source $URL$
  */
 public class FeatureArrayPropertyTypeBinding extends AbstractComplexBinding {
+    Configuration configuration;
+    NamespaceSupport namespaces;
+    SrsSyntax srsSyntax;
+    GML3EncodingUtils encodingUtils;
+
+    public FeatureArrayPropertyTypeBinding() {
+        this(null, null, null, null);
+    }
+
+    public FeatureArrayPropertyTypeBinding(Configuration configuration,
+            NamespaceSupport namespaces, SrsSyntax srsSyntax, GML3EncodingUtils encodingUtils) {
+        this.configuration = configuration;
+        this.namespaces = namespaces;
+        this.srsSyntax = srsSyntax;
+        this.encodingUtils = encodingUtils;
+    }
+
     /**
      * @generated
      */
@@ -94,6 +117,13 @@ public class FeatureArrayPropertyTypeBinding extends AbstractComplexBinding {
     }
 
     public Object getProperty(Object object, QName name) {
+        //stream out simple features directly if so configured
+        if (FeatureCollectionEncoderDelegate.isEnabled(configuration)
+                && FeatureCollectionEncoderDelegate.canEncode(object)) {
+            return new GML3FeatureCollectionEncoderDelegate((SimpleFeatureCollection) object,
+                    null, encodingUtils.gml, configuration, namespaces, srsSyntax);
+        }
+
         //passed in should be FeatureCollection, just pass it back
         return object;
     }
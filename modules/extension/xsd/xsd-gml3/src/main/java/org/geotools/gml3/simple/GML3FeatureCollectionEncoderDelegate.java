@@ -0,0 +1,258 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gml3.simple;
+
+import javax.xml.namespace.QName;
+
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.geometry.jts.coordinatesequence.CoordinateSequences;
+import org.geotools.gml2.SrsSyntax;
+import org.geotools.gml2.bindings.GML2EncodingUtils;
+import org.geotools.gml2.simple.FeatureCollectionEncoderDelegate;
+import org.geotools.gml2.simple.GMLWriter;
+import org.geotools.gml2.simple.QualifiedName;
+import org.geotools.gml3.GML;
+import org.geotools.gml3.GMLConfiguration;
+import org.geotools.xml.Configuration;
+import org.geotools.xml.XSD;
+import org.opengis.geometry.BoundingBox;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.NamespaceSupport;
+
+import com.vividsolutions.jts.geom.CoordinateSequence;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryCollection;
+import com.vividsolutions.jts.geom.LineString;
+import com.vividsolutions.jts.geom.LinearRing;
+import com.vividsolutions.jts.geom.MultiLineString;
+import com.vividsolutions.jts.geom.MultiPoint;
+import com.vividsolutions.jts.geom.MultiPolygon;
+import com.vividsolutions.jts.geom.Point;
+import com.vividsolutions.jts.geom.Polygon;
+
+/**
+ * Streaming encoder for GML 3.1 and GML 3.2 simple feature collections, see
+ * {@link FeatureCollectionEncoderDelegate}. The output matches the one of the generic bindings:
+ * multi polygons are encoded as gml:MultiSurface, multi line strings as gml:MultiLineString in
+ * GML 3.1 and as gml:MultiCurve in GML 3.2, where the former is not available, and the members
+ * of a multi geometry with a gml:id get the same synthetic ids
+ * {@link org.geotools.gml3.bindings.GML3EncodingUtils} assigns them.
+ *
+ * @author Andrea Aime - GeoSolutions
+ */
+public class GML3FeatureCollectionEncoderDelegate extends FeatureCollectionEncoderDelegate {
+
+    final boolean encodeSrsDimension;
+
+    final QualifiedName envelope;
+
+    final QualifiedName lowerCorner;
+
+    final QualifiedName upperCorner;
+
+    final QualifiedName point;
+
+    final QualifiedName pos;
+
+    final QualifiedName posList;
+
+    final QualifiedName lineString;
+
+    final QualifiedName linearRing;
+
+    final QualifiedName polygon;
+
+    final QualifiedName exterior;
+
+    final QualifiedName interior;
+
+    final QualifiedName multiPoint;
+
+    final QualifiedName pointMember;
+
+    final QualifiedName multiLineString;
+
+    final QualifiedName lineStringMember;
+
+    final QualifiedName multiSurface;
+
+    final QualifiedName surfaceMember;
+
+    final QualifiedName multiGeometry;
+
+    final QualifiedName geometryMember;
+
+    /**
+     * @param features The features to be encoded
+     * @param member The element wrapping each feature, or null if the features are to be written
+     *        one after the other, as in a gml:featureMembers element
+     * @param gml The GML schema, either {@link GML} or {@link org.geotools.gml3.v3_2.GML}
+     * @param configuration The configuration driving the encoding
+     * @param namespaces The namespace mappings of the encoder
+     * @param srsSyntax The syntax used to encode the srsName attributes
+     */
+    public GML3FeatureCollectionEncoderDelegate(SimpleFeatureCollection features,
+            QualifiedName member, XSD gml, Configuration configuration,
+            NamespaceSupport namespaces, SrsSyntax srsSyntax) {
+        super(features, member, gml, configuration, namespaces, srsSyntax);
+        this.encodeSrsDimension = !configuration.hasProperty(GMLConfiguration.NO_SRS_DIMENSION);
+        this.envelope = gml("Envelope");
+        this.lowerCorner = gml("lowerCorner");
+        this.upperCorner = gml("upperCorner");
+        this.point = gml("Point");
+        this.pos = gml("pos");
+        this.posList = gml("posList");
+        this.lineString = gml("LineString");
+        this.linearRing = gml("LinearRing");
+        this.polygon = gml("Polygon");
+        this.exterior = gml("exterior");
+        this.interior = gml("interior");
+        this.multiPoint = gml("MultiPoint");
+        this.pointMember = gml("pointMember");
+        boolean gml31 = GML.NAMESPACE.equals(gml.getNamespaceURI());
+        this.multiLineString = gml(gml31 ? "MultiLineString" : "MultiCurve");
+        this.lineStringMember = gml(gml31 ? "lineStringMember" : "curveMember");
+        this.multiSurface = gml("MultiSurface");
+        this.surfaceMember = gml("surfaceMember");
+        this.multiGeometry = gml("MultiGeometry");
+        this.geometryMember = gml("geometryMember");
+    }
+
+    @Override
+    protected void addFeatureIdentifier(AttributesImpl atts, String id) {
+        if (id != null) {
+            atts.addAttribute(gml.getNamespaceURI(), "id", gmlPrefix + ":id", "ID", id);
+        }
+    }
+
+    @Override
+    protected void encodeEnvelope(GMLWriter writer, BoundingBox bounds, String srsName)
+            throws Exception {
+        atts.clear();
+        if (srsName != null) {
+            atts.addAttribute("", "srsName", "srsName", "CDATA", srsName);
+            if (encodeSrsDimension) {
+                atts.addAttribute("", "srsDimension", "srsDimension", "CDATA", "2");
+            }
+        }
+        writer.startElement(envelope, atts);
+        writer.startElement(lowerCorner, null);
+        writer.ordinates(' ', bounds.getMinX(), bounds.getMinY());
+        writer.endElement(lowerCorner);
+        writer.startElement(upperCorner, null);
+        writer.ordinates(' ', bounds.getMaxX(), bounds.getMaxY());
+        writer.endElement(upperCorner);
+        writer.endElement(envelope);
+    }
+
+    @Override
+    protected void encodeGeometry(GMLWriter writer, Geometry geometry, String srsName)
+            throws Exception {
+        int dimension = CoordinateSequences.coordinateDimension(geometry);
+        atts.clear();
+        String id = GML2EncodingUtils.getID(geometry);
+        if (id != null) {
+            atts.addAttribute(gml.getNamespaceURI(), "id", gmlPrefix + ":id", "ID", id);
+        }
+        if (srsName != null) {
+            atts.addAttribute("", "srsName", "srsName", "CDATA", srsName);
+        }
+        if (encodeSrsDimension) {
+            atts.addAttribute("", "srsDimension", "srsDimension", "CDATA",
+                    String.valueOf(dimension));
+        }
+        encodeGeometry(writer, geometry, id, atts, dimension);
+    }
+
+    void encodeGeometry(GMLWriter writer, Geometry geometry, String id, AttributesImpl atts,
+            int dimension) throws Exception {
+        if (geometry instanceof Point) {
+            writer.startElement(point, atts);
+            encodePositions(writer, pos, ((Point) geometry).getCoordinateSequence(), dimension);
+            writer.endElement(point);
+        } else if (geometry instanceof LinearRing) {
+            encodeLineString(writer, linearRing, (LineString) geometry, atts, dimension);
+        } else if (geometry instanceof LineString) {
+            encodeLineString(writer, lineString, (LineString) geometry, atts, dimension);
+        } else if (geometry instanceof Polygon) {
+            Polygon poly = (Polygon) geometry;
+            writer.startElement(polygon, atts);
+            writer.startElement(exterior, null);
+            encodeLineString(writer, linearRing, poly.getExteriorRing(), null, dimension);
+            writer.endElement(exterior);
+            for (int i = 0; i < poly.getNumInteriorRing(); i++) {
+                writer.startElement(interior, null);
+                encodeLineString(writer, linearRing, poly.getInteriorRingN(i), null, dimension);
+                writer.endElement(interior);
+            }
+            writer.endElement(polygon);
+        } else if (geometry instanceof MultiPoint) {
+            encodeMembers(writer, (GeometryCollection) geometry, id, atts, dimension,
+                    multiPoint, pointMember);
+        } else if (geometry instanceof MultiLineString) {
+            encodeMembers(writer, (GeometryCollection) geometry, id, atts, dimension,
+                    multiLineString, lineStringMember);
+        } else if (geometry instanceof MultiPolygon) {
+            encodeMembers(writer, (GeometryCollection) geometry, id, atts, dimension,
+                    multiSurface, surfaceMember);
+        } else {
+            encodeMembers(writer, (GeometryCollection) geometry, id, atts, dimension,
+                    multiGeometry, geometryMember);
+        }
+    }
+
+    void encodeLineString(GMLWriter writer, QualifiedName name, LineString line,
+            AttributesImpl atts, int dimension) throws Exception {
+        writer.startElement(name, atts);
+        encodePositions(writer, posList, line.getCoordinateSequence(), dimension);
+        writer.endElement(name);
+    }
+
+    void encodePositions(GMLWriter writer, QualifiedName name, CoordinateSequence cs,
+            int dimension) throws Exception {
+        writer.startElement(name, null);
+        writer.positions(cs, dimension);
+        writer.endElement(name);
+    }
+
+    void encodeMembers(GMLWriter writer, GeometryCollection collection, String id,
+            AttributesImpl atts, int dimension, QualifiedName container, QualifiedName member)
+            throws Exception {
+        writer.startElement(container, atts);
+        for (int i = 0; i < collection.getNumGeometries(); i++) {
+            Geometry child = collection.getGeometryN(i);
+            // same ids as GML3EncodingUtils.setChildIDs, without altering the geometry
+            String childId = id != null ? id + "." + (i + 1) : GML2EncodingUtils.getID(child);
+            AttributesImpl childAtts = null;
+            if (childId != null) {
+                childAtts = new AttributesImpl();
+                childAtts.addAttribute(gml.getNamespaceURI(), "id", gmlPrefix + ":id", "ID",
+                        childId);
+            }
+            writer.startElement(member, null);
+            encodeGeometry(writer, child, childId, childAtts, dimension);
+            writer.endElement(member);
+        }
+        writer.endElement(container);
+    }
+
+    @Override
+    protected QName getGeometryElement() {
+        return new QName(gml.getNamespaceURI(), GML.NAMESPACE.equals(gml.getNamespaceURI()) ?
+                "_Geometry" : "AbstractGeometry");
+    }
+}
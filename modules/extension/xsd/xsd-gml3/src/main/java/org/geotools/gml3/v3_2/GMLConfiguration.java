@@ -94,6 +94,12 @@ public class GMLConfiguration extends Configuration {
      */
     public static final QName NO_SRS_DIMENSION = org.geotools.gml3.GMLConfiguration.NO_SRS_DIMENSION;
 
+    /**
+     * Boolean property which controls whether simple feature collections are encoded by a 
+     * specialized streaming encoder rather than by the generic schema bindings.
+     */
+    public static final QName OPTIMIZED_ENCODING = org.geotools.gml2.GMLConfiguration.OPTIMIZED_ENCODING;
+
     /**
      * gml3 configuration used to delegate to for configuration
      */
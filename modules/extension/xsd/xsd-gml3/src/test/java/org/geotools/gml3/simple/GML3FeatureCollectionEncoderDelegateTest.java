@@ -0,0 +1,212 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gml3.simple;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.geotools.data.DataUtilities;
+import org.geotools.data.collection.ListFeatureCollection;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.gml2.bindings.GML2EncodingUtils;
+import org.geotools.gml2.simple.FeatureCollectionEncoderDelegate;
+import org.geotools.gml3.GML;
+import org.geotools.gml3.GMLConfiguration;
+import org.geotools.gml3.bindings.TEST;
+import org.geotools.gml3.bindings.TestConfiguration;
+import org.geotools.xml.Encoder;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryCollection;
+import com.vividsolutions.jts.io.WKTReader;
+
+/**
+ * Checks the streaming encoder produces the same contents as the generic one
+ *
+ * @source $URL$
+ */
+public class GML3FeatureCollectionEncoderDelegateTest extends TestCase {
+
+    ListFeatureCollection features;
+
+    @Override
+    protected void setUp() throws Exception {
+        SimpleFeatureType type = DataUtilities.createType(TEST.NAMESPACE, "Roads",
+                "geom:Geometry:srid=4326,name:String,count:Integer,when:java.util.Date");
+        features = new ListFeatureCollection(type);
+        String[] geometries = new String[] { "POINT(1 2)", "LINESTRING(0 0, 1 1.5, 2 2)",
+                "POLYGON((0 0, 10 0, 10 10, 0 10, 0 0), (1 1, 2 1, 2 2, 1 1))",
+                "MULTIPOINT((1 1), (2 2))", "MULTILINESTRING((0 0, 1 1), (2 2, 3 3))",
+                "MULTIPOLYGON(((0 0, 1 0, 1 1, 0 0)), ((5 5, 6 5, 6 6, 5 5)))",
+                "GEOMETRYCOLLECTION(POINT(5 5), LINESTRING(0 0, 3 3))",
+                "LINESTRING(0 0 1, 1 1 2, 2 2 3)", null };
+        WKTReader reader = new WKTReader();
+        SimpleFeatureBuilder fb = new SimpleFeatureBuilder(type);
+        for (int i = 0; i < geometries.length; i++) {
+            Geometry geometry = geometries[i] != null ? reader.read(geometries[i]) : null;
+            // the members of the multi geometries with an id get synthetic ones
+            if (geometry instanceof GeometryCollection && i % 2 == 0) {
+                GML2EncodingUtils.setID(geometry, "geom." + i);
+            }
+            fb.add(geometry);
+            fb.add(i % 2 == 0 ? "name & <" + i + ">" : null);
+            fb.add(i);
+            fb.add(new Date(i * 1000000L));
+            features.add(fb.buildFeature("Roads." + i));
+        }
+    }
+
+    Document encode(TestConfiguration configuration) throws Exception {
+        Encoder encoder = new Encoder(configuration);
+        return encoder.encodeAsDOM(features, TEST.TestFeatureCollection);
+    }
+
+    TestConfiguration optimizedConfiguration() {
+        TestConfiguration configuration = new TestConfiguration();
+        configuration.getProperties().add(GMLConfiguration.OPTIMIZED_ENCODING);
+        return configuration;
+    }
+
+    List<Element> features(Document dom) {
+        List<Element> result = new ArrayList<Element>();
+        NodeList nodes = dom.getElementsByTagNameNS(TEST.NAMESPACE, "Roads");
+        for (int i = 0; i < nodes.getLength(); i++) {
+            result.add((Element) nodes.item(i));
+        }
+        return result;
+    }
+
+    List<String> texts(Element element, String namespace, String... localNames) {
+        List<String> result = new ArrayList<String>();
+        NodeList nodes = element.getElementsByTagNameNS(namespace, "*");
+        for (int i = 0; i < nodes.getLength(); i++) {
+            for (String localName : localNames) {
+                if (localName.equals(nodes.item(i).getLocalName())) {
+                    result.add(nodes.item(i).getTextContent());
+                }
+            }
+        }
+        return result;
+    }
+
+    List<Element> children(Element element) {
+        List<Element> result = new ArrayList<Element>();
+        for (Node node = element.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (node instanceof Element) {
+                result.add((Element) node);
+            }
+        }
+        return result;
+    }
+
+    String describe(Element element) {
+        String id = element.getAttributeNS(GML.NAMESPACE, "id");
+        return "{" + element.getNamespaceURI() + "}" + element.getLocalName()
+                + (id == null || "".equals(id) ? "" : "[" + id + "]");
+    }
+
+    /**
+     * Checks the two trees have the same elements, with the same qualified names and gml:id, in
+     * the same order
+     */
+    void assertSameStructure(String path, Element expected, Element actual) {
+        path = path + "/" + describe(expected);
+        assertEquals(path, describe(expected), describe(actual));
+        List<String> expectedNames = new ArrayList<String>();
+        for (Element child : children(expected)) {
+            expectedNames.add(describe(child));
+        }
+        List<String> actualNames = new ArrayList<String>();
+        for (Element child : children(actual)) {
+            actualNames.add(describe(child));
+        }
+        assertEquals(path, expectedNames, actualNames);
+        for (int i = 0; i < expectedNames.size(); i++) {
+            assertSameStructure(path, children(expected).get(i), children(actual).get(i));
+        }
+    }
+
+    public void testSameContents() throws Exception {
+        assertTrue(FeatureCollectionEncoderDelegate.canEncode(features));
+        // the optimized encoder goes first, the generic one sets the member ids on the geometries
+        List<Element> actual = features(encode(optimizedConfiguration()));
+        List<Element> expected = features(encode(new TestConfiguration()));
+        assertEquals(features.size(), expected.size());
+        assertEquals(expected.size(), actual.size());
+
+        for (int i = 0; i < expected.size(); i++) {
+            Element e = expected.get(i);
+            Element a = actual.get(i);
+            assertEquals(e.getAttributeNS(GML.NAMESPACE, "id"), a.getAttributeNS(GML.NAMESPACE,
+                    "id"));
+            // attributes
+            assertEquals(texts(e, TEST.NAMESPACE, "name", "count", "when"), texts(a,
+                    TEST.NAMESPACE, "name", "count", "when"));
+            assertEquals(texts(e, TEST.NAMESPACE, "geom").size(),
+                    texts(a, TEST.NAMESPACE, "geom").size());
+            // geometries and bounds
+            assertEquals(texts(e, GML.NAMESPACE, "pos", "posList"),
+                    texts(a, GML.NAMESPACE, "pos", "posList"));
+            assertEquals(texts(e, GML.NAMESPACE, "lowerCorner", "upperCorner"),
+                    texts(a, GML.NAMESPACE, "lowerCorner", "upperCorner"));
+            // element names, nesting and gml:ids
+            assertSameStructure("", e, a);
+        }
+
+        // the members of the multi geometries got the synthetic ids
+        Element collection = (Element) actual.get(6).getElementsByTagNameNS(GML.NAMESPACE,
+                "MultiGeometry").item(0);
+        assertEquals("geom.6", collection.getAttributeNS(GML.NAMESPACE, "id"));
+        Element member = (Element) collection.getElementsByTagNameNS(GML.NAMESPACE,
+                "LineString").item(0);
+        assertEquals("geom.6.2", member.getAttributeNS(GML.NAMESPACE, "id"));
+
+        // the 3d line has the proper dimension
+        Element line = (Element) actual.get(7).getElementsByTagNameNS(GML.NAMESPACE,
+                "LineString").item(0);
+        assertEquals("3", line.getAttribute("srsDimension"));
+        assertTrue(line.getAttribute("srsName").endsWith("4326"));
+    }
+
+    public void testNoBounds() throws Exception {
+        TestConfiguration configuration = optimizedConfiguration();
+        configuration.getProperties().add(GMLConfiguration.NO_FEATURE_BOUNDS);
+        configuration.getProperties().add(GMLConfiguration.NO_SRS_DIMENSION);
+        Document dom = encode(configuration);
+        assertEquals(features.size(), features(dom).size());
+        assertEquals(0, dom.getElementsByTagNameNS(GML.NAMESPACE, "boundedBy").getLength());
+        Element point = (Element) dom.getElementsByTagNameNS(GML.NAMESPACE, "Point").item(0);
+        assertFalse(point.hasAttribute("srsDimension"));
+    }
+
+    public void testComplexAttributesFallback() throws Exception {
+        SimpleFeatureType type = DataUtilities.createType(TEST.NAMESPACE, "Roads",
+                "geom:Point,values:java.util.List");
+        ListFeatureCollection complex = new ListFeatureCollection(type);
+        assertFalse(FeatureCollectionEncoderDelegate.canEncode(complex));
+        // not a feature collection at all
+        assertFalse(FeatureCollectionEncoderDelegate.canEncode(features.getSchema()));
+    }
+}
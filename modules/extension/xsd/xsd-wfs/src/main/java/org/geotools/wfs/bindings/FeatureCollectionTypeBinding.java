@@ -28,13 +28,19 @@ import org.geotools.data.simple.SimpleFeatureCollection;
 import org.geotools.feature.DefaultFeatureCollection;
 import org.geotools.feature.FeatureCollection;
 import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.gml2.SrsSyntax;
+import org.geotools.gml2.simple.FeatureCollectionEncoderDelegate;
+import org.geotools.gml2.simple.QualifiedName;
 import org.geotools.gml3.GML;
+import org.geotools.gml3.simple.GML3FeatureCollectionEncoderDelegate;
 import org.geotools.wfs.CompositeFeatureCollection;
 import org.geotools.wfs.WFS;
 import org.geotools.xml.AbstractComplexEMFBinding;
+import org.geotools.xml.Configuration;
 import org.geotools.xml.ElementInstance;
 import org.geotools.xml.Node;
 import org.opengis.feature.simple.SimpleFeature;
+import org.xml.sax.helpers.NamespaceSupport;
 
 
 /**
@@ -101,8 +107,20 @@ import org.opengis.feature.simple.SimpleFeature;
  * @source $URL$
  */
 public class FeatureCollectionTypeBinding extends AbstractComplexEMFBinding {
+    Configuration configuration;
+    NamespaceSupport namespaces;
+    SrsSyntax srsSyntax;
+
     public FeatureCollectionTypeBinding(WfsFactory factory) {
+        this(factory, null, null, null);
+    }
+
+    public FeatureCollectionTypeBinding(WfsFactory factory, Configuration configuration,
+            NamespaceSupport namespaces, SrsSyntax srsSyntax) {
         super(factory);
+        this.configuration = configuration;
+        this.namespaces = namespaces;
+        this.srsSyntax = srsSyntax;
     }
 
     /**
@@ -118,6 +136,14 @@ public class FeatureCollectionTypeBinding extends AbstractComplexEMFBinding {
         if ( !fc.getFeature().isEmpty() ) {
             Object val = WFSParsingUtils.FeatureCollectionType_getProperty(fc, name);
             if (val != null) {
+                //stream out simple features directly if so configured
+                if (GML.featureMember.equals(name)
+                        && FeatureCollectionEncoderDelegate.isEnabled(configuration)
+                        && FeatureCollectionEncoderDelegate.canEncode(val)) {
+                    return new GML3FeatureCollectionEncoderDelegate(
+                            (SimpleFeatureCollection) val, QualifiedName.build(name, namespaces),
+                            GML.getInstance(), configuration, namespaces, srsSyntax);
+                }
                 return val;
             }
         }
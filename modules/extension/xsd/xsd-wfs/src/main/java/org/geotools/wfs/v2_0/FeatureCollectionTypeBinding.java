@@ -4,9 +4,16 @@ import net.opengis.wfs20.FeatureCollectionType;
 import net.opengis.wfs20.Wfs20Factory;
 
 import org.eclipse.emf.ecore.EObject;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.gml2.SrsSyntax;
+import org.geotools.gml2.simple.FeatureCollectionEncoderDelegate;
+import org.geotools.gml2.simple.QualifiedName;
 import org.geotools.gml3.GMLConfiguration;
+import org.geotools.gml3.simple.GML3FeatureCollectionEncoderDelegate;
+import org.geotools.gml3.v3_2.GML;
 import org.geotools.wfs.bindings.WFSParsingUtils;
 import org.geotools.xml.*;
+import org.xml.sax.helpers.NamespaceSupport;
 
 import javax.xml.namespace.QName;
 
@@ -42,9 +49,20 @@ import javax.xml.namespace.QName;
 public class FeatureCollectionTypeBinding extends AbstractComplexEMFBinding {
     private static final String UNKNOWN = "unknown";
     boolean generateBounds;
+    Configuration configuration;
+    NamespaceSupport namespaces;
+    SrsSyntax srsSyntax;
 
     public FeatureCollectionTypeBinding(Wfs20Factory factory, Configuration configuration) {
+        this(factory, configuration, null, null);
+    }
+
+    public FeatureCollectionTypeBinding(Wfs20Factory factory, Configuration configuration,
+            NamespaceSupport namespaces, SrsSyntax srsSyntax) {
         super(factory);
+        this.configuration = configuration;
+        this.namespaces = namespaces;
+        this.srsSyntax = srsSyntax;
         this.generateBounds = true;
         if(configuration != null) {
             this.generateBounds = !configuration.getProperties().contains(GMLConfiguration.NO_FEATURE_BOUNDS);
@@ -76,6 +94,14 @@ public class FeatureCollectionTypeBinding extends AbstractComplexEMFBinding {
         Object result = null;
         if (!WFSParsingUtils.features((EObject) object).isEmpty()) {
             result  = WFSParsingUtils.FeatureCollectionType_getProperty((EObject) object, name);
+            //stream out simple features directly if so configured
+            if ("member".equals(name.getLocalPart()) && namespaces != null
+                    && FeatureCollectionEncoderDelegate.isEnabled(configuration)
+                    && FeatureCollectionEncoderDelegate.canEncode(result)) {
+                return new GML3FeatureCollectionEncoderDelegate((SimpleFeatureCollection) result,
+                        QualifiedName.build(name, namespaces), GML.getInstance(), configuration,
+                        namespaces, srsSyntax);
+            }
         }
         if(result == null) {
             result = super.getProperty(object, name);
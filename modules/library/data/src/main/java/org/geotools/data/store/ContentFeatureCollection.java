@@ -35,6 +35,7 @@ import org.geotools.data.simple.SimpleFeatureIterator;
 import org.geotools.feature.FeatureIterator;
 import org.geotools.feature.FeatureTypes;
 import org.geotools.feature.SchemaException;
+import org.geotools.feature.collection.SplittableFeatureCollection;
 import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
 import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.geotools.util.logging.Logging;
@@ -55,7 +56,8 @@ import com.vividsolutions.jts.geom.Point;
  *
  * @source $URL$
  */
-public class ContentFeatureCollection implements SimpleFeatureCollection {
+public class ContentFeatureCollection implements SimpleFeatureCollection,
+        SplittableFeatureCollection<SimpleFeatureType, SimpleFeature> {
     
     protected static final Logger LOGGER = Logging.getLogger("org.geotools.data.store");
     /**
@@ -119,6 +121,21 @@ public class ContentFeatureCollection implements SimpleFeatureCollection {
             org.opengis.util.ProgressListener progress) throws IOException {
         featureSource.accepts( query, visitor, progress);
     }
+
+    /**
+     * Splits the collection in the parts returned by {@link ContentFeatureSource#splitQuery(Query, int)}
+     */
+    public List<ContentFeatureCollection> split(int parts) throws IOException {
+        List<Query> queries = featureSource.split(query, parts);
+        if (queries == null) {
+            return null;
+        }
+        List<ContentFeatureCollection> result = new ArrayList<ContentFeatureCollection>();
+        for (Query q : queries) {
+            result.add(new ContentFeatureCollection(featureSource, q));
+        }
+        return result;
+    }
         
     // Iterators
     public static class WrappingFeatureIterator implements SimpleFeatureIterator {
@@ -20,9 +20,12 @@ import java.io.IOException;
 import java.lang.reflect.Constructor;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -52,7 +55,16 @@ import org.geotools.data.sort.SortedFeatureReader;
 import org.geotools.factory.CommonFactoryFinder;
 import org.geotools.factory.Hints;
 import org.geotools.feature.FeatureCollection;
+import org.geotools.feature.collection.ParallelVisitExecutor;
 import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.geotools.feature.visitor.AverageVisitor;
+import org.geotools.feature.visitor.BatchFeatureVisitor;
+import org.geotools.feature.visitor.BatchVisitorBuffer;
+import org.geotools.feature.visitor.MaxVisitor;
+import org.geotools.feature.visitor.MinVisitor;
+import org.geotools.feature.visitor.QuantileListVisitor;
+import org.geotools.feature.visitor.SumVisitor;
+import org.geotools.feature.visitor.UniqueVisitor;
 import org.geotools.filter.function.Collection_AverageFunction;
 import org.geotools.filter.function.Collection_BoundsFunction;
 import org.geotools.filter.function.Collection_MaxFunction;
@@ -67,14 +79,17 @@ import org.opengis.feature.Feature;
 import org.opengis.feature.FeatureVisitor;
 import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeDescriptor;
 import org.opengis.feature.type.Name;
 import org.opengis.filter.Filter;
 import org.opengis.filter.FilterFactory2;
 import org.opengis.filter.Id;
+import org.opengis.filter.expression.PropertyName;
 import org.opengis.filter.identity.FeatureId;
 import org.opengis.filter.sort.SortBy;
 import org.opengis.geometry.BoundingBox;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.util.ProgressListener;
 
 
 /**
@@ -555,6 +570,15 @@ public abstract class ContentFeatureSource implements SimpleFeatureSource {
             query = dq;
         }
 
+        // sorting in memory keeps the features around, the subclass has to return detached ones
+        if (query.getHints().containsKey(Hints.FEATURE_BATCH_SIZE) && isSortedInMemory(query)) {
+            Query dq = new Query(query);
+            Hints hints = new Hints(query.getHints());
+            hints.remove(Hints.FEATURE_BATCH_SIZE);
+            dq.setHints(hints);
+            query = dq;
+        }
+
         //check for a join
         if (!query.getJoins().isEmpty() && getQueryCapabilities().isJoiningSupported()) {
             throw new IOException("Feature source does not support joins");
@@ -646,7 +670,18 @@ public abstract class ContentFeatureSource implements SimpleFeatureSource {
         
         return reader;
     }
-    
+
+    /**
+     * Returns true if {@link #getReader(Query)} is going to sort the features of the query in
+     * memory, natural order included, as the subclass cannot sort them natively. Paged queries
+     * are always sorted, to make paging stable.
+     */
+    protected boolean isSortedInMemory(Query query) {
+        return !canSort()
+                && ((query.getSortBy() != null && query.getSortBy().length > 0) || query
+                        .getStartIndex() != null);
+    }
+
     /**
      * Visit the features matching the provided query.
      * <p>
@@ -682,6 +717,17 @@ public abstract class ContentFeatureSource implements SimpleFeatureSource {
             return;
         }
 
+        if (ParallelVisitExecutor.getParallelism() > 1
+                && ParallelVisitExecutor.accepts(new ContentFeatureCollection(this, query),
+                        visitor, progress)) {
+            return;
+        }
+
+        if (visitor instanceof BatchFeatureVisitor
+                && visitInBatches(query, (BatchFeatureVisitor) visitor, progress)) {
+            return;
+        }
+
         //subclass could not handle, resort to manually walkign through
         FeatureReader<SimpleFeatureType, SimpleFeature> reader = getReader(query);
         try{
@@ -713,6 +759,152 @@ public abstract class ContentFeatureSource implements SimpleFeatureSource {
         }
     }
     
+    /**
+     * Feeds a batch visitor working against a single attribute, reading only that attribute, in
+     * batches, and passing its values to the visitor in primitive chunks when possible.
+     * 
+     * @return true if the visitor was handled, false if the visitor expression is not a simple
+     *         attribute reference
+     */
+    boolean visitInBatches(Query query, BatchFeatureVisitor visitor, ProgressListener progress)
+            throws IOException {
+        if (!(visitor.getExpression() instanceof PropertyName)) {
+            return false;
+        }
+        String name = ((PropertyName) visitor.getExpression()).getPropertyName();
+        AttributeDescriptor descriptor = getSchema().getDescriptor(name);
+        if (descriptor == null) {
+            return false;
+        }
+        // the query might have left out the attribute on purpose
+        if (!query.retrieveAllProperties()
+                && !Arrays.asList(query.getPropertyNames()).contains(name)) {
+            return false;
+        }
+
+        // when all the features are visited, the order does not matter to most visitors
+        Query batchQuery = new Query(query);
+        boolean limited = query.getStartIndex() != null
+                || (query.getMaxFeatures() != -1 && query.getMaxFeatures() < Integer.MAX_VALUE);
+        if (!limited && isOrderIndependent(visitor)) {
+            batchQuery.setSortBy(null);
+        }
+
+        // read only the visited attribute, plus the ones the wrappers might need to filter and
+        // sort in memory
+        Set<String> properties = new LinkedHashSet<String>();
+        properties.add(descriptor.getLocalName());
+        if (query.getFilter() != null) {
+            properties.addAll(Arrays.asList(DataUtilities.attributeNames(query.getFilter(),
+                    getSchema())));
+        }
+        if (batchQuery.getSortBy() != null) {
+            for (SortBy sort : batchQuery.getSortBy()) {
+                if (sort != SortBy.NATURAL_ORDER && sort != SortBy.REVERSE_ORDER) {
+                    properties.add(sort.getPropertyName().getPropertyName());
+                }
+            }
+        }
+        batchQuery.setPropertyNames(properties.toArray(new String[properties.size()]));
+        // the in memory sorting retains the features, batches cannot be used in that case
+        if (!isSortedInMemory(batchQuery)) {
+            Hints hints = new Hints(query.getHints());
+            hints.put(Hints.FEATURE_BATCH_SIZE, BatchVisitorBuffer.DEFAULT_CHUNK_SIZE);
+            batchQuery.setHints(hints);
+        }
+
+        FeatureReader<SimpleFeatureType, SimpleFeature> reader = getReader(batchQuery);
+        int index = reader.getFeatureType().indexOf(descriptor.getLocalName());
+        if (index < 0) {
+            // the store did not return the attribute, use the generic path
+            reader.close();
+            return false;
+        }
+        try {
+            BatchVisitorBuffer buffer = new BatchVisitorBuffer(visitor, descriptor.getType()
+                    .getBinding());
+            float size = progress instanceof NullProgressListener ? 0.0f : (float) getCount( query );
+            float position = 0;
+            progress.started();
+            while( reader.hasNext() ){
+                SimpleFeature feature = null;
+                if (size > 0) progress.progress( position++/size );
+                try {
+                    feature = reader.next();
+                    buffer.add(feature, index);
+                }
+                catch( IOException erp ){
+                    progress.exceptionOccurred( erp );
+                    throw erp;
+                }
+                catch( Exception unexpected ){
+                    progress.exceptionOccurred( unexpected );
+                    String fid = feature == null ? "feature" : feature.getIdentifier().toString();
+                    throw new IOException("Problem visiting " + query.getTypeName() + " visiting " + fid
+                            + ":" + unexpected, unexpected);
+                }
+            }
+            buffer.flush();
+        }
+        finally {
+            progress.complete();
+            reader.close();
+        }
+        return true;
+    }
+
+    /**
+     * Returns true if the result of the visitor does not depend on the order the values are
+     * visited in
+     */
+    boolean isOrderIndependent(BatchFeatureVisitor visitor) {
+        if (visitor instanceof UniqueVisitor) {
+            // preserving the order, or paging the values, depends on the visit order
+            UniqueVisitor unique = (UniqueVisitor) visitor;
+            return !unique.isPreserveOrder() && !unique.hasLimits();
+        }
+        return visitor instanceof SumVisitor || visitor instanceof AverageVisitor
+                || visitor instanceof MinVisitor || visitor instanceof MaxVisitor
+                || visitor instanceof QuantileListVisitor;
+    }
+
+    /**
+     * Splits the query in disjoint queries that can be run in parallel, checking first the query
+     * does not require a specific order or paging, which would not be preserved by the split.
+     * 
+     * @return The split queries, or null if the query cannot be split
+     */
+    List<Query> split(Query query, int parts) throws IOException {
+        if ((query.getSortBy() != null && query.getSortBy().length > 0
+                && query.getSortBy()[0] != SortBy.NATURAL_ORDER)
+                || (query.getStartIndex() != null && query.getStartIndex() > 0)
+                || (query.getMaxFeatures() != -1 && query.getMaxFeatures() < Integer.MAX_VALUE)
+                || !query.getJoins().isEmpty()
+                || (getTransaction() != null && getTransaction() != Transaction.AUTO_COMMIT)) {
+            return null;
+        }
+        return splitQuery(query, parts);
+    }
+
+    /**
+     * Subclass method which allows subclasses to split a query in disjoint queries, that can be
+     * run in parallel, for example to perform a parallel visit. The split queries must return,
+     * when run in the returned order one after the other, the same features as the original
+     * query. The query passed in has no paging, no sorting, and the transaction is
+     * auto commit.
+     * <p>
+     * The default implementation returns null, meaning the query cannot be split.
+     * </p>
+     * 
+     * @param query The query to be split
+     * @param parts The maximum number of queries to be returned, see also
+     *        {@link ParallelVisitExecutor#getPartCount(long, int)}
+     * @return The split queries, or null if the query cannot be split
+     */
+    protected List<Query> splitQuery(Query query, int parts) throws IOException {
+        return null;
+    }
+
     /**
      * Subclass method which allows subclasses to natively handle a visitor.
      * <p>
@@ -258,6 +258,13 @@ public final class JDBCDataStore extends ContentDataStore
      */
     protected int fetchSize;
     
+    /**
+     * The number of features inserted in a single JDBC batch, defaulting to 1 (no batching).
+     * See {@link #isBatchInsertable(PrimaryKey, SimpleFeature)} for the cases where batching
+     * can be used.
+     */
+    protected int batchInsertSize = 1;
+    
     /**
      * flag controlling whether primary key columns of a table are exposed via the 
      * feature type.
@@ -398,6 +405,25 @@ public final class JDBCDataStore extends ContentDataStore
         this.fetchSize = fetchSize;
     }
 
+    /**
+     * The number of features that are inserted in a single JDBC batch. Batching is only
+     * used when the primary key values can be computed before the insert (sequences, or
+     * user provided feature ids), the other features are inserted one at a time.
+     * @return
+     */
+    public int getBatchInsertSize() {
+        return batchInsertSize;
+    }
+
+    /**
+     * Changes the batch insert size. Set to a value less or equal than one to disable
+     * batch inserts
+     * @param batchInsertSize
+     */
+    public void setBatchInsertSize(int batchInsertSize) {
+        this.batchInsertSize = batchInsertSize;
+    }
+
     /**
      * Determines if the datastore creates feature types which include those columns / attributes
      * which compose the primary key.
@@ -1515,6 +1541,8 @@ public final class JDBCDataStore extends ContentDataStore
         // first to figure out what the id will be, then the insert statement
         synchronized (this) {
             Statement st = null;
+            List<SimpleFeature> batch = new ArrayList<SimpleFeature>();
+            List<List<Object>> batchKeyValues = new ArrayList<List<Object>>();
 
             try {
                 if ( !(dialect instanceof PreparedStatementSQLDialect) ) {
@@ -1527,31 +1555,20 @@ public final class JDBCDataStore extends ContentDataStore
                 for (Iterator f = features.iterator(); f.hasNext();) {
                     SimpleFeature feature = (SimpleFeature) f.next();
                     
-                    List<Object> keyValues = null;
-                    boolean useExisting = Boolean.TRUE.equals(feature.getUserData().get(Hints.USE_PROVIDED_FID));
-                    if(useExisting) {
-                        keyValues = decodeFID(key, feature.getID(), true);
-                    } else if (!postInsert) {
-                        keyValues = getNextValues( key, cx );
-                    }
+                    List<Object> keyValues = getInsertKeyValues(key, feature, postInsert, cx);
                     
-
-                    if ( dialect instanceof PreparedStatementSQLDialect ) {
-                        PreparedStatement ps = insertSQLPS( featureType, feature, keyValues, cx );
-                        try {
-                            ((PreparedStatementSQLDialect)dialect).onInsert(ps, cx, featureType);
-                            ps.execute();
-                        } finally {
-                            closeSafe( ps );
+                    if ( keyValues != null && isBatchInsertable(key, feature) ) {
+                        batch.add(feature);
+                        batchKeyValues.add(keyValues);
+                        if (batch.size() >= batchInsertSize) {
+                            insertBatch(batch, batchKeyValues, featureType, cx);
                         }
                     } else {
-                        String sql = insertSQL(featureType, feature, keyValues, cx);
-                        
-                        //TODO: execute in batch to improve performance?
-                        ((BasicSQLDialect)dialect).onInsert(st, cx, featureType);
-                        
-                        LOGGER.log(Level.FINE, "Inserting new feature: {0}", sql);
-                        st.execute(sql);
+                        // make sure the inserts happen in the same order as the features
+                        if (!batch.isEmpty()) {
+                            insertBatch(batch, batchKeyValues, featureType, cx);
+                        }
+                        insertSingle(feature, keyValues, featureType, st, cx);
                     }
                     
                     if ( keyValues == null ) {
@@ -1564,7 +1581,9 @@ public final class JDBCDataStore extends ContentDataStore
                     feature.getUserData().put("fid", fid);
                 }
 
-                //st.executeBatch();
+                if (!batch.isEmpty()) {
+                    insertBatch(batch, batchKeyValues, featureType, cx);
+                }
             } catch (SQLException e) {
                 String msg = "Error inserting features";
                 throw (IOException) new IOException(msg).initCause(e);
@@ -1574,6 +1593,125 @@ public final class JDBCDataStore extends ContentDataStore
         }
     }
 
+    /**
+     * Inserts a single feature, using the provided statement if the dialect is not a
+     * prepared statement one
+     */
+    private void insertSingle(SimpleFeature feature, List<Object> keyValues,
+            SimpleFeatureType featureType, Statement st, Connection cx) throws IOException,
+            SQLException {
+        if ( dialect instanceof PreparedStatementSQLDialect ) {
+            PreparedStatement ps = insertSQLPS( featureType, feature, keyValues, cx );
+            try {
+                ((PreparedStatementSQLDialect)dialect).onInsert(ps, cx, featureType);
+                ps.execute();
+            } finally {
+                closeSafe( ps );
+            }
+        } else {
+            String sql = insertSQL(featureType, feature, keyValues, cx);
+            
+            ((BasicSQLDialect)dialect).onInsert(st, cx, featureType);
+            
+            LOGGER.log(Level.FINE, "Inserting new feature: {0}", sql);
+            st.execute(sql);
+        }
+    }
+
+    /**
+     * Inserts the features as JDBC batches, and clears the lists afterwards. Consecutive
+     * features sharing the same prepared statement SQL are grouped in a single batch.
+     * 
+     * @param features The features to be inserted
+     * @param keyValues The primary key values of each feature, computed before the insert
+     */
+    void insertBatch(List<SimpleFeature> features, List<List<Object>> keyValues,
+            SimpleFeatureType featureType, Connection cx) throws IOException, SQLException {
+        if (dialect.insertBulk(featureType, getPrimaryKey(featureType), features, keyValues, cx)) {
+            LOGGER.log(Level.FINE, "Bulk inserted {0} features", features.size());
+        } else if (dialect instanceof PreparedStatementSQLDialect) {
+            PreparedStatementSQLDialect psDialect = (PreparedStatementSQLDialect) dialect;
+            PreparedStatement ps = null;
+            String sql = null;
+            try {
+                for (int i = 0; i < features.size(); i++) {
+                    SimpleFeature feature = features.get(i);
+                    String featureSql = insertSQLPSString(featureType, feature);
+                    if (ps != null && !featureSql.equals(sql)) {
+                        ps.executeBatch();
+                        closeSafe(ps);
+                        ps = null;
+                    }
+                    if (ps == null) {
+                        sql = featureSql;
+                        LOGGER.log(Level.FINE, "Inserting new features in batch with ps: {0}", sql);
+                        ps = cx.prepareStatement(sql);
+                        psDialect.onInsert(ps, cx, featureType);
+                    }
+                    setInsertValues(ps, featureType, feature, keyValues.get(i), cx);
+                    ps.addBatch();
+                }
+                if (ps != null) {
+                    ps.executeBatch();
+                }
+            } finally {
+                closeSafe(ps);
+            }
+        } else {
+            Statement st = cx.createStatement();
+            try {
+                ((BasicSQLDialect) dialect).onInsert(st, cx, featureType);
+                for (int i = 0; i < features.size(); i++) {
+                    String sql = insertSQL(featureType, features.get(i), keyValues.get(i), cx);
+                    LOGGER.log(Level.FINE, "Adding insert to batch: {0}", sql);
+                    st.addBatch(sql);
+                }
+                st.executeBatch();
+            } finally {
+                closeSafe(st);
+            }
+        }
+        features.clear();
+        keyValues.clear();
+    }
+
+    /**
+     * Returns the primary key values of a feature about to be inserted, or null if they can 
+     * only be retrieved after the insert 
+     */
+    List<Object> getInsertKeyValues(PrimaryKey key, SimpleFeature feature, boolean postInsert,
+            Connection cx) throws SQLException, IOException {
+        boolean useExisting = Boolean.TRUE.equals(feature.getUserData().get(Hints.USE_PROVIDED_FID));
+        if(useExisting) {
+            return decodeFID(key, feature.getID(), true);
+        } else if (!postInsert) {
+            return getNextValues( key, cx );
+        }
+        return null;
+    }
+
+    /**
+     * Returns true if the feature can be inserted as part of a JDBC batch, that is, if batch
+     * inserts are enabled and its primary key values can be computed ahead of the insert 
+     * without looking at the table contents: the feature has a provided fid, or all the
+     * key columns are backed by sequences. Auto-generated keys retrieved after the insert 
+     * and keys computed as max + 1 require the features to be inserted one at a time.
+     */
+    boolean isBatchInsertable(PrimaryKey key, SimpleFeature feature) {
+        if (batchInsertSize <= 1 || key.getColumns().isEmpty()) {
+            return false;
+        }
+        if (Boolean.TRUE.equals(feature.getUserData().get(Hints.USE_PROVIDED_FID))) {
+            return true;
+        }
+        for (PrimaryKeyColumn col : key.getColumns()) {
+            if (!(col instanceof SequencedPrimaryKeyColumn)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Updates an existing feature(s) in the database for a particular feature type / table.
      */
@@ -3855,6 +3993,23 @@ public final class JDBCDataStore extends ContentDataStore
      * Generates a 'INSERT INFO' prepared statement.
      */
     protected PreparedStatement insertSQLPS(SimpleFeatureType featureType, SimpleFeature feature, List keyValues, Connection cx) 
+        throws IOException, SQLException {
+        String sql = insertSQLPSString(featureType, feature);
+        LOGGER.log(Level.FINE, "Inserting new feature with ps: {0}", sql);
+        
+        //create the prepared statement
+        PreparedStatement ps = cx.prepareStatement(sql);
+        setInsertValues(ps, featureType, feature, keyValues, cx);
+        
+        return ps;
+    }
+
+    /**
+     * Generates the SQL of a 'INSERT INFO' prepared statement. The same SQL can be used
+     * for all the features sharing the same geometry encoding and provided fid flag, which
+     * allows to insert them as a single batch.
+     */
+    protected String insertSQLPSString(SimpleFeatureType featureType, SimpleFeature feature) 
         throws IOException, SQLException {
         PreparedStatementSQLDialect dialect = (PreparedStatementSQLDialect) getSQLDialect();
         
@@ -3924,10 +4079,27 @@ public final class JDBCDataStore extends ContentDataStore
         
         sql.setLength(sql.length()-1);
         sql.append(")");
-        LOGGER.log(Level.FINE, "Inserting new feature with ps: {0}", sql);
         
-        //create the prepared statement
-        PreparedStatement ps = cx.prepareStatement(sql.toString());
+        return sql.toString();
+    }
+
+    /**
+     * Sets the attribute and primary key values of a feature in a prepared statement built
+     * by {@link #insertSQLPSString(SimpleFeatureType, SimpleFeature)}
+     */
+    protected void setInsertValues(PreparedStatement ps, SimpleFeatureType featureType,
+            SimpleFeature feature, List keyValues, Connection cx) throws IOException, SQLException {
+        PreparedStatementSQLDialect dialect = (PreparedStatementSQLDialect) getSQLDialect();
+        
+        // grab the primary key and collect the pk column names 
+        PrimaryKey key = null; 
+        try {
+            key = getPrimaryKey(featureType);
+        } catch (IOException e) {
+            throw new RuntimeException( e );
+        }
+        Set<String> pkColumnNames = getColumnNames(key);
+        boolean useExisting = Boolean.TRUE.equals(feature.getUserData().get(Hints.USE_PROVIDED_FID));
         
         //set the attribute values
         int i = 1;
@@ -3978,8 +4150,6 @@ public final class JDBCDataStore extends ContentDataStore
                 }
             }
         }
-        
-        return ps;
     }
     
     /**
@@ -45,6 +45,7 @@ import org.geotools.data.store.ContentFeatureSource;
 import org.geotools.factory.Hints;
 import org.geotools.factory.Hints.Key;
 import org.geotools.feature.AttributeTypeBuilder;
+import org.geotools.feature.collection.ParallelVisitExecutor;
 import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
 import org.geotools.feature.visitor.MaxVisitor;
 import org.geotools.feature.visitor.MinVisitor;
@@ -699,6 +700,64 @@ public class JDBCFeatureSource extends ContentFeatureSource {
         }
     }
 
+    /**
+     * Splits the query in ranges of primary key values, when the primary key is made of a single
+     * integral column exposed as an attribute. The key range is computed with native min/max
+     * aggregates, if those are not available the query is not split.
+     */
+    @Override
+    protected List<Query> splitQuery(Query query, int parts) throws IOException {
+        PrimaryKey pk = getPrimaryKey();
+        if (pk == null || pk.getColumns().size() != 1) {
+            return null;
+        }
+        PrimaryKeyColumn column = pk.getColumns().get(0);
+        Class<?> type = column.getType();
+        if (!(Long.class.equals(type) || Integer.class.equals(type) || Short.class.equals(type)
+                || Byte.class.equals(type)) || getSchema().getDescriptor(column.getName()) == null) {
+            return null;
+        }
+
+        // compute the key range
+        String name = column.getName();
+        MinVisitor min = new MinVisitor(name);
+        MaxVisitor max = new MaxVisitor(name);
+        if (!handleVisitor(query, min) || !handleVisitor(query, max)) {
+            return null;
+        }
+        Object minValue = min.getResult().getValue();
+        Object maxValue = max.getResult().getValue();
+        if (!(minValue instanceof Number) || !(maxValue instanceof Number)) {
+            return null;
+        }
+        long low = ((Number) minValue).longValue();
+        long high = ((Number) maxValue).longValue();
+        int n = ParallelVisitExecutor.getPartCount(high - low + 1, parts);
+        if (n < 2) {
+            return null;
+        }
+
+        FilterFactory ff = getDataStore().getFilterFactory();
+        Expression property = ff.property(name);
+        long step = (high - low + 1) / n;
+        List<Query> result = new ArrayList<Query>(n);
+        for (int i = 0; i < n; i++) {
+            long start = low + step * i;
+            Filter range;
+            if (i < n - 1) {
+                range = ff.and(ff.greaterOrEqual(property, ff.literal(start)),
+                        ff.less(property, ff.literal(start + step)));
+            } else {
+                range = ff.and(ff.greaterOrEqual(property, ff.literal(start)),
+                        ff.lessOrEqual(property, ff.literal(high)));
+            }
+            Query part = new Query(query);
+            part.setFilter(ff.and(query.getFilter(), range));
+            result.add(part);
+        }
+        return result;
+    }
+
     /**
      * Special case of nearest visitor, which can be computed by combining a min and a max visit
      * @param query
@@ -22,6 +22,7 @@ import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import org.geotools.data.DefaultQuery;
@@ -229,6 +230,11 @@ public final class JDBCFeatureStore extends ContentFeatureStore {
     protected boolean handleVisitor(Query query, FeatureVisitor visitor) throws IOException {
         return delegate.handleVisitor(query, visitor);
     }
+
+    @Override
+    protected List<Query> splitQuery(Query query, int parts) throws IOException {
+        return delegate.splitQuery(query, parts);
+    }
     
 //  /**
 //  * This method operates by delegating to the
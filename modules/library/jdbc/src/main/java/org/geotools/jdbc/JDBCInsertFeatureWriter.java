@@ -20,11 +20,14 @@ import java.io.IOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.geotools.data.FeatureWriter;
 import org.geotools.data.store.ContentEntry;
 import org.geotools.data.store.ContentState;
 import org.geotools.factory.Hints;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
 import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.feature.simple.SimpleFeatureType;
 
@@ -38,6 +41,13 @@ public class JDBCInsertFeatureWriter extends JDBCFeatureReader implements Featur
     
     ResultSetFeature last;
     
+    /**
+     * The features queued for batch insert, along with their primary key values
+     */
+    List<SimpleFeature> batch = new ArrayList<SimpleFeature>();
+    
+    List<List<Object>> batchKeyValues = new ArrayList<List<Object>>();
+    
     public JDBCInsertFeatureWriter(String sql, Connection cx,
             JDBCFeatureSource featureSource, Hints hints) throws SQLException, IOException {
         super(sql, cx, featureSource, featureSource.getSchema(), hints);
@@ -72,12 +82,33 @@ public class JDBCInsertFeatureWriter extends JDBCFeatureReader implements Featur
 
     public void write() throws IOException {
         try {
-            //do the insert
-            dataStore.insert(last, featureType, st.getConnection());
-            
-            //the datastore sets as userData, grab it and update the fid
-            String fid = (String) last.getUserData().get( "fid" );
-            last.setID( fid );
+            PrimaryKey key = dataStore.getPrimaryKey(featureType);
+            if (dataStore.isBatchInsertable(key, last)) {
+                // the key values can be computed upfront, so the fid is known right away, 
+                // queue a copy of the feature for batch insert (the current one gets reused)
+                List<Object> keyValues = dataStore.getInsertKeyValues(key, last, false,
+                        st.getConnection());
+                SimpleFeature copy = SimpleFeatureBuilder.copy(last);
+                copy.getUserData().putAll(last.getUserData());
+                batch.add(copy);
+                batchKeyValues.add(keyValues);
+                String fid = featureType.getTypeName() + "." + dataStore.encodeFID(keyValues);
+                last.getUserData().put("fid", fid);
+                last.setID(fid);
+                if (batch.size() >= dataStore.getBatchInsertSize()) {
+                    flushBatch();
+                }
+            } else {
+                // make sure the inserts happen in the same order as the writes
+                flushBatch();
+                
+                //do the insert
+                dataStore.insert(last, featureType, st.getConnection());
+                
+                //the datastore sets as userData, grab it and update the fid
+                String fid = (String) last.getUserData().get( "fid" );
+                last.setID( fid );
+            }
             
             ContentEntry entry = featureSource.getEntry();
             ContentState state = entry.getState( this.tx );            
@@ -87,8 +118,23 @@ public class JDBCInsertFeatureWriter extends JDBCFeatureReader implements Featur
         }
     }
 
+    /**
+     * Inserts the features queued for batch insert, if any
+     */
+    void flushBatch() throws IOException, SQLException {
+        if (!batch.isEmpty()) {
+            dataStore.insertBatch(batch, batchKeyValues, featureType, st.getConnection());
+        }
+    }
+
     public void close() throws IOException {
-        super.close();
+        try {
+            flushBatch();
+        } catch (SQLException e) {
+            throw (IOException) new IOException("Error inserting features").initCause(e);
+        } finally {
+            super.close();
+        }
         
         if ( last != null ) {
             last.close();
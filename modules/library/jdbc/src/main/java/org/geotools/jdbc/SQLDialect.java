@@ -48,6 +48,7 @@ import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.geotools.referencing.CRS;
 import org.geotools.util.logging.Logging;
 import org.opengis.feature.FeatureVisitor;
+import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.feature.type.AttributeDescriptor;
 import org.opengis.feature.type.GeometryDescriptor;
@@ -1053,6 +1054,37 @@ public abstract class SQLDialect {
     public boolean lookupGeneratedValuesPostInsert() {
         return false;
     }
+
+    /**
+     * Inserts a batch of features using a database specific bulk loading mechanism, if any.
+     * <p>
+     * This method is called by the datastore when batch inserts are enabled, and all the
+     * primary key values of the features have been computed before the insert. Implementations
+     * returning <code>false</code> signal the datastore the bulk load could not be performed
+     * (e.g., because it is not supported, or some attribute type cannot be handled), in which
+     * case the features will be inserted with regular INSERT statements instead. Implementations
+     * must not write anything in the database when returning <code>false</code>.
+     * </p>
+     * <p>
+     * This method is given a direct connection to the database, but this connection
+     * should never be closed. However any statements instantiated from the connection must be 
+     * closed.
+     * </p>
+     * <p>
+     * The default implementation returns <code>false</code>.
+     * </p>
+     * @param featureType The type of the features being inserted
+     * @param key The primary key of the table
+     * @param features The features to insert
+     * @param keyValues The primary key values of each feature, in the same order as the features
+     * @param cx The database connection
+     * 
+     * @return true if the features have been inserted, false otherwise
+     */
+    public boolean insertBulk(SimpleFeatureType featureType, PrimaryKey key,
+            List<SimpleFeature> features, List<List<Object>> keyValues, Connection cx) throws SQLException, IOException {
+        return false;
+    }
     
     /**
      * Obtains the next value of an auto generated column.
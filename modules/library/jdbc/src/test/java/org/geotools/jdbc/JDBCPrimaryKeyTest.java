@@ -78,6 +78,32 @@ public abstract class JDBCPrimaryKeyTest extends JDBCTestSupport {
         assertPrimaryKeyValues(features,4);
     }
 
+    public void testSequencedPrimaryKeyBatchInsert() throws Exception {
+        dataStore.setBatchInsertSize(2);
+        JDBCFeatureStore fs = (JDBCFeatureStore) dataStore.getFeatureSource(tname("seq"));
+        
+        FeatureCollection features = fs.getFeatures();
+        assertPrimaryKeyValues(features, 3);
+        
+        // three features, one full batch plus a partial one flushed on close
+        SimpleFeatureType featureType = fs.getSchema();
+        SimpleFeatureBuilder b = new SimpleFeatureBuilder( featureType );
+        GeometryFactory gf = new GeometryFactory();
+        String[] names = new String[] { "four", "five", "six" };
+        SimpleFeature[] added = new SimpleFeature[names.length];
+        for (int i = 0; i < names.length; i++) {
+            b.add(names[i]);
+            b.add(gf.createPoint(new Coordinate(4 + i, 4 + i)));
+            added[i] = b.buildFeature(null);
+        }
+        fs.addFeatures(DataUtilities.collection(added));
+        
+        for (int i = 0; i < added.length; i++) {
+            assertEquals(tname(featureType.getTypeName()) + "." + (4 + i), added[i].getUserData().get("fid"));
+        }
+        assertPrimaryKeyValues(features, 6);
+    }
+
     public void testNonIncrementingPrimaryKey() throws Exception {
         JDBCFeatureStore fs = (JDBCFeatureStore) dataStore.getFeatureSource(tname("noninc"));
         
@@ -53,6 +53,7 @@ import java.util.logging.Logger;
 import org.geotools.data.collection.CollectionDataStore;
 import org.geotools.data.collection.CollectionFeatureSource;
 import org.geotools.data.collection.ListFeatureCollection;
+import org.geotools.data.collection.PackedSpatialIndexFeatureCollection;
 import org.geotools.data.collection.SpatialIndexFeatureCollection;
 import org.geotools.data.collection.SpatialIndexFeatureSource;
 import org.geotools.data.collection.TreeSetFeatureCollection;
@@ -1111,6 +1112,12 @@ public class DataUtilities {
 
             return source;
         }
+        if (collection instanceof PackedSpatialIndexFeatureCollection) {
+            PackedSpatialIndexFeatureCollection packed = (PackedSpatialIndexFeatureCollection) collection;
+            SpatialIndexFeatureSource source = new SpatialIndexFeatureSource(packed);
+
+            return source;
+        }
         if (collection instanceof TreeSetFeatureCollection) {
             TreeSetFeatureCollection tree = (TreeSetFeatureCollection) collection;
             CollectionFeatureSource source = new CollectionFeatureSource(tree);
@@ -20,7 +20,9 @@ import java.io.IOException;
 import java.util.NoSuchElementException;
 
 import org.geotools.feature.IllegalAttributeException;
+import org.geotools.filter.visitor.FilterCompiler;
 import org.opengis.feature.Feature;
+import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.feature.type.FeatureType;
 import org.opengis.filter.Filter;
 
@@ -50,6 +52,11 @@ public class FilteringFeatureReader<T extends FeatureType, F extends Feature> im
     protected final Filter filter;
     protected F next;
 
+    /**
+     * The filter compiled against the reader feature type, used for the evaluation
+     */
+    private final Filter compiledFilter;
+
     /**
      * Creates a new instance of AbstractFeatureReader
      * 
@@ -65,6 +72,12 @@ public class FilteringFeatureReader<T extends FeatureType, F extends Feature> im
         this.featureReader = featureReader;
         this.filter = filter;
         next = null;
+        T schema = featureReader.getFeatureType();
+        if (schema instanceof SimpleFeatureType) {
+            this.compiledFilter = FilterCompiler.compile(filter, (SimpleFeatureType) schema);
+        } else {
+            this.compiledFilter = filter;
+        }
     }
 
     /**
@@ -127,7 +140,7 @@ public class FilteringFeatureReader<T extends FeatureType, F extends Feature> im
             while (featureReader.hasNext()) {
                 peek = featureReader.next();
 
-                if (filter.evaluate(peek)) {
+                if (compiledFilter.evaluate(peek)) {
                     next = peek;
                     return true;
                 }                                
@@ -28,6 +28,8 @@ import org.geotools.data.simple.SimpleFeatureCollection;
 import org.geotools.data.simple.SimpleFeatureIterator;
 import org.geotools.feature.FeatureIterator;
 import org.geotools.feature.collection.AbstractFeatureCollection;
+import org.geotools.feature.collection.ParallelVisitExecutor;
+import org.geotools.feature.collection.SplittableFeatureCollection;
 import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.opengis.feature.Feature;
 import org.opengis.feature.FeatureVisitor;
@@ -36,6 +38,7 @@ import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.filter.Filter;
 import org.opengis.filter.sort.SortBy;
 import org.opengis.geometry.BoundingBox;
+import org.opengis.util.ProgressListener;
 
 /**
  * FeatureCollection implementation wrapping around a java.util.List.
@@ -60,7 +63,8 @@ import org.opengis.geometry.BoundingBox;
  * @source $URL$
  */
 @SuppressWarnings("unchecked")
-public class ListFeatureCollection extends AbstractFeatureCollection implements Collection<SimpleFeature> {
+public class ListFeatureCollection extends AbstractFeatureCollection implements Collection<SimpleFeature>,
+        SplittableFeatureCollection<SimpleFeatureType, SimpleFeature> {
     /** wrapped list of features containing the contents */
      private List<SimpleFeature> list;
      
@@ -253,4 +257,33 @@ public class ListFeatureCollection extends AbstractFeatureCollection implements
 		bounds = null;
 		return list.retainAll(c);
 	}
+
+    /**
+     * Visits the features in parallel, if enabled, see {@link ParallelVisitExecutor}
+     */
+    @Override
+    public void accepts(FeatureVisitor visitor, ProgressListener progress) throws IOException {
+        if (!ParallelVisitExecutor.accepts(this, visitor, progress)) {
+            super.accepts(visitor, progress);
+        }
+    }
+
+    /**
+     * Splits the list in consecutive sub lists of about the same size
+     */
+    @Override
+    public List<ListFeatureCollection> split(int parts) {
+        int size = list.size();
+        int count = ParallelVisitExecutor.getPartCount(size, parts);
+        if (count < 2) {
+            return null;
+        }
+        List<ListFeatureCollection> result = new ArrayList<ListFeatureCollection>(count);
+        for (int i = 0; i < count; i++) {
+            int start = (int) ((long) size * i / count);
+            int end = (int) ((long) size * (i + 1) / count);
+            result.add(new ListFeatureCollection(schema, list.subList(start, end)));
+        }
+        return result;
+    }
  }
@@ -0,0 +1,666 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.collection;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.opengis.feature.type.AttributeDescriptor;
+
+import com.vividsolutions.jts.geom.CoordinateSequence;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryCollection;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.LineString;
+import com.vividsolutions.jts.geom.LinearRing;
+import com.vividsolutions.jts.geom.MultiLineString;
+import com.vividsolutions.jts.geom.MultiPoint;
+import com.vividsolutions.jts.geom.MultiPolygon;
+import com.vividsolutions.jts.geom.Point;
+import com.vividsolutions.jts.geom.Polygon;
+import com.vividsolutions.jts.geom.impl.PackedCoordinateSequenceFactory;
+
+/**
+ * A column of attribute values stored in primitive arrays, used by
+ * {@link PackedSpatialIndexFeatureCollection}. Columns are filled in a single pass with
+ * {@link #add(Object)}, then {@link #trim()} releases the spare capacity and they become read only.
+ *
+ * @author Andrea Aime - GeoSolutions
+ */
+abstract class PackedColumn {
+
+    /**
+     * Creates the most compact column for the attribute binding
+     */
+    static PackedColumn create(AttributeDescriptor descriptor) {
+        Class<?> binding = descriptor.getType().getBinding();
+        if (Geometry.class.isAssignableFrom(binding)) {
+            return new GeometryColumn();
+        } else if (binding == Integer.class || binding == Short.class || binding == Byte.class) {
+            return new IntColumn(binding);
+        } else if (binding == Long.class) {
+            return new LongColumn();
+        } else if (binding == Double.class) {
+            return new DoubleColumn();
+        } else if (binding == Float.class) {
+            return new FloatColumn();
+        } else if (binding == Boolean.class) {
+            return new BooleanColumn();
+        } else if (binding == String.class) {
+            return new StringColumn();
+        } else if (binding == Date.class) {
+            return new DateColumn();
+        } else {
+            return new ObjectColumn();
+        }
+    }
+
+    /**
+     * The number of values in the column
+     */
+    int size;
+
+    /**
+     * Adds a value at the end of the column, returns false if the value cannot be stored in this
+     * column (e.g., its type is not the one declared by the feature type), in which case the
+     * caller should switch to an {@link ObjectColumn}
+     */
+    abstract boolean add(Object value);
+
+    /**
+     * Returns the value at the specified row
+     */
+    abstract Object get(int row);
+
+    /**
+     * Releases the spare capacity
+     */
+    abstract void trim();
+
+    static int grow(int capacity, int required) {
+        return Math.max(required, Math.max(16, capacity + (capacity >> 1)));
+    }
+
+    /**
+     * Integers, shorts and bytes
+     */
+    static final class IntColumn extends PackedColumn {
+        final Class<?> binding;
+
+        int[] values = new int[16];
+
+        final BitSet nulls = new BitSet();
+
+        IntColumn(Class<?> binding) {
+            this.binding = binding;
+        }
+
+        boolean add(Object value) {
+            if (value != null && value.getClass() != binding) {
+                return false;
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, grow(size, size + 1));
+            }
+            if (value == null) {
+                nulls.set(size);
+            } else {
+                values[size] = ((Number) value).intValue();
+            }
+            size++;
+            return true;
+        }
+
+        Object get(int row) {
+            if (nulls.get(row)) {
+                return null;
+            }
+            int value = values[row];
+            if (binding == Short.class) {
+                return Short.valueOf((short) value);
+            } else if (binding == Byte.class) {
+                return Byte.valueOf((byte) value);
+            }
+            return Integer.valueOf(value);
+        }
+
+        void trim() {
+            values = Arrays.copyOf(values, size);
+        }
+    }
+
+    static final class LongColumn extends PackedColumn {
+        long[] values = new long[16];
+
+        final BitSet nulls = new BitSet();
+
+        boolean add(Object value) {
+            if (value != null && !(value instanceof Long)) {
+                return false;
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, grow(size, size + 1));
+            }
+            if (value == null) {
+                nulls.set(size);
+            } else {
+                values[size] = (Long) value;
+            }
+            size++;
+            return true;
+        }
+
+        Object get(int row) {
+            return nulls.get(row) ? null : Long.valueOf(values[row]);
+        }
+
+        void trim() {
+            values = Arrays.copyOf(values, size);
+        }
+    }
+
+    static final class DoubleColumn extends PackedColumn {
+        double[] values = new double[16];
+
+        final BitSet nulls = new BitSet();
+
+        boolean add(Object value) {
+            if (value != null && !(value instanceof Double)) {
+                return false;
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, grow(size, size + 1));
+            }
+            if (value == null) {
+                nulls.set(size);
+            } else {
+                values[size] = (Double) value;
+            }
+            size++;
+            return true;
+        }
+
+        Object get(int row) {
+            return nulls.get(row) ? null : Double.valueOf(values[row]);
+        }
+
+        void trim() {
+            values = Arrays.copyOf(values, size);
+        }
+    }
+
+    static final class FloatColumn extends PackedColumn {
+        float[] values = new float[16];
+
+        final BitSet nulls = new BitSet();
+
+        boolean add(Object value) {
+            if (value != null && !(value instanceof Float)) {
+                return false;
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, grow(size, size + 1));
+            }
+            if (value == null) {
+                nulls.set(size);
+            } else {
+                values[size] = (Float) value;
+            }
+            size++;
+            return true;
+        }
+
+        Object get(int row) {
+            return nulls.get(row) ? null : Float.valueOf(values[row]);
+        }
+
+        void trim() {
+            values = Arrays.copyOf(values, size);
+        }
+    }
+
+    static final class BooleanColumn extends PackedColumn {
+        final BitSet values = new BitSet();
+
+        final BitSet nulls = new BitSet();
+
+        boolean add(Object value) {
+            if (value != null && !(value instanceof Boolean)) {
+                return false;
+            }
+            if (value == null) {
+                nulls.set(size);
+            } else if ((Boolean) value) {
+                values.set(size);
+            }
+            size++;
+            return true;
+        }
+
+        Object get(int row) {
+            return nulls.get(row) ? null : Boolean.valueOf(values.get(row));
+        }
+
+        void trim() {
+            // bit sets are already compact
+        }
+    }
+
+    /**
+     * Dates, stored as milliseconds
+     */
+    static final class DateColumn extends PackedColumn {
+        long[] values = new long[16];
+
+        final BitSet nulls = new BitSet();
+
+        boolean add(Object value) {
+            if (value != null && value.getClass() != Date.class) {
+                return false;
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, grow(size, size + 1));
+            }
+            if (value == null) {
+                nulls.set(size);
+            } else {
+                values[size] = ((Date) value).getTime();
+            }
+            size++;
+            return true;
+        }
+
+        Object get(int row) {
+            return nulls.get(row) ? null : new Date(values[row]);
+        }
+
+        void trim() {
+            values = Arrays.copyOf(values, size);
+        }
+    }
+
+    /**
+     * Strings, dictionary encoded, as reference layers tend to repeat the same values over and
+     * over
+     */
+    static final class StringColumn extends PackedColumn {
+        int[] codes = new int[16];
+
+        String[] dictionary = new String[16];
+
+        int dictionarySize;
+
+        Map<String, Integer> lookup = new HashMap<String, Integer>();
+
+        boolean add(Object value) {
+            if (value != null && !(value instanceof String)) {
+                return false;
+            }
+            if (size == codes.length) {
+                codes = Arrays.copyOf(codes, grow(size, size + 1));
+            }
+            int code = -1;
+            if (value != null) {
+                Integer existing = lookup.get(value);
+                if (existing == null) {
+                    if (dictionarySize == dictionary.length) {
+                        dictionary = Arrays.copyOf(dictionary,
+                                grow(dictionarySize, dictionarySize + 1));
+                    }
+                    code = dictionarySize++;
+                    dictionary[code] = (String) value;
+                    lookup.put((String) value, code);
+                } else {
+                    code = existing;
+                }
+            }
+            codes[size++] = code;
+            return true;
+        }
+
+        Object get(int row) {
+            int code = codes[row];
+            return code < 0 ? null : dictionary[code];
+        }
+
+        void trim() {
+            codes = Arrays.copyOf(codes, size);
+            dictionary = Arrays.copyOf(dictionary, dictionarySize);
+            lookup = null;
+        }
+    }
+
+    /**
+     * Any other value, stored as is
+     */
+    static final class ObjectColumn extends PackedColumn {
+        Object[] values = new Object[16];
+
+        /**
+         * Copies the values of another column
+         */
+        static ObjectColumn copyOf(PackedColumn column) {
+            ObjectColumn result = new ObjectColumn();
+            result.values = new Object[grow(0, column.size + 1)];
+            for (int i = 0; i < column.size; i++) {
+                result.values[i] = column.get(i);
+            }
+            result.size = column.size;
+            return result;
+        }
+
+        boolean add(Object value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, grow(size, size + 1));
+            }
+            values[size++] = value;
+            return true;
+        }
+
+        Object get(int row) {
+            return values[row];
+        }
+
+        void trim() {
+            values = Arrays.copyOf(values, size);
+        }
+    }
+
+    /**
+     * Geometries, stored as a sequence of structure markers (type, number of parts, dimension and
+     * number of points of each coordinate sequence) and a single array of ordinates. Each
+     * {@link #get(int)} builds a new geometry, backed by packed coordinate sequences.
+     */
+    static final class GeometryColumn extends PackedColumn {
+        static final int POINT = 1;
+
+        static final int LINESTRING = 2;
+
+        static final int LINEARRING = 3;
+
+        static final int POLYGON = 4;
+
+        static final int MULTIPOINT = 5;
+
+        static final int MULTILINESTRING = 6;
+
+        static final int MULTIPOLYGON = 7;
+
+        static final int COLLECTION = 8;
+
+        static final GeometryFactory FACTORY = new GeometryFactory(
+                PackedCoordinateSequenceFactory.DOUBLE_FACTORY);
+
+        /**
+         * Where each geometry starts in the structure array, -1 for null geometries
+         */
+        int[] offsets = new int[16];
+
+        /**
+         * Where each geometry starts in the ordinates array
+         */
+        int[] ordinateOffsets = new int[16];
+
+        int[] structure = new int[64];
+
+        int structureSize;
+
+        double[] ordinates = new double[256];
+
+        int ordinatesSize;
+
+        boolean add(Object value) {
+            if (value != null && !(value instanceof Geometry)) {
+                return false;
+            }
+            if (size == offsets.length) {
+                int capacity = grow(size, size + 1);
+                offsets = Arrays.copyOf(offsets, capacity);
+                ordinateOffsets = Arrays.copyOf(ordinateOffsets, capacity);
+            }
+            if (value == null) {
+                offsets[size] = -1;
+            } else {
+                offsets[size] = structureSize;
+                ordinateOffsets[size] = ordinatesSize;
+                encode((Geometry) value);
+            }
+            size++;
+            return true;
+        }
+
+        void addStructure(int value) {
+            if (structureSize == structure.length) {
+                structure = Arrays.copyOf(structure, grow(structureSize, structureSize + 1));
+            }
+            structure[structureSize++] = value;
+        }
+
+        void encode(Geometry geometry) {
+            if (geometry instanceof Point) {
+                addStructure(POINT);
+                encode(((Point) geometry).getCoordinateSequence());
+            } else if (geometry instanceof LinearRing) {
+                addStructure(LINEARRING);
+                encode(((LinearRing) geometry).getCoordinateSequence());
+            } else if (geometry instanceof LineString) {
+                addStructure(LINESTRING);
+                encode(((LineString) geometry).getCoordinateSequence());
+            } else if (geometry instanceof Polygon) {
+                Polygon polygon = (Polygon) geometry;
+                addStructure(POLYGON);
+                addStructure(polygon.getNumInteriorRing() + 1);
+                encode(polygon.getExteriorRing().getCoordinateSequence());
+                for (int i = 0; i < polygon.getNumInteriorRing(); i++) {
+                    encode(polygon.getInteriorRingN(i).getCoordinateSequence());
+                }
+            } else {
+                if (geometry instanceof MultiPoint) {
+                    addStructure(MULTIPOINT);
+                } else if (geometry instanceof MultiLineString) {
+                    addStructure(MULTILINESTRING);
+                } else if (geometry instanceof MultiPolygon) {
+                    addStructure(MULTIPOLYGON);
+                } else {
+                    addStructure(COLLECTION);
+                }
+                addStructure(geometry.getNumGeometries());
+                for (int i = 0; i < geometry.getNumGeometries(); i++) {
+                    encode(geometry.getGeometryN(i));
+                }
+            }
+        }
+
+        void encode(CoordinateSequence cs) {
+            final int points = cs.size();
+            int dimension = 2;
+            if (cs.getDimension() > 2) {
+                // coordinate array sequences always report 3 dimensions, check for actual z values
+                for (int i = 0; i < points && dimension == 2; i++) {
+                    if (!Double.isNaN(cs.getOrdinate(i, CoordinateSequence.Z))) {
+                        dimension = 3;
+                    }
+                }
+            }
+            addStructure(dimension);
+            addStructure(points);
+            final int required = ordinatesSize + points * dimension;
+            if (required > ordinates.length) {
+                ordinates = Arrays.copyOf(ordinates, grow(ordinates.length, required));
+            }
+            for (int i = 0; i < points; i++) {
+                for (int d = 0; d < dimension; d++) {
+                    ordinates[ordinatesSize++] = cs.getOrdinate(i, d);
+                }
+            }
+        }
+
+        Object get(int row) {
+            if (offsets[row] < 0) {
+                return null;
+            }
+            return decode(new int[] { offsets[row], ordinateOffsets[row] });
+        }
+
+        /**
+         * Decodes a geometry, the cursor holds the current positions in the structure and
+         * ordinates arrays
+         */
+        Geometry decode(int[] cursor) {
+            final int type = structure[cursor[0]++];
+            switch (type) {
+            case POINT:
+                return FACTORY.createPoint(decodeSequence(cursor));
+            case LINESTRING:
+                return FACTORY.createLineString(decodeSequence(cursor));
+            case LINEARRING:
+                return FACTORY.createLinearRing(decodeSequence(cursor));
+            case POLYGON: {
+                final int rings = structure[cursor[0]++];
+                LinearRing shell = FACTORY.createLinearRing(decodeSequence(cursor));
+                LinearRing[] holes = new LinearRing[rings - 1];
+                for (int i = 0; i < holes.length; i++) {
+                    holes[i] = FACTORY.createLinearRing(decodeSequence(cursor));
+                }
+                return FACTORY.createPolygon(shell, holes);
+            }
+            default: {
+                final int count = structure[cursor[0]++];
+                Geometry[] parts = new Geometry[count];
+                for (int i = 0; i < count; i++) {
+                    parts[i] = decode(cursor);
+                }
+                switch (type) {
+                case MULTIPOINT:
+                    return FACTORY.createMultiPoint(Arrays.copyOf(parts, count, Point[].class));
+                case MULTILINESTRING:
+                    return FACTORY.createMultiLineString(Arrays.copyOf(parts, count,
+                            LineString[].class));
+                case MULTIPOLYGON:
+                    return FACTORY.createMultiPolygon(Arrays.copyOf(parts, count,
+                            Polygon[].class));
+                default:
+                    return FACTORY.createGeometryCollection(parts);
+                }
+            }
+            }
+        }
+
+        CoordinateSequence decodeSequence(int[] cursor) {
+            final int dimension = structure[cursor[0]++];
+            final int points = structure[cursor[0]++];
+            final int start = cursor[1];
+            cursor[1] += points * dimension;
+            return PackedCoordinateSequenceFactory.DOUBLE_FACTORY.create(
+                    Arrays.copyOfRange(ordinates, start, cursor[1]), dimension);
+        }
+
+        void trim() {
+            offsets = Arrays.copyOf(offsets, size);
+            ordinateOffsets = Arrays.copyOf(ordinateOffsets, size);
+            structure = Arrays.copyOf(structure, structureSize);
+            ordinates = Arrays.copyOf(ordinates, ordinatesSize);
+        }
+    }
+
+    /**
+     * Feature identifiers. When they all are made of the same prefix followed by a number, as it
+     * is the case for most data stores, only the numbers are stored.
+     */
+    static final class FidColumn extends PackedColumn {
+        String prefix;
+
+        long[] numbers = new long[16];
+
+        String[] fids;
+
+        boolean add(Object value) {
+            String fid = (String) value;
+            if (fids == null) {
+                if (size == 0) {
+                    prefix = getPrefix(fid);
+                }
+                long number = prefix != null ? getNumber(fid, prefix) : -1;
+                if (number >= 0) {
+                    if (size == numbers.length) {
+                        numbers = Arrays.copyOf(numbers, grow(size, size + 1));
+                    }
+                    numbers[size++] = number;
+                    return true;
+                }
+                // switch to plain strings
+                fids = new String[grow(0, size + 1)];
+                for (int i = 0; i < size; i++) {
+                    fids[i] = prefix + numbers[i];
+                }
+                numbers = null;
+            }
+            if (size == fids.length) {
+                fids = Arrays.copyOf(fids, grow(size, size + 1));
+            }
+            fids[size++] = fid;
+            return true;
+        }
+
+        static String getPrefix(String fid) {
+            if (fid == null) {
+                return null;
+            }
+            int i = fid.length();
+            while (i > 0 && Character.isDigit(fid.charAt(i - 1))) {
+                i--;
+            }
+            return i < fid.length() ? fid.substring(0, i) : null;
+        }
+
+        static long getNumber(String fid, String prefix) {
+            if (fid == null || !fid.startsWith(prefix)) {
+                return -1;
+            }
+            int length = fid.length() - prefix.length();
+            // no leading zeros and no overflow, the number must convert back to the same string
+            if (length == 0 || length > 18
+                    || (length > 1 && fid.charAt(prefix.length()) == '0')) {
+                return -1;
+            }
+            long result = 0;
+            for (int i = prefix.length(); i < fid.length(); i++) {
+                char c = fid.charAt(i);
+                if (c < '0' || c > '9') {
+                    return -1;
+                }
+                result = result * 10 + (c - '0');
+            }
+            return result;
+        }
+
+        Object get(int row) {
+            return fids != null ? fids[row] : prefix + numbers[row];
+        }
+
+        void trim() {
+            if (fids != null) {
+                fids = Arrays.copyOf(fids, size);
+            } else {
+                numbers = Arrays.copyOf(numbers, size);
+            }
+        }
+    }
+}
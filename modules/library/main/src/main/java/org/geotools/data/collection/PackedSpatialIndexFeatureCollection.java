@@ -0,0 +1,542 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.collection;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.data.store.EmptyFeatureCollection;
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.feature.collection.BaseSimpleFeatureCollection;
+import org.geotools.feature.simple.SimpleFeatureImpl;
+import org.geotools.filter.FilterAttributeExtractor;
+import org.geotools.filter.identity.FeatureIdImpl;
+import org.geotools.filter.visitor.DefaultFilterVisitor;
+import org.geotools.filter.visitor.ExtractBoundsFilterVisitor;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeDescriptor;
+import org.opengis.feature.type.GeometryDescriptor;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory;
+import org.opengis.filter.spatial.BBOX;
+import org.opengis.filter.spatial.Beyond;
+import org.opengis.filter.spatial.BinarySpatialOperator;
+import org.opengis.filter.spatial.Contains;
+import org.opengis.filter.spatial.Crosses;
+import org.opengis.filter.spatial.DWithin;
+import org.opengis.filter.spatial.Disjoint;
+import org.opengis.filter.spatial.Equals;
+import org.opengis.filter.spatial.Intersects;
+import org.opengis.filter.spatial.Overlaps;
+import org.opengis.filter.spatial.Touches;
+import org.opengis.filter.spatial.Within;
+
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Geometry;
+
+/**
+ * A memory efficient, read only alternative to {@link SpatialIndexFeatureCollection}, meant to
+ * hold reference layers in memory.
+ * <p>
+ * The contents are bulk loaded from another collection, and instead of keeping the features
+ * around, the collection stores them column by column in primitive arrays: numbers and dates as
+ * primitives, strings dictionary encoded, geometries as packed ordinates, and the feature bounds
+ * as a packed STR tree. The features are rebuilt on the fly while iterating, so the collection
+ * usually takes a fraction of the memory of a {@link SpatialIndexFeatureCollection}, at the
+ * price of some allocation during the iteration.
+ * </p>
+ * <p>
+ * {@link #subCollection(Filter)} uses the spatial index to locate the features matching the
+ * bounding box of the filter, and evaluates the filter lazily while iterating. Only the default
+ * geometry is indexed, filters working against other geometries are evaluated on all features.
+ * Each iteration returns new feature objects, changes to them are not reflected in the
+ * collection. Geometry user data is not preserved.
+ * </p>
+ *
+ * @author Andrea Aime - GeoSolutions
+ */
+public class PackedSpatialIndexFeatureCollection extends BaseSimpleFeatureCollection {
+
+    static final FilterFactory FF = CommonFactoryFinder.getFilterFactory(null);
+
+    /**
+     * Number of children of each tree node
+     */
+    static final int NODE_CAPACITY = 16;
+
+    final int size;
+
+    final PackedColumn.FidColumn fids;
+
+    final PackedColumn[] columns;
+
+    /**
+     * The rows, in tree order
+     */
+    final int[] rows;
+
+    /**
+     * The bounds of the tree nodes, four values per node, level 0 being the features one. Empty
+     * or missing geometries have NaN bounds, and are never returned by spatial queries.
+     */
+    final double[][] levels;
+
+    final ReferencedEnvelope bounds;
+
+    /**
+     * Loads the contents of the specified collection
+     */
+    public PackedSpatialIndexFeatureCollection(SimpleFeatureCollection features)
+            throws IOException {
+        super(features.getSchema());
+        final List<AttributeDescriptor> descriptors = schema.getAttributeDescriptors();
+        columns = new PackedColumn[descriptors.size()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = PackedColumn.create(descriptors.get(i));
+        }
+        fids = new PackedColumn.FidColumn();
+
+        // load the columns
+        double[] envelopes = new double[64];
+        int count = 0;
+        SimpleFeatureIterator it = features.features();
+        try {
+            while (it.hasNext()) {
+                SimpleFeature feature = it.next();
+                fids.add(feature.getID());
+                for (int i = 0; i < columns.length; i++) {
+                    Object value = feature.getAttribute(i);
+                    if (!columns[i].add(value)) {
+                        columns[i] = PackedColumn.ObjectColumn.copyOf(columns[i]);
+                        columns[i].add(value);
+                    }
+                }
+                if (count * 4 == envelopes.length) {
+                    envelopes = Arrays.copyOf(envelopes, envelopes.length * 2);
+                }
+                Geometry geometry = (Geometry) feature.getDefaultGeometry();
+                if (geometry == null || geometry.isEmpty()) {
+                    Arrays.fill(envelopes, count * 4, count * 4 + 4, Double.NaN);
+                } else {
+                    Envelope envelope = geometry.getEnvelopeInternal();
+                    envelopes[count * 4] = envelope.getMinX();
+                    envelopes[count * 4 + 1] = envelope.getMinY();
+                    envelopes[count * 4 + 2] = envelope.getMaxX();
+                    envelopes[count * 4 + 3] = envelope.getMaxY();
+                }
+                count++;
+            }
+        } finally {
+            it.close();
+        }
+        for (PackedColumn column : columns) {
+            column.trim();
+        }
+        fids.trim();
+        size = count;
+
+        // sort the rows and build the tree
+        rows = sortTileRecursive(envelopes, size);
+        levels = buildLevels(envelopes, rows, size);
+        final double[] root = levels[levels.length - 1];
+        bounds = new ReferencedEnvelope(schema.getCoordinateReferenceSystem());
+        if (root.length > 0 && !Double.isNaN(root[0])) {
+            bounds.expandToInclude(root[0], root[1]);
+            bounds.expandToInclude(root[2], root[3]);
+        }
+    }
+
+    /**
+     * Orders the rows in sort tile recursive order: vertical slices sorted by x, then each slice
+     * sorted by y
+     */
+    static int[] sortTileRecursive(double[] envelopes, int size) {
+        final int[] rows = new int[size];
+        final double[] centerX = new double[size];
+        final double[] centerY = new double[size];
+        for (int i = 0; i < size; i++) {
+            rows[i] = i;
+            // missing geometries last
+            double x = (envelopes[i * 4] + envelopes[i * 4 + 2]) / 2;
+            double y = (envelopes[i * 4 + 1] + envelopes[i * 4 + 3]) / 2;
+            centerX[i] = Double.isNaN(x) ? Double.POSITIVE_INFINITY : x;
+            centerY[i] = Double.isNaN(y) ? Double.POSITIVE_INFINITY : y;
+        }
+        sort(rows, 0, size - 1, centerX);
+        final int leaves = (size + NODE_CAPACITY - 1) / NODE_CAPACITY;
+        final int slices = (int) Math.ceil(Math.sqrt(leaves));
+        final int sliceSize = Math.max(1, slices) * NODE_CAPACITY;
+        for (int start = 0; start < size; start += sliceSize) {
+            sort(rows, start, Math.min(size, start + sliceSize) - 1, centerY);
+        }
+        return rows;
+    }
+
+    /**
+     * Sorts the rows between the two indexes (inclusive) by key, a plain quicksort avoiding the
+     * boxing of the rows
+     */
+    static void sort(int[] rows, int low, int high, double[] keys) {
+        while (low < high) {
+            if (high - low < 16) {
+                for (int i = low + 1; i <= high; i++) {
+                    int row = rows[i];
+                    int j = i - 1;
+                    while (j >= low && keys[rows[j]] > keys[row]) {
+                        rows[j + 1] = rows[j];
+                        j--;
+                    }
+                    rows[j + 1] = row;
+                }
+                return;
+            }
+            final double pivot = keys[rows[(low + high) >>> 1]];
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (keys[rows[i]] < pivot) {
+                    i++;
+                }
+                while (keys[rows[j]] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    int tmp = rows[i];
+                    rows[i] = rows[j];
+                    rows[j] = tmp;
+                    i++;
+                    j--;
+                }
+            }
+            // recurse on the smaller half, loop on the larger one
+            if (j - low < high - i) {
+                sort(rows, low, j, keys);
+                low = i;
+            } else {
+                sort(rows, i, high, keys);
+                high = j;
+            }
+        }
+    }
+
+    static double[][] buildLevels(double[] envelopes, int[] rows, int size) {
+        double[] leaves = new double[size * 4];
+        for (int i = 0; i < size; i++) {
+            System.arraycopy(envelopes, rows[i] * 4, leaves, i * 4, 4);
+        }
+        List<double[]> levels = new ArrayList<double[]>();
+        levels.add(leaves);
+        double[] children = leaves;
+        int count = size;
+        while (count > 1) {
+            int parents = (count + NODE_CAPACITY - 1) / NODE_CAPACITY;
+            double[] nodes = new double[parents * 4];
+            Arrays.fill(nodes, Double.NaN);
+            for (int i = 0; i < count; i++) {
+                int p = (i / NODE_CAPACITY) * 4;
+                int c = i * 4;
+                if (Double.isNaN(children[c])) {
+                    continue;
+                }
+                if (Double.isNaN(nodes[p])) {
+                    System.arraycopy(children, c, nodes, p, 4);
+                } else {
+                    nodes[p] = Math.min(nodes[p], children[c]);
+                    nodes[p + 1] = Math.min(nodes[p + 1], children[c + 1]);
+                    nodes[p + 2] = Math.max(nodes[p + 2], children[c + 2]);
+                    nodes[p + 3] = Math.max(nodes[p + 3], children[c + 3]);
+                }
+            }
+            levels.add(nodes);
+            children = nodes;
+            count = parents;
+        }
+        return levels.toArray(new double[levels.size()][]);
+    }
+
+    /**
+     * Returns the positions, in tree order, of the features whose bounds intersect the envelope
+     */
+    int[] query(Envelope envelope) {
+        int[] result = new int[16];
+        int count = 0;
+        final int top = levels.length - 1;
+        final int nodes = levels[top].length / 4;
+        // explicit stack of (level, node) pairs
+        int[] stack = new int[64];
+        int stackSize = 0;
+        for (int node = nodes - 1; node >= 0; node--) {
+            if (stackSize + 2 > stack.length) {
+                stack = Arrays.copyOf(stack, stack.length * 2);
+            }
+            stack[stackSize++] = top;
+            stack[stackSize++] = node;
+        }
+        while (stackSize > 0) {
+            final int node = stack[--stackSize];
+            final int level = stack[--stackSize];
+            final double[] b = levels[level];
+            final int i = node * 4;
+            if (!(b[i] <= envelope.getMaxX() && b[i + 2] >= envelope.getMinX()
+                    && b[i + 1] <= envelope.getMaxY() && b[i + 3] >= envelope.getMinY())) {
+                continue;
+            }
+            if (level == 0) {
+                if (count == result.length) {
+                    result = Arrays.copyOf(result, count * 2);
+                }
+                result[count++] = node;
+            } else {
+                final int children = levels[level - 1].length / 4;
+                final int first = node * NODE_CAPACITY;
+                final int last = Math.min(children, first + NODE_CAPACITY) - 1;
+                if (stackSize + 2 * NODE_CAPACITY > stack.length) {
+                    stack = Arrays.copyOf(stack, stack.length * 2 + 2 * NODE_CAPACITY);
+                }
+                for (int child = last; child >= first; child--) {
+                    stack[stackSize++] = level - 1;
+                    stack[stackSize++] = child;
+                }
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Builds the feature at the specified position, in tree order
+     */
+    SimpleFeature getFeature(int position) {
+        final int row = rows[position];
+        final Object[] values = new Object[columns.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = columns[i].get(row);
+        }
+        return new SimpleFeatureImpl(values, schema, new FeatureIdImpl((String) fids.get(row)),
+                false);
+    }
+
+    @Override
+    public SimpleFeatureIterator features() {
+        return new PackedFeatureIterator(null, size, null);
+    }
+
+    @Override
+    public SimpleFeatureCollection subCollection(Filter filter) {
+        if (filter == null || filter == Filter.INCLUDE) {
+            return this;
+        }
+        if (filter == Filter.EXCLUDE) {
+            return new EmptyFeatureCollection(schema);
+        }
+        return new FilteredCollection(filter);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public ReferencedEnvelope getBounds() {
+        return new ReferencedEnvelope(bounds);
+    }
+
+    /**
+     * Iterates over the features at the specified positions, or over all of them if the
+     * positions are null, building them on demand and evaluating the filter, if any
+     */
+    class PackedFeatureIterator implements SimpleFeatureIterator {
+        final int[] positions;
+
+        final int count;
+
+        final Filter filter;
+
+        int index;
+
+        SimpleFeature next;
+
+        PackedFeatureIterator(int[] positions, int count, Filter filter) {
+            this.positions = positions;
+            this.count = count;
+            this.filter = filter;
+        }
+
+        public boolean hasNext() {
+            while (next == null && index < count) {
+                SimpleFeature feature = getFeature(positions == null ? index : positions[index]);
+                index++;
+                if (filter == null || filter.evaluate(feature)) {
+                    next = feature;
+                }
+            }
+            return next != null;
+        }
+
+        public SimpleFeature next() throws NoSuchElementException {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            SimpleFeature result = next;
+            next = null;
+            return result;
+        }
+
+        public void close() {
+            // nothing to release
+        }
+    }
+
+    /**
+     * The features matching a filter, located using the spatial index
+     */
+    class FilteredCollection extends BaseSimpleFeatureCollection {
+        final Filter filter;
+
+        FilteredCollection(Filter filter) {
+            super(PackedSpatialIndexFeatureCollection.this.schema);
+            this.filter = filter;
+        }
+
+        @Override
+        public SimpleFeatureIterator features() {
+            // the tree only indexes the default geometry
+            DefaultGeometryVisitor checker = new DefaultGeometryVisitor(schema);
+            filter.accept(checker, null);
+            if (!checker.isDefaultGeometryOnly()) {
+                return new PackedFeatureIterator(null, size, filter);
+            }
+            Envelope envelope = (Envelope) filter.accept(
+                    ExtractBoundsFilterVisitor.BOUNDS_VISITOR, null);
+            if (envelope == null
+                    || (Double.isInfinite(envelope.getWidth()) && Double.isInfinite(envelope
+                            .getHeight()))) {
+                return new PackedFeatureIterator(null, size, filter);
+            }
+            int[] positions = envelope.isNull() ? new int[0] : query(envelope);
+            return new PackedFeatureIterator(positions, positions.length, filter);
+        }
+
+        @Override
+        public SimpleFeatureCollection subCollection(Filter filter) {
+            if (filter == null || filter == Filter.INCLUDE) {
+                return this;
+            }
+            return PackedSpatialIndexFeatureCollection.this.subCollection(FF.and(this.filter,
+                    filter));
+        }
+    }
+
+    /**
+     * Checks whether all the spatial filters work against the default geometry, either
+     * explicitly or with an empty property name
+     */
+    static class DefaultGeometryVisitor extends DefaultFilterVisitor {
+        final SimpleFeatureType schema;
+
+        boolean defaultGeometryOnly = true;
+
+        DefaultGeometryVisitor(SimpleFeatureType schema) {
+            this.schema = schema;
+        }
+
+        boolean isDefaultGeometryOnly() {
+            return defaultGeometryOnly;
+        }
+
+        Object check(BinarySpatialOperator filter, Object data) {
+            FilterAttributeExtractor extractor = new FilterAttributeExtractor();
+            filter.getExpression1().accept(extractor, null);
+            filter.getExpression2().accept(extractor, null);
+            GeometryDescriptor defaultGeometry = schema.getGeometryDescriptor();
+            for (String name : extractor.getAttributeNameSet()) {
+                if (!"".equals(name) && (defaultGeometry == null
+                        || schema.getDescriptor(name) != defaultGeometry)) {
+                    defaultGeometryOnly = false;
+                }
+            }
+            return data;
+        }
+
+        @Override
+        public Object visit(BBOX filter, Object data) {
+            return check(filter, data);
+        }
+
+        @Override
+        public Object visit(Beyond filter, Object data) {
+            return check(filter, data);
+        }
+
+        @Override
+        public Object visit(Contains filter, Object data) {
+            return check(filter, data);
+        }
+
+        @Override
+        public Object visit(Crosses filter, Object data) {
+            return check(filter, data);
+        }
+
+        @Override
+        public Object visit(Disjoint filter, Object data) {
+            return check(filter, data);
+        }
+
+        @Override
+        public Object visit(DWithin filter, Object data) {
+            return check(filter, data);
+        }
+
+        @Override
+        public Object visit(Equals filter, Object data) {
+            return check(filter, data);
+        }
+
+        @Override
+        public Object visit(Intersects filter, Object data) {
+            return check(filter, data);
+        }
+
+        @Override
+        public Object visit(Overlaps filter, Object data) {
+            return check(filter, data);
+        }
+
+        @Override
+        public Object visit(Touches filter, Object data) {
+            return check(filter, data);
+        }
+
+        @Override
+        public Object visit(Within filter, Object data) {
+            return check(filter, data);
+        }
+    }
+}
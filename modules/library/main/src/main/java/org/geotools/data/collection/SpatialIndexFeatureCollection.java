@@ -16,6 +16,8 @@ import org.geotools.feature.CollectionEvent;
 import org.geotools.feature.CollectionListener;
 import org.geotools.feature.FeatureCollection;
 import org.geotools.feature.FeatureIterator;
+import org.geotools.feature.collection.ParallelVisitExecutor;
+import org.geotools.feature.collection.SplittableFeatureCollection;
 import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.geotools.util.NullProgressListener;
 import org.geotools.util.logging.Logging;
@@ -42,7 +44,8 @@ import com.vividsolutions.jts.index.strtree.STRtree;
  *
  * @source $URL$
  */
-public class SpatialIndexFeatureCollection implements SimpleFeatureCollection {
+public class SpatialIndexFeatureCollection implements SimpleFeatureCollection,
+        SplittableFeatureCollection<SimpleFeatureType, SimpleFeature> {
 
     static Logger LOGGER = Logging.getLogger(SpatialIndexFeatureCollection.class);
 
@@ -128,7 +131,24 @@ public class SpatialIndexFeatureCollection implements SimpleFeatureCollection {
         throw new UnsupportedOperationException();
     }
 
+    /**
+     * Splits the collection in parts of about the same size, following the index order
+     */
+    @SuppressWarnings("unchecked")
+    public List<ListFeatureCollection> split(int parts) {
+        if (ParallelVisitExecutor.getPartCount(size(), parts) < 2) {
+            return null;
+        }
+        Envelope everything = new Envelope(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY,
+                Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+        List<SimpleFeature> list = (List<SimpleFeature>) index.query(everything);
+        return new ListFeatureCollection(schema, list).split(parts);
+    }
+
     public void accepts(final FeatureVisitor visitor, ProgressListener listener) throws IOException {
+        if (ParallelVisitExecutor.accepts(this, visitor, listener)) {
+            return;
+        }
         Envelope everything = new Envelope(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY,
                 Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
         final ProgressListener progress = listener != null ? listener : new NullProgressListener();
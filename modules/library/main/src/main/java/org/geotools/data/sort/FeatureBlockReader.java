@@ -16,10 +16,16 @@
  */
 package org.geotools.data.sort;
 
+import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectInputStream;
-import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
 
 import org.geotools.feature.simple.SimpleFeatureBuilder;
 import org.opengis.feature.simple.SimpleFeature;
@@ -31,29 +37,48 @@ import com.vividsolutions.jts.io.ParseException;
 import com.vividsolutions.jts.io.WKBReader;
 
 /**
- * Reads the features stored in the specified block of a {@link RandomAccessFile}
- * 
- * @author Andrea Aime - GeoSolutions
+ * Reads back a block of sorted features written by {@link MergeSortDumper}. Each block is read
+ * sequentially through its own buffer, using positional reads on the shared file channel, so that
+ * the merge does not need to seek back and forth in the file for each feature
  */
 class FeatureBlockReader {
 
-    RandomAccessFile raf;
+    FileChannel channel;
 
     SimpleFeatureType schema;
 
+    List<AttributeDescriptor> attributes;
+
     SimpleFeatureBuilder builder;
 
+    WKBReader wkbReader = new WKBReader();
+
+    DataInputStream in;
+
     SimpleFeature curr;
 
-    long offset;
+    long start;
+
+    long end;
 
     int count;
 
-    public FeatureBlockReader(RandomAccessFile raf, long start, int count, SimpleFeatureType schema) {
-        this.raf = raf;
-        this.offset = start;
+    /**
+     * The position of the block in the file, used to keep the merge stable
+     */
+    int index;
+
+    int bufferSize = MergeSortDumper.MAX_READ_BUFFER_SIZE;
+
+    public FeatureBlockReader(FileChannel channel, long start, long end, int count, int index,
+            SimpleFeatureType schema) {
+        this.channel = channel;
+        this.start = start;
+        this.end = end;
         this.count = count;
+        this.index = index;
         this.schema = schema;
+        this.attributes = schema.getAttributeDescriptors();
         this.builder = new SimpleFeatureBuilder(schema);
     }
 
@@ -71,21 +96,28 @@ class FeatureBlockReader {
 
     private SimpleFeature readNextFeature() throws IOException {
         if (count <= 0) {
+            in = null;
             return null;
         }
+        if (in == null) {
+            // open lazily, the buffer size is known only once all blocks are written
+            in = new DataInputStream(new BufferedInputStream(new BlockInputStream(),
+                    bufferSize));
+        }
 
-        // move to the next feature offset
-        raf.seek(offset);
-
-        // read the fid, check for file end
-        String fid = raf.readUTF();
+        // read the fid and the null mask
+        String fid = MergeSortDumper.readString(in);
+        int attributeCount = attributes.size();
+        byte[] nulls = new byte[(attributeCount + 7) / 8];
+        in.readFully(nulls);
         // read the other attributes, build the feature
-        for (AttributeDescriptor ad : schema.getAttributeDescriptors()) {
-            Object att = readAttribute(ad);
-            builder.add(att);
+        for (int i = 0; i < attributeCount; i++) {
+            if ((nulls[i >> 3] & (1 << (i & 7))) != 0) {
+                builder.add(null);
+            } else {
+                builder.add(readAttribute(attributes.get(i)));
+            }
         }
-        // update the offset for the next feature
-        offset = raf.getFilePointer();
         count--;
 
         // return the feature
@@ -93,66 +125,88 @@ class FeatureBlockReader {
     }
 
     /**
-     * Reads the attributes.
+     * Reads a non null attribute value.
      * 
      * @param ad
      * @return
      * @throws IOException
      */
     Object readAttribute(AttributeDescriptor ad) throws IOException {
-        // See the comments in {@link MergeSortDumper#writeAttribute(RandomAccessFile,
-        // AttributeDescriptor, Object)} to get an insight on why the method is built like this
-        boolean isNull = raf.readBoolean();
-        if (isNull) {
-            return null;
+        // See the comments in {@link MergeSortDumper.FeatureBlockWriter#writeAttribute} to get
+        // an insight on why the method is built like this
+        Class<?> binding = ad.getType().getBinding();
+        if (binding == Boolean.class) {
+            return in.readBoolean();
+        } else if (binding == Byte.class || binding == byte.class) {
+            return in.readByte();
+        } else if (binding == Short.class || binding == short.class) {
+            return in.readShort();
+        } else if (binding == Integer.class || binding == int.class) {
+            return in.readInt();
+        } else if (binding == Long.class || binding == long.class) {
+            return in.readLong();
+        } else if (binding == Float.class || binding == float.class) {
+            return in.readFloat();
+        } else if (binding == Double.class || binding == double.class) {
+            return in.readDouble();
+        } else if (binding == String.class) {
+            return MergeSortDumper.readString(in);
+        } else if (binding == java.sql.Date.class) {
+            return new java.sql.Date(in.readLong());
+        } else if (binding == java.sql.Time.class) {
+            return new java.sql.Time(in.readLong());
+        } else if (binding == java.sql.Timestamp.class) {
+            return new java.sql.Timestamp(in.readLong());
+        } else if (binding == java.util.Date.class) {
+            return new java.util.Date(in.readLong());
+        } else if (Geometry.class.isAssignableFrom(binding)) {
+            byte[] buffer = new byte[in.readInt()];
+            in.readFully(buffer);
+            try {
+                return wkbReader.read(buffer);
+            } catch (ParseException e) {
+                throw new IOException("Failed to parse the geometry WKB", e);
+            }
         } else {
-            Class<?> binding = ad.getType().getBinding();
-            if (binding == Boolean.class) {
-                return raf.readBoolean();
-            } else if (binding == Byte.class || binding == byte.class) {
-                return raf.readByte();
-            } else if (binding == Short.class || binding == short.class) {
-                return raf.readShort();
-            } else if (binding == Integer.class || binding == int.class) {
-                return raf.readInt();
-            } else if (binding == Long.class || binding == long.class) {
-                return raf.readLong();
-            } else if (binding == Float.class || binding == float.class) {
-                return raf.readFloat();
-            } else if (binding == Double.class || binding == double.class) {
-                return raf.readDouble();
-            } else if (binding == String.class) {
-                return raf.readUTF();
-            } else if (binding == java.sql.Date.class) {
-                return new java.sql.Date(raf.readLong());
-            } else if (binding == java.sql.Time.class) {
-                return new java.sql.Time(raf.readLong());
-            } else if (binding == java.sql.Timestamp.class) {
-                return new java.sql.Timestamp(raf.readLong());
-            } else if (binding == java.util.Date.class) {
-                return new java.util.Date(raf.readLong());
-            } else if (Geometry.class.isAssignableFrom(binding)) {
-                WKBReader reader = new WKBReader();
-                int length = raf.readInt();
-                byte[] buffer = new byte[length];
-                raf.read(buffer);
-                try {
-                    return reader.read(buffer);
-                } catch (ParseException e) {
-                    throw new IOException("Failed to parse the geometry WKB", e);
-                }
-            } else {
-                int length = raf.readInt();
-                byte[] buffer = new byte[length];
-                raf.read(buffer);
-                ByteArrayInputStream bis = new ByteArrayInputStream(buffer);
-                ObjectInputStream ois = new ObjectInputStream(bis);
-                try {
-                    return ois.readObject();
-                } catch (ClassNotFoundException e) {
-                    throw new IOException("Could not read back object", e);
-                }
+            byte[] buffer = new byte[in.readInt()];
+            in.readFully(buffer);
+            ByteArrayInputStream bis = new ByteArrayInputStream(buffer);
+            ObjectInputStream ois = new ObjectInputStream(bis);
+            try {
+                return ois.readObject();
+            } catch (ClassNotFoundException e) {
+                throw new IOException("Could not read back object", e);
+            }
+        }
+    }
+
+    /**
+     * Streams the block contents with positional reads, which do not alter the channel position
+     * and thus do not interfere with the other blocks
+     */
+    class BlockInputStream extends InputStream {
+
+        long position = start;
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            int read = read(b, 0, 1);
+            return read < 0 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (position >= end) {
+                return -1;
+            }
+            int toRead = (int) Math.min(len, end - position);
+            int read = channel.read(ByteBuffer.wrap(b, off, toRead), position);
+            if (read < 0) {
+                throw new EOFException("Unexpected end of the sorted features file");
             }
+            position += read;
+            return read;
         }
     }
 
@@ -16,12 +16,19 @@
  */
 package org.geotools.data.sort;
 
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.ObjectOutputStream;
 import java.io.RandomAccessFile;
 import java.io.Serializable;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
@@ -40,11 +47,31 @@ import org.opengis.feature.type.AttributeDescriptor;
 import org.opengis.filter.sort.SortBy;
 import org.opengis.filter.sort.SortOrder;
 
+import com.vividsolutions.jts.geom.Coordinate;
 import com.vividsolutions.jts.geom.Geometry;
 import com.vividsolutions.jts.io.WKBWriter;
 
 class MergeSortDumper {
 
+    static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * The number of features kept in memory when no limit is specified
+     */
+    static final int DEFAULT_MAX_FEATURES = 1000;
+
+    /**
+     * Size of the buffer used to write the sorted blocks to disk
+     */
+    static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Maximum and minimum size of the buffers used to read back each sorted block
+     */
+    static final int MAX_READ_BUFFER_SIZE = 64 * 1024;
+
+    static final int MIN_READ_BUFFER_SIZE = 4 * 1024;
+
     static final boolean canSort(SimpleFeatureType schema, SortBy[] sortBy) {
         if (sortBy == SortBy.UNSORTED) {
             return true;
@@ -63,8 +90,11 @@ class MergeSortDumper {
             if (sb != SortBy.NATURAL_ORDER && sb != SortBy.REVERSE_ORDER) {
                 AttributeDescriptor ad = schema.getDescriptor(sb.getPropertyName()
                         .getPropertyName());
+                if (ad == null) {
+                    return false;
+                }
                 Class<?> binding = ad.getType().getBinding();
-                if (ad == null || !Comparable.class.isAssignableFrom(binding) 
+                if (!Comparable.class.isAssignableFrom(binding)
                         || Geometry.class.isAssignableFrom(binding)) {
                     return false;
                 }
@@ -77,18 +107,36 @@ class MergeSortDumper {
     static SimpleFeatureReader getDelegateReader(SimpleFeatureReader reader, Query query)
             throws IOException {
         Hints hints = query.getHints();
-        int maxFeatures = 1000;
-        if (hints != null && hints.get(Hints.MAX_MEMORY_SORT) != null) {
-            maxFeatures = (Integer) hints.get(Hints.MAX_MEMORY_SORT);
-        } else if (Hints.getSystemDefault(Hints.MAX_MEMORY_SORT) != null) {
-            maxFeatures = (Integer) Hints.getSystemDefault(Hints.MAX_MEMORY_SORT);
+        Integer maxFeatures = (Integer) getHint(hints, Hints.MAX_MEMORY_SORT);
+        Number maxMemory = (Number) getHint(hints, Hints.MAX_MEMORY_SORT_BYTES);
+        if (maxFeatures == null) {
+            // keep the historical default only if no memory budget has been given
+            maxFeatures = maxMemory == null ? DEFAULT_MAX_FEATURES : Integer.MAX_VALUE;
         }
 
-        return getDelegateReader(reader, query.getSortBy(), maxFeatures);
+        return getDelegateReader(reader, query.getSortBy(), maxFeatures,
+                maxMemory == null ? -1 : maxMemory.longValue());
+    }
+
+    private static Object getHint(Hints hints, Hints.Key key) {
+        if (hints != null && hints.get(key) != null) {
+            return hints.get(key);
+        }
+        return Hints.getSystemDefault(key);
     }
 
     static SimpleFeatureReader getDelegateReader(SimpleFeatureReader reader, SortBy[] sortBy,
             int maxFeatures) throws IOException {
+        return getDelegateReader(reader, sortBy, maxFeatures, -1);
+    }
+
+    /**
+     * Returns a reader sorting the features of the specified one. The features are sorted in
+     * memory in blocks no larger than maxFeatures, and no bigger than maxMemory bytes (if
+     * positive), the blocks are written on disk and eventually merged back
+     */
+    static SimpleFeatureReader getDelegateReader(SimpleFeatureReader reader, SortBy[] sortBy,
+            int maxFeatures, long maxMemory) throws IOException {
         Comparator<SimpleFeature> comparator = getComparator(sortBy);
 
         // easy case, no sorting needed
@@ -104,9 +152,10 @@ class MergeSortDumper {
                             + "sorting properties are not comparable or the attributes are not serializable");
         }
 
-        int count = 0;
+        long memory = 0;
         File file = null;
         RandomAccessFile raf = null;
+        FeatureBlockWriter writer = null;
         List<SimpleFeature> features = new ArrayList<SimpleFeature>();
         List<FeatureBlockReader> readers = new ArrayList<FeatureBlockReader>();
         boolean cleanFile = true;
@@ -114,21 +163,23 @@ class MergeSortDumper {
             // read and store into files as necessary
             while (reader.hasNext()) {
                 SimpleFeature f = reader.next();
-                features.add(f);
-                count++;
-
-                if (count > maxFeatures) {
-                    Collections.sort(features, comparator);
+                long size = maxMemory > 0 ? estimateSize(f) : 0;
+                boolean full = features.size() >= maxFeatures
+                        || (maxMemory > 0 && memory + size > maxMemory);
+                if (full && !features.isEmpty()) {
                     if (raf == null) {
                         file = File.createTempFile("sorted", ".features");
                         file.delete();
                         raf = new RandomAccessFile(file, "rw");
+                        writer = new FeatureBlockWriter(raf.getChannel(), schema);
                     }
-                    FeatureBlockReader fbr = storeToFile(raf, features, schema);
-                    readers.add(fbr);
-                    count = 0;
+                    Collections.sort(features, comparator);
+                    readers.add(writer.write(features, readers.size()));
+                    memory = 0;
                     features.clear();
                 }
+                features.add(f);
+                memory += size;
             }
 
             // return the appropriate reader
@@ -140,9 +191,25 @@ class MergeSortDumper {
                 SimpleFeatureIterator fi = new ListFeatureCollection(schema, features).features();
                 return new DelegateSimpleFeatureReader(schema, fi);
             } else {
-                // go merge-sort
+                // store the last block too, and go merge-sort
+                if (!features.isEmpty()) {
+                    Collections.sort(features, comparator);
+                    readers.add(writer.write(features, readers.size()));
+                    features.clear();
+                }
+                int bufferSize = MAX_READ_BUFFER_SIZE;
+                if (maxMemory > 0) {
+                    long share = maxMemory / readers.size();
+                    bufferSize = (int) Math.max(MIN_READ_BUFFER_SIZE,
+                            Math.min(MAX_READ_BUFFER_SIZE, share));
+                }
+                for (FeatureBlockReader fbr : readers) {
+                    fbr.bufferSize = bufferSize;
+                }
+                MergeSortReader merger = new MergeSortReader(schema, raf, file, readers,
+                        comparator);
                 cleanFile = false;
-                return new MergeSortReader(schema, raf, file, readers, comparator);
+                return merger;
             }
 
         } finally {
@@ -156,71 +223,133 @@ class MergeSortDumper {
     }
 
     /**
-     * Writes the feature attributes to a binary file
-     * 
-     * @param features
-     * @return
-     * @throws IOException
+     * Estimates the memory used by a feature, in bytes. This is not meant to be accurate, just
+     * good enough to keep the memory usage of the sort in check
      */
-    static FeatureBlockReader storeToFile(RandomAccessFile raf, List<SimpleFeature> features,
-            SimpleFeatureType schema) throws IOException {
-        long start = raf.getFilePointer();
-
-        // write each attribute in the random access file
-        List<AttributeDescriptor> attributes = schema.getAttributeDescriptors();
-        for (SimpleFeature sf : features) {
-            // write feature id
-            raf.writeUTF(sf.getID());
-            // write the attributes
-            for (AttributeDescriptor ad : attributes) {
-                Object value = sf.getAttribute(ad.getLocalName());
-                writeAttribute(raf, ad, value);
+    static long estimateSize(SimpleFeature feature) {
+        // the feature object, its id and the values array
+        long size = 100 + feature.getAttributeCount() * 8;
+        for (Object value : feature.getAttributes()) {
+            if (value == null) {
+                continue;
+            } else if (value instanceof String) {
+                size += 40 + ((String) value).length() * 2;
+            } else if (value instanceof Geometry) {
+                Geometry g = (Geometry) value;
+                // coordinate objects, the coordinate arrays and the geometry objects
+                size += 60 * g.getNumPoints() + 80 * g.getNumGeometries() + 100;
+            } else if (value instanceof Number || value instanceof Boolean) {
+                size += 16;
+            } else if (value instanceof Date) {
+                size += 24;
+            } else {
+                size += 64;
             }
         }
-
-        return new FeatureBlockReader(raf, start, features.size(), schema);
+        return size;
     }
 
-    static void writeAttribute(RandomAccessFile raf, AttributeDescriptor ad, Object value)
-            throws IOException {
-        if (value == null) {
-            // null marker
-            raf.writeBoolean(true);
-        } else {
-            // not null, write the contents. This one requires some explanation. We are not
-            // writing any type metadata in the stream for the types we can optimize (primitives,
-            // numbers,
-            // strings and the like). This means we have to be 100% sure the class we're writing is
-            // actually the one we can optimize for, and not some subclass. Thus, we are authorized
-            // to use identity comparison instead of isAssignableFrom or equality, when we read back
-            // it must be as if we did not serialize stuff at all
-            raf.writeBoolean(false);
+    /**
+     * Writes sorted blocks of features to a file, in a compact binary format, through a large
+     * write buffer
+     */
+    static class FeatureBlockWriter {
+
+        FileChannel channel;
+
+        DataOutputStream out;
+
+        SimpleFeatureType schema;
+
+        List<AttributeDescriptor> attributes;
+
+        WKBWriter wkbWriter2D = new WKBWriter(2);
+
+        WKBWriter wkbWriter3D = new WKBWriter(3);
+
+        FeatureBlockWriter(FileChannel channel, SimpleFeatureType schema) {
+            this.channel = channel;
+            this.out = new DataOutputStream(new BufferedOutputStream(
+                    Channels.newOutputStream(channel), WRITE_BUFFER_SIZE));
+            this.schema = schema;
+            this.attributes = schema.getAttributeDescriptors();
+        }
+
+        /**
+         * Writes the features at the end of the file, returns a reader for them
+         */
+        FeatureBlockReader write(List<SimpleFeature> features, int index) throws IOException {
+            long start = channel.position();
+            int attributeCount = attributes.size();
+            byte[] nulls = new byte[(attributeCount + 7) / 8];
+            for (SimpleFeature sf : features) {
+                // write feature id
+                writeString(out, sf.getID());
+                // write the null mask, then the non null attributes
+                List<Object> values = sf.getAttributes();
+                for (int i = 0; i < nulls.length; i++) {
+                    nulls[i] = 0;
+                }
+                for (int i = 0; i < attributeCount; i++) {
+                    if (values.get(i) == null) {
+                        nulls[i >> 3] |= 1 << (i & 7);
+                    }
+                }
+                out.write(nulls);
+                for (int i = 0; i < attributeCount; i++) {
+                    Object value = values.get(i);
+                    if (value != null) {
+                        writeAttribute(out, attributes.get(i), value);
+                    }
+                }
+            }
+            // the buffer is written straight to the channel, after the flush the channel
+            // position is at the end of the block
+            out.flush();
+            long end = channel.position();
+
+            return new FeatureBlockReader(channel, start, end, features.size(), index, schema);
+        }
+
+        /**
+         * Writes a non null attribute value
+         */
+        void writeAttribute(DataOutput out, AttributeDescriptor ad, Object value)
+                throws IOException {
+            // This one requires some explanation. We are not writing any type metadata in the
+            // stream for the types we can optimize (primitives, numbers, strings and the like).
+            // This means we have to be 100% sure the class we're writing is actually the one we
+            // can optimize for, and not some subclass. Thus, we are authorized to use identity
+            // comparison instead of isAssignableFrom or equality, when we read back it must be
+            // as if we did not serialize stuff at all
             Class<?> binding = ad.getType().getBinding();
             if (binding == Boolean.class) {
-                raf.writeBoolean((Boolean) value);
+                out.writeBoolean((Boolean) value);
             } else if (binding == Byte.class || binding == byte.class) {
-                raf.writeByte((Byte) value);
+                out.writeByte((Byte) value);
             } else if (binding == Short.class || binding == short.class) {
-                raf.writeShort((Short) value);
+                out.writeShort((Short) value);
             } else if (binding == Integer.class || binding == int.class) {
-                raf.writeInt((Integer) value);
+                out.writeInt((Integer) value);
             } else if (binding == Long.class || binding == long.class) {
-                raf.writeLong((Long) value);
+                out.writeLong((Long) value);
             } else if (binding == Float.class || binding == float.class) {
-                raf.writeFloat((Float) value);
+                out.writeFloat((Float) value);
             } else if (binding == Double.class || binding == double.class) {
-                raf.writeDouble((Double) value);
+                out.writeDouble((Double) value);
             } else if (binding == String.class) {
-                raf.writeUTF((String) value);
+                writeString(out, (String) value);
             } else if (binding == java.sql.Date.class || binding == java.sql.Time.class
                     || binding == java.sql.Timestamp.class || binding == java.util.Date.class) {
-                raf.writeLong(((Date) value).getTime());
+                out.writeLong(((Date) value).getTime());
             } else if (Geometry.class.isAssignableFrom(binding)) {
-                WKBWriter writer = new WKBWriter();
-                byte[] buffer = writer.write((Geometry) value);
-                int length = buffer.length;
-                raf.writeInt(length);
-                raf.write(buffer);
+                // WKB has no room for the third dimension if not declared upfront
+                Geometry g = (Geometry) value;
+                Coordinate c = g.getCoordinate();
+                WKBWriter writer = c != null && !Double.isNaN(c.z) ? wkbWriter3D : wkbWriter2D;
+                byte[] buffer = writer.write(g);
+                out.writeInt(buffer.length);
+                out.write(buffer);
             } else {
                 // can't optimize, in this case we use an ObjectOutputStream to write out
                 // full metadata
@@ -229,12 +358,31 @@ class MergeSortDumper {
                 oos.writeObject(value);
                 oos.flush();
                 byte[] bytes = bos.toByteArray();
-                raf.writeInt(bytes.length);
-                raf.write(bytes);
+                out.writeInt(bytes.length);
+                out.write(bytes);
             }
         }
     }
 
+    /**
+     * Writes a string as its UTF-8 bytes prefixed by their length, unlike
+     * {@link DataOutput#writeUTF(String)} there is no limit on the string length
+     */
+    static void writeString(DataOutput out, String value) throws IOException {
+        byte[] bytes = value.getBytes(UTF8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads back a string written by {@link #writeString(DataOutput, String)}
+     */
+    static String readString(DataInput in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, UTF8);
+    }
+
     /**
      * Builds a comparator out of the sortBy list
      * 
@@ -22,21 +22,20 @@ import java.io.RandomAccessFile;
 import java.util.Comparator;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
 
 import org.geotools.data.simple.SimpleFeatureReader;
 import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.feature.simple.SimpleFeatureType;
 
 /**
- * Reads from a list of {@link FeatureBlockReader} backed by a {@link RandomAccessFile} and performs
- * the classic merge-sort algorithm
- * 
- * @author Andrea Aime - GeoSolutions
- * 
+ * Merges the sorted blocks written by {@link MergeSortDumper}, keeping the block readers in a
+ * heap ordered by their current feature, so that each feature costs a logarithmic number of
+ * comparisons in the number of blocks
  */
 class MergeSortReader implements SimpleFeatureReader {
 
-    List<FeatureBlockReader> readers;
+    PriorityQueue<FeatureBlockReader> readers;
 
     RandomAccessFile raf;
 
@@ -47,12 +46,29 @@ class MergeSortReader implements SimpleFeatureReader {
     Comparator<SimpleFeature> comparator;
 
     public MergeSortReader(SimpleFeatureType schema, RandomAccessFile raf, File file,
-            List<FeatureBlockReader> readers, Comparator<SimpleFeature> comparator) {
+            List<FeatureBlockReader> readers, final Comparator<SimpleFeature> comparator)
+            throws IOException {
         this.schema = schema;
         this.comparator = comparator;
-        this.readers = readers;
         this.raf = raf;
         this.file = file;
+        this.readers = new PriorityQueue<FeatureBlockReader>(Math.max(1, readers.size()),
+                new Comparator<FeatureBlockReader>() {
+
+                    public int compare(FeatureBlockReader r1, FeatureBlockReader r2) {
+                        int result = comparator.compare(r1.curr, r2.curr);
+                        if (result == 0) {
+                            // same as the in memory sort, equal features keep the read order
+                            result = r1.index - r2.index;
+                        }
+                        return result;
+                    }
+                });
+        for (FeatureBlockReader reader : readers) {
+            if (reader.feature() != null) {
+                this.readers.add(reader);
+            }
+        }
     }
 
     public SimpleFeatureType getFeatureType() {
@@ -61,25 +77,16 @@ class MergeSortReader implements SimpleFeatureReader {
 
     public SimpleFeature next() throws IOException, IllegalArgumentException,
             NoSuchElementException {
-        if (readers.size() == 0) {
+        // grab the reader with the smallest feature
+        FeatureBlockReader reader = readers.poll();
+        if (reader == null) {
             throw new NoSuchElementException();
         }
 
-        // find the smallest feature
-        int selected = 0;
-        for (int i = 1; i < readers.size(); i++) {
-            SimpleFeature sf = readers.get(selected).feature();
-            SimpleFeature cf = readers.get(i).feature();
-            if (comparator.compare(sf, cf) > 0) {
-                selected = i;
-            }
-        }
-
-        // move on the reader of the selected feature
-        FeatureBlockReader reader = readers.get(selected);
+        // move on the reader of the selected feature, and put it back in the heap
         SimpleFeature sf = reader.feature();
-        if (reader.next() == null) {
-            readers.remove(selected);
+        if (reader.next() != null) {
+            readers.add(reader);
         }
 
         // return the selected feature
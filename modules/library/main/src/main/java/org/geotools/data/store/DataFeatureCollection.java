@@ -39,6 +39,8 @@ import org.geotools.feature.FeatureCollection;
 import org.geotools.feature.FeatureIterator;
 import org.geotools.feature.FeatureReaderIterator;
 import org.geotools.feature.collection.DelegateSimpleFeatureIterator;
+import org.geotools.feature.collection.ParallelVisitExecutor;
+import org.geotools.feature.collection.SplittableFeatureCollection;
 import org.geotools.feature.collection.SubFeatureCollection;
 import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.geotools.util.NullProgressListener;
@@ -75,7 +77,8 @@ import org.opengis.filter.sort.SortBy;
  *
  * @source $URL$
  */
-public abstract class DataFeatureCollection implements SimpleFeatureCollection {
+public abstract class DataFeatureCollection implements SimpleFeatureCollection,
+        SplittableFeatureCollection<SimpleFeatureType, SimpleFeature> {
     
 	/** logger */
 	static Logger LOGGER = org.geotools.util.logging.Logging.getLogger( "org.geotools.data" );
@@ -454,7 +457,19 @@ public abstract class DataFeatureCollection implements SimpleFeatureCollection {
     }
     
     public void accepts(org.opengis.feature.FeatureVisitor visitor, org.opengis.util.ProgressListener progress) throws IOException {
-        DataUtilities.visit(this, visitor, progress);
+        if (!ParallelVisitExecutor.accepts(this, visitor, progress)) {
+            DataUtilities.visit(this, visitor, progress);
+        }
+    }
+
+    /**
+     * Splits the collection in parts that can be visited in parallel. The generic reader based
+     * implementation cannot be partitioned, so this returns null, subclasses that can access
+     * separate portions of their contents should override.
+     */
+    public List<? extends FeatureCollection<SimpleFeatureType, SimpleFeature>> split(int parts)
+            throws IOException {
+        return null;
     }
     
     /**
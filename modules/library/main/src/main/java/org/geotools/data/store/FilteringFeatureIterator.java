@@ -19,7 +19,9 @@ package org.geotools.data.store;
 import java.util.NoSuchElementException;
 
 import org.geotools.feature.FeatureIterator;
+import org.geotools.filter.visitor.FilterCompiler;
 import org.opengis.feature.Feature;
+import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.filter.Filter;
 
 /**
@@ -44,6 +46,10 @@ public class FilteringFeatureIterator<F extends Feature> implements FeatureItera
      * Next feature
      */
     protected F next;
+    /**
+     * The filter compiled against the feature type of the first feature, used for the evaluation
+     */
+    private Filter compiledFilter;
     
     public FilteringFeatureIterator( FeatureIterator<F> delegate, Filter filter ) {
         this.delegate = delegate;
@@ -57,7 +63,14 @@ public class FilteringFeatureIterator<F extends Feature> implements FeatureItera
         
         while( delegate.hasNext() ) {
             F peek = (F) delegate.next();
-            if ( filter.evaluate( peek ) ) {
+            if ( compiledFilter == null ) {
+                if ( peek instanceof SimpleFeature ) {
+                    compiledFilter = FilterCompiler.compile(filter, ((SimpleFeature) peek).getFeatureType());
+                } else {
+                    compiledFilter = filter;
+                }
+            }
+            if ( compiledFilter.evaluate( peek ) ) {
                 next = peek;
                 break;
             }
@@ -77,6 +90,7 @@ public class FilteringFeatureIterator<F extends Feature> implements FeatureItera
         delegate = null;
         next = null;
         filter = null;
+        compiledFilter = null;
     }
 
 
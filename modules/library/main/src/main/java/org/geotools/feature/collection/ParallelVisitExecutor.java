@@ -0,0 +1,189 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.feature.collection;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.feature.FeatureCollection;
+import org.geotools.feature.visitor.MergeableFeatureCalc;
+import org.geotools.util.NullProgressListener;
+import org.geotools.util.logging.Logging;
+import org.opengis.feature.Feature;
+import org.opengis.feature.FeatureVisitor;
+import org.opengis.feature.type.FeatureType;
+import org.opengis.util.ProgressListener;
+
+/**
+ * Visits a {@link SplittableFeatureCollection} in parallel, splitting it in parts, visiting each
+ * one with a partial copy of a {@link MergeableFeatureCalc} on a fork join pool, and then merging
+ * the partials back into the original visitor, in data order.
+ * <p>
+ * Parallel visits are disabled by default, as merging partial results can change the last digits
+ * of floating point aggregates compared to a sequential visit. They can be enabled by setting the
+ * "org.geotools.visitor.parallelism" system variable, or by calling
+ * {@link #setParallelism(int)}, with the number of threads to be used.
+ * </p>
+ *
+ * @author Andrea Aime - GeoSolutions
+ */
+public class ParallelVisitExecutor {
+
+    static final Logger LOGGER = Logging.getLogger(ParallelVisitExecutor.class);
+
+    static volatile int parallelism = Integer.getInteger("org.geotools.visitor.parallelism", 1);
+
+    static volatile int minPartSize = Integer.getInteger("org.geotools.visitor.minPartSize", 10000);
+
+    static ForkJoinPool pool;
+
+    /**
+     * Returns the number of threads used to visit collections in parallel, a value of 1 or less
+     * means parallel visits are disabled
+     */
+    public static int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Sets the number of threads used to visit collections in parallel, a value of 1 or less
+     * disables parallel visits
+     *
+     * @param parallelism
+     */
+    public static synchronized void setParallelism(int parallelism) {
+        ParallelVisitExecutor.parallelism = parallelism;
+        if (pool != null && pool.getParallelism() != parallelism) {
+            pool.shutdown();
+            pool = null;
+        }
+    }
+
+    /**
+     * Returns the minimum number of features in each part, collections should not split below
+     * this threshold, as the overhead of parallel execution would dominate. Defaults to 10000,
+     * can be configured with the "org.geotools.visitor.minPartSize" system variable
+     */
+    public static int getMinPartSize() {
+        return minPartSize;
+    }
+
+    /**
+     * Sets the minimum number of features in each part
+     *
+     * @param minPartSize
+     */
+    public static void setMinPartSize(int minPartSize) {
+        ParallelVisitExecutor.minPartSize = minPartSize;
+    }
+
+    /**
+     * Returns the number of parts a collection of the specified size should be split into, given
+     * the requested number of parts and the minimum part size. A result lower than 2 means the
+     * collection should not be split at all.
+     *
+     * @param size The number of features in the collection, or an estimate of it
+     * @param parts The requested number of parts
+     */
+    public static int getPartCount(long size, int parts) {
+        return (int) Math.min(parts, size / Math.max(1, minPartSize));
+    }
+
+    static synchronized ForkJoinPool getPool() {
+        if (pool == null) {
+            pool = new ForkJoinPool(parallelism);
+        }
+        return pool;
+    }
+
+    /**
+     * Visits the collection in parallel, if possible.
+     *
+     * @return true if the collection has been visited, false if the visit could not be run in
+     *         parallel (parallelism disabled, visitor not mergeable, collection not splittable,
+     *         or already running inside a parallel visit), in that case the caller should perform
+     *         a normal visit
+     */
+    public static <T extends FeatureType, F extends Feature> boolean accepts(
+            SplittableFeatureCollection<T, F> collection, FeatureVisitor visitor,
+            ProgressListener progress) throws IOException {
+        // the parts are visited sequentially, no nested parallelism
+        if (parallelism <= 1 || !(visitor instanceof MergeableFeatureCalc)
+                || ForkJoinTask.inForkJoinPool()) {
+            return false;
+        }
+        final MergeableFeatureCalc calc = (MergeableFeatureCalc) visitor;
+        if (calc.createPartial() == null) {
+            return false;
+        }
+        List<? extends FeatureCollection<T, F>> parts = collection.split(parallelism);
+        if (parts == null || parts.size() < 2) {
+            return false;
+        }
+
+        if (progress == null) {
+            progress = new NullProgressListener();
+        }
+        progress.started();
+        try {
+            List<Callable<MergeableFeatureCalc>> tasks = new ArrayList<Callable<MergeableFeatureCalc>>();
+            for (final FeatureCollection<T, F> part : parts) {
+                final MergeableFeatureCalc partial = calc.createPartial();
+                tasks.add(new Callable<MergeableFeatureCalc>() {
+
+                    public MergeableFeatureCalc call() throws Exception {
+                        part.accepts(partial, null);
+                        return partial;
+                    }
+                });
+            }
+            if (LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.fine("Visiting " + parts.size() + " parts in parallel");
+            }
+            List<Future<MergeableFeatureCalc>> futures = getPool().invokeAll(tasks);
+            for (Future<MergeableFeatureCalc> future : futures) {
+                try {
+                    calc.merge(future.get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while visiting the collection in parallel",
+                            e);
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    progress.exceptionOccurred(cause);
+                    if (cause instanceof IOException) {
+                        throw (IOException) cause;
+                    }
+                    throw new IOException("Problem visiting the collection in parallel: "
+                            + cause, cause);
+                }
+            }
+        } finally {
+            progress.complete();
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.feature.collection;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.geotools.feature.FeatureCollection;
+import org.opengis.feature.Feature;
+import org.opengis.feature.type.FeatureType;
+
+/**
+ * A feature collection that can be split in disjoint parts, that can be visited independently
+ * and in parallel. The way the split happens depends on the collection, in memory lists can be
+ * split by position, files by record ranges, databases by primary key ranges, and so on.
+ *
+ * @see ParallelVisitExecutor
+ * @author Andrea Aime - GeoSolutions
+ */
+public interface SplittableFeatureCollection<T extends FeatureType, F extends Feature> extends
+        FeatureCollection<T, F> {
+
+    /**
+     * Splits the collection in up to the specified number of parts. The parts are disjoint, and
+     * together contain the same features as this collection, each one of them in the order they
+     * would be returned by this collection. The list of parts is sorted the same way, that is,
+     * visiting the parts one after the other is equivalent to visiting this collection.
+     *
+     * @param parts The maximum number of parts
+     * @return The collection parts, or null if the collection cannot be split (e.g., because it
+     *         is too small to make splitting worthwhile, or because its contents cannot be
+     *         partitioned without changing their order)
+     * @throws IOException
+     */
+    List<? extends FeatureCollection<T, F>> split(int parts) throws IOException;
+}
@@ -0,0 +1,1001 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.feature.simple;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.geotools.factory.Hints;
+import org.geotools.feature.AttributeImpl;
+import org.geotools.feature.GeometryAttributeImpl;
+import org.geotools.feature.type.AttributeDescriptorImpl;
+import org.geotools.feature.type.Types;
+import org.geotools.filter.identity.FeatureIdImpl;
+import org.geotools.geometry.jts.JTS;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.util.Converters;
+import org.geotools.util.Utilities;
+import org.opengis.feature.GeometryAttribute;
+import org.opengis.feature.Property;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeDescriptor;
+import org.opengis.feature.type.GeometryDescriptor;
+import org.opengis.feature.type.Name;
+import org.opengis.filter.identity.FeatureId;
+import org.opengis.geometry.BoundingBox;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.Point;
+
+/**
+ * A columnar, fixed capacity container of simple features sharing the same feature type, meant
+ * to reduce the allocation rate of large read only scans.
+ * <p>
+ * Integral and floating point attributes are stored in primitive arrays, strings are encoded
+ * against a dictionary shared by all the string attributes (and kept across {@link #clear()}
+ * calls, as long as it does not grow too large), points are stored as packed ordinates. Other
+ * attribute types are stored as is.
+ * </p>
+ * <p>
+ * The contents can be accessed either by primitive accessors such as
+ * {@link #getDouble(int, int)}, which do not allocate, or by a {@link View}, a flyweight
+ * read only {@link SimpleFeature} that can be moved from one row to the next. Readers returning
+ * views will usually reuse the same one, so the features returned are valid only until the next
+ * one is read, code that needs to retain them should copy them, e.g., using
+ * {@link SimpleFeatureBuilder#copy(SimpleFeature)}.
+ * </p>
+ *
+ * @see Hints#FEATURE_BATCH_SIZE
+ * @author Andrea Aime - GeoSolutions
+ */
+public class SimpleFeatureBatch {
+
+    /**
+     * The max number of strings kept in the dictionary
+     */
+    static final int MAX_DICTIONARY_SIZE = 65536;
+
+    SimpleFeatureType featureType;
+
+    int capacity;
+
+    int size;
+
+    String[] ids;
+
+    Column[] columns;
+
+    StringDictionary dictionary = new StringDictionary();
+
+    int defaultGeometryIndex;
+
+    /**
+     * Builds a new batch
+     *
+     * @param featureType The feature type shared by all features in the batch
+     * @param capacity The maximum number of features in the batch
+     */
+    public SimpleFeatureBatch(SimpleFeatureType featureType, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("The batch capacity must be positive, but was "
+                    + capacity);
+        }
+        this.featureType = featureType;
+        this.capacity = capacity;
+        this.ids = new String[capacity];
+        List<AttributeDescriptor> descriptors = featureType.getAttributeDescriptors();
+        this.columns = new Column[descriptors.size()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = createColumn(descriptors.get(i));
+        }
+        GeometryDescriptor gd = featureType.getGeometryDescriptor();
+        this.defaultGeometryIndex = gd != null ? featureType.indexOf(gd.getName()) : -1;
+    }
+
+    Column createColumn(AttributeDescriptor descriptor) {
+        Class<?> binding = descriptor.getType().getBinding();
+        if (binding == Integer.class || binding == Short.class || binding == Byte.class) {
+            return new IntColumn(binding, capacity);
+        } else if (binding == Long.class) {
+            return new LongColumn(capacity);
+        } else if (binding == Double.class || binding == Float.class) {
+            return new DoubleColumn(binding, capacity);
+        } else if (binding == String.class) {
+            return new StringColumn(dictionary, capacity);
+        } else if (binding == Point.class) {
+            return new PointColumn(capacity);
+        } else {
+            return new ObjectColumn(capacity);
+        }
+    }
+
+    /**
+     * Appends a feature to the batch
+     *
+     * @param id The feature id
+     * @param values The attribute values, in the same order as the feature type attributes
+     * @return The row the feature has been stored into
+     * @throws IllegalStateException if the batch is full
+     * @throws IllegalArgumentException if a value cannot be converted to the attribute binding
+     */
+    public int add(String id, Object[] values) {
+        if (size >= capacity) {
+            throw new IllegalStateException("The batch is full");
+        }
+        if (values.length != columns.length) {
+            throw new IllegalArgumentException("Expected " + columns.length
+                    + " values, but got " + values.length);
+        }
+        int row = size;
+        for (int i = 0; i < columns.length; i++) {
+            columns[i].set(row, values[i]);
+        }
+        ids[row] = id;
+        size++;
+        return row;
+    }
+
+    /**
+     * Appends a feature to the batch. The feature user data is not preserved.
+     *
+     * @param feature A feature of the same type as the batch one
+     * @return The row the feature has been stored into
+     */
+    public int add(SimpleFeature feature) {
+        return add(feature.getID(), feature.getAttributes().toArray());
+    }
+
+    /**
+     * Removes all features from the batch, the allocated storage is retained for reuse
+     */
+    public void clear() {
+        for (Column column : columns) {
+            column.clear(size);
+        }
+        Arrays.fill(ids, 0, size, null);
+        size = 0;
+        if (dictionary.isFull()) {
+            // high cardinality, don't let it grow stale
+            dictionary.clear();
+        }
+    }
+
+    public SimpleFeatureType getFeatureType() {
+        return featureType;
+    }
+
+    /**
+     * The number of features in the batch
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * The maximum number of features the batch can hold
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public boolean isFull() {
+        return size == capacity;
+    }
+
+    /**
+     * Returns the id of the feature at the specified row
+     */
+    public String getID(int row) {
+        checkRow(row);
+        return ids[row];
+    }
+
+    /**
+     * Returns the value of an attribute, converting it back to the attribute binding
+     */
+    public Object getAttribute(int row, int column) {
+        checkRow(row);
+        return columns[column].get(row);
+    }
+
+    /**
+     * Returns true if the specified attribute is null
+     */
+    public boolean isNull(int row, int column) {
+        checkRow(row);
+        return columns[column].isNull(row);
+    }
+
+    /**
+     * Returns true if the specified attribute is stored as a primitive number, and thus can be
+     * accessed using {@link #getDouble(int, int)} and {@link #getLong(int, int)}
+     */
+    public boolean isNumeric(int column) {
+        return columns[column] instanceof NumericColumn;
+    }
+
+    /**
+     * Returns the value of a numeric attribute as a double, without allocating any object. The
+     * result is undefined if the attribute is null, check it with {@link #isNull(int, int)}.
+     *
+     * @throws IllegalArgumentException if the attribute is not numeric
+     */
+    public double getDouble(int row, int column) {
+        checkRow(row);
+        return numericColumn(column).getDouble(row);
+    }
+
+    /**
+     * Returns the value of a numeric attribute as a long, without allocating any object. The
+     * result is undefined if the attribute is null, check it with {@link #isNull(int, int)}.
+     *
+     * @throws IllegalArgumentException if the attribute is not numeric
+     */
+    public long getLong(int row, int column) {
+        checkRow(row);
+        return numericColumn(column).getLong(row);
+    }
+
+    /**
+     * Returns true if the specified attribute is not null and stored as a primitive of the
+     * attribute binding. Numbers of a different type (e.g., a long found in an integer attribute)
+     * are kept as objects, they can still be accessed as primitives, but with a possible loss of
+     * precision
+     */
+    public boolean isPrimitive(int row, int column) {
+        checkRow(row);
+        Column c = columns[column];
+        return c instanceof NumericColumn && ((NumericColumn) c).isPrimitive(row);
+    }
+
+    NumericColumn numericColumn(int column) {
+        Column c = columns[column];
+        if (!(c instanceof NumericColumn)) {
+            throw new IllegalArgumentException("Attribute "
+                    + featureType.getDescriptor(column).getLocalName() + " is not numeric");
+        }
+        return (NumericColumn) c;
+    }
+
+    void checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " is out of the batch bounds, [0,"
+                    + size + ")");
+        }
+    }
+
+    /**
+     * Returns a new flyweight feature positioned on the first row
+     */
+    public View newView() {
+        return new View(this);
+    }
+
+    /**
+     * Accumulates the bounds of the geometries of a row into the specified envelope, without
+     * materializing point geometries
+     */
+    void expandToInclude(int row, Envelope bounds, CoordinateReferenceSystem crs) {
+        for (Column column : columns) {
+            if (column instanceof PointColumn) {
+                PointColumn pc = (PointColumn) column;
+                if (!pc.isNull(row)) {
+                    if (pc.geometries != null && pc.geometries[row] != null) {
+                        expandToInclude(bounds, JTS.bounds(pc.geometries[row], crs));
+                    } else {
+                        int base = row * 3;
+                        expandToInclude(bounds, new Envelope(pc.ordinates[base],
+                                pc.ordinates[base], pc.ordinates[base + 1],
+                                pc.ordinates[base + 1]));
+                    }
+                }
+            } else if (column instanceof ObjectColumn) {
+                Object value = column.get(row);
+                if (value instanceof Geometry) {
+                    expandToInclude(bounds, JTS.bounds((Geometry) value, crs));
+                }
+            }
+        }
+    }
+
+    private void expandToInclude(Envelope bounds, Envelope other) {
+        if (bounds.isNull()) {
+            bounds.init(other);
+        } else {
+            bounds.expandToInclude(other);
+        }
+    }
+
+    /**
+     * Column storage
+     */
+    static abstract class Column {
+        abstract void set(int row, Object value);
+
+        abstract Object get(int row);
+
+        abstract boolean isNull(int row);
+
+        /**
+         * Releases the references held in the first size rows
+         */
+        void clear(int size) {
+            // nothing to do by default
+        }
+    }
+
+    /**
+     * Base class for columns storing numbers as primitives. Numbers whose class does not match
+     * the attribute binding (e.g., a long found in an integer attribute) are kept as is, to avoid
+     * losing precision
+     */
+    static abstract class NumericColumn extends Column {
+        Class<?> binding;
+
+        int capacity;
+
+        BitSet nulls = new BitSet();
+
+        BitSet mismatches = new BitSet();
+
+        Object[] mismatched;
+
+        NumericColumn(Class<?> binding, int capacity) {
+            this.binding = binding;
+            this.capacity = capacity;
+        }
+
+        @Override
+        void set(int row, Object value) {
+            mismatches.clear(row);
+            if (value == null) {
+                nulls.set(row);
+                return;
+            }
+            nulls.clear(row);
+            if (!(value instanceof Number)) {
+                Object converted = Converters.convert(value, binding);
+                if (converted == null) {
+                    throw new IllegalArgumentException("Cannot convert " + value + " to "
+                            + binding.getSimpleName());
+                }
+                value = converted;
+            }
+            if (value.getClass() == binding) {
+                setPrimitive(row, (Number) value);
+            } else {
+                if (mismatched == null) {
+                    mismatched = new Object[capacity];
+                }
+                mismatches.set(row);
+                mismatched[row] = value;
+            }
+        }
+
+        @Override
+        Object get(int row) {
+            if (nulls.get(row)) {
+                return null;
+            } else if (mismatches.get(row)) {
+                return mismatched[row];
+            } else {
+                return getPrimitive(row);
+            }
+        }
+
+        boolean isNull(int row) {
+            return nulls.get(row);
+        }
+
+        boolean isPrimitive(int row) {
+            return !nulls.get(row) && !mismatches.get(row);
+        }
+
+        double getDouble(int row) {
+            if (mismatches.get(row)) {
+                return ((Number) mismatched[row]).doubleValue();
+            }
+            return getPrimitiveDouble(row);
+        }
+
+        long getLong(int row) {
+            if (mismatches.get(row)) {
+                return ((Number) mismatched[row]).longValue();
+            }
+            return getPrimitiveLong(row);
+        }
+
+        @Override
+        void clear(int size) {
+            nulls.clear();
+            if (mismatched != null) {
+                for (int i = mismatches.nextSetBit(0); i >= 0 && i < size; i = mismatches
+                        .nextSetBit(i + 1)) {
+                    mismatched[i] = null;
+                }
+            }
+            mismatches.clear();
+        }
+
+        abstract void setPrimitive(int row, Number value);
+
+        abstract Object getPrimitive(int row);
+
+        abstract double getPrimitiveDouble(int row);
+
+        abstract long getPrimitiveLong(int row);
+    }
+
+    static class IntColumn extends NumericColumn {
+        int[] values;
+
+        IntColumn(Class<?> binding, int capacity) {
+            super(binding, capacity);
+            this.values = new int[capacity];
+        }
+
+        @Override
+        void setPrimitive(int row, Number value) {
+            values[row] = value.intValue();
+        }
+
+        @Override
+        Object getPrimitive(int row) {
+            if (binding == Short.class) {
+                return Short.valueOf((short) values[row]);
+            } else if (binding == Byte.class) {
+                return Byte.valueOf((byte) values[row]);
+            } else {
+                return Integer.valueOf(values[row]);
+            }
+        }
+
+        @Override
+        double getPrimitiveDouble(int row) {
+            return values[row];
+        }
+
+        @Override
+        long getPrimitiveLong(int row) {
+            return values[row];
+        }
+    }
+
+    static class LongColumn extends NumericColumn {
+        long[] values;
+
+        LongColumn(int capacity) {
+            super(Long.class, capacity);
+            this.values = new long[capacity];
+        }
+
+        @Override
+        void setPrimitive(int row, Number value) {
+            values[row] = value.longValue();
+        }
+
+        @Override
+        Object getPrimitive(int row) {
+            return Long.valueOf(values[row]);
+        }
+
+        @Override
+        double getPrimitiveDouble(int row) {
+            return values[row];
+        }
+
+        @Override
+        long getPrimitiveLong(int row) {
+            return values[row];
+        }
+    }
+
+    static class DoubleColumn extends NumericColumn {
+        double[] values;
+
+        DoubleColumn(Class<?> binding, int capacity) {
+            super(binding, capacity);
+            this.values = new double[capacity];
+        }
+
+        @Override
+        void setPrimitive(int row, Number value) {
+            values[row] = value.doubleValue();
+        }
+
+        @Override
+        Object getPrimitive(int row) {
+            if (binding == Float.class) {
+                return Float.valueOf((float) values[row]);
+            } else {
+                return Double.valueOf(values[row]);
+            }
+        }
+
+        @Override
+        double getPrimitiveDouble(int row) {
+            return values[row];
+        }
+
+        @Override
+        long getPrimitiveLong(int row) {
+            return (long) values[row];
+        }
+    }
+
+    /**
+     * Dictionary shared among the string columns of a batch, repeated values are stored only
+     * once
+     */
+    static class StringDictionary {
+        List<String> strings = new ArrayList<String>();
+
+        Map<String, Integer> codes = new HashMap<String, Integer>();
+
+        /**
+         * Returns the code of the string, or -1 if the dictionary is full and the string is not
+         * found in it
+         */
+        int encode(String value) {
+            Integer code = codes.get(value);
+            if (code == null) {
+                if (isFull()) {
+                    return -1;
+                }
+                code = strings.size();
+                strings.add(value);
+                codes.put(value, code);
+            }
+            return code;
+        }
+
+        String decode(int code) {
+            return strings.get(code);
+        }
+
+        boolean isFull() {
+            return strings.size() >= MAX_DICTIONARY_SIZE;
+        }
+
+        void clear() {
+            strings.clear();
+            codes.clear();
+        }
+    }
+
+    static class StringColumn extends Column {
+        static final int NULL = -1;
+
+        static final int NOT_ENCODED = -2;
+
+        StringDictionary dictionary;
+
+        int[] codes;
+
+        /**
+         * The values that could not be stored in the dictionary, allocated on demand
+         */
+        String[] overflow;
+
+        StringColumn(StringDictionary dictionary, int capacity) {
+            this.dictionary = dictionary;
+            this.codes = new int[capacity];
+        }
+
+        @Override
+        void set(int row, Object value) {
+            if (value == null) {
+                codes[row] = NULL;
+                return;
+            }
+
+            String s = value instanceof String ? (String) value : Converters.convert(value,
+                    String.class);
+            int code = dictionary.encode(s);
+            if (code >= 0) {
+                codes[row] = code;
+            } else {
+                if (overflow == null) {
+                    overflow = new String[codes.length];
+                }
+                overflow[row] = s;
+                codes[row] = NOT_ENCODED;
+            }
+        }
+
+        @Override
+        Object get(int row) {
+            int code = codes[row];
+            if (code == NULL) {
+                return null;
+            } else if (code == NOT_ENCODED) {
+                return overflow[row];
+            } else {
+                return dictionary.decode(code);
+            }
+        }
+
+        @Override
+        boolean isNull(int row) {
+            return codes[row] == NULL;
+        }
+
+        @Override
+        void clear(int size) {
+            if (overflow != null) {
+                Arrays.fill(overflow, 0, size, null);
+            }
+        }
+    }
+
+    /**
+     * Stores points as packed x,y,z ordinates. Points that cannot be rebuilt exactly from the
+     * ordinates (different factory, user data) are stored as is.
+     */
+    static class PointColumn extends Column {
+        BitSet nulls = new BitSet();
+
+        double[] ordinates;
+
+        GeometryFactory factory;
+
+        Point[] geometries;
+
+        PointColumn(int capacity) {
+            this.ordinates = new double[capacity * 3];
+        }
+
+        @Override
+        void set(int row, Object value) {
+            if (value == null) {
+                nulls.set(row);
+                return;
+            }
+
+            nulls.clear(row);
+            Point point = (Point) value;
+            if (factory == null) {
+                factory = point.getFactory();
+            }
+            if (point.isEmpty() || point.getFactory() != factory || point.getUserData() != null
+                    || point.getSRID() != factory.getSRID()) {
+                if (geometries == null) {
+                    geometries = new Point[ordinates.length / 3];
+                }
+                geometries[row] = point;
+            } else {
+                Coordinate c = point.getCoordinate();
+                int base = row * 3;
+                ordinates[base] = c.x;
+                ordinates[base + 1] = c.y;
+                ordinates[base + 2] = c.z;
+            }
+        }
+
+        @Override
+        Object get(int row) {
+            if (nulls.get(row)) {
+                return null;
+            } else if (geometries != null && geometries[row] != null) {
+                return geometries[row];
+            } else {
+                int base = row * 3;
+                return factory.createPoint(new Coordinate(ordinates[base], ordinates[base + 1],
+                        ordinates[base + 2]));
+            }
+        }
+
+        @Override
+        boolean isNull(int row) {
+            return nulls.get(row);
+        }
+
+        @Override
+        void clear(int size) {
+            nulls.clear();
+            if (geometries != null) {
+                Arrays.fill(geometries, 0, size, null);
+            }
+        }
+    }
+
+    static class ObjectColumn extends Column {
+        Object[] values;
+
+        ObjectColumn(int capacity) {
+            this.values = new Object[capacity];
+        }
+
+        @Override
+        void set(int row, Object value) {
+            values[row] = value;
+        }
+
+        @Override
+        Object get(int row) {
+            return values[row];
+        }
+
+        @Override
+        boolean isNull(int row) {
+            return values[row] == null;
+        }
+
+        @Override
+        void clear(int size) {
+            Arrays.fill(values, 0, size, null);
+        }
+    }
+
+    /**
+     * A flyweight, read only {@link SimpleFeature} backed by a row of a {@link SimpleFeatureBatch}.
+     * Moving the view to another row changes the contents of the feature.
+     */
+    public static class View implements SimpleFeature {
+
+        SimpleFeatureBatch batch;
+
+        int row;
+
+        Map<Object, Object> userData;
+
+        View(SimpleFeatureBatch batch) {
+            this.batch = batch;
+        }
+
+        /**
+         * Moves the view to the specified row of the batch
+         */
+        public void setRow(int row) {
+            batch.checkRow(row);
+            this.row = row;
+            if (userData != null) {
+                userData.clear();
+            }
+        }
+
+        public int getRow() {
+            return row;
+        }
+
+        public SimpleFeatureBatch getBatch() {
+            return batch;
+        }
+
+        public FeatureId getIdentifier() {
+            String id = batch.ids[row];
+            return id != null ? new FeatureIdImpl(id) : null;
+        }
+
+        public String getID() {
+            return batch.ids[row];
+        }
+
+        public SimpleFeatureType getType() {
+            return batch.featureType;
+        }
+
+        public SimpleFeatureType getFeatureType() {
+            return batch.featureType;
+        }
+
+        public List<Object> getAttributes() {
+            List<Object> result = new ArrayList<Object>(batch.columns.length);
+            for (int i = 0; i < batch.columns.length; i++) {
+                result.add(batch.columns[i].get(row));
+            }
+            return result;
+        }
+
+        public Object getAttribute(String name) {
+            int idx = batch.featureType.indexOf(name);
+            return idx >= 0 ? batch.columns[idx].get(row) : null;
+        }
+
+        public Object getAttribute(Name name) {
+            return getAttribute(name.getLocalPart());
+        }
+
+        public Object getAttribute(int index) throws IndexOutOfBoundsException {
+            return batch.columns[index].get(row);
+        }
+
+        public int getAttributeCount() {
+            return batch.columns.length;
+        }
+
+        public Object getDefaultGeometry() {
+            int idx = batch.defaultGeometryIndex;
+            return idx >= 0 ? batch.columns[idx].get(row) : null;
+        }
+
+        public BoundingBox getBounds() {
+            CoordinateReferenceSystem crs = batch.featureType.getCoordinateReferenceSystem();
+            Envelope bounds = ReferencedEnvelope.create(crs);
+            batch.expandToInclude(row, bounds, crs);
+            return (BoundingBox) bounds;
+        }
+
+        public GeometryAttribute getDefaultGeometryProperty() {
+            GeometryDescriptor descriptor = batch.featureType.getGeometryDescriptor();
+            if (descriptor == null) {
+                return null;
+            }
+            return new GeometryAttributeImpl(getDefaultGeometry(), descriptor, null);
+        }
+
+        public Collection<Property> getProperties() {
+            List<Property> result = new ArrayList<Property>(batch.columns.length);
+            for (int i = 0; i < batch.columns.length; i++) {
+                result.add(buildProperty(i));
+            }
+            return result;
+        }
+
+        public Collection<Property> getProperties(Name name) {
+            return getProperties(name.getLocalPart());
+        }
+
+        public Collection<Property> getProperties(String name) {
+            int idx = batch.featureType.indexOf(name);
+            if (idx >= 0) {
+                return Collections.singletonList(buildProperty(idx));
+            } else {
+                return Collections.emptyList();
+            }
+        }
+
+        public Property getProperty(Name name) {
+            return getProperty(name.getLocalPart());
+        }
+
+        public Property getProperty(String name) {
+            int idx = batch.featureType.indexOf(name);
+            return idx >= 0 ? buildProperty(idx) : null;
+        }
+
+        /**
+         * Builds a detached property holding the current value of the attribute
+         */
+        Property buildProperty(int index) {
+            AttributeDescriptor descriptor = batch.featureType.getDescriptor(index);
+            Object value = batch.columns[index].get(row);
+            if (descriptor instanceof GeometryDescriptor) {
+                return new GeometryAttributeImpl(value, (GeometryDescriptor) descriptor, null);
+            } else {
+                return new AttributeImpl(value, descriptor, null);
+            }
+        }
+
+        public Collection<? extends Property> getValue() {
+            return getProperties();
+        }
+
+        public AttributeDescriptor getDescriptor() {
+            return new AttributeDescriptorImpl(batch.featureType, batch.featureType.getName(),
+                    0, Integer.MAX_VALUE, true, null);
+        }
+
+        public Name getName() {
+            return batch.featureType.getName();
+        }
+
+        public boolean isNillable() {
+            return true;
+        }
+
+        public Map<Object, Object> getUserData() {
+            if (userData == null) {
+                userData = new HashMap<Object, Object>();
+            }
+            return userData;
+        }
+
+        public void validate() {
+            for (int i = 0; i < batch.columns.length; i++) {
+                Types.validate(batch.featureType.getDescriptor(i), batch.columns[i].get(row));
+            }
+        }
+
+        public void setAttributes(List<Object> values) {
+            throw readOnly();
+        }
+
+        public void setAttributes(Object[] values) {
+            throw readOnly();
+        }
+
+        public void setAttribute(String name, Object value) {
+            throw readOnly();
+        }
+
+        public void setAttribute(Name name, Object value) {
+            throw readOnly();
+        }
+
+        public void setAttribute(int index, Object value) throws IndexOutOfBoundsException {
+            throw readOnly();
+        }
+
+        public void setDefaultGeometry(Object geometry) {
+            throw readOnly();
+        }
+
+        public void setDefaultGeometryProperty(GeometryAttribute geometryAttribute) {
+            throw readOnly();
+        }
+
+        public void setValue(Collection<Property> values) {
+            throw readOnly();
+        }
+
+        public void setValue(Object newValue) {
+            throw readOnly();
+        }
+
+        UnsupportedOperationException readOnly() {
+            return new UnsupportedOperationException("Features backed by a batch are read only");
+        }
+
+        @Override
+        public int hashCode() {
+            String id = getID();
+            return (id == null ? 0 : id.hashCode()) * batch.featureType.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (!(obj instanceof SimpleFeature)) {
+                return false;
+            }
+            SimpleFeature other = (SimpleFeature) obj;
+            if (!Utilities.equals(getID(), other.getID())
+                    || !batch.featureType.equals(other.getFeatureType())) {
+                return false;
+            }
+            for (int i = 0; i < batch.columns.length; i++) {
+                if (!Utilities.equals(getAttribute(i), other.getAttribute(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            StringBuffer sb = new StringBuffer("SimpleFeatureBatch.View:");
+            sb.append(batch.featureType.getName().getLocalPart());
+            sb.append("=");
+            sb.append(getValue());
+            return sb.toString();
+        }
+    }
+}
@@ -38,7 +38,7 @@ import org.opengis.filter.expression.Expression;
  *
  * @source $URL$
  */
-public class AverageVisitor implements FeatureCalc, FeatureAttributeVisitor {
+public class AverageVisitor implements BatchFeatureVisitor, FeatureAttributeVisitor {
     private Expression expr;
 
     /**
@@ -140,6 +140,51 @@ public class AverageVisitor implements FeatureCalc, FeatureAttributeVisitor {
         }
     }
 
+    public void visit(long[] values, int offset, int length, Class<?> binding) {
+        if (strategy == null) {
+            strategy = createStrategy(binding);
+        }
+        strategy.add(values, offset, length);
+    }
+
+    public void visit(double[] values, int offset, int length, Class<?> binding) {
+        if (strategy == null) {
+            strategy = createStrategy(binding);
+        }
+        strategy.add(values, offset, length);
+    }
+
+    public void visit(Object[] values, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            if (strategy == null) {
+                strategy = createStrategy(values[i].getClass());
+            }
+            strategy.add(values[i]);
+        }
+    }
+
+    public void visitNulls(int count) {
+        // nulls are not part of the average
+    }
+
+    public BatchFeatureVisitor createPartial() {
+        return new AverageVisitor(expr);
+    }
+
+    public void merge(MergeableFeatureCalc partial) {
+        AverageStrategy other = ((AverageVisitor) partial).strategy;
+        if (other != null) {
+            if (strategy == null) {
+                strategy = createStrategy(other.getSum().getClass());
+                strategy.set(other.getCount(), other.getSum());
+            } else {
+                Number sum = CalcUtil.sum(new Number[] { (Number) strategy.getSum(),
+                        (Number) other.getSum() });
+                strategy.set(strategy.getCount() + other.getCount(), sum);
+            }
+        }
+    }
+
     public Expression getExpression() {
         return expr;
     }
@@ -197,6 +242,10 @@ public class AverageVisitor implements FeatureCalc, FeatureAttributeVisitor {
     interface AverageStrategy {
         public void add(Object value);
 
+        public void add(long[] values, int offset, int length);
+
+        public void add(double[] values, int offset, int length);
+
         public Object getResult();
 
         public Object getSum();
@@ -218,6 +267,24 @@ public class AverageVisitor implements FeatureCalc, FeatureAttributeVisitor {
             count++;
         }
 
+        public void add(long[] values, int offset, int length) {
+            double sum = number;
+            for (int i = offset; i < offset + length; i++) {
+                sum += values[i];
+            }
+            number = sum;
+            count += length;
+        }
+
+        public void add(double[] values, int offset, int length) {
+            double sum = number;
+            for (int i = offset; i < offset + length; i++) {
+                sum += values[i];
+            }
+            number = sum;
+            count += length;
+        }
+
         public Object getResult() {
             return new Double(number / count);
         }
@@ -248,6 +315,24 @@ public class AverageVisitor implements FeatureCalc, FeatureAttributeVisitor {
             count++;
         }
 
+        public void add(long[] values, int offset, int length) {
+            float sum = number;
+            for (int i = offset; i < offset + length; i++) {
+                sum += (float) values[i];
+            }
+            number = sum;
+            count += length;
+        }
+
+        public void add(double[] values, int offset, int length) {
+            float sum = number;
+            for (int i = offset; i < offset + length; i++) {
+                sum += (float) values[i];
+            }
+            number = sum;
+            count += length;
+        }
+
         public Object getResult() {
             return new Float((float) number / count);
         }
@@ -278,6 +363,24 @@ public class AverageVisitor implements FeatureCalc, FeatureAttributeVisitor {
             count++;
         }
 
+        public void add(long[] values, int offset, int length) {
+            long sum = number;
+            for (int i = offset; i < offset + length; i++) {
+                sum += values[i];
+            }
+            number = sum;
+            count += length;
+        }
+
+        public void add(double[] values, int offset, int length) {
+            long sum = number;
+            for (int i = offset; i < offset + length; i++) {
+                sum += (long) values[i];
+            }
+            number = sum;
+            count += length;
+        }
+
         public Object getResult() {
             return new Double((double) number / count);
         }
@@ -308,6 +411,24 @@ public class AverageVisitor implements FeatureCalc, FeatureAttributeVisitor {
             count++;
         }
 
+        public void add(long[] values, int offset, int length) {
+            int sum = number;
+            for (int i = offset; i < offset + length; i++) {
+                sum += (int) values[i];
+            }
+            number = sum;
+            count += length;
+        }
+
+        public void add(double[] values, int offset, int length) {
+            int sum = number;
+            for (int i = offset; i < offset + length; i++) {
+                sum += (int) values[i];
+            }
+            number = sum;
+            count += length;
+        }
+
         public Object getResult() {
             return new Double((double) number / count);
         }
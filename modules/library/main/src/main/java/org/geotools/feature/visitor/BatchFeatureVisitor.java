@@ -0,0 +1,84 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.feature.visitor;
+
+import org.opengis.filter.expression.Expression;
+
+/**
+ * A visitor that, besides visiting features one by one, can be fed directly with chunks of the
+ * values of the attribute it works against, saving the cost of building features and evaluating
+ * expressions against them.
+ * <p>
+ * The data source can feed the visitor with batches only when the {@link #getExpression()} is a
+ * simple property name. Integral numbers are provided as <code>long</code> arrays, floating
+ * point ones as <code>double</code> arrays, in both cases along with the attribute binding, so
+ * that the visitor can return results of the expected type. Any other type of value is provided
+ * as an <code>Object</code> array. The chunks never contain nulls, the nulls found are reported
+ * via {@link #visitNulls(int)}. A data source can mix the different ways of feeding the visitor,
+ * the visitor must be prepared to receive both features and chunks.
+ * </p>
+ * <p>
+ * Batch visitors are also mergeable, so that they can run in parallel over separate portions of
+ * the data.
+ * </p>
+ *
+ * @see BatchVisitorBuffer
+ * @author Andrea Aime - GeoSolutions
+ */
+public interface BatchFeatureVisitor extends MergeableFeatureCalc {
+
+    /**
+     * The expression whose values are collected by this visitor
+     */
+    Expression getExpression();
+
+    /**
+     * Visits a chunk of integral values
+     *
+     * @param values The values array
+     * @param offset The position of the first value to be visited
+     * @param length The number of values to be visited
+     * @param binding The type of the attribute (Byte, Short, Integer or Long)
+     */
+    void visit(long[] values, int offset, int length, Class<?> binding);
+
+    /**
+     * Visits a chunk of floating point values
+     *
+     * @param values The values array
+     * @param offset The position of the first value to be visited
+     * @param length The number of values to be visited
+     * @param binding The type of the attribute (Float or Double)
+     */
+    void visit(double[] values, int offset, int length, Class<?> binding);
+
+    /**
+     * Visits a chunk of values that cannot be represented as primitives
+     *
+     * @param values The values array
+     * @param offset The position of the first value to be visited
+     * @param length The number of values to be visited
+     */
+    void visit(Object[] values, int offset, int length);
+
+    /**
+     * Reports a number of null values found in the data
+     *
+     * @param count
+     */
+    void visitNulls(int count);
+}
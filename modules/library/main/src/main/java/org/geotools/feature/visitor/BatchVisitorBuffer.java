@@ -0,0 +1,206 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.feature.visitor;
+
+import org.geotools.feature.simple.SimpleFeatureBatch;
+import org.opengis.feature.simple.SimpleFeature;
+
+/**
+ * Accumulates attribute values into primitive chunks and feeds them to a
+ * {@link BatchFeatureVisitor} once full. Data sources scanning an attribute can use it to avoid
+ * dealing with the chunk management themselves, values can be added either as primitives,
+ * objects, or straight from features (in which case the primitive accessors of
+ * {@link SimpleFeatureBatch} will be used, if the feature is backed by one).
+ * <p>
+ * Remember to call {@link #flush()} once done adding values.
+ * </p>
+ *
+ * @author Andrea Aime - GeoSolutions
+ */
+public class BatchVisitorBuffer {
+
+    public static final int DEFAULT_CHUNK_SIZE = 4096;
+
+    enum Kind {
+        INTEGRAL, FLOATING, OBJECT
+    };
+
+    BatchFeatureVisitor visitor;
+
+    Class<?> binding;
+
+    Kind kind;
+
+    long[] longs;
+
+    double[] doubles;
+
+    Object[] objects;
+
+    int size;
+
+    int nulls;
+
+    /**
+     * Builds a new buffer with the default chunk size
+     *
+     * @param visitor The visitor to be fed
+     * @param binding The type of the attribute values
+     */
+    public BatchVisitorBuffer(BatchFeatureVisitor visitor, Class<?> binding) {
+        this(visitor, binding, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Builds a new buffer
+     *
+     * @param visitor The visitor to be fed
+     * @param binding The type of the attribute values
+     * @param chunkSize The number of values collected before feeding the visitor
+     */
+    public BatchVisitorBuffer(BatchFeatureVisitor visitor, Class<?> binding, int chunkSize) {
+        this.visitor = visitor;
+        this.binding = binding;
+        if (isIntegral(binding)) {
+            kind = Kind.INTEGRAL;
+            longs = new long[chunkSize];
+        } else if (isFloating(binding)) {
+            kind = Kind.FLOATING;
+            doubles = new double[chunkSize];
+        } else {
+            kind = Kind.OBJECT;
+            objects = new Object[chunkSize];
+        }
+    }
+
+    /**
+     * Returns true if the values of the specified type are provided to the visitors as longs
+     */
+    public static boolean isIntegral(Class<?> binding) {
+        return binding == Long.class || binding == Integer.class || binding == Short.class
+                || binding == Byte.class;
+    }
+
+    /**
+     * Returns true if the values of the specified type are provided to the visitors as doubles
+     */
+    public static boolean isFloating(Class<?> binding) {
+        return binding == Double.class || binding == Float.class;
+    }
+
+    /**
+     * Adds an integral value, the buffer binding must be integral
+     */
+    public void addLong(long value) {
+        longs[size++] = value;
+        if (size == longs.length) {
+            flushValues();
+        }
+    }
+
+    /**
+     * Adds a floating point value, the buffer binding must be floating point
+     */
+    public void addDouble(double value) {
+        doubles[size++] = value;
+        if (size == doubles.length) {
+            flushValues();
+        }
+    }
+
+    /**
+     * Records a null value
+     */
+    public void addNull() {
+        nulls++;
+    }
+
+    /**
+     * Adds a value of any type
+     */
+    public void add(Object value) {
+        if (value == null) {
+            nulls++;
+        } else if (kind == Kind.INTEGRAL && value.getClass() == binding) {
+            addLong(((Number) value).longValue());
+        } else if (kind == Kind.FLOATING && value.getClass() == binding) {
+            addDouble(((Number) value).doubleValue());
+        } else if (kind == Kind.OBJECT) {
+            objects[size++] = value;
+            if (size == objects.length) {
+                flushValues();
+            }
+        } else {
+            // value not matching the binding (e.g., a long in an integer attribute), pass it
+            // along as is, without breaking the order
+            flushValues();
+            visitor.visit(new Object[] { value }, 0, 1);
+        }
+    }
+
+    /**
+     * Adds the value of the specified attribute of the feature
+     */
+    public void add(SimpleFeature feature, int attributeIndex) {
+        if (kind != Kind.OBJECT && feature instanceof SimpleFeatureBatch.View) {
+            SimpleFeatureBatch.View view = (SimpleFeatureBatch.View) feature;
+            SimpleFeatureBatch batch = view.getBatch();
+            if (batch.isNumeric(attributeIndex)) {
+                int row = view.getRow();
+                if (batch.isNull(row, attributeIndex)) {
+                    nulls++;
+                    return;
+                } else if (batch.isPrimitive(row, attributeIndex)) {
+                    if (kind == Kind.INTEGRAL) {
+                        addLong(batch.getLong(row, attributeIndex));
+                    } else {
+                        addDouble(batch.getDouble(row, attributeIndex));
+                    }
+                    return;
+                }
+            }
+        }
+        add(feature.getAttribute(attributeIndex));
+    }
+
+    /**
+     * Feeds the visitor with the values collected so far
+     */
+    public void flush() {
+        flushValues();
+        if (nulls > 0) {
+            visitor.visitNulls(nulls);
+            nulls = 0;
+        }
+    }
+
+    void flushValues() {
+        if (size > 0) {
+            if (kind == Kind.INTEGRAL) {
+                visitor.visit(longs, 0, size, binding);
+            } else if (kind == Kind.FLOATING) {
+                visitor.visit(doubles, 0, size, binding);
+            } else {
+                visitor.visit(objects, 0, size);
+                for (int i = 0; i < size; i++) {
+                    objects[i] = null;
+                }
+            }
+            size = 0;
+        }
+    }
+}
@@ -213,6 +213,34 @@ public class CalcUtil {
         return null;
     }
 
+    /**
+     * Boxes an integral value provided by a {@link BatchFeatureVisitor} chunk into the specified
+     * binding
+     */
+    static Number box(long value, Class binding) {
+        if (binding == Integer.class) {
+            return Integer.valueOf((int) value);
+        } else if (binding == Short.class) {
+            return Short.valueOf((short) value);
+        } else if (binding == Byte.class) {
+            return Byte.valueOf((byte) value);
+        } else {
+            return Long.valueOf(value);
+        }
+    }
+
+    /**
+     * Boxes a floating point value provided by a {@link BatchFeatureVisitor} chunk into the
+     * specified binding
+     */
+    static Number box(double value, Class binding) {
+        if (binding == Float.class) {
+            return Float.valueOf((float) value);
+        } else {
+            return Double.valueOf(value);
+        }
+    }
+
     static Object convert(Object[] objects, Object var) {
         Object newVar = getObject(objects);
 
@@ -37,7 +37,7 @@ import org.opengis.filter.expression.Expression;
  *
  * @source $URL$
  */
-public class MaxVisitor implements FeatureCalc, FeatureAttributeVisitor {
+public class MaxVisitor implements BatchFeatureVisitor, FeatureAttributeVisitor {
     private Expression expr;
     Comparable maxvalue;
     Comparable curvalue;
@@ -99,14 +99,81 @@ public class MaxVisitor implements FeatureCalc, FeatureAttributeVisitor {
         	}
         }
 
-        curvalue = (Comparable) attribValue;
+        visitValue((Comparable) attribValue);
+
+        // throw new IllegalStateException("Expression is not comparable!");
+    }
+
+    void visitValue(Comparable value) {
+        curvalue = value;
 
         if ((!visited) || (curvalue.compareTo(maxvalue) > 0)) {
             maxvalue = curvalue;
             visited = true;
         }
+    }
 
-        // throw new IllegalStateException("Expression is not comparable!");
+    public void visit(long[] values, int offset, int length, Class<?> binding) {
+        if (length == 0) {
+            return;
+        }
+        long max = values[offset];
+        for (int i = offset + 1; i < offset + length; i++) {
+            if (values[i] > max) {
+                max = values[i];
+            }
+        }
+        visitValue((Comparable) CalcUtil.box(max, binding));
+    }
+
+    public void visit(double[] values, int offset, int length, Class<?> binding) {
+        // NaN and infinite are skipped only for doubles, as in the feature by feature visit
+        boolean skipNaN = binding == Double.class;
+        boolean found = false;
+        double max = 0;
+        for (int i = offset; i < offset + length; i++) {
+            double value = values[i];
+            if (skipNaN && (Double.isNaN(value) || Double.isInfinite(value))) {
+                countNaN++;
+            } else if (!found || Double.compare(value, max) > 0) {
+                max = value;
+                found = true;
+            }
+        }
+        if (found) {
+            visitValue((Comparable) CalcUtil.box(max, binding));
+        }
+    }
+
+    public void visit(Object[] values, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            Object value = values[i];
+            if (value instanceof Double) {
+                double doubleVal = ((Double) value).doubleValue();
+                if (Double.isNaN(doubleVal) || Double.isInfinite(doubleVal)) {
+                    countNaN++;
+                    continue;
+                }
+            }
+            visitValue((Comparable) value);
+        }
+    }
+
+    public void visitNulls(int count) {
+        countNull += count;
+    }
+
+    public BatchFeatureVisitor createPartial() {
+        return new MaxVisitor(expr);
+    }
+
+    public void merge(MergeableFeatureCalc partial) {
+        MaxVisitor other = (MaxVisitor) partial;
+        if (other.visited) {
+            visitValue(other.maxvalue);
+        }
+        countNull += other.countNull;
+        countNaN += other.countNaN;
     }
     
     /**
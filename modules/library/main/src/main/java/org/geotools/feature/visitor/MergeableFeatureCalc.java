@@ -0,0 +1,47 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.feature.visitor;
+
+/**
+ * A calculation that can run in parallel over separate portions of the data, by creating
+ * partial calculations with {@link #createPartial()}, and merging them back in the original one,
+ * in data order, using {@link #merge(MergeableFeatureCalc)}.
+ * <p>
+ * Partials are visited each by a single thread, but different partials can be visited by
+ * different threads at the same time, so they must not share any mutable state.
+ * </p>
+ *
+ * @see org.geotools.feature.collection.ParallelVisitExecutor
+ * @author Andrea Aime - GeoSolutions
+ */
+public interface MergeableFeatureCalc extends FeatureCalc {
+
+    /**
+     * Returns a new calculation with the same configuration as this one, but no visited values,
+     * that can be used to visit a portion of the data in parallel, or null if the results depend
+     * on seeing the whole data in order, and thus the calculation cannot be split
+     */
+    MergeableFeatureCalc createPartial();
+
+    /**
+     * Merges the state of a partial calculation, created by {@link #createPartial()}, into this
+     * one. Partials should be merged in the same order as the portions of data they visited.
+     *
+     * @param partial
+     */
+    void merge(MergeableFeatureCalc partial);
+}
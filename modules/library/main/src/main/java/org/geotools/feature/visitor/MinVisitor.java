@@ -37,7 +37,7 @@ import org.opengis.filter.expression.Expression;
  *
  * @source $URL$
  */
-public class MinVisitor implements FeatureCalc, FeatureAttributeVisitor {
+public class MinVisitor implements BatchFeatureVisitor, FeatureAttributeVisitor {
     private Expression expr;
     Comparable minvalue;
     Comparable curvalue;
@@ -88,13 +88,65 @@ public class MinVisitor implements FeatureCalc, FeatureAttributeVisitor {
             return; //attribute is null, therefore skip
         }
 
-        curvalue = (Comparable) attribValue;
+        visitValue((Comparable) attribValue);
+    }
+
+    void visitValue(Comparable value) {
+        curvalue = value;
         if ((!visited) || (curvalue.compareTo(minvalue) < 0)) {
             minvalue = curvalue;
             visited = true;
         }
     }
 
+    public void visit(long[] values, int offset, int length, Class<?> binding) {
+        if (length == 0) {
+            return;
+        }
+        long min = values[offset];
+        for (int i = offset + 1; i < offset + length; i++) {
+            if (values[i] < min) {
+                min = values[i];
+            }
+        }
+        visitValue((Comparable) CalcUtil.box(min, binding));
+    }
+
+    public void visit(double[] values, int offset, int length, Class<?> binding) {
+        if (length == 0) {
+            return;
+        }
+        // same ordering as Double.compareTo, to match the results of the feature by feature visit
+        double min = values[offset];
+        for (int i = offset + 1; i < offset + length; i++) {
+            if (Double.compare(values[i], min) < 0) {
+                min = values[i];
+            }
+        }
+        visitValue((Comparable) CalcUtil.box(min, binding));
+    }
+
+    public void visit(Object[] values, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            visitValue((Comparable) values[i]);
+        }
+    }
+
+    public void visitNulls(int count) {
+        // nulls are skipped
+    }
+
+    public BatchFeatureVisitor createPartial() {
+        return new MinVisitor(expr);
+    }
+
+    public void merge(MergeableFeatureCalc partial) {
+        MinVisitor other = (MinVisitor) partial;
+        if (other.visited) {
+            visitValue(other.minvalue);
+        }
+    }
+
     /**
      * Get the min value.
      *
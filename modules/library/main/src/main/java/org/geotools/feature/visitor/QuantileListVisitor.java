@@ -35,7 +35,7 @@ import org.opengis.filter.expression.Expression;
  *
  * @source $URL$
  */
-public class QuantileListVisitor implements FeatureCalc {
+public class QuantileListVisitor implements BatchFeatureVisitor {
 	private Expression expr;
 	private int count = 0;
 	private int bins;
@@ -115,6 +115,62 @@ public class QuantileListVisitor implements FeatureCalc {
 		count++;
 		items.add(value);
 	}
+
+    public Expression getExpression() {
+        return expr;
+    }
+
+    public void visit(long[] values, int offset, int length, Class<?> binding) {
+        for (int i = offset; i < offset + length; i++) {
+            items.add(CalcUtil.box(values[i], binding));
+        }
+        count += length;
+    }
+
+    public void visit(double[] values, int offset, int length, Class<?> binding) {
+        // only doubles get the NaN treatment, as in the feature by feature visit
+        boolean skipNaN = binding == Double.class;
+        for (int i = offset; i < offset + length; i++) {
+            double value = values[i];
+            if (skipNaN && (Double.isNaN(value) || Double.isInfinite(value))) {
+                countNaN++;
+            } else {
+                count++;
+                items.add(CalcUtil.box(value, binding));
+            }
+        }
+    }
+
+    public void visit(Object[] values, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            Object value = values[i];
+            if (value instanceof Double) {
+                double doubleVal = ((Double) value).doubleValue();
+                if (Double.isNaN(doubleVal) || Double.isInfinite(doubleVal)) {
+                    countNaN++;
+                    continue;
+                }
+            }
+            count++;
+            items.add(value);
+        }
+    }
+
+    public void visitNulls(int count) {
+        countNull += count;
+    }
+
+    public BatchFeatureVisitor createPartial() {
+        return new QuantileListVisitor(expr, bins);
+    }
+
+    public void merge(MergeableFeatureCalc partial) {
+        QuantileListVisitor other = (QuantileListVisitor) partial;
+        items.addAll(other.items);
+        count += other.count;
+        countNull += other.countNull;
+        countNaN += other.countNaN;
+    }
 	
 	public void reset(int bins) {
 		this.bins = bins;
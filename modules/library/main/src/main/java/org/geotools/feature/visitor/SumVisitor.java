@@ -42,7 +42,7 @@ import org.opengis.filter.expression.Expression;
  *
  * @source $URL$
  */
-public class SumVisitor implements FeatureCalc, FeatureAttributeVisitor {
+public class SumVisitor implements BatchFeatureVisitor, FeatureAttributeVisitor {
     private Expression expr;
     SumStrategy strategy;
 
@@ -111,6 +111,48 @@ public class SumVisitor implements FeatureCalc, FeatureAttributeVisitor {
         }
     }
 
+    public void visit(long[] values, int offset, int length, Class<?> binding) {
+        if (strategy == null) {
+            strategy = createStrategy(binding);
+        }
+        strategy.add(values, offset, length);
+    }
+
+    public void visit(double[] values, int offset, int length, Class<?> binding) {
+        if (strategy == null) {
+            strategy = createStrategy(binding);
+        }
+        strategy.add(values, offset, length);
+    }
+
+    public void visit(Object[] values, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            if (strategy == null) {
+                strategy = createStrategy(values[i].getClass());
+            }
+            strategy.add(values[i]);
+        }
+    }
+
+    public void visitNulls(int count) {
+        // nulls are not summed
+    }
+
+    public BatchFeatureVisitor createPartial() {
+        return new SumVisitor(expr);
+    }
+
+    public void merge(MergeableFeatureCalc partial) {
+        SumStrategy other = ((SumVisitor) partial).strategy;
+        if (other != null) {
+            Object partialSum = other.getResult();
+            if (strategy == null) {
+                strategy = createStrategy(partialSum.getClass());
+            }
+            strategy.add(partialSum);
+        }
+    }
+
     public Expression getExpression() {
         return expr;
     }
@@ -138,6 +180,10 @@ public class SumVisitor implements FeatureCalc, FeatureAttributeVisitor {
     interface SumStrategy {
         public void add(Object value);
 
+        public void add(long[] values, int offset, int length);
+
+        public void add(double[] values, int offset, int length);
+
         public Object getResult();
     }
 
@@ -148,6 +194,22 @@ public class SumVisitor implements FeatureCalc, FeatureAttributeVisitor {
             number += ((Number) value).doubleValue();
         }
 
+        public void add(long[] values, int offset, int length) {
+            double sum = number;
+            for (int i = offset; i < offset + length; i++) {
+                sum += values[i];
+            }
+            number = sum;
+        }
+
+        public void add(double[] values, int offset, int length) {
+            double sum = number;
+            for (int i = offset; i < offset + length; i++) {
+                sum += values[i];
+            }
+            number = sum;
+        }
+
         public Object getResult() {
             return new Double(number);
         }
@@ -160,6 +222,22 @@ public class SumVisitor implements FeatureCalc, FeatureAttributeVisitor {
             number += ((Number) value).floatValue();
         }
 
+        public void add(long[] values, int offset, int length) {
+            float sum = number;
+            for (int i = offset; i < offset + length; i++) {
+                sum += (float) values[i];
+            }
+            number = sum;
+        }
+
+        public void add(double[] values, int offset, int length) {
+            float sum = number;
+            for (int i = offset; i < offset + length; i++) {
+                sum += (float) values[i];
+            }
+            number = sum;
+        }
+
         public Object getResult() {
             return new Float(number);
         }
@@ -172,6 +250,22 @@ public class SumVisitor implements FeatureCalc, FeatureAttributeVisitor {
             number += ((Number) value).longValue();
         }
 
+        public void add(long[] values, int offset, int length) {
+            long sum = number;
+            for (int i = offset; i < offset + length; i++) {
+                sum += values[i];
+            }
+            number = sum;
+        }
+
+        public void add(double[] values, int offset, int length) {
+            long sum = number;
+            for (int i = offset; i < offset + length; i++) {
+                sum += (long) values[i];
+            }
+            number = sum;
+        }
+
         public Object getResult() {
             return new Long(number);
         }
@@ -184,6 +278,22 @@ public class SumVisitor implements FeatureCalc, FeatureAttributeVisitor {
             number += ((Number) value).intValue();
         }
 
+        public void add(long[] values, int offset, int length) {
+            int sum = number;
+            for (int i = offset; i < offset + length; i++) {
+                sum += (int) values[i];
+            }
+            number = sum;
+        }
+
+        public void add(double[] values, int offset, int length) {
+            int sum = number;
+            for (int i = offset; i < offset + length; i++) {
+                sum += (int) values[i];
+            }
+            number = sum;
+        }
+
         public Object getResult() {
             return new Integer(number);
         }
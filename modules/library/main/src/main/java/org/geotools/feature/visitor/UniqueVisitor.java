@@ -45,7 +45,7 @@ import org.opengis.filter.expression.Expression;
  *
  * @source $URL$
  */
-public class UniqueVisitor implements FeatureCalc, FeatureAttributeVisitor, LimitingVisitor {
+public class UniqueVisitor implements BatchFeatureVisitor, FeatureAttributeVisitor, LimitingVisitor {
     private Expression expr;
     Set set = new HashSet();
     Set skipped = new HashSet();
@@ -96,6 +96,10 @@ public class UniqueVisitor implements FeatureCalc, FeatureAttributeVisitor, Limi
         set = createNewSet(Collections.EMPTY_LIST);
     }
 
+    public boolean isPreserveOrder() {
+        return preserveOrder;
+    }
+
 
 
     @Override
@@ -123,14 +127,58 @@ public class UniqueVisitor implements FeatureCalc, FeatureAttributeVisitor, Limi
         //we ignore null attributes
         Object value = expr.evaluate(feature);
         if (value != null) {
-            if(!set.contains(value) && !skipped.contains(value)) {
-                if(currentItem >= startIndex && currentItem < (startIndex + maxFeatures)) {
-                    set.add(value);
-                } else {
-                    skipped.add(value);
-                }
-                currentItem++;
+            visitValue(value);
+        }
+    }
+
+    void visitValue(Object value) {
+        if(!set.contains(value) && !skipped.contains(value)) {
+            if(currentItem >= startIndex && currentItem < (startIndex + maxFeatures)) {
+                set.add(value);
+            } else {
+                skipped.add(value);
             }
+            currentItem++;
+        }
+    }
+
+    public void visit(long[] values, int offset, int length, Class<?> binding) {
+        for (int i = offset; i < offset + length; i++) {
+            visitValue(CalcUtil.box(values[i], binding));
+        }
+    }
+
+    public void visit(double[] values, int offset, int length, Class<?> binding) {
+        for (int i = offset; i < offset + length; i++) {
+            visitValue(CalcUtil.box(values[i], binding));
+        }
+    }
+
+    public void visit(Object[] values, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            visitValue(values[i]);
+        }
+    }
+
+    public void visitNulls(int count) {
+        // we ignore null attributes
+    }
+
+    /**
+     * Returns null when paging is in use, as the values to be skipped depend on the visit order
+     */
+    public BatchFeatureVisitor createPartial() {
+        if (hasLimits()) {
+            return null;
+        }
+        UniqueVisitor partial = new UniqueVisitor(expr);
+        partial.setPreserveOrder(preserveOrder);
+        return partial;
+    }
+
+    public void merge(MergeableFeatureCalc partial) {
+        for (Object value : ((UniqueVisitor) partial).set) {
+            visitValue(value);
         }
     }
 
@@ -0,0 +1,343 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.filter.visitor;
+
+import java.util.Date;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.factory.Hints;
+import org.geotools.filter.AttributeExpressionImpl;
+import org.geotools.util.ConverterFactory;
+import org.geotools.util.Converters;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeDescriptor;
+import org.opengis.feature.type.GeometryDescriptor;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory2;
+import org.opengis.filter.PropertyIsBetween;
+import org.opengis.filter.PropertyIsEqualTo;
+import org.opengis.filter.PropertyIsGreaterThan;
+import org.opengis.filter.PropertyIsGreaterThanOrEqualTo;
+import org.opengis.filter.PropertyIsLessThan;
+import org.opengis.filter.PropertyIsLessThanOrEqualTo;
+import org.opengis.filter.PropertyIsNotEqualTo;
+import org.opengis.filter.expression.Expression;
+import org.opengis.filter.expression.Function;
+import org.opengis.filter.expression.Literal;
+import org.opengis.filter.expression.PropertyName;
+import org.xml.sax.helpers.NamespaceSupport;
+
+/**
+ * Prepares a filter for the repeated evaluation against features of a known
+ * {@link SimpleFeatureType}, returning an equivalent copy of it where:
+ * <ul>
+ * <li>property names matching an attribute of the feature type are bound to the attribute
+ * index, so that evaluating them against a feature of that type is a plain
+ * {@link SimpleFeature#getAttribute(int)} call, without looking up property accessors</li>
+ * <li>string literals compared to numeric and date attributes are converted once to the
+ * attribute binding, instead of being converted at each comparison</li>
+ * </ul>
+ * Evaluating the compiled filter against other objects, or against features of a different
+ * type, falls back on the usual property accessor lookup, so the result is the same as the
+ * original filter in all cases.
+ * <p>
+ * Usage:
+ * <pre>
+ * Filter compiled = FilterCompiler.compile(filter, featureType);
+ * </pre>
+ *
+ * @author Andrea Aime - GeoSolutions
+ */
+public class FilterCompiler extends DuplicatingFilterVisitor {
+
+    static final Logger LOGGER = org.geotools.util.logging.Logging.getLogger(FilterCompiler.class);
+
+    /**
+     * Compiles the filter for the specified feature type. Returns the original filter if it
+     * cannot be compiled, e.g., if it contains filter implementations unknown to the
+     * {@link DuplicatingFilterVisitor}
+     */
+    public static Filter compile(Filter filter, SimpleFeatureType schema) {
+        if (filter == null || filter == Filter.INCLUDE || filter == Filter.EXCLUDE
+                || schema == null) {
+            return filter;
+        }
+        try {
+            Object compiled = filter.accept(new FilterCompiler(schema), null);
+            if (compiled instanceof Filter) {
+                return (Filter) compiled;
+            }
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.FINE, "Could not compile filter " + filter
+                    + ", will use it as is", e);
+        }
+        return filter;
+    }
+
+    /**
+     * Compiles the expression for the specified feature type. Returns the original expression
+     * if it cannot be compiled
+     */
+    public static Expression compile(Expression expression, SimpleFeatureType schema) {
+        if (expression == null || schema == null) {
+            return expression;
+        }
+        try {
+            Object compiled = expression.accept(new FilterCompiler(schema), null);
+            if (compiled instanceof Expression) {
+                return (Expression) compiled;
+            }
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.FINE, "Could not compile expression " + expression
+                    + ", will use it as is", e);
+        }
+        return expression;
+    }
+
+    SimpleFeatureType schema;
+
+    public FilterCompiler(SimpleFeatureType schema) {
+        this.schema = schema;
+    }
+
+    public FilterCompiler(SimpleFeatureType schema, FilterFactory2 factory) {
+        super(factory);
+        this.schema = schema;
+    }
+
+    @Override
+    public Object visit(PropertyName expression, Object extraData) {
+        String name = expression.getPropertyName();
+        if (name == null) {
+            return super.visit(expression, extraData);
+        }
+        int index;
+        boolean defaultGeometry = false;
+        if ("".equals(name)) {
+            // the default geometry
+            GeometryDescriptor gd = schema.getGeometryDescriptor();
+            index = gd == null ? -1 : schema.indexOf(gd.getLocalName());
+            defaultGeometry = true;
+        } else {
+            index = schema.indexOf(name);
+            int colon = name.indexOf(':');
+            if (index < 0 && colon > 0 && name.indexOf('/') < 0 && name.indexOf('[') < 0
+                    && name.indexOf('@') < 0) {
+                // prefixed name, the simple feature accessor ignores the prefix too
+                index = schema.indexOf(name.substring(colon + 1));
+            }
+        }
+        if (index < 0) {
+            return super.visit(expression, extraData);
+        }
+        return new IndexedPropertyName(name, expression.getNamespaceContext(), schema, index,
+                defaultGeometry);
+    }
+
+    @Override
+    public Object visit(Function expression, Object extraData) {
+        // not all functions can be rebuilt from their name, and some carry state (e.g.
+        // fallback values) that the factory would lose, in that case keep the original
+        Object duplicate = super.visit(expression, extraData);
+        if (duplicate == null || duplicate.getClass() != expression.getClass()) {
+            return expression;
+        }
+        return duplicate;
+    }
+
+    @Override
+    public Object visit(PropertyIsEqualTo filter, Object extraData) {
+        Expression[] expressions = align(filter.getExpression1(), filter.getExpression2(),
+                extraData);
+        return getFactory(extraData).equal(expressions[0], expressions[1],
+                filter.isMatchingCase(), filter.getMatchAction());
+    }
+
+    @Override
+    public Object visit(PropertyIsNotEqualTo filter, Object extraData) {
+        Expression[] expressions = align(filter.getExpression1(), filter.getExpression2(),
+                extraData);
+        return getFactory(extraData).notEqual(expressions[0], expressions[1],
+                filter.isMatchingCase(), filter.getMatchAction());
+    }
+
+    @Override
+    public Object visit(PropertyIsGreaterThan filter, Object extraData) {
+        Expression[] expressions = align(filter.getExpression1(), filter.getExpression2(),
+                extraData);
+        return getFactory(extraData).greater(expressions[0], expressions[1],
+                filter.isMatchingCase(), filter.getMatchAction());
+    }
+
+    @Override
+    public Object visit(PropertyIsGreaterThanOrEqualTo filter, Object extraData) {
+        Expression[] expressions = align(filter.getExpression1(), filter.getExpression2(),
+                extraData);
+        return getFactory(extraData).greaterOrEqual(expressions[0], expressions[1],
+                filter.isMatchingCase(), filter.getMatchAction());
+    }
+
+    @Override
+    public Object visit(PropertyIsLessThan filter, Object extraData) {
+        Expression[] expressions = align(filter.getExpression1(), filter.getExpression2(),
+                extraData);
+        return getFactory(extraData).less(expressions[0], expressions[1],
+                filter.isMatchingCase(), filter.getMatchAction());
+    }
+
+    @Override
+    public Object visit(PropertyIsLessThanOrEqualTo filter, Object extraData) {
+        Expression[] expressions = align(filter.getExpression1(), filter.getExpression2(),
+                extraData);
+        return getFactory(extraData).lessOrEqual(expressions[0], expressions[1],
+                filter.isMatchingCase(), filter.getMatchAction());
+    }
+
+    @Override
+    public Object visit(PropertyIsBetween filter, Object extraData) {
+        Expression expr = visit(filter.getExpression(), extraData);
+        Expression lower = visit(filter.getLowerBoundary(), extraData);
+        Expression upper = visit(filter.getUpperBoundary(), extraData);
+        if (expr instanceof IndexedPropertyName) {
+            Class<?> binding = ((IndexedPropertyName) expr).getBinding();
+            lower = convertLiteral(lower, binding, extraData);
+            upper = convertLiteral(upper, binding, extraData);
+        }
+        return getFactory(extraData).between(expr, lower, upper, filter.getMatchAction());
+    }
+
+    /**
+     * Compiles the two expressions of a binary comparison, converting the literal to the
+     * binding of the attribute it is compared to, if any
+     */
+    Expression[] align(Expression expression1, Expression expression2, Object extraData) {
+        Expression e1 = visit(expression1, extraData);
+        Expression e2 = visit(expression2, extraData);
+        if (e1 instanceof IndexedPropertyName) {
+            e2 = convertLiteral(e2, ((IndexedPropertyName) e1).getBinding(), extraData);
+        } else if (e2 instanceof IndexedPropertyName) {
+            e1 = convertLiteral(e1, ((IndexedPropertyName) e2).getBinding(), extraData);
+        }
+        return new Expression[] { e1, e2 };
+    }
+
+    /**
+     * Converts a string literal to a numeric or date binding. The conversion is performed only
+     * if lossless, as the comparison filters would perform it anyways, so that the result of the
+     * comparison does not change
+     */
+    Expression convertLiteral(Expression expression, Class<?> binding, Object extraData) {
+        if (!(expression instanceof Literal) || binding == null) {
+            return expression;
+        }
+        Object value = ((Literal) expression).getValue();
+        if (!(value instanceof String)) {
+            return expression;
+        }
+        String string = ((String) value).trim();
+        Hints hints = new Hints(ConverterFactory.SAFE_CONVERSION, Boolean.TRUE);
+        if (Number.class.isAssignableFrom(binding)) {
+            Object converted = Converters.convert(string, binding, hints);
+            if (converted == null) {
+                return expression;
+            }
+            try {
+                if (Double.parseDouble(string) != ((Number) converted).doubleValue()) {
+                    return expression;
+                }
+            } catch (NumberFormatException e) {
+                return expression;
+            }
+            return getFactory(extraData).literal(converted);
+        } else if (Date.class.isAssignableFrom(binding)) {
+            Object converted = Converters.convert(string, binding, hints);
+            if (converted == null) {
+                return expression;
+            }
+            return getFactory(extraData).literal(converted);
+        }
+        return expression;
+    }
+
+    /**
+     * A property name bound to the index of an attribute in a feature type. Evaluates as a
+     * direct attribute access against features of that type, and as a normal property name
+     * against anything else.
+     */
+    static class IndexedPropertyName extends AttributeExpressionImpl {
+
+        final SimpleFeatureType featureType;
+
+        final int index;
+
+        final String localName;
+
+        final boolean defaultGeometry;
+
+        IndexedPropertyName(String name, NamespaceSupport namespaces,
+                SimpleFeatureType featureType, int index, boolean defaultGeometry) {
+            super(name, namespaces);
+            this.featureType = featureType;
+            this.index = index;
+            this.localName = featureType.getDescriptor(index).getLocalName();
+            this.defaultGeometry = defaultGeometry;
+        }
+
+        Class<?> getBinding() {
+            return featureType.getDescriptor(index).getType().getBinding();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T evaluate(Object object, Class<T> context) {
+            if (object instanceof SimpleFeature) {
+                SimpleFeature feature = (SimpleFeature) object;
+                if (isBound(feature.getFeatureType())) {
+                    Object value = feature.getAttribute(index);
+                    if (context == null || value == null || context.isInstance(value)) {
+                        return (T) value;
+                    }
+                    return Converters.convert(value, context);
+                }
+            }
+            return super.evaluate(object, context);
+        }
+
+        /**
+         * Checks the feature type has the bound attribute at the same index, the same
+         * feature type is often recreated, e.g., by retyping readers
+         */
+        boolean isBound(SimpleFeatureType type) {
+            if (type == featureType) {
+                return true;
+            }
+            if (defaultGeometry) {
+                GeometryDescriptor gd = type.getGeometryDescriptor();
+                return gd != null && localName.equals(gd.getLocalName())
+                        && index < type.getAttributeCount()
+                        && type.getDescriptor(index) == gd;
+            }
+            if (index >= type.getAttributeCount()) {
+                return false;
+            }
+            AttributeDescriptor ad = type.getDescriptor(index);
+            return ad != null && localName.equals(ad.getLocalName());
+        }
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.collection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.geotools.data.DataUtilities;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.data.simple.SimpleFeatureSource;
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.junit.Before;
+import org.junit.Test;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory2;
+
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.io.WKTReader;
+
+/**
+ * Tests the {@link PackedSpatialIndexFeatureCollection}
+ *
+ * @source $URL$
+ */
+public class PackedSpatialIndexFeatureCollectionTest {
+
+    static final FilterFactory2 FF = CommonFactoryFinder.getFilterFactory2(null);
+
+    SimpleFeatureType type;
+
+    ListFeatureCollection features;
+
+    @Before
+    public void setup() throws Exception {
+        type = DataUtilities.createType("test",
+                "geom:Geometry:srid=4326,name:String,value:Double,count:Integer,"
+                        + "when:java.util.Date,flag:Boolean");
+        features = new ListFeatureCollection(type);
+        SimpleFeatureBuilder fb = new SimpleFeatureBuilder(type);
+        WKTReader reader = new WKTReader();
+        int id = 0;
+        for (int x = 0; x < 20; x++) {
+            for (int y = 0; y < 20; y++) {
+                fb.add(reader.read("POLYGON((" + x + " " + y + ", " + (x + 1) + " " + y + ", "
+                        + (x + 1) + " " + (y + 1) + ", " + x + " " + y + "))"));
+                fb.add("name" + (id % 7));
+                fb.add(id / 10d);
+                fb.add(id % 3 == 0 ? null : id);
+                fb.add(new Date(id * 1000L));
+                fb.add(id % 2 == 0);
+                features.add(fb.buildFeature("test." + id));
+                id++;
+            }
+        }
+        // some more complex and missing geometries
+        fb.add(reader.read("POLYGON((0 0, 10 0, 10 10, 0 10, 0 0), (1 1, 2 1, 2 2, 1 1))"));
+        features.add(fb.buildFeature("test." + id++));
+        fb.add(reader.read("MULTIPOLYGON(((30 30, 31 30, 31 31, 30 30)), ((40 40, 41 40, 41 41, 40 40)))"));
+        features.add(fb.buildFeature("test." + id++));
+        fb.add(reader.read("GEOMETRYCOLLECTION(POINT(5 5), LINESTRING(0 0 1, 3 3 2))"));
+        features.add(fb.buildFeature("test." + id++));
+        features.add(fb.buildFeature("test." + id++));
+    }
+
+    static Map<String, SimpleFeature> byId(SimpleFeatureCollection collection) {
+        Map<String, SimpleFeature> result = new HashMap<String, SimpleFeature>();
+        SimpleFeatureIterator it = collection.features();
+        try {
+            while (it.hasNext()) {
+                SimpleFeature feature = it.next();
+                result.put(feature.getID(), feature);
+            }
+        } finally {
+            it.close();
+        }
+        return result;
+    }
+
+    static Set<String> ids(SimpleFeatureCollection collection) {
+        return new TreeSet<String>(byId(collection).keySet());
+    }
+
+    @Test
+    public void testContents() throws Exception {
+        PackedSpatialIndexFeatureCollection packed = new PackedSpatialIndexFeatureCollection(
+                features);
+        assertEquals(features.size(), packed.size());
+        assertEquals(new ReferencedEnvelope(0, 41, 0, 41, type.getCoordinateReferenceSystem()),
+                packed.getBounds());
+
+        Map<String, SimpleFeature> expected = byId(features);
+        Map<String, SimpleFeature> actual = byId(packed);
+        assertEquals(expected.keySet(), actual.keySet());
+        for (SimpleFeature feature : expected.values()) {
+            SimpleFeature copy = actual.get(feature.getID());
+            assertSame(type, copy.getFeatureType());
+            for (int i = 0; i < type.getAttributeCount(); i++) {
+                Object value = feature.getAttribute(i);
+                if (value instanceof Geometry) {
+                    Geometry geometry = (Geometry) copy.getAttribute(i);
+                    assertTrue(((Geometry) value).equalsExact(geometry));
+                    assertEquals(value.getClass(), geometry.getClass());
+                } else {
+                    assertEquals(value, copy.getAttribute(i));
+                }
+            }
+        }
+
+        // the fids are stored as numbers, the z values are preserved
+        assertNull(packed.fids.fids);
+        Geometry collection = (Geometry) actual.get("test.402").getDefaultGeometry();
+        assertEquals(2, collection.getGeometryN(1).getCoordinates()[1].z, 0d);
+    }
+
+    @Test
+    public void testMixedFids() throws Exception {
+        SimpleFeatureBuilder fb = new SimpleFeatureBuilder(type);
+        features.add(fb.buildFeature("other"));
+        features.add(fb.buildFeature("test.007"));
+        PackedSpatialIndexFeatureCollection packed = new PackedSpatialIndexFeatureCollection(
+                features);
+        assertNotNull(packed.fids.fids);
+        assertEquals(ids(features), ids(packed));
+    }
+
+    @Test
+    public void testSpatialQueries() throws Exception {
+        PackedSpatialIndexFeatureCollection packed = new PackedSpatialIndexFeatureCollection(
+                features);
+        List<Filter> filters = new ArrayList<Filter>();
+        filters.add(FF.bbox("geom", 2.5, 2.5, 4.5, 3.5, null));
+        filters.add(FF.bbox("geom", 30.5, 30.5, 40.5, 40.5, null));
+        filters.add(FF.bbox("geom", 100, 100, 110, 110, null));
+        filters.add(FF.and(FF.bbox("geom", 0, 0, 10, 10, null),
+                FF.equals(FF.property("name"), FF.literal("name3"))));
+        filters.add(FF.or(FF.bbox("geom", 0, 0, 1, 1, null),
+                FF.bbox("geom", 15, 15, 16, 16, null)));
+        filters.add(FF.equals(FF.property("name"), FF.literal("name3")));
+        filters.add(FF.isNull(FF.property("geom")));
+        filters.add(FF.intersects(FF.property("geom"), FF.literal(new WKTReader()
+                .read("LINESTRING(0 0, 20 20)"))));
+        for (Filter filter : filters) {
+            Set<String> expected = ids(features.subCollection(filter));
+            SimpleFeatureCollection result = packed.subCollection(filter);
+            assertEquals(filter.toString(), expected, ids(result));
+            assertEquals(filter.toString(), expected.size(), result.size());
+        }
+
+        // the index only returns the features around the area
+        assertTrue(packed.query(new Envelope(2.5, 4.5, 2.5, 3.5)).length < 20);
+        assertSame(packed, packed.subCollection(Filter.INCLUDE));
+        assertEquals(0, packed.subCollection(Filter.EXCLUDE).size());
+
+        // nested sub collections
+        SimpleFeatureCollection sub = packed.subCollection(FF.bbox("geom", 0, 0, 10, 10, null))
+                .subCollection(FF.equals(FF.property("flag"), FF.literal(true)));
+        assertEquals(ids(features.subCollection(FF.and(FF.bbox("geom", 0, 0, 10, 10, null),
+                FF.equals(FF.property("flag"), FF.literal(true))))), ids(sub));
+    }
+
+    @Test
+    public void testSecondaryGeometry() throws Exception {
+        SimpleFeatureType twoGeoms = DataUtilities.createType("twoGeoms",
+                "geom:Point:srid=4326,other:Point:srid=4326,name:String");
+        ListFeatureCollection features = new ListFeatureCollection(twoGeoms);
+        SimpleFeatureBuilder fb = new SimpleFeatureBuilder(twoGeoms);
+        WKTReader reader = new WKTReader();
+        for (int i = 0; i < 100; i++) {
+            // the secondary geometry is far away from the default one
+            fb.add(reader.read("POINT(" + i + " " + i + ")"));
+            fb.add(reader.read("POINT(" + (1000 + i) + " " + (1000 + i) + ")"));
+            fb.add("name" + i);
+            features.add(fb.buildFeature("twoGeoms." + i));
+        }
+        PackedSpatialIndexFeatureCollection packed = new PackedSpatialIndexFeatureCollection(
+                features);
+
+        List<Filter> filters = new ArrayList<Filter>();
+        filters.add(FF.bbox("other", 1010, 1010, 1020, 1020, null));
+        filters.add(FF.bbox("", 10, 10, 20, 20, null));
+        filters.add(FF.and(FF.bbox("geom", 0, 0, 50, 50, null),
+                FF.bbox("other", 1010, 1010, 1020, 1020, null)));
+        filters.add(FF.or(FF.bbox("geom", 0, 0, 5, 5, null),
+                FF.intersects(FF.property("other"), FF.literal(reader
+                        .read("LINESTRING(1090 1090, 1100 1100)")))));
+        for (Filter filter : filters) {
+            Set<String> expected = ids(features.subCollection(filter));
+            assertFalse(filter.toString(), expected.isEmpty());
+            assertEquals(filter.toString(), expected, ids(packed.subCollection(filter)));
+        }
+    }
+
+    @Test
+    public void testFeatureSource() throws Exception {
+        PackedSpatialIndexFeatureCollection packed = new PackedSpatialIndexFeatureCollection(
+                features);
+        SimpleFeatureSource source = DataUtilities.source(packed);
+        assertTrue(source instanceof SpatialIndexFeatureSource);
+        Filter filter = FF.bbox("geom", 2.5, 2.5, 4.5, 3.5, null);
+        assertEquals(ids(features.subCollection(filter)), ids(source.getFeatures(filter)));
+        assertEquals(packed.getBounds(), source.getBounds());
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        PackedSpatialIndexFeatureCollection packed = new PackedSpatialIndexFeatureCollection(
+                new ListFeatureCollection(type));
+        assertEquals(0, packed.size());
+        assertTrue(packed.isEmpty());
+        assertTrue(packed.getBounds().isEmpty());
+        assertEquals(0, packed.subCollection(FF.bbox("geom", 0, 0, 10, 10, null)).size());
+        assertEquals(new ReferencedEnvelope(type.getCoordinateReferenceSystem()),
+                packed.getBounds());
+    }
+}
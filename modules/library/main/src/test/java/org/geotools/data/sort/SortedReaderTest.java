@@ -1,15 +1,20 @@
 package org.geotools.data.sort;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.NoSuchElementException;
 
+import org.geotools.data.Query;
 import org.geotools.data.simple.DelegateSimpleFeatureReader;
 import org.geotools.data.simple.SimpleFeatureIterator;
 import org.geotools.data.simple.SimpleFeatureReader;
 import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.factory.Hints;
 import org.geotools.feature.DefaultFeatureCollection;
 import org.geotools.feature.simple.SimpleFeatureBuilder;
 import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
@@ -233,6 +238,114 @@ public class SortedReaderTest {
         }
     }
 
+    @Test
+    public void testFileSortReturnsAllFeatures() throws IOException {
+        // 501 features in blocks of 7, the last block is a partial one
+        SimpleFeatureReader sr = null;
+        try {
+            sr = new SortedFeatureReader(fr, peopleDesc, 7);
+            int count = 0;
+            int prev = Integer.MAX_VALUE;
+            while (sr.hasNext()) {
+                SimpleFeature f = sr.next();
+                int curr = (Integer) f.getAttribute("PERSONS");
+                assertTrue(curr <= prev);
+                prev = curr;
+                count++;
+            }
+            assertEquals(fc.size(), count);
+        } finally {
+            if (sr != null) {
+                sr.close();
+            }
+        }
+    }
+
+    @Test
+    public void testFileSortMemoryBudget() throws IOException {
+        // a budget allowing just a few features in memory
+        Query query = new Query("test");
+        query.setSortBy(peopleAsc);
+        query.setHints(new Hints(Hints.MAX_MEMORY_SORT_BYTES, 10000));
+        SimpleFeatureReader sr = null;
+        try {
+            sr = new SortedFeatureReader(fr, query);
+            assertTrue(((SortedFeatureReader) sr).delegate instanceof MergeSortReader);
+            int count = 0;
+            int prev = Integer.MIN_VALUE;
+            while (sr.hasNext()) {
+                SimpleFeature f = sr.next();
+                int curr = (Integer) f.getAttribute("PERSONS");
+                assertTrue(curr >= prev);
+                prev = curr;
+                count++;
+            }
+            assertEquals(fc.size(), count);
+        } finally {
+            if (sr != null) {
+                sr.close();
+            }
+        }
+    }
+
+    @Test
+    public void testFileSortRoundTrip() throws IOException {
+        SimpleFeatureTypeBuilder tb = new SimpleFeatureTypeBuilder();
+        tb.setName("roundtrip");
+        tb.add("geom", LineString.class);
+        tb.add("name", String.class);
+        tb.add("value", Integer.class);
+        tb.add("list", java.util.ArrayList.class);
+        SimpleFeatureType type = tb.buildFeatureType();
+
+        // longer than what DataOutput.writeUTF can handle
+        char[] chars = new char[70000];
+        Arrays.fill(chars, '\u00e8');
+        String longString = new String(chars);
+
+        GeometryFactory gf = new GeometryFactory();
+        DefaultFeatureCollection features = new DefaultFeatureCollection("roundtrip", type);
+        SimpleFeatureBuilder fb = new SimpleFeatureBuilder(type);
+        for (int i = 0; i < 20; i++) {
+            LineString line = gf.createLineString(new Coordinate[] { new Coordinate(i, i, i),
+                    new Coordinate(i + 1, i + 1, i + 1) });
+            fb.add(i % 3 == 0 ? null : line);
+            fb.add(i == 5 ? longString : i % 4 == 0 ? null : "name" + i);
+            fb.add(19 - i);
+            fb.add(new java.util.ArrayList<Integer>(Arrays.asList(i, i + 1)));
+            features.add(fb.buildFeature("rt." + i));
+        }
+
+        SortBy[] valueAsc = new SortBy[] { ff.sort("value", SortOrder.ASCENDING) };
+        SimpleFeatureIterator it = new SortedFeatureIterator(features.features(), type,
+                valueAsc, 3);
+        try {
+            for (int value = 0; value < 20; value++) {
+                SimpleFeature f = it.next();
+                int i = 19 - value;
+                assertEquals("rt." + i, f.getID());
+                assertEquals(value, f.getAttribute("value"));
+                if (i % 3 == 0) {
+                    assertNull(f.getAttribute("geom"));
+                } else {
+                    LineString line = (LineString) f.getAttribute("geom");
+                    assertEquals(i + 1, line.getCoordinateN(1).z, 0d);
+                }
+                if (i == 5) {
+                    assertEquals(longString, f.getAttribute("name"));
+                } else if (i % 4 == 0) {
+                    assertNull(f.getAttribute("name"));
+                } else {
+                    assertEquals("name" + i, f.getAttribute("name"));
+                }
+                assertEquals(Arrays.asList(i, i + 1), f.getAttribute("list"));
+            }
+            assertTrue(!it.hasNext());
+        } finally {
+            it.close();
+        }
+    }
+
     private void assertSortedOnPeopleAsc(SimpleFeatureReader fr) throws IllegalArgumentException,
             NoSuchElementException, IOException {
         double prev = -1;
@@ -0,0 +1,146 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.feature.collection;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.geotools.data.DataUtilities;
+import org.geotools.data.collection.ListFeatureCollection;
+import org.geotools.data.collection.SpatialIndexFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.feature.visitor.BoundsVisitor;
+import org.geotools.feature.visitor.CountVisitor;
+import org.geotools.feature.visitor.FeatureCalc;
+import org.geotools.feature.visitor.MaxVisitor;
+import org.geotools.feature.visitor.SumVisitor;
+import org.geotools.feature.visitor.UniqueVisitor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.GeometryFactory;
+
+public class ParallelVisitExecutorTest {
+
+    SimpleFeatureType schema;
+
+    ListFeatureCollection collection;
+
+    int parallelism;
+
+    int minPartSize;
+
+    @Before
+    public void setUp() throws Exception {
+        parallelism = ParallelVisitExecutor.getParallelism();
+        minPartSize = ParallelVisitExecutor.getMinPartSize();
+
+        schema = DataUtilities.createType("values", "geom:Point,value:Integer,name:String");
+        collection = new ListFeatureCollection(schema);
+        GeometryFactory gf = new GeometryFactory();
+        for (int i = 0; i < 1000; i++) {
+            Integer value = i % 13 == 0 ? null : i;
+            collection.add(SimpleFeatureBuilder.build(schema,
+                    new Object[] { gf.createPoint(new Coordinate(i % 100, i / 10)), value,
+                            "name" + (i % 7) }, "values." + i));
+        }
+    }
+
+    @After
+    public void tearDown() {
+        ParallelVisitExecutor.setParallelism(parallelism);
+        ParallelVisitExecutor.setMinPartSize(minPartSize);
+    }
+
+    List<FeatureCalc> buildVisitors() {
+        List<FeatureCalc> visitors = new ArrayList<FeatureCalc>();
+        visitors.add(new CountVisitor());
+        visitors.add(new BoundsVisitor());
+        visitors.add(new SumVisitor("value", schema));
+        visitors.add(new MaxVisitor("value", schema));
+        UniqueVisitor unique = new UniqueVisitor("name");
+        unique.setPreserveOrder(true);
+        visitors.add(unique);
+        return visitors;
+    }
+
+    @Test
+    public void testSplit() throws Exception {
+        ParallelVisitExecutor.setMinPartSize(100);
+        List<? extends SimpleFeatureCollection> parts = collection.split(4);
+        assertEquals(4, parts.size());
+        int size = 0;
+        for (SimpleFeatureCollection part : parts) {
+            size += part.size();
+        }
+        assertEquals(collection.size(), size);
+
+        // too small to be split
+        ParallelVisitExecutor.setMinPartSize(600);
+        assertNull(collection.split(4));
+    }
+
+    @Test
+    public void testDisabledByDefault() throws Exception {
+        ParallelVisitExecutor.setParallelism(1);
+        assertFalse(ParallelVisitExecutor.accepts(collection, new CountVisitor(), null));
+    }
+
+    @Test
+    public void testParallelList() throws Exception {
+        assertParallelVisit(collection);
+    }
+
+    @Test
+    public void testParallelSpatialIndex() throws Exception {
+        assertParallelVisit(new SpatialIndexFeatureCollection(collection));
+    }
+
+    void assertParallelVisit(SimpleFeatureCollection fc) throws Exception {
+        ParallelVisitExecutor.setParallelism(1);
+        List<FeatureCalc> expected = buildVisitors();
+        for (FeatureCalc visitor : expected) {
+            fc.accepts(visitor, null);
+        }
+
+        ParallelVisitExecutor.setParallelism(4);
+        ParallelVisitExecutor.setMinPartSize(100);
+        List<FeatureCalc> actual = buildVisitors();
+        for (int i = 0; i < actual.size(); i++) {
+            FeatureCalc visitor = actual.get(i);
+            assertTrue(ParallelVisitExecutor.accepts((SplittableFeatureCollection) fc, visitor,
+                    null));
+            String message = visitor.getClass().getSimpleName();
+            Object expectedValue = expected.get(i).getResult().getValue();
+            Object actualValue = visitor.getResult().getValue();
+            assertEquals(message, expectedValue, actualValue);
+            if (expectedValue instanceof java.util.Set
+                    && !(fc instanceof SpatialIndexFeatureCollection)) {
+                // the list order is preserved too
+                assertEquals(message, new ArrayList<Object>((java.util.Set) expectedValue),
+                        new ArrayList<Object>((java.util.Set) actualValue));
+            }
+        }
+    }
+}
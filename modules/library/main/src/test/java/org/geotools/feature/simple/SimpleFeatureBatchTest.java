@@ -0,0 +1,166 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.feature.simple;
+
+import static org.junit.Assert.*;
+
+import org.geotools.data.DataUtilities;
+import org.junit.Before;
+import org.junit.Test;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.geometry.BoundingBox;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.Point;
+
+public class SimpleFeatureBatchTest {
+
+    SimpleFeatureType schema;
+
+    GeometryFactory gf = new GeometryFactory();
+
+    @Before
+    public void setUp() throws Exception {
+        schema = DataUtilities.createType("places",
+                "geom:Point,name:String,population:Integer,area:Double,code:Long,founded:java.util.Date");
+    }
+
+    SimpleFeature buildFeature(int i, String name) {
+        Point p = gf.createPoint(new Coordinate(i, i * 2));
+        return SimpleFeatureBuilder.build(schema, new Object[] { p, name, i * 1000, i + 0.5,
+                (long) i << 40, null }, "places." + i);
+    }
+
+    @Test
+    public void testRoundTrip() {
+        SimpleFeatureBatch batch = new SimpleFeatureBatch(schema, 10);
+        for (int i = 0; i < 5; i++) {
+            batch.add(buildFeature(i, i % 2 == 0 ? "even" : "odd"));
+        }
+        assertEquals(5, batch.size());
+        assertFalse(batch.isFull());
+
+        SimpleFeatureBatch.View view = batch.newView();
+        for (int i = 0; i < 5; i++) {
+            view.setRow(i);
+            SimpleFeature expected = buildFeature(i, i % 2 == 0 ? "even" : "odd");
+            assertEquals(expected.getID(), view.getID());
+            assertEquals(expected.getIdentifier(), view.getIdentifier());
+            assertEquals(expected.getAttributes(), view.getAttributes());
+            assertEquals(expected.getDefaultGeometry(), view.getDefaultGeometry());
+            assertEquals(expected.getAttribute("population"), view.getAttribute("population"));
+            assertTrue(view.equals(expected));
+            assertEquals(expected.getBounds(), view.getBounds());
+        }
+
+        // the strings are shared
+        view.setRow(0);
+        Object first = view.getAttribute("name");
+        view.setRow(2);
+        assertSame(first, view.getAttribute("name"));
+    }
+
+    @Test
+    public void testPrimitiveAccess() {
+        SimpleFeatureBatch batch = new SimpleFeatureBatch(schema, 3);
+        batch.add(buildFeature(1, "one"));
+        batch.add("places.x", new Object[] { null, null, null, null, null, null });
+        batch.add(buildFeature(3, "three"));
+        assertTrue(batch.isFull());
+
+        assertTrue(batch.isNumeric(2));
+        assertTrue(batch.isNumeric(3));
+        assertTrue(batch.isNumeric(4));
+        assertFalse(batch.isNumeric(0));
+        assertFalse(batch.isNumeric(1));
+
+        assertEquals(3000, batch.getLong(2, 2));
+        assertEquals(3.5, batch.getDouble(2, 3), 0d);
+        assertEquals(3l << 40, batch.getLong(2, 4));
+        for (int i = 0; i < 6; i++) {
+            assertTrue(batch.isNull(1, i));
+            assertNull(batch.getAttribute(1, i));
+        }
+        assertFalse(batch.isNull(0, 2));
+
+        try {
+            batch.getDouble(0, 1);
+            fail("Should have failed, the attribute is not numeric");
+        } catch (IllegalArgumentException e) {
+            // fine
+        }
+        try {
+            batch.add(buildFeature(4, "four"));
+            fail("Should have failed, the batch is full");
+        } catch (IllegalStateException e) {
+            // fine
+        }
+    }
+
+    @Test
+    public void testClear() {
+        SimpleFeatureBatch batch = new SimpleFeatureBatch(schema, 2);
+        batch.add(buildFeature(1, "one"));
+        batch.add(buildFeature(2, "two"));
+        batch.clear();
+        assertEquals(0, batch.size());
+        try {
+            batch.getAttribute(0, 0);
+            fail("Should have failed, the batch is empty");
+        } catch (IndexOutOfBoundsException e) {
+            // fine
+        }
+
+        batch.add(buildFeature(3, "three"));
+        SimpleFeatureBatch.View view = batch.newView();
+        view.setRow(0);
+        assertTrue(view.equals(buildFeature(3, "three")));
+    }
+
+    @Test
+    public void testViewReadOnly() {
+        SimpleFeatureBatch batch = new SimpleFeatureBatch(schema, 1);
+        batch.add(buildFeature(1, "one"));
+        SimpleFeatureBatch.View view = batch.newView();
+        view.setRow(0);
+        try {
+            view.setAttribute("name", "two");
+            fail("Should have failed, the view is read only");
+        } catch (UnsupportedOperationException e) {
+            // fine
+        }
+        // user data is available though, and reset when moving
+        view.getUserData().put("key", "value");
+        view.setRow(0);
+        assertTrue(view.getUserData().isEmpty());
+    }
+
+    @Test
+    public void testPointBounds() {
+        SimpleFeatureBatch batch = new SimpleFeatureBatch(schema, 1);
+        batch.add(buildFeature(3, "three"));
+        SimpleFeatureBatch.View view = batch.newView();
+        view.setRow(0);
+        BoundingBox bounds = view.getBounds();
+        assertEquals(3, bounds.getMinX(), 0d);
+        assertEquals(3, bounds.getMaxX(), 0d);
+        assertEquals(6, bounds.getMinY(), 0d);
+        assertEquals(6, bounds.getMaxY(), 0d);
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.feature.visitor;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.geotools.data.DataUtilities;
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.feature.simple.SimpleFeatureBatch;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.junit.Before;
+import org.junit.Test;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.FilterFactory;
+import org.opengis.filter.expression.Expression;
+
+public class BatchFeatureVisitorTest {
+
+    static final FilterFactory FF = CommonFactoryFinder.getFilterFactory(null);
+
+    SimpleFeatureType schema;
+
+    List<SimpleFeature> features;
+
+    @Before
+    public void setUp() throws Exception {
+        schema = DataUtilities.createType("values",
+                "geom:Point,count:Integer,total:Long,ratio:Double,name:String");
+        features = new ArrayList<SimpleFeature>();
+        for (int i = 0; i < 20; i++) {
+            Integer count = i % 5 == 0 ? null : (i * 7) % 11;
+            Long total = i % 7 == 0 ? null : ((long) i << 33);
+            Double ratio = i == 3 ? Double.NaN : i * 0.1;
+            String name = i % 4 == 0 ? null : "name" + (i % 3);
+            features.add(SimpleFeatureBuilder.build(schema, new Object[] { null, count, total,
+                    ratio, name }, "values." + i));
+        }
+    }
+
+    List<BatchFeatureVisitor> buildVisitors(String attribute) {
+        Expression expr = FF.property(attribute);
+        List<BatchFeatureVisitor> visitors = new ArrayList<BatchFeatureVisitor>();
+        if (!"name".equals(attribute)) {
+            visitors.add(new SumVisitor(expr));
+            visitors.add(new AverageVisitor(expr));
+            visitors.add(new QuantileListVisitor(expr, 3));
+        }
+        visitors.add(new MinVisitor(expr));
+        visitors.add(new MaxVisitor(expr));
+        UniqueVisitor unique = new UniqueVisitor(expr);
+        unique.setPreserveOrder(true);
+        visitors.add(unique);
+        return visitors;
+    }
+
+    @Test
+    public void testBatchVisit() {
+        for (String attribute : new String[] { "count", "total", "ratio", "name" }) {
+            List<BatchFeatureVisitor> expected = buildVisitors(attribute);
+            List<BatchFeatureVisitor> actual = buildVisitors(attribute);
+            int index = schema.indexOf(attribute);
+            Class<?> binding = schema.getDescriptor(index).getType().getBinding();
+            for (int i = 0; i < expected.size(); i++) {
+                BatchFeatureVisitor visitor = actual.get(i);
+                // small chunks, to exercise the buffer flushes
+                BatchVisitorBuffer buffer = new BatchVisitorBuffer(visitor, binding, 3);
+                for (SimpleFeature feature : features) {
+                    expected.get(i).visit(feature);
+                    buffer.add(feature, index);
+                }
+                buffer.flush();
+                assertSameResult(attribute, expected.get(i), visitor);
+            }
+        }
+    }
+
+    @Test
+    public void testBatchVisitFromFeatureBatch() {
+        SimpleFeatureBatch batch = new SimpleFeatureBatch(schema, features.size());
+        for (SimpleFeature feature : features) {
+            batch.add(feature);
+        }
+        SimpleFeatureBatch.View view = batch.newView();
+        for (String attribute : new String[] { "count", "total", "ratio" }) {
+            List<BatchFeatureVisitor> expected = buildVisitors(attribute);
+            List<BatchFeatureVisitor> actual = buildVisitors(attribute);
+            int index = schema.indexOf(attribute);
+            Class<?> binding = schema.getDescriptor(index).getType().getBinding();
+            for (int i = 0; i < expected.size(); i++) {
+                BatchVisitorBuffer buffer = new BatchVisitorBuffer(actual.get(i), binding, 4);
+                for (int row = 0; row < batch.size(); row++) {
+                    view.setRow(row);
+                    expected.get(i).visit(features.get(row));
+                    buffer.add(view, index);
+                }
+                buffer.flush();
+                assertSameResult(attribute, expected.get(i), actual.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void testMismatchedValues() {
+        // a long value in an integer attribute (as the dbf reader can return) must not be
+        // truncated
+        SimpleFeatureBatch batch = new SimpleFeatureBatch(schema, 2);
+        batch.add("values.a", new Object[] { null, 10, null, null, null });
+        batch.add("values.b", new Object[] { null, 5000000000l, null, null, null });
+        assertTrue(batch.isPrimitive(0, 1));
+        assertFalse(batch.isPrimitive(1, 1));
+        assertEquals(5000000000l, batch.getAttribute(1, 1));
+
+        MaxVisitor max = new MaxVisitor("count");
+        BatchVisitorBuffer buffer = new BatchVisitorBuffer(max, Integer.class);
+        SimpleFeatureBatch.View view = batch.newView();
+        for (int row = 0; row < batch.size(); row++) {
+            view.setRow(row);
+            buffer.add(view, 1);
+        }
+        buffer.flush();
+        assertEquals(5000000000l, max.getResult().getValue());
+    }
+
+    @Test
+    public void testSplitAndMerge() {
+        for (String attribute : new String[] { "count", "total", "ratio", "name" }) {
+            List<BatchFeatureVisitor> expected = buildVisitors(attribute);
+            List<BatchFeatureVisitor> actual = buildVisitors(attribute);
+            for (int i = 0; i < expected.size(); i++) {
+                BatchFeatureVisitor visitor = actual.get(i);
+                BatchFeatureVisitor first = visitor.createPartial();
+                BatchFeatureVisitor second = visitor.createPartial();
+                assertNotNull(first);
+                for (int j = 0; j < features.size(); j++) {
+                    SimpleFeature feature = features.get(j);
+                    expected.get(i).visit(feature);
+                    (j < 8 ? first : second).visit(feature);
+                }
+                visitor.merge(first);
+                visitor.merge(second);
+                assertSameResult(attribute, expected.get(i), visitor);
+            }
+        }
+    }
+
+    @Test
+    public void testUniqueWithLimitsCannotSplit() {
+        UniqueVisitor visitor = new UniqueVisitor("name");
+        visitor.setMaxFeatures(2);
+        assertNull(visitor.createPartial());
+    }
+
+    void assertSameResult(String attribute, BatchFeatureVisitor expected,
+            BatchFeatureVisitor actual) {
+        String message = attribute + " / " + expected.getClass().getSimpleName();
+        Object expectedValue = expected.getResult().getValue();
+        Object actualValue = actual.getResult().getValue();
+        if (expectedValue instanceof List[]) {
+            assertArrayEquals(message, (List[]) expectedValue, (List[]) actualValue);
+        } else {
+            assertEquals(message, expectedValue, actualValue);
+        }
+        if (expectedValue instanceof java.util.Set) {
+            // order must be preserved too
+            assertEquals(message, new ArrayList<Object>((java.util.Set) expectedValue),
+                    new ArrayList<Object>((java.util.Set) actualValue));
+        }
+        if (expected instanceof MaxVisitor) {
+            assertEquals(message, ((MaxVisitor) expected).getNullCount(),
+                    ((MaxVisitor) actual).getNullCount());
+            assertEquals(message, ((MaxVisitor) expected).getNaNCount(),
+                    ((MaxVisitor) actual).getNaNCount());
+        } else if (expected instanceof QuantileListVisitor) {
+            assertEquals(message, ((QuantileListVisitor) expected).getNullCount(),
+                    ((QuantileListVisitor) actual).getNullCount());
+            assertEquals(message, ((QuantileListVisitor) expected).getNaNCount(),
+                    ((QuantileListVisitor) actual).getNaNCount());
+        }
+    }
+}
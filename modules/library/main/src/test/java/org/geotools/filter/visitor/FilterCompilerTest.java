@@ -0,0 +1,160 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.filter.visitor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.geotools.data.DataUtilities;
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.filter.visitor.FilterCompiler.IndexedPropertyName;
+import org.junit.Before;
+import org.junit.Test;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.BinaryComparisonOperator;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory2;
+import org.opengis.filter.expression.Expression;
+import org.opengis.filter.expression.Literal;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.Point;
+
+/**
+ * Checks compiled filters evaluate exactly as the original ones
+ *
+ * @source $URL$
+ */
+public class FilterCompilerTest {
+
+    static final FilterFactory2 FF = CommonFactoryFinder.getFilterFactory2(null);
+
+    SimpleFeatureType schema;
+
+    List<SimpleFeature> features;
+
+    @Before
+    public void setUp() throws Exception {
+        schema = DataUtilities.createType("test",
+                "geom:Point,name:String,pop:Integer,area:Double,date:java.util.Date");
+        GeometryFactory gf = new GeometryFactory();
+        SimpleFeatureBuilder fb = new SimpleFeatureBuilder(schema);
+        features = new ArrayList<SimpleFeature>();
+        for (int i = 0; i < 20; i++) {
+            fb.add(gf.createPoint(new Coordinate(i, i)));
+            fb.add(i % 3 == 0 ? null : "name" + i);
+            fb.add(i * 10);
+            fb.add(i * 1.5);
+            fb.add(new java.util.Date(1000000000000L + i * 86400000L));
+            features.add(fb.buildFeature("test." + i));
+        }
+    }
+
+    void assertSameResults(Filter filter) {
+        Filter compiled = FilterCompiler.compile(filter, schema);
+        for (SimpleFeature feature : features) {
+            assertEquals(filter + " on " + feature.getID(), filter.evaluate(feature),
+                    compiled.evaluate(feature));
+        }
+    }
+
+    @Test
+    public void testComparisons() {
+        assertSameResults(FF.equals(FF.property("pop"), FF.literal(50)));
+        assertSameResults(FF.equals(FF.property("pop"), FF.literal("50")));
+        assertSameResults(FF.equals(FF.literal("50"), FF.property("pop")));
+        assertSameResults(FF.notEqual(FF.property("pop"), FF.literal("50.0")));
+        assertSameResults(FF.greater(FF.property("pop"), FF.literal("95")));
+        assertSameResults(FF.greaterOrEqual(FF.property("area"), FF.literal("7.5")));
+        assertSameResults(FF.less(FF.property("area"), FF.literal(10)));
+        assertSameResults(FF.lessOrEqual(FF.property("pop"), FF.literal("abc")));
+        assertSameResults(FF.between(FF.property("pop"), FF.literal("30"), FF.literal("120")));
+        assertSameResults(FF.equal(FF.property("name"), FF.literal("NAME4"), false));
+        assertSameResults(FF.like(FF.property("name"), "name1*"));
+        assertSameResults(FF.isNull(FF.property("name")));
+        assertSameResults(FF.greater(FF.property("date"), FF.literal("2001-09-15")));
+    }
+
+    @Test
+    public void testLogicAndMath() {
+        assertSameResults(FF.and(FF.greater(FF.property("pop"), FF.literal(40)),
+                FF.not(FF.isNull(FF.property("name")))));
+        assertSameResults(FF.or(Arrays.asList((Filter) FF.less(FF.property("pop"), FF.literal(20)),
+                FF.greater(FF.add(FF.property("area"), FF.literal(1)), FF.literal(20)))));
+        assertSameResults(FF.greater(FF.function("strLength", FF.property("name")),
+                FF.literal(5)));
+    }
+
+    @Test
+    public void testSpatial() {
+        assertSameResults(FF.bbox(FF.property("geom"), 2.5, 2.5, 10.5, 10.5, null));
+        assertSameResults(FF.bbox(FF.property(""), 2.5, 2.5, 10.5, 10.5, null));
+        Point point = new GeometryFactory().createPoint(new Coordinate(5, 5));
+        assertSameResults(FF.dwithin(FF.property("geom"), FF.literal(point), 3, "m"));
+    }
+
+    @Test
+    public void testBinding() {
+        BinaryComparisonOperator compiled = (BinaryComparisonOperator) FilterCompiler.compile(
+                FF.greater(FF.property("pop"), FF.literal("95")), schema);
+        assertTrue(compiled.getExpression1() instanceof IndexedPropertyName);
+        assertEquals(Integer.valueOf(95), ((Literal) compiled.getExpression2()).getValue());
+
+        // not an attribute of the schema, left alone
+        compiled = (BinaryComparisonOperator) FilterCompiler.compile(
+                FF.greater(FF.property("missing"), FF.literal("95")), schema);
+        assertFalse(compiled.getExpression1() instanceof IndexedPropertyName);
+        assertEquals("95", ((Literal) compiled.getExpression2()).getValue());
+
+        // lossy conversion, left alone
+        compiled = (BinaryComparisonOperator) FilterCompiler.compile(
+                FF.greater(FF.property("pop"), FF.literal("95.5")), schema);
+        assertEquals("95.5", ((Literal) compiled.getExpression2()).getValue());
+
+        assertSame(Filter.INCLUDE, FilterCompiler.compile(Filter.INCLUDE, schema));
+    }
+
+    @Test
+    public void testOtherFeatureType() throws Exception {
+        // same attribute names, different order
+        SimpleFeatureType other = DataUtilities.createType("other",
+                "pop:Integer,name:String,geom:Point");
+        SimpleFeatureBuilder fb = new SimpleFeatureBuilder(other);
+        fb.add(70);
+        fb.add("name7");
+        fb.add(null);
+        SimpleFeature feature = fb.buildFeature("other.1");
+
+        Filter compiled = FilterCompiler.compile(FF.and(
+                FF.equals(FF.property("pop"), FF.literal(70)),
+                FF.equals(FF.property("name"), FF.literal("name7"))), schema);
+        assertTrue(compiled.evaluate(feature));
+
+        Expression name = FilterCompiler.compile(FF.property("name"), schema);
+        assertEquals("name7", name.evaluate(feature));
+        assertEquals("name4", name.evaluate(features.get(4)));
+    }
+}
@@ -600,6 +600,28 @@ public class Hints extends RenderingHints {
      * @since 2.7.3
      */
     public static final Key MAX_MEMORY_SORT = new Key(Integer.class);
+
+    /**
+     * Key to control the maximum amount of memory, in bytes, that the features kept in memory
+     * will use when performing a fallback merge-sort. The memory used is an estimate based on
+     * the attribute values. When used along with {@link #MAX_MEMORY_SORT} the features are
+     * written to disk as soon as either limit is reached.
+     *
+     * @since 12.0
+     */
+    public static final Key MAX_MEMORY_SORT_BYTES = new Key(Number.class);
+    
+    /**
+     * Asks the datastore to return features backed by a columnar batch of the specified size
+     * (see {@code org.geotools.feature.simple.SimpleFeatureBatch}), reducing the allocation rate
+     * of large scans. The features returned are read only and valid only until the next one
+     * is read, so this hint should only be used by code performing read only scans, like
+     * aggregations, that does not retain the features. The hint is ignored when the features
+     * have to be sorted in memory, as the sorting retains them.
+     *
+     * @since 12.0
+     */
+    public static final Key FEATURE_BATCH_SIZE = new Key(Integer.class);
     
     /**
      * Asks a datastore having a vector pyramid (pre-generalized geometries)
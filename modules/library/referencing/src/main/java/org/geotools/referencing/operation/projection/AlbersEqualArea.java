@@ -223,6 +223,44 @@ public class AlbersEqualArea extends MapProjection {
         return new Point2D.Double(x,y);
     }
 
+    /**
+     * Transforms in place an array of (<var>&lambda;</var>,<var>&phi;</var>) coordinates
+     * (units in radians), see {@link #transformNormalized(double, double, Point2D)}.
+     */
+    @Override
+    protected void transformNormalized(final double[] ordinates, final int offset, final int numPts)
+            throws ProjectionException
+    {
+        ProjectionException firstException = null;
+        for (int i = offset, end = offset + 2*numPts; i < end; i += 2) {
+            final double x = ordinates[i] * n;
+            final double y = ordinates[i+1];
+            double rho;
+            if (isSpherical) {
+                rho = c - n*2 * sin(y);
+            } else {
+                rho = c - n * qsfn(sin(y));
+            }
+            if (rho < 0.0) {
+                if (rho > -EPSILON) {
+                    rho = 0.0;
+                } else {
+                    ordinates[i] = ordinates[i+1] = Double.NaN;
+                    if (firstException == null) {
+                        firstException = new ProjectionException(ErrorKeys.TOLERANCE_ERROR);
+                    }
+                    continue;
+                }
+            }
+            rho = sqrt(rho) / n;
+            ordinates[i+1] = rho0 - rho * cos(x);
+            ordinates[i]   =        rho * sin(x);
+        }
+        if (firstException != null) {
+            throw firstException;
+        }
+    }
+
     /**
      * Transforms the specified (<var>x</var>,<var>y</var>) coordinates
      * and stores the result in {@code ptDst}.
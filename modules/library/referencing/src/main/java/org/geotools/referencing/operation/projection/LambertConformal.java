@@ -243,6 +243,46 @@ public abstract class LambertConformal extends MapProjection {
         return new Point2D.Double(x,y);
     }
 
+    /**
+     * Transforms in place an array of (<var>&lambda;</var>,<var>&phi;</var>) coordinates
+     * (units in radians), see {@link #transformNormalized(double, double, Point2D)}.
+     */
+    @Override
+    protected void transformNormalized(final double[] ordinates, final int offset, final int numPts)
+            throws ProjectionException
+    {
+        ProjectionException firstException = null;
+        for (int i = offset, end = offset + 2*numPts; i < end; i += 2) {
+            double x = ordinates[i];
+            final double y = ordinates[i+1];
+            final double rho;
+            // Snyder p. 108
+            if (abs(abs(y) - PI/2) < EPSILON) {
+                if (y*n <= 0) {
+                    ordinates[i] = ordinates[i+1] = Double.NaN;
+                    if (firstException == null) {
+                        firstException = new ProjectionException(y);
+                    }
+                    continue;
+                }
+                rho = 0;
+            } else if (isSpherical) {
+                rho = F * pow(tan(PI/4 + 0.5*y), -n);
+            } else {
+                rho = F * pow(tsfn(y, sin(y)), n);
+            }
+            x *= n;
+            if (belgium) {
+                x -= BELGE_A;
+            }
+            ordinates[i+1] = rho0 - rho * cos(x);
+            ordinates[i]   =        rho * sin(x);
+        }
+        if (firstException != null) {
+            throw firstException;
+        }
+    }
+
     /**
      * Transforms the specified (<var>x</var>,<var>y</var>) coordinates
      * and stores the result in {@code ptDst}.
@@ -22,6 +22,8 @@ package org.geotools.referencing.operation.projection;
 
 import java.awt.geom.Point2D;
 import java.io.Serializable;
+import java.lang.reflect.Method;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -259,6 +261,20 @@ public abstract class MapProjection extends AbstractMathTransform
      */
     private transient int rangeCheckSemaphore;
 
+    /**
+     * Number of points processed in each step by the array transforms, the intermediate results
+     * are kept in a buffer of this size
+     */
+    static final int CHUNK_SIZE = 256;
+
+    /**
+     * Flags telling if the array kernels of this projection can be used, see
+     * {@link #useArrayKernel(boolean)}. Zero if not computed yet.
+     */
+    private transient int arrayKernels;
+
+    private static final int KERNELS_CHECKED = 1, FORWARD_KERNEL = 2, INVERSE_KERNEL = 4;
+
     /**
      * The value to be checked against {@link #rangeCheckSemaphore} in order to determine
      * if coordinates ranges should be checked.
@@ -845,6 +861,134 @@ public abstract class MapProjection extends AbstractMathTransform
     protected abstract Point2D transformNormalized(double lambda, double phi, final Point2D ptDst)
             throws ProjectionException;
 
+    /**
+     * Transforms in place an array of normalized (<var>lambda</var>,<var>phi</var>) coordinates,
+     * in radians, as {@link #transformNormalized(double, double, Point2D)} does for a single
+     * point. This is the kernel used by the array transforms, the {@link #centralMeridian} has
+     * already been removed and the {@link #globalScale}, {@link #falseEasting} and
+     * {@link #falseNorthing} will be applied by the caller.
+     * <p>
+     * The default implementation invokes the single point method on each point, projections
+     * can override it with a tight loop over the array. Implementations must transform every
+     * point, setting the ones that cannot be transformed to {@link Double#NaN}, and then throw
+     * the first exception found, if any. Subclasses overriding the single point method without
+     * overriding this one will not have their method bypassed, the single point method will be
+     * used instead.
+     *
+     * @param ordinates The interleaved (<var>lambda</var>,<var>phi</var>) coordinates.
+     * @param offset    The offset of the first ordinate in the array.
+     * @param numPts    The number of points to transform.
+     * @throws ProjectionException if a point can't be transformed.
+     */
+    protected void transformNormalized(final double[] ordinates, final int offset, final int numPts)
+            throws ProjectionException
+    {
+        transformNormalizedPointwise(ordinates, offset, numPts, false);
+    }
+
+    /**
+     * Transforms in place an array of normalized (<var>x</var>,<var>y</var>) coordinates, as
+     * {@link #inverseTransformNormalized(double, double, Point2D)} does for a single point.
+     * The contract is the same as {@link #transformNormalized(double[], int, int)}.
+     *
+     * @param ordinates The interleaved (<var>x</var>,<var>y</var>) coordinates.
+     * @param offset    The offset of the first ordinate in the array.
+     * @param numPts    The number of points to transform.
+     * @throws ProjectionException if a point can't be transformed.
+     */
+    protected void inverseTransformNormalized(final double[] ordinates, final int offset,
+            final int numPts) throws ProjectionException
+    {
+        transformNormalizedPointwise(ordinates, offset, numPts, true);
+    }
+
+    /**
+     * Array transform using the single point methods.
+     */
+    private void transformNormalizedPointwise(final double[] ordinates, final int offset,
+            final int numPts, final boolean inverse) throws ProjectionException
+    {
+        final Point2D.Double point = new Point2D.Double();
+        ProjectionException firstException = null;
+        for (int i = offset, end = offset + 2*numPts; i < end; i += 2) {
+            try {
+                final Point2D result;
+                if (inverse) {
+                    result = inverseTransformNormalized(ordinates[i], ordinates[i+1], point);
+                } else {
+                    result = transformNormalized(ordinates[i], ordinates[i+1], point);
+                }
+                ordinates[i]   = result.getX();
+                ordinates[i+1] = result.getY();
+            } catch (ProjectionException exception) {
+                ordinates[i]   = Double.NaN;
+                ordinates[i+1] = Double.NaN;
+                if (firstException == null) {
+                    firstException = exception;
+                }
+            }
+        }
+        if (firstException != null) {
+            throw firstException;
+        }
+    }
+
+    /**
+     * Returns {@code true} if the array kernel can be used, that is, if it is declared in the
+     * same class declaring the single point method, or in a subclass of it. Otherwise a subclass
+     * changed the single point method only, and the inherited kernel would not match it.
+     */
+    private boolean useArrayKernel(final boolean inverse) {
+        int flags = arrayKernels;
+        if (flags == 0) {
+            // No synchronization, the worst case is that the flags are computed twice.
+            flags = KERNELS_CHECKED;
+            if (isKernelConsistent(getClass(), "transformNormalized")) {
+                flags |= FORWARD_KERNEL;
+            }
+            if (isKernelConsistent(getClass(), "inverseTransformNormalized")) {
+                flags |= INVERSE_KERNEL;
+            }
+            arrayKernels = flags;
+        }
+        return (flags & (inverse ? INVERSE_KERNEL : FORWARD_KERNEL)) != 0;
+    }
+
+    private static boolean isKernelConsistent(final Class<?> type, final String name) {
+        final Class<?> single = getDeclaringClass(type, name, double.class, double.class, Point2D.class);
+        final Class<?> array  = getDeclaringClass(type, name, double[].class, int.class, int.class);
+        return single != null && array != null && single.isAssignableFrom(array);
+    }
+
+    private static Class<?> getDeclaringClass(Class<?> type, final String name,
+            final Class<?>... parameters)
+    {
+        while (type != null) {
+            try {
+                final Method method = type.getDeclaredMethod(name, parameters);
+                return method.getDeclaringClass();
+            } catch (NoSuchMethodException e) {
+                type = type.getSuperclass();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Runs the array kernel, or the single point methods if the kernel cannot be used.
+     */
+    final void transformNormalizedArray(final double[] ordinates, final int numPts,
+            final boolean inverse) throws ProjectionException
+    {
+        if (!useArrayKernel(inverse)) {
+            transformNormalizedPointwise(ordinates, 0, numPts, inverse);
+        } else if (inverse) {
+            inverseTransformNormalized(ordinates, 0, numPts);
+        } else {
+            transformNormalized(ordinates, 0, numPts);
+        }
+    }
+
     /**
      * Transforms the specified {@code ptSrc} and stores the result in {@code ptDst}.
      * <p>
@@ -911,36 +1055,100 @@ public abstract class MapProjection extends AbstractMathTransform
          */
         final boolean reverse = (srcPts == dstPts && srcOff < dstOff &&
                                  srcOff + (2*numPts) > dstOff);
-        if (reverse) {
-            srcOff += 2*numPts;
-            dstOff += 2*numPts;
-        }
-        final Point2D.Double point = new Point2D.Double();
+        final double[] buffer = new double[2 * min(numPts, CHUNK_SIZE)];
         ProjectionException firstException = null;
-        while (--numPts >= 0) {
+        for (int done = 0; done < numPts;) {
+            final int n = min(CHUNK_SIZE, numPts - done);
+            final int start = 2 * (reverse ? numPts - done - n : done);
             try {
-                point.x = srcPts[srcOff++];
-                point.y = srcPts[srcOff++];
-                transform(point, point);
-                dstPts[dstOff++] = point.x;
-                dstPts[dstOff++] = point.y;
+                transformChunk(srcPts, srcOff + start, dstPts, dstOff + start, n, buffer);
             } catch (ProjectionException exception) {
-                dstPts[dstOff++] = Double.NaN;
-                dstPts[dstOff++] = Double.NaN;
                 if (firstException == null) {
                     firstException = exception;
                 }
             }
-            if (reverse) {
-                srcOff -= 4;
-                dstOff -= 4;
+            done += n;
+        }
+        if (firstException != null) {
+            throw firstException;
+        }
+    }
+
+    /**
+     * Transforms a chunk of points through the {@code buffer}, applying the same normalization
+     * as {@link #transform(Point2D, Point2D)} in the loops copying the coordinates from and to
+     * the buffer. The source is fully read before writing, so the arrays can overlap.
+     */
+    private void transformChunk(final double[] srcPts, final int srcOff,
+                                final double[] dstPts, final int dstOff, final int numPts,
+                                final double[] buffer)
+            throws ProjectionException
+    {
+        final int length = 2 * numPts;
+        if (verifyCoordinateRanges()) {
+            for (int i = 0; i < length; i += 2) {
+                if (verifyGeographicRanges(this, srcPts[srcOff + i], srcPts[srcOff + i + 1])) {
+                    warningLogged();
+                    break;
+                }
             }
         }
+        for (int i = 0; i < length; i += 2) {
+            final double x = toRadians(srcPts[srcOff + i]);
+            buffer[i]   = centralMeridian != 0 ? rollLongitude(x - centralMeridian) : x;
+            buffer[i+1] = toRadians(srcPts[srcOff + i + 1]);
+        }
+        // Keeps the source points for the reciprocal check, when assertions are enabled.
+        double[] source = null;
+        assert (source = Arrays.copyOfRange(srcPts, srcOff, srcOff + length)) != null;
+
+        ProjectionException firstException = null;
+        try {
+            transformNormalizedArray(buffer, numPts, false);
+        } catch (ProjectionException exception) {
+            firstException = exception;
+        }
+        for (int i = 0; i < length; i += 2) {
+            dstPts[dstOff + i]     = globalScale*buffer[i]   + falseEasting;
+            dstPts[dstOff + i + 1] = globalScale*buffer[i+1] + falseNorthing;
+        }
+        if (source != null && invertible) {
+            firstException = checkReciprocal(dstPts, dstOff, source, numPts, true, firstException);
+        }
         if (firstException != null) {
             throw firstException;
         }
     }
 
+    /**
+     * Checks the reciprocal of each transformed point, as the single point transforms do when
+     * assertions are enabled, setting the failing points to {@link Double#NaN}. Returns the
+     * first exception found, which is {@code firstException} if not null.
+     */
+    private ProjectionException checkReciprocal(final double[] points, final int offset,
+            final double[] source, final int numPts, final boolean inverse,
+            ProjectionException firstException)
+    {
+        for (int i = 0; i < 2 * numPts; i += 2) {
+            final double x = points[offset + i];
+            final double y = points[offset + i + 1];
+            if (Double.isNaN(x) || Double.isNaN(y)) {
+                continue;
+            }
+            try {
+                checkReciprocal(new Point2D.Double(x, y),
+                        new Point2D.Double(source[i], source[i + 1]), inverse);
+            } catch (ProjectionException exception) {
+                points[offset + i]     = Double.NaN;
+                points[offset + i + 1] = Double.NaN;
+                if (firstException == null) {
+                    firstException = exception;
+                }
+            }
+        }
+        return firstException;
+    }
+
     /**
      * Transforms a list of coordinate point ordinal values. Ordinates must be
      * (<var>longitude</var>,<var>latitude</var>) pairs in decimal degrees.
@@ -1078,31 +1286,67 @@ public abstract class MapProjection extends AbstractMathTransform
              */
             final boolean reverse = (src==dest && srcOffset<dstOffset &&
                                      srcOffset+(2*numPts) > dstOffset);
-            if (reverse) {
-                srcOffset += 2*numPts;
-                dstOffset += 2*numPts;
-            }
-            final Point2D.Double point = new Point2D.Double();
+            final double[] buffer = new double[2 * min(numPts, CHUNK_SIZE)];
             ProjectionException firstException = null;
-            while (--numPts>=0) {
+            for (int done = 0; done < numPts;) {
+                final int n = min(CHUNK_SIZE, numPts - done);
+                final int start = 2 * (reverse ? numPts - done - n : done);
                 try {
-                    point.x = src[srcOffset++];
-                    point.y = src[srcOffset++];
-                    transform(point, point);
-                    dest[dstOffset++] = point.x;
-                    dest[dstOffset++] = point.y;
+                    transformChunk(src, srcOffset + start, dest, dstOffset + start, n, buffer);
                 } catch (ProjectionException exception) {
-                    dest[dstOffset++] = Double.NaN;
-                    dest[dstOffset++] = Double.NaN;
                     if (firstException == null) {
                         firstException = exception;
                     }
                 }
-                if (reverse) {
-                    srcOffset -= 4;
-                    dstOffset -= 4;
+                done += n;
+            }
+            if (firstException != null) {
+                throw firstException;
+            }
+        }
+
+        /**
+         * Inverse transforms a chunk of points through the {@code buffer}, applying the same
+         * normalization as {@link #transform(Point2D, Point2D)} in the loops copying the
+         * coordinates from and to the buffer.
+         */
+        private void transformChunk(final double[] src,  final int srcOffset,
+                                    final double[] dest, final int dstOffset, final int numPts,
+                                    final double[] buffer)
+                throws ProjectionException
+        {
+            final int length = 2 * numPts;
+            for (int i = 0; i < length; i += 2) {
+                buffer[i]   = (src[srcOffset + i]     - falseEasting ) / globalScale;
+                buffer[i+1] = (src[srcOffset + i + 1] - falseNorthing) / globalScale;
+            }
+            double[] source = null;
+            assert (source = Arrays.copyOfRange(src, srcOffset, srcOffset + length)) != null;
+
+            ProjectionException firstException = null;
+            try {
+                transformNormalizedArray(buffer, numPts, true);
+            } catch (ProjectionException exception) {
+                firstException = exception;
+            }
+            for (int i = 0; i < length; i += 2) {
+                final double x = buffer[i];
+                dest[dstOffset + i]     = toDegrees(centralMeridian != 0 ?
+                                          rollLongitude(x + centralMeridian) : x);
+                dest[dstOffset + i + 1] = toDegrees(buffer[i+1]);
+            }
+            if (verifyCoordinateRanges()) {
+                for (int i = 0; i < length; i += 2) {
+                    if (verifyGeographicRanges(this, dest[dstOffset + i], dest[dstOffset + i + 1])) {
+                        warningLogged();
+                        break;
+                    }
                 }
             }
+            if (source != null) {
+                firstException = checkReciprocal(dest, dstOffset, source, numPts, false,
+                        firstException);
+            }
             if (firstException != null) {
                 throw firstException;
             }
@@ -171,6 +171,55 @@ public abstract class Mercator extends MapProjection {
         return new Point2D.Double(x,y);
     }
 
+    /**
+     * Transforms in place an array of (<var>&lambda;</var>,<var>&phi;</var>) coordinates
+     * (units in radians), see {@link #transformNormalized(double, double, Point2D)}.
+     */
+    @Override
+    protected void transformNormalized(final double[] ordinates, final int offset, final int numPts)
+            throws ProjectionException
+    {
+        ProjectionException firstException = null;
+        for (int i = offset + 1, end = offset + 2*numPts; i < end; i += 2) {
+            final double y = ordinates[i];
+            if (abs(y) > (PI/2 - EPSILON)) {
+                ordinates[i-1] = ordinates[i] = Double.NaN;
+                if (firstException == null) {
+                    firstException = new ProjectionException(y);
+                }
+            } else {
+                ordinates[i] = -log(tsfn(y, sin(y)));
+            }
+        }
+        if (firstException != null) {
+            throw firstException;
+        }
+    }
+
+    /**
+     * Transforms in place an array of (<var>x</var>,<var>y</var>) coordinates,
+     * see {@link #inverseTransformNormalized(double, double, Point2D)}.
+     */
+    @Override
+    protected void inverseTransformNormalized(final double[] ordinates, final int offset,
+            final int numPts) throws ProjectionException
+    {
+        ProjectionException firstException = null;
+        for (int i = offset + 1, end = offset + 2*numPts; i < end; i += 2) {
+            try {
+                ordinates[i] = cphi2(exp(-ordinates[i]));
+            } catch (ProjectionException exception) {
+                ordinates[i-1] = ordinates[i] = Double.NaN;
+                if (firstException == null) {
+                    firstException = exception;
+                }
+            }
+        }
+        if (firstException != null) {
+            throw firstException;
+        }
+    }
+
 
     /**
      * Provides the transform equations for the spherical case of the Mercator projection.
@@ -241,6 +290,44 @@ public abstract class Mercator extends MapProjection {
             }
             return new Point2D.Double(x,y);
         }
+
+        /**
+         * Transforms in place an array of (<var>&lambda;</var>,<var>&phi;</var>) coordinates
+         * (units in radians) using equations for a sphere.
+         */
+        @Override
+        protected void transformNormalized(final double[] ordinates, final int offset,
+                final int numPts) throws ProjectionException
+        {
+            ProjectionException firstException = null;
+            for (int i = offset + 1, end = offset + 2*numPts; i < end; i += 2) {
+                final double y = ordinates[i];
+                if (abs(y) > (PI/2 - EPSILON)) {
+                    ordinates[i-1] = ordinates[i] = Double.NaN;
+                    if (firstException == null) {
+                        firstException = new ProjectionException(y);
+                    }
+                } else {
+                    ordinates[i] = log(tan(PI/4 + 0.5*y));
+                }
+            }
+            if (firstException != null) {
+                throw firstException;
+            }
+        }
+
+        /**
+         * Transforms in place an array of (<var>x</var>,<var>y</var>) coordinates
+         * using equations for a sphere.
+         */
+        @Override
+        protected void inverseTransformNormalized(final double[] ordinates, final int offset,
+                final int numPts) throws ProjectionException
+        {
+            for (int i = offset + 1, end = offset + 2*numPts; i < end; i += 2) {
+                ordinates[i] = PI/2 - 2.0*atan(exp(-ordinates[i]));
+            }
+        }
     }
 
 
@@ -199,6 +199,32 @@ public class PolarStereographic extends Stereographic {
         return new Point2D.Double(x,y);
     }
 
+    /**
+     * Transforms in place an array of (<var>&lambda;</var>,<var>&phi;</var>) coordinates
+     * (units in radians), see {@link #transformNormalized(double, double, Point2D)}.
+     */
+    @Override
+    protected void transformNormalized(final double[] ordinates, final int offset, final int numPts)
+            throws ProjectionException
+    {
+        for (int i = offset, end = offset + 2*numPts; i < end; i += 2) {
+            final double x = ordinates[i];
+            final double y = ordinates[i+1];
+            final double sinlat = sin(y);
+            final double coslon = cos(x);
+            final double sinlon = sin(x);
+            if (southPole) {
+                final double rho = k0 * tsfn(-y, -sinlat);
+                ordinates[i]   = rho * sinlon;
+                ordinates[i+1] = rho * coslon;
+            } else {
+                final double rho = k0 * tsfn(y, sinlat);
+                ordinates[i]   =  rho * sinlon;
+                ordinates[i+1] = -rho * coslon;
+            }
+        }
+    }
+
     /**
      * Transforms the specified (<var>x</var>,<var>y</var>) coordinates (units in radians)
      * and stores the result in {@code ptDst} (linear distance on a unit sphere).
@@ -19,6 +19,9 @@ package org.geotools.referencing.operation.transform;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Point2D;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import org.opengis.parameter.ParameterValueGroup;
 import org.opengis.referencing.operation.MathTransform;
@@ -71,6 +74,20 @@ public class ConcatenatedTransform extends AbstractMathTransform implements Seri
      */
     private static final int TEMPORARY_ARRAY_LENGTH = 256;
 
+    /**
+     * Length of the temporary {@code double[]} buffer used by the chunked pipeline, in
+     * number of ordinates. A value of 1024 consumes 8 kilobytes of memory, which fits
+     * comfortably in the processor cache together with the source and target chunks.
+     */
+    private static final int PIPELINE_CHUNK_LENGTH = 1024;
+
+    /**
+     * Minimal number of points for transforming coordinate arrays with the chunked pipeline.
+     * Below that number the whole arrays fit in the processor cache anyway, and transforming
+     * them one step after the other avoids the temporary buffer.
+     */
+    static final int PIPELINE_MIN_POINTS = 256;
+
     /**
      * The first math transform.
      */
@@ -88,6 +105,12 @@ public class ConcatenatedTransform extends AbstractMathTransform implements Seri
      */
     private ConcatenatedTransform inverse;
 
+    /**
+     * The flattened chain of non-identity steps, used for transforming coordinate arrays
+     * in a single pass. Computed only when first needed.
+     */
+    private transient MathTransform[] steps;
+
     /**
      * Constructs a concatenated transform. This constructor is for subclasses only. To
      * create a concatenated transform, use the factory method {@link #create} instead.
@@ -404,6 +427,90 @@ public class ConcatenatedTransform extends AbstractMathTransform implements Seri
         return ((ConcatenatedTransform) transform).getStepCount();
     }
 
+    /**
+     * Returns the chain of non-identity steps performed by this transform, flattening the
+     * nested concatenated transforms. The returned array shall not be modified.
+     */
+    final MathTransform[] getSteps() {
+        MathTransform[] s = steps;
+        if (s == null) {
+            final List<MathTransform> list = new ArrayList<MathTransform>(getStepCount());
+            addSteps(list, this);
+            steps = s = list.toArray(new MathTransform[list.size()]);
+        }
+        return s;
+    }
+
+    /**
+     * Adds the non-identity steps of the given transform to the given list.
+     */
+    private static void addSteps(final List<MathTransform> list, final MathTransform transform) {
+        if (transform instanceof ConcatenatedTransform) {
+            final ConcatenatedTransform concat = (ConcatenatedTransform) transform;
+            addSteps(list, concat.transform1);
+            addSteps(list, concat.transform2);
+        } else if (!transform.isIdentity()) {
+            list.add(transform);
+        }
+    }
+
+    /**
+     * Transforms a list of coordinate point ordinal values by running every step of the
+     * chain on a chunk of points before moving to the next chunk. Compared to applying
+     * each step on the whole array in turn, this keeps the working set in the processor
+     * cache regardless of the number of points and of the length of the chain. Each chunk
+     * is copied in a temporary buffer by the first step, transformed in place by the
+     * intermediate ones and written to the destination array by the last one.
+     *
+     * @return {@code false} if the pipeline does not apply (less than two steps), in which
+     *         case nothing has been done.
+     */
+    final boolean transformPipeline(final double[] srcPts, int srcOff,
+                                    final double[] dstPts, int dstOff, int numPts)
+            throws TransformException
+    {
+        final MathTransform[] chain = getSteps();
+        if (chain.length < 2 || numPts <= 0) {
+            return false;
+        }
+        final int sourceDim = getSourceDimensions();
+        final int targetDim = getTargetDimensions();
+        int dimension = 0;
+        for (int i=0; i<chain.length-1; i++) {
+            dimension = Math.max(dimension, chain[i].getTargetDimensions());
+        }
+        /*
+         * Chunks are processed in increasing order, so a source range overlapping the
+         * destination one is safe only if the points are written no further than they
+         * are read. Otherwise work on a copy of the source points.
+         */
+        double[] source = srcPts;
+        if (srcPts == dstPts && dstOff < srcOff + numPts*sourceDim
+                && srcOff < dstOff + numPts*targetDim
+                && (dstOff > srcOff || targetDim > sourceDim))
+        {
+            source = Arrays.copyOfRange(srcPts, srcOff, srcOff + numPts*sourceDim);
+            srcOff = 0;
+        }
+        int numTmp = Math.min(numPts, Math.max(1, PIPELINE_CHUNK_LENGTH / dimension));
+        final double[] tmp = new double[numTmp * dimension];
+        final int last = chain.length - 1;
+        do {
+            if (numTmp > numPts) {
+                numTmp = numPts;
+            }
+            chain[0].transform(source, srcOff, tmp, 0, numTmp);
+            for (int i=1; i<last; i++) {
+                chain[i].transform(tmp, 0, tmp, 0, numTmp);
+            }
+            chain[last].transform(tmp, 0, dstPts, dstOff, numTmp);
+            srcOff += numTmp * sourceDim;
+            dstOff += numTmp * targetDim;
+            numPts -= numTmp;
+        } while (numPts != 0);
+        return true;
+    }
+
     /**
      * Transforms the specified {@code ptSrc} and stores the result in {@code ptDst}.
      */
@@ -421,14 +528,20 @@ public class ConcatenatedTransform extends AbstractMathTransform implements Seri
     /**
      * Transforms a list of coordinate point ordinal values. The source points are first
      * transformed by {@link #transform1}, then the intermediate points are transformed
-     * by {@link #transform2}. The transformations are performed without intermediate
-     * buffer if it can be avoided.
+     * by {@link #transform2}. Long chains of transforms and large arrays are processed
+     * by chunks, running every step on a chunk before moving to the next one. Otherwise
+     * the transformations are performed without intermediate buffer if it can be avoided.
      */
     public void transform(final double[] srcPts, int srcOff,
                           final double[] dstPts, int dstOff, int numPts)
             throws TransformException
     {
         assert isValid();
+        if (numPts > PIPELINE_MIN_POINTS &&
+                transformPipeline(srcPts, srcOff, dstPts, dstOff, numPts))
+        {
+            return;
+        }
         final int intermDim = transform1.getTargetDimensions();
         final int targetDim = getTargetDimensions();
         /*
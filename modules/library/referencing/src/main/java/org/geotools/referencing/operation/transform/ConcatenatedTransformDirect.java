@@ -77,6 +77,11 @@ class ConcatenatedTransformDirect extends ConcatenatedTransform {
             throws TransformException
     {
         assert isValid();
+        if (numPts > PIPELINE_MIN_POINTS &&
+                transformPipeline(srcPts, srcOff, dstPts, dstOff, numPts))
+        {
+            return;
+        }
         transform1.transform(srcPts, srcOff, dstPts, dstOff, numPts);
         transform2.transform(dstPts, dstOff, dstPts, dstOff, numPts);
     }
@@ -0,0 +1,214 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.referencing.operation.projection;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Random;
+
+import org.geotools.referencing.CRS;
+import org.geotools.referencing.ReferencingFactoryFinder;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.junit.Test;
+import org.opengis.parameter.ParameterValueGroup;
+import org.opengis.referencing.FactoryException;
+import org.opengis.referencing.operation.MathTransform;
+import org.opengis.referencing.operation.MathTransformFactory;
+import org.opengis.referencing.operation.TransformException;
+
+/**
+ * Checks that the bulk transformation of coordinate arrays, performed by chunks with the
+ * projection array kernels, gives the same results as transforming one point at a time.
+ *
+ * @source $URL$
+ */
+public final class ArrayTransformTest {
+
+    /**
+     * More than a few chunks, and not a multiple of the chunk size
+     */
+    private static final int NUM_POINTS = MapProjection.CHUNK_SIZE * 4 + 17;
+
+    private static final double TOLERANCE = 1E-9;
+
+    private static MathTransform createProjection(String name, boolean spherical,
+            String... parameterValues) throws FactoryException {
+        MathTransformFactory mtFactory = ReferencingFactoryFinder.getMathTransformFactory(null);
+        ParameterValueGroup parameters = mtFactory.getDefaultParameters(name);
+        parameters.parameter("semi_major").setValue(6378137.0);
+        parameters.parameter("semi_minor").setValue(spherical ? 6378137.0 : 6356752.314245);
+        for (int i = 0; i < parameterValues.length; i += 2) {
+            parameters.parameter(parameterValues[i]).setValue(
+                    Double.parseDouble(parameterValues[i + 1]));
+        }
+        return mtFactory.createParameterizedTransform(parameters);
+    }
+
+    /**
+     * Random points in the area of validity of all the tested projections
+     */
+    private static double[] createPoints() {
+        Random random = new Random(42);
+        double[] points = new double[NUM_POINTS * 2];
+        for (int i = 0; i < points.length; i += 2) {
+            points[i] = random.nextDouble() * 60 - 30;
+            points[i + 1] = random.nextDouble() * 50 + 20;
+        }
+        return points;
+    }
+
+    /**
+     * Transforms the array in a single call, in place with overlapping ranges, and one point
+     * at a time, and checks all give the same result. Then does the same for the inverse.
+     */
+    private static void assertArrayConsistent(MathTransform mt) throws TransformException {
+        double[] source = createPoints();
+        double[] expected = new double[source.length];
+        for (int i = 0; i < NUM_POINTS; i++) {
+            mt.transform(source, i * 2, expected, i * 2, 1);
+        }
+
+        double[] actual = new double[source.length];
+        mt.transform(source, 0, actual, 0, NUM_POINTS);
+        assertEquals(expected, actual, 0);
+
+        // overlapping, destination after source
+        double[] shifted = new double[source.length + 6];
+        System.arraycopy(source, 0, shifted, 0, source.length);
+        mt.transform(shifted, 0, shifted, 6, NUM_POINTS);
+        assertEquals(expected, 0, shifted, 6, expected.length);
+
+        // overlapping, destination before source
+        shifted = new double[source.length + 6];
+        System.arraycopy(source, 0, shifted, 6, source.length);
+        mt.transform(shifted, 6, shifted, 0, NUM_POINTS);
+        assertEquals(expected, 0, shifted, 0, expected.length);
+
+        MathTransform inverse = mt.inverse();
+        double[] back = new double[source.length];
+        for (int i = 0; i < NUM_POINTS; i++) {
+            inverse.transform(actual, i * 2, back, i * 2, 1);
+        }
+        inverse.transform(actual, 0, actual, 0, NUM_POINTS);
+        assertEquals(back, actual, 0);
+        assertEquals(source, actual, 1E-7);
+    }
+
+    private static void assertEquals(double[] expected, double[] actual, double tolerance) {
+        org.junit.Assert.assertEquals(expected.length, actual.length);
+        for (int i = 0; i < expected.length; i++) {
+            double tol = Math.max(tolerance, Math.abs(expected[i]) * TOLERANCE);
+            org.junit.Assert.assertEquals("Ordinate " + i, expected[i], actual[i], tol);
+        }
+    }
+
+    private static void assertEquals(double[] expected, int expectedOffset, double[] actual,
+            int actualOffset, int length) {
+        for (int i = 0; i < length; i++) {
+            org.junit.Assert.assertEquals("Ordinate " + i, expected[expectedOffset + i],
+                    actual[actualOffset + i], Math.abs(expected[expectedOffset + i]) * TOLERANCE);
+        }
+    }
+
+    @Test
+    public void testMercator() throws Exception {
+        assertArrayConsistent(createProjection("Mercator_1SP", false));
+        assertArrayConsistent(createProjection("Mercator_1SP", true));
+        assertArrayConsistent(createProjection("Mercator_2SP", false,
+                "standard_parallel_1", "30"));
+    }
+
+    @Test
+    public void testTransverseMercator() throws Exception {
+        assertArrayConsistent(createProjection("Transverse_Mercator", false,
+                "central_meridian", "9", "scale_factor", "0.9996", "false_easting", "500000"));
+        assertArrayConsistent(createProjection("Transverse_Mercator", true,
+                "central_meridian", "9"));
+    }
+
+    @Test
+    public void testLambertConformal() throws Exception {
+        String[] parameters = { "standard_parallel_1", "40", "standard_parallel_2", "55",
+                "latitude_of_origin", "45", "central_meridian", "10" };
+        assertArrayConsistent(createProjection("Lambert_Conformal_Conic_2SP", false, parameters));
+        assertArrayConsistent(createProjection("Lambert_Conformal_Conic_2SP", true, parameters));
+    }
+
+    @Test
+    public void testAlbersEqualArea() throws Exception {
+        String[] parameters = { "standard_parallel_1", "30", "standard_parallel_2", "60",
+                "latitude_of_origin", "45", "central_meridian", "10" };
+        assertArrayConsistent(createProjection("Albers_Conic_Equal_Area", false, parameters));
+        assertArrayConsistent(createProjection("Albers_Conic_Equal_Area", true, parameters));
+    }
+
+    @Test
+    public void testPolarStereographic() throws Exception {
+        assertArrayConsistent(createProjection("Polar_Stereographic", false,
+                "latitude_of_origin", "90"));
+        assertArrayConsistent(createProjection("Polar_Stereographic", true,
+                "latitude_of_origin", "90"));
+    }
+
+    /**
+     * A concatenated transform including a datum shift, long enough to be run through the
+     * chunked pipeline
+     */
+    @Test
+    public void testConcatenated() throws Exception {
+        String wkt = "PROJCS[\"ED50 / Lambert\",GEOGCS[\"ED50\","
+                + "DATUM[\"European_Datum_1950\",SPHEROID[\"International 1924\",6378388,297],"
+                + "TOWGS84[-87,-98,-121,0,0,0,0]],PRIMEM[\"Greenwich\",0],"
+                + "UNIT[\"degree\",0.0174532925199433]],"
+                + "PROJECTION[\"Lambert_Conformal_Conic_2SP\"],"
+                + "PARAMETER[\"standard_parallel_1\",40],PARAMETER[\"standard_parallel_2\",55],"
+                + "PARAMETER[\"latitude_of_origin\",45],PARAMETER[\"central_meridian\",10],"
+                + "PARAMETER[\"false_easting\",0],PARAMETER[\"false_northing\",0],"
+                + "UNIT[\"metre\",1]]";
+        MathTransform mt = CRS.findMathTransform(DefaultGeographicCRS.WGS84, CRS.parseWKT(wkt),
+                true);
+        assertArrayConsistent(mt);
+    }
+
+    /**
+     * A point that cannot be projected does not prevent the others from being projected, it
+     * is set to NaN and the exception is reported once the whole array has been processed
+     */
+    @Test
+    public void testFailingPoint() throws Exception {
+        MathTransform mt = createProjection("Mercator_1SP", false);
+        double[] source = createPoints();
+        int failing = NUM_POINTS / 2;
+        source[failing * 2 + 1] = 90;
+        double[] expected = new double[source.length];
+        mt.transform(source, 0, expected, 0, failing);
+        mt.transform(source, failing * 2 + 2, expected, failing * 2 + 2, NUM_POINTS - failing - 1);
+
+        double[] actual = new double[source.length];
+        try {
+            mt.transform(source, 0, actual, 0, NUM_POINTS);
+            fail("The point at the pole should have failed");
+        } catch (ProjectionException e) {
+            // expected
+        }
+        assertTrue(Double.isNaN(actual[failing * 2]));
+        assertTrue(Double.isNaN(actual[failing * 2 + 1]));
+        expected[failing * 2] = expected[failing * 2 + 1] = Double.NaN;
+        assertEquals(expected, actual, 0);
+    }
+}
@@ -32,10 +32,13 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -140,6 +143,16 @@ public final class LabelCacheImpl implements LabelCache {
     static final double[] MID_ANCHOR_CANDIDATES = new double[] {0.5,0.5, 0,0.5, 1,0.5};
     static final double[] LEFT_ANCHOR_CANDIDATES = new double[] {1,0.5, 1,0, 1,1};
 
+    /**
+     * Minimum number of labels needed to pre-compute their locations on the thread pool
+     */
+    static final int MIN_PARALLEL_LABELS = 100;
+
+    /**
+     * Marks the labels whose location has been pre-computed, and turned out to be empty
+     */
+    static final Object NO_LOCATION = new Object();
+
     protected LabelRenderingMode labelRenderingMode = LabelRenderingMode.STRING;
 
     protected SLDStyleFactory styleFactory = new SLDStyleFactory();
@@ -160,6 +173,8 @@ public final class LabelCacheImpl implements LabelCache {
     
     private VendorOptionParser voParser = new VendorOptionParser();
 
+    ExecutorService threadPool;
+
     public void enableLayer(String layerId) {
         needsOrdering = true;
         enabledLayers.add(layerId);
@@ -176,6 +191,19 @@ public final class LabelCacheImpl implements LabelCache {
         this.labelRenderingMode = mode;
     }
 
+    /**
+     * Sets a thread pool used to compute the label locations (representative points, clipped
+     * lines, polygon anchors) in parallel before painting. The conflict resolution and the
+     * painting still happen sequentially in priority order, so the output is the same as the
+     * one of the sequential painting. When null (the default) all the work happens in the
+     * painting thread.
+     * 
+     * @param threadPool
+     */
+    public void setThreadPool(ExecutorService threadPool) {
+        this.threadPool = threadPool;
+    }
+
     public void stop() {
         stop = true;
         activeLayers.clear();
@@ -424,7 +452,7 @@ public final class LabelCacheImpl implements LabelCache {
                     + " are layers that started rendering but have not completed,"
                     + " stop() or endLayer() must be called before end() is called");
         }
-        LabelIndex glyphs = new LabelIndex();
+        LabelIndex glyphs = new LabelIndex(displayArea);
         glyphs.reserveArea( reserved );
 
         // Hack: let's reduce the display area width and height by one pixel.
@@ -447,11 +475,18 @@ public final class LabelCacheImpl implements LabelCache {
         } else {
             items = getActiveLabels();
         }
+        // compute the label locations in parallel, if possible
+        Object[] locations = prepareLocations(items, displayArea);
+        
         LabelPainter painter = new LabelPainter(graphics, labelRenderingMode);
-        for (LabelCacheItem labelItem : items) {
+        for (int i = 0; i < items.size(); i++) {
             if (stop)
                 return;
             
+            LabelCacheItem labelItem = items.get(i);
+            Object location = locations != null ? locations[i] : null;
+            if (location == NO_LOCATION)
+                continue;
             painter.setLabel(labelItem);
             try {
                 // LabelCacheItem labelItem = (LabelCacheItem)
@@ -475,13 +510,16 @@ public final class LabelCacheImpl implements LabelCache {
 
                 Geometry geom = labelItem.getGeometry();
                 if ((geom instanceof Point) || (geom instanceof MultiPoint))
-                    paintPointLabel(painter, tempTransform, displayArea, glyphs);
+                    paintPointLabel(painter, tempTransform, displayArea, glyphs,
+                            (Point) location);
                 else if (((geom instanceof LineString) && !(geom instanceof LinearRing))
                         || (geom instanceof MultiLineString))
-                    paintLineLabels(painter, tempTransform, displayArea, glyphs);
+                    paintLineLabels(painter, tempTransform, displayArea, glyphs,
+                            (List<LineString>) location);
                 else if (geom instanceof Polygon || geom instanceof MultiPolygon
                         || geom instanceof LinearRing)
-                    paintPolygonLabel(painter, tempTransform, displayArea, glyphs);
+                    paintPolygonLabel(painter, tempTransform, displayArea, glyphs,
+                            (PolygonLocation) location);
             } catch (Exception e) {
                 System.out.println("Issues painting " + labelItem.getLabel());
                 // the decimation can cause problems - we try to minimize it
@@ -491,6 +529,100 @@ public final class LabelCacheImpl implements LabelCache {
         }
     }
 
+    /**
+     * Computes the label locations on the thread pool, returning an array aligned with the
+     * items, or null if the locations are to be computed while painting. A null entry means the
+     * location has to be computed while painting, {@link #NO_LOCATION} that there is nothing to
+     * paint.
+     * <p>
+     * The computation clips and merges the label geometries, which updates their cached
+     * envelopes, so the items sharing a geometry with other items are left to the painting
+     * thread
+     * </p>
+     */
+    Object[] prepareLocations(final List<LabelCacheItem> items, final Rectangle displayArea) {
+        final int size = items.size();
+        if (threadPool == null || size < MIN_PARALLEL_LABELS) {
+            return null;
+        }
+
+        // find out the geometries shared among items
+        Map<Geometry, Integer> usages = new IdentityHashMap<Geometry, Integer>();
+        for (LabelCacheItem item : items) {
+            for (Geometry g : item.getGeoms()) {
+                Integer count = usages.get(g);
+                usages.put(g, count == null ? 1 : count + 1);
+            }
+        }
+        final boolean[] skip = new boolean[size];
+        for (int i = 0; i < size; i++) {
+            for (Geometry g : items.get(i).getGeoms()) {
+                if (usages.get(g) > 1) {
+                    skip[i] = true;
+                    break;
+                }
+            }
+        }
+
+        // split the work in consecutive chunks, a few for each processor to balance the load
+        final Object[] locations = new Object[size];
+        int chunks = Math.min(Runtime.getRuntime().availableProcessors() * 4, size);
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(chunks);
+        for (int c = 0; c < chunks; c++) {
+            final int start = (int) ((long) size * c / chunks);
+            final int end = (int) ((long) size * (c + 1) / chunks);
+            tasks.add(new Callable<Void>() {
+
+                public Void call() throws Exception {
+                    for (int i = start; i < end && !stop; i++) {
+                        if (skip[i]) {
+                            continue;
+                        }
+                        try {
+                            locations[i] = prepareLocation(items.get(i), displayArea);
+                        } catch (Exception e) {
+                            // leave it to the painting thread, that will report the issue
+                            LOGGER.log(Level.FINE, "Failed to compute the label location", e);
+                        }
+                    }
+                    return null;
+                }
+            });
+        }
+        try {
+            threadPool.invokeAll(tasks);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        return locations;
+    }
+
+    /**
+     * Computes the location of the specified label, depending on its geometry type: a
+     * {@link Point} for points, a list of {@link LineString} for lines, a
+     * {@link PolygonLocation} for polygons, or {@link #NO_LOCATION} if there is nothing to paint
+     */
+    Object prepareLocation(LabelCacheItem item, Rectangle displayArea) {
+        Geometry geom = item.getGeometry();
+        Object location = null;
+        if ((geom instanceof Point) || (geom instanceof MultiPoint)) {
+            location = getPointSetRepresentativeLocation(item.getGeoms(), displayArea,
+                    item.isPartialsEnabled());
+        } else if (((geom instanceof LineString) && !(geom instanceof LinearRing))
+                || (geom instanceof MultiLineString)) {
+            List<LineString> lines = getLineSetRepresentativeLocation(item.getGeoms(),
+                    displayArea, item.removeGroupOverlaps(), item.isPartialsEnabled());
+            if (lines != null && lines.size() > 0) {
+                location = lines;
+            }
+        } else if (geom instanceof Polygon || geom instanceof MultiPolygon
+                || geom instanceof LinearRing) {
+            location = getPolygonLocation(item, displayArea);
+        }
+        return location != null ? location : NO_LOCATION;
+    }
+
     private Envelope toEnvelope(Rectangle2D bounds) {
         return new Envelope(bounds.getMinX(), bounds.getMaxX(), bounds.getMinY(), bounds.getMaxY());
     }
@@ -569,11 +701,13 @@ public final class LabelCacheImpl implements LabelCache {
     }
 
     private boolean paintLineLabels(LabelPainter painter, AffineTransform originalTransform,
-            Rectangle displayArea, LabelIndex paintedBounds) throws Exception {
+            Rectangle displayArea, LabelIndex paintedBounds, List<LineString> lines)
+            throws Exception {
         final LabelCacheItem labelItem = painter.getLabel();
-        List<LineString> lines = (List<LineString>) getLineSetRepresentativeLocation(
-                labelItem.getGeoms(), displayArea, labelItem.removeGroupOverlaps(),
-                labelItem.isPartialsEnabled());
+        if (lines == null) {
+            lines = getLineSetRepresentativeLocation(labelItem.getGeoms(), displayArea,
+                    labelItem.removeGroupOverlaps(), labelItem.isPartialsEnabled());
+        }
 
         if (lines == null || lines.size() == 0)
             return false;
@@ -595,7 +729,7 @@ public final class LabelCacheImpl implements LabelCache {
         int labelDistance = labelItem.getRepeat();
         // min distance, if any
         int minDistance = labelItem.getMinGroupDistance();
-        LabelIndex groupLabels = new LabelIndex();
+        LabelIndex groupLabels = new LabelIndex(displayArea);
         // Max displacement for the current label
         double labelOffset = labelItem.getMaxDisplacement();
         boolean allowOverruns = labelItem.allowOverruns();
@@ -875,11 +1009,13 @@ public final class LabelCacheImpl implements LabelCache {
      * up until the radius of the circle becomes bigger than the max displacement
      */
     private boolean paintPointLabel(LabelPainter painter, AffineTransform tempTransform,
-            Rectangle displayArea, LabelIndex glyphs) throws Exception {
+            Rectangle displayArea, LabelIndex glyphs, Point point) throws Exception {
         LabelCacheItem labelItem = painter.getLabel();
         // get the point onto the shape has to be painted
-        Point point = getPointSetRepresentativeLocation(labelItem.getGeoms(),
-                displayArea, labelItem.isPartialsEnabled());
+        if (point == null) {
+            point = getPointSetRepresentativeLocation(labelItem.getGeoms(), displayArea,
+                    labelItem.isPartialsEnabled());
+        }
         if (point == null)
             return false;
 
@@ -1006,17 +1142,29 @@ public final class LabelCacheImpl implements LabelCache {
     }
 
     /**
-     * returns the representative geometry (for further processing)
+     * The polygon a label is placed into, and the label anchor point inside it
+     */
+    static class PolygonLocation {
+        PreparedGeometry geometry;
+
+        Point anchor;
+
+        PolygonLocation(PreparedGeometry geometry, Point anchor) {
+            this.geometry = geometry;
+            this.anchor = anchor;
+        }
+    }
+
+    /**
+     * Picks the polygon to be labelled and the label anchor inside it, the centroid or, if the
+     * centroid is outside of the polygon, a point sampled along its horizontal
      * 
-     * TODO: handle lineplacement for a polygon (perhaps we're supposed to grab
-     * the outside line and label it, but spec is unclear)
+     * @return the location, or null if there is no suitable polygon
      */
-    private boolean paintPolygonLabel(LabelPainter painter, AffineTransform tempTransform,
-            Rectangle displayArea, LabelIndex glyphs) throws Exception {
-        LabelCacheItem labelItem = painter.getLabel();
+    PolygonLocation getPolygonLocation(LabelCacheItem labelItem, Rectangle displayArea) {
         Polygon geom = getPolySetRepresentativeLocation(labelItem.getGeoms(), displayArea, labelItem.isPartialsEnabled());
         if (geom == null) {
-            return false;
+            return null;
         }
         
         Point centroid;
@@ -1031,7 +1179,7 @@ public final class LabelCacheImpl implements LabelCache {
                 try {
                     centroid = geom.getFactory().createPoint(geom.getCoordinate());
                 } catch (Exception eee) {
-                    return false; // we're hooped
+                    return null; // we're hooped
                 }
             }
         }
@@ -1072,10 +1220,31 @@ public final class LabelCacheImpl implements LabelCache {
                 pp.geometryChanged();
                 centroid = pp;
             } else {
-                return false;
+                return null;
             }
         }
 
+        return new PolygonLocation(pg, centroid);
+    }
+
+    /**
+     * returns the representative geometry (for further processing)
+     * 
+     * TODO: handle lineplacement for a polygon (perhaps we're supposed to grab
+     * the outside line and label it, but spec is unclear)
+     */
+    private boolean paintPolygonLabel(LabelPainter painter, AffineTransform tempTransform,
+            Rectangle displayArea, LabelIndex glyphs, PolygonLocation location) throws Exception {
+        LabelCacheItem labelItem = painter.getLabel();
+        if (location == null) {
+            location = getPolygonLocation(labelItem, displayArea);
+        }
+        if (location == null) {
+            return false;
+        }
+        PreparedGeometry pg = location.geometry;
+        Point centroid = location.anchor;
+
         // compute the transformation used to position the label
         TextStyle2DExt textStyle = new TextStyle2DExt(labelItem);
         if(labelItem.getMaxDisplacement() > 0) {
@@ -16,16 +16,21 @@
  */
 package org.geotools.renderer.label;
 
+import java.awt.Rectangle;
 import java.awt.geom.Rectangle2D;
-import java.util.Iterator;
+import java.util.Arrays;
 import java.util.List;
 
-import com.vividsolutions.jts.geom.Envelope;
-import com.vividsolutions.jts.index.quadtree.Quadtree;
-
 /**
  * Stores label items and helps in finding the interferering ones, either by
  * pure overlap or within a certain distance from the specified bounds
+ * <p>
+ * The labels are indexed in a uniform grid of cells covering the display area, each cell
+ * referring to the labels touching it by position in a flat array of bounds, so that neither
+ * adding nor searching labels allocates objects. Labels falling outside of the grid are stored
+ * in the border cells, so any label position is supported, but the index is most efficient when
+ * the grid covers the area where the labels are painted.
+ * </p>
  * 
  * @author Andrea Aime
  * 
@@ -36,7 +41,79 @@ import com.vividsolutions.jts.index.quadtree.Quadtree;
  */
 public class LabelIndex {
 
-    Quadtree index = new Quadtree();
+    /**
+     * The default size of the grid cells, in pixels
+     */
+    static final double DEFAULT_CELL_SIZE = 64;
+
+    /**
+     * Upper limit to the number of cells on each axis, the cell size is increased to match
+     */
+    static final int MAX_CELLS = 256;
+
+    static final Rectangle DEFAULT_AREA = new Rectangle(0, 0, 1024, 1024);
+
+    double minX;
+
+    double minY;
+
+    double cellSize;
+
+    int cols;
+
+    int rows;
+
+    /**
+     * The labels in each cell, allocated on demand
+     */
+    int[][] cells;
+
+    int[] cellCounts;
+
+    /**
+     * The label bounds, as minx, miny, maxx, maxy
+     */
+    double[] bounds = new double[64];
+
+    LabelCacheItem[] items = new LabelCacheItem[16];
+
+    int count;
+
+    /**
+     * Builds an index covering a default 1024x1024 area
+     */
+    public LabelIndex() {
+        this(DEFAULT_AREA);
+    }
+
+    /**
+     * Builds an index optimized for labels painted in the specified area
+     *
+     * @param area
+     */
+    public LabelIndex(Rectangle2D area) {
+        this(area, DEFAULT_CELL_SIZE);
+    }
+
+    /**
+     * Builds an index optimized for labels painted in the specified area, using grid cells of
+     * the specified size
+     *
+     * @param area
+     * @param cellSize
+     */
+    public LabelIndex(Rectangle2D area, double cellSize) {
+        double width = Math.max(area.getWidth(), 1);
+        double height = Math.max(area.getHeight(), 1);
+        cellSize = Math.max(cellSize, Math.max(width, height) / MAX_CELLS);
+        this.minX = area.getMinX();
+        this.minY = area.getMinY();
+        this.cellSize = cellSize;
+        this.cols = Math.max(1, (int) Math.ceil(width / cellSize));
+        this.rows = Math.max(1, (int) Math.ceil(height / cellSize));
+        this.cells = new int[cols * rows][];
+        this.cellCounts = new int[cols * rows];
+    }
 
     /**
      * Returns true if there is any label in the index within the specified
@@ -47,20 +124,27 @@ public class LabelIndex {
      * @param distance
      * @return
      */
-    @SuppressWarnings("unchecked")
     public boolean labelsWithinDistance(Rectangle2D bounds, double distance) {
-        if (distance < 0)
+        if (distance < 0 || count == 0)
             return false;
 
-        Envelope e = toEnvelope(bounds);
-        e.expandBy(distance);
-        List<InterferenceItem> results = index.query(e);
-        if (results.size() == 0)
-            return false;
-        for (Iterator<InterferenceItem> it = results.iterator(); it.hasNext();) {
-            InterferenceItem item = it.next();
-            if (item.env.intersects(e)) {
-                return true;
+        final double qMinX = bounds.getMinX() - distance;
+        final double qMinY = bounds.getMinY() - distance;
+        final double qMaxX = bounds.getMaxX() + distance;
+        final double qMaxY = bounds.getMaxY() + distance;
+        final int c0 = col(qMinX), c1 = col(qMaxX);
+        final int r0 = row(qMinY), r1 = row(qMaxY);
+        for (int r = r0; r <= r1; r++) {
+            for (int c = c0; c <= c1; c++) {
+                int cell = r * cols + c;
+                int[] ids = cells[cell];
+                for (int i = 0, n = cellCounts[cell]; i < n; i++) {
+                    int b = ids[i] * 4;
+                    if (!(this.bounds[b] > qMaxX || this.bounds[b + 2] < qMinX
+                            || this.bounds[b + 1] > qMaxY || this.bounds[b + 3] < qMinY)) {
+                        return true;
+                    }
+                }
             }
         }
         return false;
@@ -73,38 +157,51 @@ public class LabelIndex {
      * @param bounds
      */
     public void addLabel(LabelCacheItem item, Rectangle2D bounds) {
-        Envelope e = toEnvelope(bounds);
-        index.insert(e, new InterferenceItem(e, item));
+        if (count == items.length) {
+            items = Arrays.copyOf(items, count * 2);
+            this.bounds = Arrays.copyOf(this.bounds, count * 8);
+        }
+        final int id = count++;
+        // keeping the item around helps in debugging
+        items[id] = item;
+        int b = id * 4;
+        this.bounds[b] = bounds.getMinX();
+        this.bounds[b + 1] = bounds.getMinY();
+        this.bounds[b + 2] = bounds.getMaxX();
+        this.bounds[b + 3] = bounds.getMaxY();
+
+        final int c0 = col(bounds.getMinX()), c1 = col(bounds.getMaxX());
+        final int r0 = row(bounds.getMinY()), r1 = row(bounds.getMaxY());
+        for (int r = r0; r <= r1; r++) {
+            for (int c = c0; c <= c1; c++) {
+                int cell = r * cols + c;
+                int[] ids = cells[cell];
+                int n = cellCounts[cell];
+                if (ids == null) {
+                    ids = cells[cell] = new int[4];
+                } else if (n == ids.length) {
+                    ids = cells[cell] = Arrays.copyOf(ids, n * 2);
+                }
+                ids[n] = id;
+                cellCounts[cell] = n + 1;
+            }
+        }
     }
 
     /**
-     * Turns the specified Java2D rectangle into a JTS envelope
-     * 
-     * @param bounds
-     * @return
+     * Returns the grid column containing the ordinate, clamped to the grid
      */
-    private Envelope toEnvelope(Rectangle2D bounds) {
-        return new Envelope(bounds.getMinX(), bounds.getMaxX(), bounds.getMinY(), bounds.getMaxY());
+    int col(double x) {
+        int c = (int) Math.floor((x - minX) / cellSize);
+        return c < 0 ? 0 : (c >= cols ? cols - 1 : c);
     }
 
     /**
-     * Simple structure stored into the quadtree (keeping the item around helps
-     * in debugging)
-     * 
-     * @author Andrea Aime
-     * 
+     * Returns the grid row containing the ordinate, clamped to the grid
      */
-    static class InterferenceItem {
-        Envelope env;
-
-        LabelCacheItem item;
-
-        public InterferenceItem(Envelope env, LabelCacheItem item) {
-            super();
-            this.env = env;
-            this.item = item;
-        }
-
+    int row(double y) {
+        int r = (int) Math.floor((y - minY) / cellSize);
+        return r < 0 ? 0 : (r >= rows ? rows - 1 : r);
     }
 
     /**
@@ -114,10 +211,7 @@ public class LabelIndex {
      */
     public void reserveArea(List<Rectangle2D> reserved) {
         for( Rectangle2D area : reserved ){
-            Envelope env = toEnvelope(area);
-            
-            InterferenceItem item = new InterferenceItem(env,null);            
-            index.insert( env, item );
+            addLabel(null, area);
         }
     }
 }
@@ -0,0 +1,161 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer.lite;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.geotools.geometry.jts.LiteShape2;
+import org.geotools.styling.TextSymbolizer;
+import org.geotools.util.NumberRange;
+import org.opengis.feature.Feature;
+
+/**
+ * A label cache that does not place labels, but just records the labels and label obstacles it
+ * receives, so that they can be replayed later against the real label cache. Used by the parallel
+ * layer rendering in {@link StreamingRenderer} to make sure labels reach the label cache in the
+ * same order they would have in sequential rendering, regardless of which layer finished
+ * painting first.
+ * <p>
+ * The class is not thread safe, each instance is meant to be filled by a single renderer.
+ *
+ * @author Andrea Aime - GeoSolutions
+ */
+class DeferredLabelCache implements LabelCache {
+
+    /**
+     * A label or label obstacle recorded for later replay
+     */
+    static abstract class DeferredLabel {
+        abstract void replay(LabelCache target, String layerId);
+    }
+
+    static class TextLabel extends DeferredLabel {
+        TextSymbolizer symbolizer;
+
+        Feature feature;
+
+        LiteShape2 shape;
+
+        NumberRange<Double> scaleRange;
+
+        TextLabel(TextSymbolizer symbolizer, Feature feature, LiteShape2 shape,
+                NumberRange<Double> scaleRange) {
+            this.symbolizer = symbolizer;
+            this.feature = feature;
+            this.shape = shape;
+            this.scaleRange = scaleRange;
+        }
+
+        @Override
+        void replay(LabelCache target, String layerId) {
+            target.put(layerId, symbolizer, feature, shape, scaleRange);
+        }
+    }
+
+    static class LabelObstacle extends DeferredLabel {
+        Rectangle2D area;
+
+        LabelObstacle(Rectangle2D area) {
+            this.area = area;
+        }
+
+        @Override
+        void replay(LabelCache target, String layerId) {
+            target.put(area);
+        }
+    }
+
+    List<DeferredLabel> labels = new ArrayList<DeferredLabel>();
+
+    boolean stopped;
+
+    /**
+     * Replays all the recorded labels and obstacles, in recording order, against the target label
+     * cache, associating them to the specified layer. The recorded labels are discarded afterwards.
+     *
+     * @param target the label cache that will actually place the labels
+     * @param layerId the layer id to be used in the target cache
+     */
+    public void replay(LabelCache target, String layerId) {
+        if (!stopped) {
+            for (DeferredLabel label : labels) {
+                label.replay(target, layerId);
+            }
+        }
+        labels.clear();
+    }
+
+    public void start() {
+        stopped = false;
+    }
+
+    public void startLayer(String layerId) {
+        // nothing to do, the layer will be started on the target cache
+    }
+
+    public void put(String layerId, TextSymbolizer symbolizer, Feature feature, LiteShape2 shape,
+            NumberRange<Double> scaleRange) {
+        if (!stopped) {
+            labels.add(new TextLabel(symbolizer, feature, shape, scaleRange));
+        }
+    }
+
+    public void put(Rectangle2D area) {
+        if (!stopped) {
+            labels.add(new LabelObstacle(area));
+        }
+    }
+
+    public void endLayer(String layerId, Graphics2D graphics, Rectangle displayArea) {
+        // nothing to do, the layer will be ended on the target cache
+    }
+
+    public void end(Graphics2D graphics, Rectangle displayArea) {
+        // labels are painted by the target cache
+    }
+
+    public void stop() {
+        stopped = true;
+        labels.clear();
+    }
+
+    public void clear() {
+        labels.clear();
+    }
+
+    public void clear(String layerId) {
+        labels.clear();
+    }
+
+    public void disableLayer(String layerId) {
+        // nothing to do
+    }
+
+    public void enableLayer(String layerId) {
+        // nothing to do
+    }
+
+    public List orderedLabels() {
+        return Collections.emptyList();
+    }
+
+}
@@ -0,0 +1,354 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer.lite;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.geotools.data.FeatureEvent;
+import org.geotools.data.FeatureListener;
+import org.geotools.data.FeatureSource;
+import org.geotools.geometry.jts.LiteCoordinateSequence;
+import org.geotools.referencing.CRS;
+import org.opengis.feature.type.Name;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+
+import com.vividsolutions.jts.geom.Geometry;
+
+/**
+ * A cache of feature geometries already generalized and reprojected for rendering, shared
+ * among {@link StreamingRenderer} instances and requests by setting it as the
+ * {@link StreamingRenderer#GENERALIZATION_CACHE_KEY} renderer hint.
+ * <p>
+ * The geometries are kept in the map CRS, before the transformation to screen space, so that
+ * they can be reused by any request with the same CRS and a similar scale, such as the tiles of
+ * the same zoom level. They are keyed by layer, feature id, geometry property, map CRS and scale
+ * denominator, quantized in steps of a quarter of zoom level, so that the generalization
+ * error stays well below a pixel for the requests sharing a key.
+ * </p>
+ * <p>
+ * The cache is bounded by an estimate of the memory used by the geometries, the least recently
+ * used ones are evicted first. The cached geometries of a layer are invalidated whenever its
+ * feature source reports a change, changes performed behind the back of the store (e.g., direct
+ * database updates) are not detected, and require an explicit {@link #clear()}
+ * </p>
+ *
+ * @author Andrea Aime - GeoSolutions
+ */
+public class GeneralizedGeometryCache {
+
+    /**
+     * The default memory budget, 64MB
+     */
+    public static final long DEFAULT_MAX_MEMORY = 64 * 1024 * 1024;
+
+    /**
+     * Estimated memory used by a cache entry in addition to its coordinates
+     */
+    static final int ENTRY_OVERHEAD = 200;
+
+    /**
+     * Number of steps in which each zoom level (halving of the scale denominator) is split
+     */
+    static final int SCALE_STEPS_PER_LEVEL = 4;
+
+    final long maxMemory;
+
+    long memory;
+
+    /**
+     * The cached geometries, in access order
+     */
+    final LinkedHashMap<EntryKey, Geometry> geometries = new LinkedHashMap<EntryKey, Geometry>(
+            1024, 0.75f, true);
+
+    /**
+     * The layers, by data store (or feature source, if the store is not available) and type name
+     */
+    final Map<Object, Map<Name, LayerKey>> layers = new WeakHashMap<Object, Map<Name, LayerKey>>();
+
+    /**
+     * The map CRSs seen so far, the position in the list is used in the keys, so that the
+     * lookups do not need to compare CRS objects
+     */
+    final List<CoordinateReferenceSystem> crsList = new ArrayList<CoordinateReferenceSystem>();
+
+    long hits;
+
+    long misses;
+
+    /**
+     * Builds a cache with the {@link #DEFAULT_MAX_MEMORY} memory budget
+     */
+    public GeneralizedGeometryCache() {
+        this(DEFAULT_MAX_MEMORY);
+    }
+
+    /**
+     * Builds a cache with the specified memory budget
+     *
+     * @param maxMemory The maximum amount of memory, in bytes, the cached geometries should use
+     */
+    public GeneralizedGeometryCache(long maxMemory) {
+        if (maxMemory <= 0) {
+            throw new IllegalArgumentException("The memory budget must be positive");
+        }
+        this.maxMemory = maxMemory;
+    }
+
+    /**
+     * Returns the key identifying the geometries of a layer rendered in the specified CRS, scale
+     * and generalization distance, to be used in the {@link #get} and {@link #put} calls of the
+     * request.
+     */
+    synchronized RequestKey getRequestKey(FeatureSource<?, ?> source,
+            CoordinateReferenceSystem crs, double scaleDenominator, double generalizationDistance) {
+        LayerKey layer = getLayerKey(source);
+        int crsIndex = -1;
+        if (crs != null) {
+            for (int i = 0; i < crsList.size(); i++) {
+                if (CRS.equalsIgnoreMetadata(crs, crsList.get(i))) {
+                    crsIndex = i;
+                    break;
+                }
+            }
+            if (crsIndex == -1) {
+                crsList.add(crs);
+                crsIndex = crsList.size() - 1;
+            }
+        }
+        int scaleLevel = (int) Math.round(Math.log(scaleDenominator) / Math.log(2)
+                * SCALE_STEPS_PER_LEVEL);
+        return new RequestKey(layer, layer.generation, crsIndex, scaleLevel,
+                generalizationDistance);
+    }
+
+    private LayerKey getLayerKey(FeatureSource<?, ?> source) {
+        Object store = source.getDataStore();
+        if (store == null) {
+            store = source;
+        }
+        Map<Name, LayerKey> storeLayers = layers.get(store);
+        if (storeLayers == null) {
+            storeLayers = new HashMap<Name, LayerKey>();
+            layers.put(store, storeLayers);
+        }
+        Name name = source.getName();
+        LayerKey layer = storeLayers.get(name);
+        if (layer == null) {
+            layer = new LayerKey();
+            source.addFeatureListener(layer);
+            storeLayers.put(name, layer);
+        }
+        return layer;
+    }
+
+    /**
+     * Returns the cached geometry, or null if not found. The returned geometry is shared, it
+     * must be cloned before being modified
+     */
+    synchronized Geometry get(RequestKey request, String featureId, String geometryName) {
+        Geometry geometry = geometries.get(new EntryKey(request, featureId, geometryName));
+        if (geometry == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return geometry;
+    }
+
+    /**
+     * Caches a geometry, which must not be modified afterwards, evicting the least recently
+     * used ones if the memory budget is exceeded
+     */
+    synchronized void put(RequestKey request, String featureId, String geometryName,
+            Geometry geometry) {
+        if (request.generation != request.layer.generation) {
+            // the layer changed while rendering, the geometry might be stale already
+            return;
+        }
+        long size = getSize(geometry);
+        if (size > maxMemory) {
+            return;
+        }
+        Geometry previous = geometries.put(new EntryKey(request, featureId, geometryName),
+                geometry);
+        if (previous != null) {
+            memory -= getSize(previous);
+        }
+        memory += size;
+        Iterator<Geometry> it = geometries.values().iterator();
+        while (memory > maxMemory && it.hasNext()) {
+            memory -= getSize(it.next());
+            it.remove();
+        }
+    }
+
+    static long getSize(Geometry geometry) {
+        return ENTRY_OVERHEAD + geometry.getNumPoints() * 16L;
+    }
+
+    /**
+     * Returns a copy of the geometry, backed by {@link LiteCoordinateSequence}, that can be
+     * safely modified
+     */
+    static Geometry copy(Geometry geometry) {
+        return LiteCoordinateSequence.cloneGeometry(geometry, 2);
+    }
+
+    /**
+     * Removes all the cached geometries
+     */
+    public synchronized void clear() {
+        geometries.clear();
+        memory = 0;
+        for (Map<Name, LayerKey> storeLayers : layers.values()) {
+            for (LayerKey layer : storeLayers.values()) {
+                layer.generation++;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of cached geometries
+     */
+    public synchronized int size() {
+        return geometries.size();
+    }
+
+    /**
+     * Returns the estimated amount of memory, in bytes, used by the cached geometries
+     */
+    public synchronized long getMemoryUsage() {
+        return memory;
+    }
+
+    /**
+     * Returns the number of lookups that found a cached geometry
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of lookups that did not find a cached geometry
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Identifies a layer, and listens to its changes. Each change increments the generation,
+     * making the geometries cached with the previous keys unreachable, they will be eventually
+     * evicted.
+     */
+    static final class LayerKey implements FeatureListener {
+        volatile int generation;
+
+        public void changed(FeatureEvent featureEvent) {
+            generation++;
+        }
+    }
+
+    /**
+     * The part of the key shared by all the geometries of a layer in a request
+     */
+    static final class RequestKey {
+        final LayerKey layer;
+
+        final int generation;
+
+        final int crsIndex;
+
+        final int scaleLevel;
+
+        final double generalizationDistance;
+
+        RequestKey(LayerKey layer, int generation, int crsIndex, int scaleLevel,
+                double generalizationDistance) {
+            this.layer = layer;
+            this.generation = generation;
+            this.crsIndex = crsIndex;
+            this.scaleLevel = scaleLevel;
+            this.generalizationDistance = generalizationDistance;
+        }
+
+        @Override
+        public int hashCode() {
+            final int prime = 31;
+            int result = System.identityHashCode(layer);
+            result = prime * result + generation;
+            result = prime * result + crsIndex;
+            result = prime * result + scaleLevel;
+            long temp = Double.doubleToLongBits(generalizationDistance);
+            result = prime * result + (int) (temp ^ (temp >>> 32));
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof RequestKey)) {
+                return false;
+            }
+            RequestKey other = (RequestKey) obj;
+            return layer == other.layer && generation == other.generation
+                    && crsIndex == other.crsIndex && scaleLevel == other.scaleLevel
+                    && generalizationDistance == other.generalizationDistance;
+        }
+    }
+
+    /**
+     * The key of a single cached geometry
+     */
+    static final class EntryKey {
+        final RequestKey request;
+
+        final String featureId;
+
+        final String geometryName;
+
+        EntryKey(RequestKey request, String featureId, String geometryName) {
+            this.request = request;
+            this.featureId = featureId;
+            this.geometryName = geometryName;
+        }
+
+        @Override
+        public int hashCode() {
+            return (request.hashCode() * 31 + featureId.hashCode()) * 31
+                    + geometryName.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof EntryKey)) {
+                return false;
+            }
+            EntryKey other = (EntryKey) obj;
+            return featureId.equals(other.featureId) && geometryName.equals(other.geometryName)
+                    && request.equals(other.request);
+        }
+    }
+}
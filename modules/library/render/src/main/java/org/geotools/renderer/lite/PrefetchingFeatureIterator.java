@@ -0,0 +1,280 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer.lite;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.feature.FeatureIterator;
+import org.opengis.feature.Feature;
+
+/**
+ * A {@link FeatureIterator} reading the features of a delegate iterator on a separate thread,
+ * in batches, into a bounded queue, so that the data access (e.g. the network round trips of a
+ * database cursor) overlaps with the styling and painting of the features already read.
+ * <p>
+ * The reading thread blocks when the queue is full, and stops as soon as the iterator is
+ * closed, or {@link #isStopRequested()} returns true. The delegate iterator is always closed
+ * by the reading thread, {@link #close()} waits for it to happen so that the resources held by
+ * the delegate (e.g., a database connection) are released when it returns.
+ * </p>
+ * <p>
+ * Exceptions thrown by the delegate {@link FeatureIterator#next()} are rethrown by
+ * {@link #next()} in the same position of the iteration, exceptions thrown by the delegate
+ * {@link FeatureIterator#hasNext()} are rethrown by {@link #hasNext()} after the features read
+ * before the failure have been returned.
+ * </p>
+ *
+ * @author Andrea Aime - GeoSolutions
+ */
+class PrefetchingFeatureIterator<F extends Feature> implements FeatureIterator<F>, Runnable {
+
+    static final Logger LOGGER = org.geotools.util.logging.Logging
+            .getLogger(PrefetchingFeatureIterator.class);
+
+    /**
+     * The default number of features handed over to the consumer at once
+     */
+    static final int DEFAULT_BATCH_SIZE = 256;
+
+    /**
+     * The default number of batches that can be read ahead
+     */
+    static final int DEFAULT_QUEUE_SIZE = 8;
+
+    /**
+     * How often, in milliseconds, the blocked threads check whether the iteration got cancelled
+     */
+    static final long POLL_INTERVAL = 100;
+
+    /**
+     * Marks the end of the iteration
+     */
+    static final List<Object> END = new ArrayList<Object>(0);
+
+    final FeatureIterator<F> delegate;
+
+    final int batchSize;
+
+    final BlockingQueue<List<Object>> queue;
+
+    final CountDownLatch done = new CountDownLatch(1);
+
+    volatile boolean cancelled;
+
+    volatile Throwable failure;
+
+    List<Object> current;
+
+    int position;
+
+    boolean finished;
+
+    boolean started;
+
+    public PrefetchingFeatureIterator(FeatureIterator<F> delegate) {
+        this(delegate, DEFAULT_BATCH_SIZE, DEFAULT_QUEUE_SIZE);
+    }
+
+    public PrefetchingFeatureIterator(FeatureIterator<F> delegate, int batchSize, int queueSize) {
+        if (batchSize < 1 || queueSize < 1) {
+            throw new IllegalArgumentException("Batch and queue size must be positive");
+        }
+        this.delegate = delegate;
+        this.batchSize = batchSize;
+        this.queue = new ArrayBlockingQueue<List<Object>>(queueSize);
+    }
+
+    /**
+     * Returns true if the iteration should be stopped. Checked by both the reading and the
+     * consuming thread, subclasses can override it to tie the iteration to an external
+     * cancellation flag.
+     */
+    protected boolean isStopRequested() {
+        return false;
+    }
+
+    /**
+     * Starts the reading thread. Called automatically on the first {@link #hasNext()} if not
+     * done before.
+     */
+    public synchronized void start() {
+        if (started) {
+            return;
+        }
+        started = true;
+        // a dedicated thread, a shared pool might not have a free thread for this task and
+        // leave the consumer waiting forever
+        Thread thread = new Thread(this, "StreamingRenderer-prefetch");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    boolean isCancelled() {
+        return cancelled || isStopRequested();
+    }
+
+    /**
+     * The reading loop
+     */
+    public void run() {
+        List<Object> batch = new ArrayList<Object>(batchSize);
+        try {
+            while (!isCancelled() && delegate.hasNext()) {
+                try {
+                    batch.add(delegate.next());
+                } catch (RuntimeException e) {
+                    batch.add(new Failure(e));
+                }
+                if (batch.size() >= batchSize) {
+                    if (!enqueue(batch)) {
+                        return;
+                    }
+                    batch = new ArrayList<Object>(batchSize);
+                }
+            }
+        } catch (Throwable t) {
+            failure = t;
+        } finally {
+            try {
+                delegate.close();
+            } catch (Throwable t) {
+                LOGGER.log(Level.FINE, "Failed to close the feature iterator", t);
+            }
+            // the features read before the end of the iteration, or before a failure
+            if (!batch.isEmpty()) {
+                enqueue(batch);
+            }
+            enqueue(END);
+            done.countDown();
+        }
+    }
+
+    /**
+     * Waits for space in the queue, unless the iteration gets cancelled, in which case false
+     * is returned
+     */
+    boolean enqueue(List<Object> batch) {
+        try {
+            while (!isCancelled()) {
+                if (queue.offer(batch, POLL_INTERVAL, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+            }
+        } catch (InterruptedException e) {
+            cancelled = true;
+        }
+        return false;
+    }
+
+    public boolean hasNext() {
+        if (current != null && position < current.size()) {
+            return true;
+        }
+        if (finished) {
+            return false;
+        }
+        start();
+        current = null;
+        try {
+            while (true) {
+                List<Object> batch = queue.poll(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+                if (batch == END) {
+                    finished = true;
+                    Throwable t = failure;
+                    if (t instanceof RuntimeException) {
+                        throw (RuntimeException) t;
+                    } else if (t instanceof Error) {
+                        throw (Error) t;
+                    } else if (t != null) {
+                        throw new RuntimeException(t);
+                    }
+                    return false;
+                } else if (batch != null) {
+                    current = batch;
+                    position = 0;
+                    return true;
+                } else if (isCancelled()) {
+                    finished = true;
+                    return false;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancelled = true;
+            finished = true;
+            return false;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public F next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Object item = current.get(position);
+        // do not keep the features already returned alive
+        current.set(position, null);
+        position++;
+        if (item instanceof Failure) {
+            throw ((Failure) item).exception;
+        }
+        return (F) item;
+    }
+
+    /**
+     * Stops the reading thread and waits for it to close the delegate iterator
+     */
+    public void close() {
+        cancelled = true;
+        finished = true;
+        current = null;
+        synchronized (this) {
+            if (!started) {
+                // never started, close the delegate ourselves
+                started = true;
+                delegate.close();
+                return;
+            }
+        }
+        // unblock the reading thread in case it's waiting for room in the queue
+        queue.clear();
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * A failure reading a single feature
+     */
+    static final class Failure {
+        final RuntimeException exception;
+
+        Failure(RuntimeException exception) {
+            this.exception = exception;
+        }
+    }
+}
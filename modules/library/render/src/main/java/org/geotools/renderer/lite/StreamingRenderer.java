@@ -22,6 +22,7 @@ import java.awt.Rectangle;
 import java.awt.RenderingHints;
 import java.awt.RenderingHints.Key;
 import java.awt.Shape;
+import java.awt.Transparency;
 import java.awt.font.GlyphVector;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.NoninvertibleTransformException;
@@ -34,6 +35,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -42,9 +44,11 @@ import java.util.Set;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -69,6 +73,7 @@ import org.geotools.filter.IllegalFilterException;
 import org.geotools.filter.function.GeometryTransformationVisitor;
 import org.geotools.filter.spatial.DefaultCRSFilterVisitor;
 import org.geotools.filter.spatial.ReprojectingFilterVisitor;
+import org.geotools.filter.visitor.FilterCompiler;
 import org.geotools.filter.visitor.SimplifyingFilterVisitor;
 import org.geotools.filter.visitor.SpatialFilterVisitor;
 import org.geotools.geometry.jts.Decimator;
@@ -200,7 +205,8 @@ public class StreamingRenderer implements GTRenderer {
     /** The logger for the rendering module. */
     private static final Logger LOGGER = org.geotools.util.logging.Logging.getLogger("org.geotools.rendering");
 
-    int error = 0;
+    /** Number of errors during the last paint, may be updated by the layer rendering threads */
+    final AtomicInteger error = new AtomicInteger();
 
     /** Filter factory for creating bounding box filters */
     private final static FilterFactory2 filterFactory = CommonFactoryFinder.getFilterFactory2(null);
@@ -355,7 +361,48 @@ public class StreamingRenderer implements GTRenderer {
     public static final String VECTOR_RENDERING_KEY = "vectorRenderingEnabled";
     private static boolean VECTOR_RENDERING_ENABLED_DEFAULT = false;
 
+    /**
+     * Boolean flag enabling parallel layer rendering (disabled by default).
+     * <p>When enabled, and a thread pool has been provided via {@link #setThreadPool(ExecutorService)},
+     * each layer is painted by a separate renderer in its own memory back buffer, with multiple
+     * layers being painted concurrently on the thread pool. The back buffers are then composited
+     * on the target graphics in layer order, and the labels of each layer are handed over to
+     * the label cache in layer order as well, so that the output is the same as the one of
+     * sequential rendering.</p>
+     * <p>Each back buffer is as big as the image being rendered, the number of back buffers
+     * alive at any given time is controlled by {@link #PARALLEL_LAYER_RENDERING_MAX_BUFFERS_KEY}.
+     * The flag is ignored if {@link #setConcatTransforms(boolean)} is enabled.</p>
+     * <p>Mind, in this mode the {@link RenderListener} events are fired by the painting threads,
+     * so the listeners must be thread safe.</p>
+     */
+    public static final String PARALLEL_LAYER_RENDERING_KEY = "parallelLayerRendering";
+
+    /**
+     * Integer value controlling the maximum number of layers painted concurrently, and thus
+     * the maximum number of back buffers allocated, during parallel layer rendering. Defaults to
+     * the number of available processors.
+     */
+    public static final String PARALLEL_LAYER_RENDERING_MAX_BUFFERS_KEY = "parallelLayerRenderingMaxBuffers";
+
     public static final String LABEL_CACHE_KEY = "labelCache";
+
+    /**
+     * {@link GeneralizedGeometryCache} value, shared among requests, enabling the caching of
+     * the generalized and reprojected geometries. Not set by default.
+     */
+    public static final String GENERALIZATION_CACHE_KEY = "generalizationCache";
+
+    /**
+     * Boolean flag enabling asynchronous feature reading (disabled by default).
+     * <p>When enabled, the features of each layer are read in batches by a separate thread, 
+     * ahead of the ones being painted, so that the data access latency (e.g., the network round
+     * trips of a remote database) overlaps with the styling and painting work. The read ahead
+     * is bounded, and it's stopped as soon as the rendering is stopped.</p>
+     * <p>Mind, the data store must support being accessed by a thread other than the one
+     * that opened the feature collection, which is not the case, for example, when the layer
+     * is accessed in a transaction bound to the calling thread.</p>
+     */
+    public static final String ASYNC_FEATURE_READING_KEY = "asyncFeatureReading";
     public static final String FORCE_EPSG_AXIS_ORDER_KEY = "ForceEPSGAxisOrder";
     public static final String DPI_KEY = "dpi";
     public static final String DECLARED_SCALE_DENOM_KEY = "declaredScaleDenominator";
@@ -387,6 +434,17 @@ public class StreamingRenderer implements GTRenderer {
      * generalization for us, or not
      */
     private boolean inMemoryGeneralization = true;
+
+    /**
+     * The cache of generalized geometries, if any
+     */
+    private GeneralizedGeometryCache geometryCache;
+
+    /**
+     * The key of the current layer geometries in the {@link #geometryCache}, or null if the
+     * cache is not to be used for the current layer
+     */
+    private GeneralizedGeometryCache.RequestKey geometryCacheKey;
     
     /**
      * The thread pool used to submit the painter workers. 
@@ -395,6 +453,11 @@ public class StreamingRenderer implements GTRenderer {
 
     private PainterThread painterThread;
 
+    /**
+     * The renderers painting layers in parallel, if parallel layer rendering is enabled
+     */
+    private List<StreamingRenderer> layerRenderers = new CopyOnWriteArrayList<StreamingRenderer>();
+
     /**
      * The meta buffer for the current layer
      */
@@ -504,16 +567,26 @@ public class StreamingRenderer implements GTRenderer {
      */
     public void stopRendering() {
         renderingStopRequested = true;
-        // un-block the queue in case it was filled with requests and the main
-        // thread got blocked on it
-        requests.clear();
-        // wake up the painter and put a death pill in the queue
-        painterThread.interrupt();
-        try {
-            requests.put(new EndRequest());
-        } catch(InterruptedException e) {
-            throw new RuntimeException("Interrupted while trying to put the end " +
-            		"request in the requests queue, this should never happen", e);
+        // stop the layers being painted in parallel, if any
+        for (StreamingRenderer renderer : layerRenderers) {
+            renderer.stopRendering();
+        }
+        // the queue and the painter are not there if paint has not been called yet,
+        // or if the layers are being painted in parallel
+        if (requests != null) {
+            // un-block the queue in case it was filled with requests and the main
+            // thread got blocked on it
+            requests.clear();
+            // wake up the painter and put a death pill in the queue
+            if (painterThread != null) {
+                painterThread.interrupt();
+            }
+            try {
+                requests.put(new EndRequest());
+            } catch(InterruptedException e) {
+                throw new RuntimeException("Interrupted while trying to put the end " +
+                		"request in the requests queue, this should never happen", e);
+            }
         }
 
         labelCache.stop();
@@ -697,6 +770,11 @@ public class StreamingRenderer implements GTRenderer {
                 return;
         }
         
+        if (isParallelLayerRenderingEnabled()) {
+            paintLayersInParallel(graphics, paintArea, mapArea, worldToScreen);
+            return;
+        }
+        
         // ////////////////////////////////////////////////////////////////////
         // 
         // Setting base information
@@ -709,7 +787,7 @@ public class StreamingRenderer implements GTRenderer {
         mapExtent = new ReferencedEnvelope(mapArea);
         this.screenSize = paintArea;
         this.worldToScreenTransform = worldToScreen;
-        error = 0;
+        error.set(0);
         if (java2dHints != null)
             graphics.setRenderingHints(java2dHints);
         // add the anchor for graphic fills
@@ -846,15 +924,114 @@ public class StreamingRenderer implements GTRenderer {
                     styleFactory.getHitRatio()).append(" , hits ").append(
                             styleFactory.getHits()).append(", requests ").append(
                                     styleFactory.getRequests()).toString());
-        if (error > 0) {
+        if (error.get() > 0) {
             LOGGER
             .warning(new StringBuffer(
             "Number of Errors during paint(Graphics2D, AffineTransform) = ")
-            .append(error).toString());
+            .append(error.get()).toString());
         }
         
     }
 
+    /**
+     * Paints the layers concurrently on the user provided thread pool, each one in its own
+     * back buffer, and then composites the back buffers on the target graphics in layer order.
+     * Labels are collected by each layer renderer and handed over to the label cache once the
+     * layer has been composited, so the label placement is the same as in sequential rendering.
+     * The number of layers being painted at the same time is limited by
+     * {@link #PARALLEL_LAYER_RENDERING_MAX_BUFFERS_KEY} to keep the memory usage under control.
+     */
+    private void paintLayersInParallel(Graphics2D graphics, Rectangle paintArea,
+            ReferencedEnvelope mapArea, AffineTransform worldToScreen) {
+        error.set(0);
+        if (java2dHints != null)
+            graphics.setRenderingHints(java2dHints);
+        renderingStopRequested = false;
+        graphics.setClip(paintArea);
+
+        // take a snapshot of the layers, the content might be modified while we paint
+        final List<Layer> layers = new ArrayList<Layer>(mapContent.layers());
+        final int layersNumber = layers.size();
+        final int maxBuffers = getParallelLayerRenderingMaxBuffers();
+        final List<Future<LayerPainter>> painters = new ArrayList<Future<LayerPainter>>(
+                layersNumber);
+        int submitted = 0;
+
+        labelCache.start();
+        if(labelCache instanceof LabelCacheImpl) {
+            ((LabelCacheImpl) labelCache).setLabelRenderingMode(LabelRenderingMode.valueOf(getTextRenderingMethod()));
+        }
+        try {
+            for (int i = 0; i < layersNumber; i++) {
+                // keep up to maxBuffers layers painting ahead of the one being composited
+                while (submitted < layersNumber && submitted < i + maxBuffers
+                        && !renderingStopRequested) {
+                    Layer layer = layers.get(submitted);
+                    Future<LayerPainter> future = null;
+                    if (layer.isVisible() && !(layer instanceof DirectLayer)) {
+                        LayerPainter painter = new LayerPainter(layer, graphics, paintArea,
+                                mapArea, worldToScreen);
+                        future = threadPool.submit(painter, painter);
+                    }
+                    painters.add(future);
+                    submitted++;
+                }
+
+                if (renderingStopRequested) {
+                    return;
+                }
+
+                Layer layer = layers.get(i);
+                if (!layer.isVisible()) {
+                    continue;
+                }
+                labelCache.startLayer(i + "");
+
+                if (layer instanceof DirectLayer) {
+                    // direct layers need the full map content, and are usually cheap to paint,
+                    // paint them straight on the target graphics
+                    try {
+                        ((DirectLayer) layer).draw(graphics, mapContent, mapContent.getViewport());
+                    } catch (Throwable t) {
+                        fireErrorEvent(t);
+                    }
+                } else {
+                    try {
+                        LayerPainter painter = painters.get(i).get();
+                        painters.set(i, null);
+                        painter.composite(graphics, labelCache, i + "");
+                    } catch (InterruptedException e) {
+                        fireErrorEvent(e);
+                        return;
+                    } catch (ExecutionException e) {
+                        fireErrorEvent(e.getCause());
+                    }
+                }
+
+                labelCache.endLayer(i + "", graphics, paintArea);
+            }
+        } finally {
+            // get rid of the layers still being painted, if any
+            for (Future<LayerPainter> future : painters) {
+                if (future != null) {
+                    future.cancel(true);
+                }
+            }
+        }
+
+        if(!renderingStopRequested) {
+            labelCache.end(graphics, paintArea);
+        } else {
+            labelCache.clear();
+        }
+
+        if (error.get() > 0) {
+            LOGGER.warning(new StringBuffer(
+                    "Number of Errors during paint(Graphics2D, AffineTransform) = ")
+                    .append(error.get()).toString());
+        }
+    }
+
     /**
      * Builds the blocking queue used to bridge between the data loading thread and
      * the painting one
@@ -1392,6 +1569,67 @@ public class StreamingRenderer implements GTRenderer {
         return Boolean.TRUE.equals(result);
     }
 
+    /**
+     * Checks if parallel layer rendering is enabled, and can actually be performed.
+     * See {@link #PARALLEL_LAYER_RENDERING_KEY} description for a full explanation.
+     */
+    private boolean isParallelLayerRenderingEnabled() {
+        if (rendererHints == null || threadPool == null || concatTransforms 
+                || mapContent == null || mapContent.layers().size() < 2)
+            return false;
+        Object result = rendererHints.get(PARALLEL_LAYER_RENDERING_KEY);
+        if (result == null)
+            return false;
+        return Boolean.TRUE.equals(result);
+    }
+
+    /**
+     * Returns the maximum number of layers that can be painted concurrently.
+     * See {@link #PARALLEL_LAYER_RENDERING_MAX_BUFFERS_KEY} description for a full explanation.
+     */
+    private int getParallelLayerRenderingMaxBuffers() {
+        int defaultMaxBuffers = Runtime.getRuntime().availableProcessors();
+        if (rendererHints == null)
+            return defaultMaxBuffers;
+        Number result = (Number) rendererHints.get(PARALLEL_LAYER_RENDERING_MAX_BUFFERS_KEY);
+        if (result == null || result.intValue() < 1)
+            return defaultMaxBuffers;
+        return result.intValue();
+    }
+
+    /**
+     * Checks if asynchronous feature reading is enabled.
+     * See {@link #ASYNC_FEATURE_READING_KEY} description for a full explanation.
+     */
+    private boolean isAsyncFeatureReadingEnabled() {
+        if (rendererHints == null)
+            return false;
+        Object result = rendererHints.get(ASYNC_FEATURE_READING_KEY);
+        if (result == null)
+            return false;
+        return Boolean.TRUE.equals(result);
+    }
+
+    /**
+     * Opens an iterator on the features, reading them asynchronously if
+     * {@link #ASYNC_FEATURE_READING_KEY} is enabled
+     */
+    private <F extends Feature> FeatureIterator<F> openFeatureIterator(
+            FeatureCollection<?, F> features) {
+        FeatureIterator<F> iterator = features.features();
+        if (iterator == null || !isAsyncFeatureReadingEnabled()) {
+            return iterator;
+        }
+        PrefetchingFeatureIterator<F> prefetching = new PrefetchingFeatureIterator<F>(iterator) {
+            @Override
+            protected boolean isStopRequested() {
+                return renderingStopRequested;
+            }
+        };
+        prefetching.start();
+        return prefetching;
+    }
+
     /**
      * Checks if the advanced projection handling is enabled
      * @return
@@ -2031,6 +2269,22 @@ public class StreamingRenderer implements GTRenderer {
                     features.getSchema().getUserData().put("targetVersion", "wms:getmap");
                 }
 
+                // bind the rule filters to the attributes of the features we are going to render
+                if (features.getSchema() instanceof SimpleFeatureType) {
+                    for (LiteFeatureTypeStyle fts : uniform) {
+                        compileRuleFilters(fts, (SimpleFeatureType) features.getSchema());
+                    }
+                }
+
+                // geometries computed by transformations have no stable identity
+                if (geometryCache != null && !hasTransformation) {
+                    geometryCacheKey = geometryCache.getRequestKey(featureSource,
+                            destinationCrs, scaleDenominator,
+                            inMemoryGeneralization ? generalizationDistance : -1);
+                } else {
+                    geometryCacheKey = null;
+                }
+
                 // finally, perform rendering
                 if(isOptimizedFTSRenderingEnabled() && lfts.size() > 1) {
                     drawOptimized(graphics, currLayer, at, destinationCrs, layerId, null, features,
@@ -2047,6 +2301,7 @@ public class StreamingRenderer implements GTRenderer {
             collection = queryLayer( currLayer, currLayer.getSource() );
 
             sourceCrs = null;
+            geometryCacheKey = null;
             lfts = createLiteFeatureTypeStyles( 
                     style.featureTypeStyles(), source.describe(), graphics );
             applyUnitRescale(lfts);
@@ -2271,6 +2526,27 @@ public class StreamingRenderer implements GTRenderer {
         return reprojected;
     }
 
+    /**
+     * Compiles the rule filters against the feature type being rendered, so that their
+     * evaluation does not need to look up the attributes by name for each feature
+     */
+    void compileRuleFilters(LiteFeatureTypeStyle fts, SimpleFeatureType schema) {
+        for (int i = 0; i < fts.ruleList.length; i++) {
+            Rule rule = fts.ruleList[i];
+            Filter filter = rule.getFilter();
+            if (filter == null || filter == Filter.INCLUDE) {
+                continue;
+            }
+            Filter compiled = FilterCompiler.compile(filter, schema);
+            if (compiled != filter) {
+                // clone the rule, the style can be reused over and over, we cannot alter it
+                Rule rr = new RuleImpl(rule);
+                rr.setFilter(compiled);
+                fts.ruleList[i] = rr;
+            }
+        }
+    }
+
     /**
      * Utility method to apply the two rescale visitors without duplicating code
      * @param fts
@@ -2310,7 +2586,7 @@ public class StreamingRenderer implements GTRenderer {
                 }
             }
             else if (features != null ){
-                FeatureIterator<?> featureIterator = ((FeatureCollection<?,?>)features).features();
+                FeatureIterator<?> featureIterator = openFeatureIterator(features);
                 if( featureIterator == null ){
                     return; // nothing to do
                 }
@@ -2390,7 +2666,7 @@ public class StreamingRenderer implements GTRenderer {
         }
 
         if( features != null ) {
-            FeatureIterator<?> iterator = features.features();
+            FeatureIterator<?> iterator = openFeatureIterator(features);
             if( iterator == null ) return; // nothing to do
             try {
                 boolean clone = isCloningRequired(currLayer, fts_array);
@@ -2886,6 +3162,13 @@ public class StreamingRenderer implements GTRenderer {
                 throw new NullPointerException("Label_Cache_Hint has a null value for the labelcache");
 
             this.labelCache=cache;
+            // make sure label obstacles end up in the same cache as the labels
+            this.painter = new StyledShapePainter(cache);
+        }
+        if (hints != null && hints.get(GENERALIZATION_CACHE_KEY) instanceof GeneralizedGeometryCache) {
+            this.geometryCache = (GeneralizedGeometryCache) hints.get(GENERALIZATION_CACHE_KEY);
+        } else {
+            this.geometryCache = null;
         }
         if(hints != null && hints.containsKey(LINE_WIDTH_OPTIMIZATION_KEY)) {
             styleFactory.setLineOptimizationEnabled(Boolean.TRUE.equals(hints.get(LINE_WIDTH_OPTIMIZATION_KEY)));
@@ -3049,6 +3332,7 @@ public class StreamingRenderer implements GTRenderer {
 
             if ( g == null )
                 return null;
+            final Geometry original = g;
             
             try {
                 // process screenmap if necessary (only do it once, 
@@ -3126,6 +3410,8 @@ public class StreamingRenderer implements GTRenderer {
                     } else {
                         return getTransformedShape(RendererUtilities.getCentroid(g), sa);
                     }
+                } else if (g == original) {
+                    return getTransformedShape(g, sa, getCachedGeometryName(symbolizer, g, sa));
                 } else {
                     return getTransformedShape(g, sa);
                 }
@@ -3149,6 +3435,69 @@ public class StreamingRenderer implements GTRenderer {
             return -1;
         }
 
+        /**
+         * Returns the name of the geometry property to be used as the key in the geometry
+         * cache, or null if the geometry cannot be cached
+         */
+        private String getCachedGeometryName(Symbolizer symbolizer, Geometry g,
+                SymbolizerAssociation sa) {
+            if (geometryCacheKey == null || projectionHandler != null || sa.xform == null
+                    || sa.axform == null || g instanceof Point || !(content instanceof Feature)
+                    || ((Feature) content).getIdentifier() == null) {
+                return null;
+            }
+            if (sa.crs != null && sa.crs.getCoordinateSystem().getDimension() != 2) {
+                return null;
+            }
+            Expression geometry = symbolizer.getGeometry();
+            if (geometry == null) {
+                return "";
+            } else if (geometry instanceof PropertyName) {
+                return ((PropertyName) geometry).getPropertyName();
+            }
+            // computed geometries are not cached
+            return null;
+        }
+
+        /**
+         * Builds the shape going through the {@link #geometryCache}, which holds the geometries
+         * generalized and transformed to the map CRS, leaving only the transformation to the
+         * screen to be performed
+         */
+        private LiteShape2 getTransformedShape(Geometry originalGeom, SymbolizerAssociation sa,
+                String geometryName) throws TransformException, FactoryException {
+            if (geometryName == null) {
+                return getTransformedShape(originalGeom, sa);
+            }
+            int idx = getGeometryIndex(originalGeom);
+            if(idx != -1) {
+                return (LiteShape2) shapes.get(idx);
+            }
+
+            String fid = ((Feature) content).getIdentifier().getID();
+            Geometry geom = geometryCache.get(geometryCacheKey, fid, geometryName);
+            if (geom != null) {
+                geom = GeneralizedGeometryCache.copy(geom);
+            } else {
+                geom = originalGeom;
+                if(clone || !(geom.getFactory().getCoordinateSequenceFactory() instanceof LiteCoordinateSequenceFactory)) {
+                    geom = LiteCoordinateSequence.cloneGeometry(geom, 2);
+                }
+                // generalize and transform into the map CRS, and cache a copy of the result
+                Decimator d = getDecimator(sa.xform);
+                d.decimateTransformGeneralize(geom, sa.crsxform);
+                geom.geometryChanged();
+                geometryCache.put(geometryCacheKey, fid, geometryName,
+                        GeneralizedGeometryCache.copy(geom));
+            }
+            // the affine transform turning the coordinates into pixels
+            LiteShape2 shape = new LiteShape2(geom, sa.axform, NULL_DECIMATOR, false, false);
+
+            geometries.add(originalGeom);
+            shapes.add(shape);
+            return shape;
+        }
+
         private LiteShape2 getTransformedShape(Geometry originalGeom, SymbolizerAssociation sa) throws TransformException,
         FactoryException {
             int idx = getGeometryIndex(originalGeom);
@@ -3504,6 +3853,107 @@ public class StreamingRenderer implements GTRenderer {
         
     }
     
+    /**
+     * Paints a single layer in its own back buffer, using a separate renderer configured
+     * like the current one, and recording the labels for later placement
+     * 
+     * @author Andrea Aime - GeoSolutions
+     */
+    class LayerPainter implements Runnable {
+        Layer layer;
+
+        Graphics2D master;
+
+        Rectangle paintArea;
+
+        ReferencedEnvelope mapArea;
+
+        AffineTransform worldToScreen;
+
+        DeferredLabelCache labels = new DeferredLabelCache();
+
+        BufferedImage image;
+
+        public LayerPainter(Layer layer, Graphics2D master, Rectangle paintArea,
+                ReferencedEnvelope mapArea, AffineTransform worldToScreen) {
+            this.layer = layer;
+            this.master = master;
+            this.paintArea = paintArea;
+            this.mapArea = mapArea;
+            this.worldToScreen = worldToScreen;
+        }
+
+        public void run() {
+            if (renderingStopRequested) {
+                return;
+            }
+            
+            MapContent content = new MapContent();
+            content.addLayer(layer);
+            StreamingRenderer renderer = buildLayerRenderer(content, labels);
+            layerRenderers.add(renderer);
+            Graphics2D graphics = null;
+            try {
+                image = master.getDeviceConfiguration().createCompatibleImage(
+                        paintArea.x + paintArea.width, paintArea.y + paintArea.height,
+                        Transparency.TRANSLUCENT);
+                graphics = image.createGraphics();
+                graphics.setRenderingHints(master.getRenderingHints());
+                renderer.paint(graphics, paintArea, mapArea, worldToScreen);
+            } finally {
+                layerRenderers.remove(renderer);
+                // don't dispose the map content, it would dispose the layer as well
+                content.removeLayer(layer);
+                if (graphics != null) {
+                    graphics.dispose();
+                }
+            }
+        }
+
+        /**
+         * Paints the back buffer on the target graphics, and sends the recorded labels to the
+         * target label cache
+         */
+        public void composite(Graphics2D graphics, LabelCache labelCache, String layerId) {
+            if (image != null) {
+                graphics.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER));
+                graphics.drawImage(image, 0, 0, null);
+                image = null;
+            }
+            labels.replay(labelCache, layerId);
+        }
+    }
+
+    /**
+     * Builds a renderer for a single layer, configured like the current one, but painting
+     * sequentially and sending its labels to the provided label cache
+     */
+    private StreamingRenderer buildLayerRenderer(MapContent content, LabelCache labels) {
+        StreamingRenderer renderer = new StreamingRenderer();
+        renderer.setMapContent(content);
+        renderer.setJava2DHints(java2dHints);
+        Map hints = new HashMap(rendererHints);
+        hints.remove(PARALLEL_LAYER_RENDERING_KEY);
+        hints.put(LABEL_CACHE_KEY, labels);
+        renderer.setRendererHints(hints);
+        renderer.setGeneralizationDistance(generalizationDistance);
+        renderer.addRenderListener(new RenderListener() {
+
+            public void featureRenderer(SimpleFeature feature) {
+                fireFeatureRenderedEvent(feature);
+            }
+
+            public void errorOccurred(Exception e) {
+                // already logged by the layer renderer
+                error.incrementAndGet();
+                for (RenderListener listener : renderListeners) {
+                    listener.errorOccurred(e);
+                }
+            }
+        });
+        return renderer;
+    }
+
     /**
      * A blocking queue subclass with a special behavior for the occasion when the
      * rendering stop has been requested: puts are getting ignored, and take always
@@ -3,8 +3,14 @@ package org.geotools.renderer.label;
 import static org.junit.Assert.assertEquals;
 
 import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.geotools.feature.simple.SimpleFeatureBuilder;
 import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
@@ -19,7 +25,9 @@ import org.junit.Test;
 import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.feature.simple.SimpleFeatureType;
 
+import com.vividsolutions.jts.geom.Coordinate;
 import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
 import com.vividsolutions.jts.geom.LineString;
 import com.vividsolutions.jts.io.ParseException;
 import com.vividsolutions.jts.io.WKTReader;
@@ -123,6 +131,54 @@ public class LabelCacheImplTest {
         assertEquals(Arrays.asList(L2), item2.getGeoms());
     }
 
+    @Test
+    public void testParallelLocations() throws Exception {
+        BufferedImage sequential = paintRandomLabels(null);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            BufferedImage parallel = paintRandomLabels(pool);
+            // the conflict resolution happens in the same order, the output must be the same
+            for (int y = 0; y < sequential.getHeight(); y++) {
+                for (int x = 0; x < sequential.getWidth(); x++) {
+                    assertEquals("Pixel differs at " + x + "," + y, sequential.getRGB(x, y),
+                            parallel.getRGB(x, y));
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private BufferedImage paintRandomLabels(ExecutorService pool) {
+        LabelCacheImpl cache = new LabelCacheImpl();
+        cache.setThreadPool(pool);
+        cache.startLayer(LAYER_ID);
+        TextSymbolizer ts = sb.createTextSymbolizer(Color.BLACK, (Font) null, "name");
+        TextSymbolizer tsOther = sb.createTextSymbolizer(Color.BLUE, (Font) null, "name");
+        GeometryFactory gf = new GeometryFactory();
+        Random random = new Random(0);
+        for (int i = 0; i < 500; i++) {
+            double x = random.nextDouble() * 600 - 50;
+            double y = random.nextDouble() * 600 - 50;
+            LineString ls = gf.createLineString(new Coordinate[] { new Coordinate(x, y),
+                    new Coordinate(x + random.nextDouble() * 200, y + random.nextDouble() * 50) });
+            SimpleFeature f = createFeature("label" + i, ls);
+            LiteShape2 shape = new LiteShape2(ls, null, null, false);
+            cache.put(LAYER_ID, ts, f, shape, ALL_SCALES);
+            if (i % 10 == 0) {
+                // a second label sharing the same geometry
+                cache.put(LAYER_ID, tsOther, f, shape, ALL_SCALES);
+            }
+        }
+        BufferedImage image = new BufferedImage(512, 512, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = image.createGraphics();
+        Rectangle displayArea = new Rectangle(0, 0, 512, 512);
+        cache.endLayer(LAYER_ID, graphics, displayArea);
+        cache.end(graphics, displayArea);
+        graphics.dispose();
+        return image;
+    }
+
     private SimpleFeature createFeature(String label, Geometry geom) {
         fb.add(label);
         fb.add(geom);
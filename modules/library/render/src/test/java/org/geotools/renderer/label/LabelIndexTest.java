@@ -0,0 +1,88 @@
+package org.geotools.renderer.label;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Rectangle;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class LabelIndexTest {
+
+    @Test
+    public void testEmpty() {
+        LabelIndex index = new LabelIndex();
+        assertFalse(index.labelsWithinDistance(new Rectangle(10, 10, 20, 20), 0));
+    }
+
+    @Test
+    public void testDistance() {
+        LabelIndex index = new LabelIndex(new Rectangle(0, 0, 256, 256));
+        index.addLabel(null, new Rectangle(10, 10, 20, 20));
+        // touching
+        assertTrue(index.labelsWithinDistance(new Rectangle(30, 10, 20, 20), 0));
+        // close, but not within distance
+        assertFalse(index.labelsWithinDistance(new Rectangle(35, 10, 20, 20), 4));
+        assertTrue(index.labelsWithinDistance(new Rectangle(35, 10, 20, 20), 5));
+        // negative distances disable the check
+        assertFalse(index.labelsWithinDistance(new Rectangle(10, 10, 20, 20), -1));
+    }
+
+    @Test
+    public void testOutsideArea() {
+        LabelIndex index = new LabelIndex(new Rectangle(0, 0, 256, 256));
+        index.addLabel(null, new Rectangle(-100, -100, 20, 20));
+        index.addLabel(null, new Rectangle(1000, 1000, 20, 20));
+        assertTrue(index.labelsWithinDistance(new Rectangle(-90, -90, 5, 5), 0));
+        assertTrue(index.labelsWithinDistance(new Rectangle(900, 1010, 100, 5), 0));
+        assertFalse(index.labelsWithinDistance(new Rectangle(-50, -50, 20, 20), 0));
+        assertFalse(index.labelsWithinDistance(new Rectangle(500, 500, 20, 20), 0));
+    }
+
+    @Test
+    public void testReserveArea() {
+        LabelIndex index = new LabelIndex();
+        index.reserveArea(Arrays.asList((Rectangle2D) new Rectangle(100, 100, 50, 50)));
+        assertTrue(index.labelsWithinDistance(new Rectangle(120, 120, 5, 5), 0));
+    }
+
+    @Test
+    public void testCompareBruteForce() {
+        Random random = new Random(0);
+        for (double cellSize : new double[] { 1, 16, 64, 1000 }) {
+            LabelIndex index = new LabelIndex(new Rectangle(0, 0, 800, 600), cellSize);
+            List<Rectangle2D> labels = new ArrayList<Rectangle2D>();
+            for (int i = 0; i < 2000; i++) {
+                Rectangle2D query = randomBox(random);
+                double distance = random.nextInt(4);
+                boolean expected = false;
+                for (Rectangle2D label : labels) {
+                    if (!(label.getMinX() > query.getMaxX() + distance
+                            || label.getMaxX() < query.getMinX() - distance
+                            || label.getMinY() > query.getMaxY() + distance
+                            || label.getMaxY() < query.getMinY() - distance)) {
+                        expected = true;
+                        break;
+                    }
+                }
+                assertEquals(expected, index.labelsWithinDistance(query, distance));
+                if (!expected) {
+                    index.addLabel(null, query);
+                    labels.add(query);
+                }
+            }
+        }
+    }
+
+    private Rectangle2D randomBox(Random random) {
+        return new Rectangle2D.Double(random.nextDouble() * 1000 - 100,
+                random.nextDouble() * 800 - 100, random.nextDouble() * 60,
+                random.nextDouble() * 20);
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer.lite;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.geotools.data.memory.MemoryDataStore;
+import org.geotools.data.simple.SimpleFeatureSource;
+import org.geotools.data.simple.SimpleFeatureStore;
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.map.FeatureLayer;
+import org.geotools.map.MapContent;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.geotools.renderer.lite.GeneralizedGeometryCache.RequestKey;
+import org.geotools.styling.Style;
+import org.geotools.styling.StyleBuilder;
+import org.junit.Before;
+import org.junit.Test;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.FilterFactory2;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.LineString;
+import com.vividsolutions.jts.geom.Polygon;
+
+/**
+ * Tests the {@link GeneralizedGeometryCache} and its use in the {@link StreamingRenderer}
+ *
+ * @source $URL$
+ */
+public class GeneralizedGeometryCacheTest {
+
+    static final FilterFactory2 FF = CommonFactoryFinder.getFilterFactory2(null);
+
+    GeometryFactory gf = new GeometryFactory();
+
+    MemoryDataStore store;
+
+    SimpleFeatureSource source;
+
+    Style style;
+
+    @Before
+    public void setUp() throws Exception {
+        SimpleFeatureTypeBuilder tb = new SimpleFeatureTypeBuilder();
+        tb.setName("waves");
+        tb.add("geom", Polygon.class, DefaultGeographicCRS.WGS84);
+        SimpleFeatureType type = tb.buildFeatureType();
+
+        store = new MemoryDataStore();
+        store.createSchema(type);
+        SimpleFeatureBuilder fb = new SimpleFeatureBuilder(type);
+        for (int i = 0; i < 10; i++) {
+            fb.add(createWave(i * 10 - 50, 1000));
+            store.addFeature(fb.buildFeature("waves." + i));
+        }
+        source = store.getFeatureSource("waves");
+
+        StyleBuilder sb = new StyleBuilder();
+        style = sb.createStyle(sb.createPolygonSymbolizer(Color.BLUE, Color.BLACK, 1));
+    }
+
+    /**
+     * A polygon with a wavy top border, with many vertices
+     */
+    Polygon createWave(double minx, int vertices) {
+        Coordinate[] ring = new Coordinate[vertices + 4];
+        for (int i = 0; i <= vertices; i++) {
+            double x = minx + 8.0 * i / vertices;
+            ring[i] = new Coordinate(x, 10 + Math.sin(i / 10.0) * 5);
+        }
+        ring[vertices + 1] = new Coordinate(minx + 8, -10);
+        ring[vertices + 2] = new Coordinate(minx, -10);
+        ring[vertices + 3] = new Coordinate(ring[0]);
+        return gf.createPolygon(gf.createLinearRing(ring), null);
+    }
+
+    BufferedImage render(GeneralizedGeometryCache cache, ReferencedEnvelope bounds) {
+        MapContent mc = new MapContent();
+        mc.addLayer(new FeatureLayer(source, style));
+        StreamingRenderer renderer = new StreamingRenderer();
+        renderer.setMapContent(mc);
+        Map<Object, Object> hints = new HashMap<Object, Object>();
+        if (cache != null) {
+            hints.put(StreamingRenderer.GENERALIZATION_CACHE_KEY, cache);
+        }
+        renderer.setRendererHints(hints);
+        BufferedImage image = new BufferedImage(300, 150, BufferedImage.TYPE_4BYTE_ABGR);
+        Graphics2D graphics = image.createGraphics();
+        renderer.paint(graphics, new Rectangle(300, 150), bounds);
+        graphics.dispose();
+        mc.dispose();
+        return image;
+    }
+
+    void assertSameImage(BufferedImage expected, BufferedImage actual) {
+        for (int x = 0; x < expected.getWidth(); x++) {
+            for (int y = 0; y < expected.getHeight(); y++) {
+                assertEquals("Pixel " + x + "," + y, expected.getRGB(x, y), actual.getRGB(x, y));
+            }
+        }
+    }
+
+    @Test
+    public void testRenderingFromCache() throws Exception {
+        ReferencedEnvelope bounds = new ReferencedEnvelope(-60, 60, -30, 30,
+                DefaultGeographicCRS.WGS84);
+        BufferedImage reference = render(null, bounds);
+
+        GeneralizedGeometryCache cache = new GeneralizedGeometryCache();
+        assertSameImage(reference, render(cache, bounds));
+        assertEquals(10, cache.size());
+        assertEquals(0, cache.getHits());
+
+        // the cached geometries are used, and give the same result
+        assertSameImage(reference, render(cache, bounds));
+        assertEquals(10, cache.getHits());
+        assertEquals(10, cache.size());
+
+        // a different tile at the same scale uses the same cached geometries
+        ReferencedEnvelope shifted = new ReferencedEnvelope(-50, 70, -30, 30,
+                DefaultGeographicCRS.WGS84);
+        assertSameImage(render(null, shifted), render(cache, shifted));
+        assertTrue(cache.getHits() > 10);
+        assertEquals(10, cache.size());
+
+        // a different scale does not
+        ReferencedEnvelope zoomed = new ReferencedEnvelope(-30, 30, -15, 15,
+                DefaultGeographicCRS.WGS84);
+        assertSameImage(render(null, zoomed), render(cache, zoomed));
+        assertTrue(cache.size() > 10);
+    }
+
+    @Test
+    public void testInvalidation() throws Exception {
+        ReferencedEnvelope bounds = new ReferencedEnvelope(-60, 60, -30, 30,
+                DefaultGeographicCRS.WGS84);
+        GeneralizedGeometryCache cache = new GeneralizedGeometryCache();
+        render(cache, bounds);
+        long misses = cache.getMisses();
+
+        // change a geometry, the cached ones are not used anymore
+        SimpleFeatureStore featureStore = (SimpleFeatureStore) store.getFeatureSource("waves");
+        featureStore.modifyFeatures("geom", createWave(-55, 500), FF.id(FF.featureId("waves.0")));
+        BufferedImage image = render(cache, bounds);
+        assertEquals(misses * 2, cache.getMisses());
+        assertSameImage(render(null, bounds), image);
+    }
+
+    @Test
+    public void testMemoryBudget() throws Exception {
+        LineString line = gf.createLineString(new Coordinate[] { new Coordinate(0, 0),
+                new Coordinate(1, 1) });
+        long size = GeneralizedGeometryCache.getSize(line);
+        GeneralizedGeometryCache cache = new GeneralizedGeometryCache(size * 3);
+        RequestKey key = cache.getRequestKey(source, DefaultGeographicCRS.WGS84, 1000000, 0.8);
+        for (int i = 0; i < 5; i++) {
+            cache.put(key, "f" + i, "", line);
+        }
+        assertEquals(3, cache.size());
+        assertEquals(size * 3, cache.getMemoryUsage());
+        assertNull(cache.get(key, "f0", ""));
+        assertNull(cache.get(key, "f1", ""));
+        Geometry cached = cache.get(key, "f2", "");
+        assertNotNull(cached);
+
+        // same CRS and a slightly different scale, same key
+        RequestKey other = cache.getRequestKey(source, DefaultGeographicCRS.WGS84, 1010000, 0.8);
+        assertEquals(key, other);
+        assertNotNull(cache.get(other, "f3", ""));
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getMemoryUsage());
+    }
+}
@@ -6,12 +6,17 @@ import java.awt.Color;
 import java.awt.Graphics;
 import java.awt.image.BufferedImage;
 import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.geotools.coverage.grid.GridCoverage2D;
 import org.geotools.coverage.grid.GridCoverageFactory;
 import org.geotools.data.property.PropertyDataStore;
 import org.geotools.data.simple.SimpleFeatureSource;
 import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.image.test.ImageAssert;
 import org.geotools.map.FeatureLayer;
 import org.geotools.map.GridCoverageLayer;
 import org.geotools.map.MapContent;
@@ -65,4 +70,47 @@ public class MultiLayerTest {
 		assertEquals(0, pixel[2]);
 		assertEquals(255, pixel[3]);
 	}
+
+	@Test
+	public void testParallelLayerRendering() throws Exception {
+		File property = new File(TestData.getResource(this, "buildings.properties").toURI());
+		PropertyDataStore ds = new PropertyDataStore(property.getParentFile());
+		SimpleFeatureSource buildings = ds.getFeatureSource("buildings");
+		SimpleFeatureSource lines = ds.getFeatureSource("diaglines");
+		ReferencedEnvelope bounds = new ReferencedEnvelope(0, 10, 0, 10, DefaultGeographicCRS.WGS84);
+
+		StyleBuilder sb = new StyleBuilder();
+		Style pst = sb.createStyle(sb.createPolygonSymbolizer(null, sb.createFill(Color.GRAY, 0.5)));
+		Style lst = sb.createStyle(sb.createLineSymbolizer(Color.BLUE, 3));
+		lst.featureTypeStyles().get(0).rules().get(0).symbolizers().add(
+				sb.createTextSymbolizer(Color.BLACK, sb.createFont("Serif", 10), "name"));
+
+		MapContent mc = new MapContent();
+		mc.addLayer(new FeatureLayer(buildings, pst));
+		mc.addLayer(new FeatureLayer(lines, lst));
+		mc.addLayer(new FeatureLayer(buildings, pst));
+
+		ExecutorService pool = Executors.newFixedThreadPool(2);
+		try {
+			StreamingRenderer sequential = new StreamingRenderer();
+			sequential.setMapContent(mc);
+			BufferedImage expected = RendererBaseTest.renderImage(sequential, bounds, null);
+
+			StreamingRenderer parallel = new StreamingRenderer();
+			parallel.setMapContent(mc);
+			parallel.setThreadPool(pool);
+			Map hints = new HashMap();
+			hints.put(StreamingRenderer.PARALLEL_LAYER_RENDERING_KEY, true);
+			hints.put(StreamingRenderer.PARALLEL_LAYER_RENDERING_MAX_BUFFERS_KEY, 2);
+			parallel.setRendererHints(hints);
+			CountingRenderListener counter = new CountingRenderListener();
+			BufferedImage actual = RendererBaseTest.renderImage(parallel, bounds, counter);
+
+			assertEquals(0, counter.errors);
+			ImageAssert.assertEquals(expected, actual, 100);
+		} finally {
+			pool.shutdown();
+			mc.dispose();
+		}
+	}
 }
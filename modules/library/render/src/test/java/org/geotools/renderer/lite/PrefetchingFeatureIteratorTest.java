@@ -0,0 +1,238 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer.lite;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.geotools.feature.FeatureIterator;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.junit.Before;
+import org.junit.Test;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+/**
+ * Tests the {@link PrefetchingFeatureIterator}
+ *
+ * @source $URL$
+ */
+public class PrefetchingFeatureIteratorTest {
+
+    List<SimpleFeature> features;
+
+    @Before
+    public void setUp() {
+        SimpleFeatureTypeBuilder tb = new SimpleFeatureTypeBuilder();
+        tb.setName("test");
+        tb.add("id", Integer.class);
+        SimpleFeatureType type = tb.buildFeatureType();
+        SimpleFeatureBuilder fb = new SimpleFeatureBuilder(type);
+        features = new ArrayList<SimpleFeature>();
+        for (int i = 0; i < 1000; i++) {
+            fb.add(i);
+            features.add(fb.buildFeature("test." + i));
+        }
+    }
+
+    /**
+     * A feature iterator over a list, that can fail reading a given feature or checking for the
+     * next one, and that can slow down the reading
+     */
+    static class ListIterator implements FeatureIterator<SimpleFeature> {
+        List<SimpleFeature> features;
+
+        int position;
+
+        int failingNext = -1;
+
+        int failingHasNext = -1;
+
+        long delay;
+
+        volatile boolean closed;
+
+        volatile int read;
+
+        ListIterator(List<SimpleFeature> features) {
+            this.features = features;
+        }
+
+        public boolean hasNext() {
+            if (position == failingHasNext) {
+                throw new IllegalStateException("hasNext failure");
+            }
+            return position < features.size();
+        }
+
+        public SimpleFeature next() throws NoSuchElementException {
+            if (delay > 0) {
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+            read++;
+            if (position == failingNext) {
+                position++;
+                throw new IllegalArgumentException("next failure");
+            }
+            return features.get(position++);
+        }
+
+        public void close() {
+            if (closed) {
+                throw new IllegalStateException("Closed twice");
+            }
+            closed = true;
+        }
+    }
+
+    @Test
+    public void testIteration() {
+        ListIterator delegate = new ListIterator(features);
+        PrefetchingFeatureIterator<SimpleFeature> it = new PrefetchingFeatureIterator<SimpleFeature>(
+                delegate, 64, 2);
+        try {
+            for (SimpleFeature expected : features) {
+                assertTrue(it.hasNext());
+                assertSame(expected, it.next());
+            }
+            assertFalse(it.hasNext());
+            assertFalse(it.hasNext());
+        } finally {
+            it.close();
+        }
+        assertTrue(delegate.closed);
+    }
+
+    @Test
+    public void testFailingNext() {
+        ListIterator delegate = new ListIterator(features);
+        delegate.failingNext = 500;
+        PrefetchingFeatureIterator<SimpleFeature> it = new PrefetchingFeatureIterator<SimpleFeature>(
+                delegate, 64, 2);
+        int count = 0;
+        int failures = 0;
+        try {
+            while (it.hasNext()) {
+                try {
+                    SimpleFeature f = it.next();
+                    assertSame(features.get(count), f);
+                } catch (IllegalArgumentException e) {
+                    assertEquals(500, count);
+                    failures++;
+                }
+                count++;
+            }
+        } finally {
+            it.close();
+        }
+        assertEquals(1000, count);
+        assertEquals(1, failures);
+        assertTrue(delegate.closed);
+    }
+
+    @Test
+    public void testFailingHasNext() {
+        ListIterator delegate = new ListIterator(features);
+        delegate.failingHasNext = 300;
+        PrefetchingFeatureIterator<SimpleFeature> it = new PrefetchingFeatureIterator<SimpleFeature>(
+                delegate, 64, 2);
+        int count = 0;
+        try {
+            while (it.hasNext()) {
+                it.next();
+                count++;
+            }
+            fail("Should have thrown the hasNext exception");
+        } catch (IllegalStateException e) {
+            assertEquals("hasNext failure", e.getMessage());
+        } finally {
+            it.close();
+        }
+        // the features read before the failure have been returned anyways
+        assertEquals(300, count);
+        assertTrue(delegate.closed);
+    }
+
+    @Test
+    public void testReadAheadIsBounded() throws Exception {
+        ListIterator delegate = new ListIterator(features);
+        PrefetchingFeatureIterator<SimpleFeature> it = new PrefetchingFeatureIterator<SimpleFeature>(
+                delegate, 10, 2);
+        it.start();
+        assertTrue(it.hasNext());
+        // give the reading thread time to fill the queue
+        Thread.sleep(200);
+        // the batch being consumed, two in the queue, one waiting to be queued
+        assertTrue(delegate.read <= 40);
+        it.close();
+        assertTrue(delegate.closed);
+        assertFalse(it.hasNext());
+    }
+
+    @Test
+    public void testStop() throws Exception {
+        ListIterator delegate = new ListIterator(features);
+        delegate.delay = 2;
+        final boolean[] stop = new boolean[1];
+        PrefetchingFeatureIterator<SimpleFeature> it = new PrefetchingFeatureIterator<SimpleFeature>(
+                delegate, 10, 2) {
+            @Override
+            protected boolean isStopRequested() {
+                synchronized (stop) {
+                    return stop[0];
+                }
+            }
+        };
+        assertTrue(it.hasNext());
+        it.next();
+        synchronized (stop) {
+            stop[0] = true;
+        }
+        int count = 0;
+        while (it.hasNext()) {
+            it.next();
+            count++;
+        }
+        // at most what was already queued
+        assertTrue(count < 40);
+        it.close();
+        assertTrue(delegate.closed);
+        assertTrue(delegate.read < 1000);
+    }
+
+    @Test
+    public void testCloseBeforeStart() {
+        ListIterator delegate = new ListIterator(features);
+        PrefetchingFeatureIterator<SimpleFeature> it = new PrefetchingFeatureIterator<SimpleFeature>(
+                delegate);
+        it.close();
+        assertTrue(delegate.closed);
+        assertEquals(0, delegate.read);
+    }
+}
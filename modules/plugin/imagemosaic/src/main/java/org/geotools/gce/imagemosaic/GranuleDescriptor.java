@@ -668,36 +668,51 @@ public class GranuleDescriptor {
 
 		ImageInputStream inStream=null;
 		ImageReader reader=null;
+		// readers can be pooled only if they are done reading when this method returns
+		final RasterManager rasterManager = request.rasterManager;
+		final boolean directRead = request.getReadType() == ReadType.DIRECT_READ;
+		final GranuleReaderPool readerPool = directRead && rasterManager != null ? rasterManager.granuleReaderPool : null;
+		GranuleReaderPool.PooledReader pooled = null;
+		boolean releaseReader = false;
 		try {
 			//
 			//get info about the raster we have to read
 			//
-			
-			// get a stream
-		        assert cachedStreamSPI!=null:"no cachedStreamSPI available!";
-                        inStream = cachedStreamSPI.createInputStreamInstance(granuleUrl, ImageIO.getUseCache(), ImageIO.getCacheDirectory());
-			if(inStream==null)
-				return null;
+			if (readerPool != null) {
+			    pooled = readerPool.acquire(granuleUrl);
+			}
+			if (pooled != null) {
+			    // already open, and initialized
+			    inStream = pooled.stream;
+			    reader = pooled.reader;
+			} else {
+				// get a stream
+			        assert cachedStreamSPI!=null:"no cachedStreamSPI available!";
+	                        inStream = cachedStreamSPI.createInputStreamInstance(granuleUrl, ImageIO.getUseCache(), ImageIO.getCacheDirectory());
+				if(inStream==null)
+					return null;
 			
 	
-			// get a reader and try to cache the relevant SPI
-			if(cachedReaderSPI==null){
-				reader = ImageIOExt.getImageioReader(inStream);
-				if(reader!=null)
-					cachedReaderSPI=reader.getOriginatingProvider();
-			}
-			else
-				reader=cachedReaderSPI.createReaderInstance();
-			if(reader==null) {
-				if (LOGGER.isLoggable(java.util.logging.Level.WARNING)){
-					LOGGER.warning(new StringBuilder("Unable to get s reader for granuleDescriptor ").append(this.toString())
-					        .append(" with request ").append(request.toString()).append(" Resulting in no granule loaded: Empty result").toString());
+				// get a reader and try to cache the relevant SPI
+				if(cachedReaderSPI==null){
+					reader = ImageIOExt.getImageioReader(inStream);
+					if(reader!=null)
+						cachedReaderSPI=reader.getOriginatingProvider();
 				}
-				return null;
+				else
+					reader=cachedReaderSPI.createReaderInstance();
+				if(reader==null) {
+					if (LOGGER.isLoggable(java.util.logging.Level.WARNING)){
+						LOGGER.warning(new StringBuilder("Unable to get s reader for granuleDescriptor ").append(this.toString())
+						        .append(" with request ").append(request.toString()).append(" Resulting in no granule loaded: Empty result").toString());
+					}
+					return null;
+				}
+				// set input
+				customizeReaderInitialization(reader, hints);
+				reader.setInput(inStream);
 			}
-			// set input
-			customizeReaderInitialization(reader, hints);
-			reader.setInput(inStream);
+			releaseReader = readerPool != null;
 			
             // Checking for heterogeneous granules and if the mosaic is not multidimensional
             if (request.isHeterogeneousGranules() && singleDimensionalGranule) {
@@ -772,19 +787,33 @@ public class GranuleDescriptor {
 			
 			// set the source region
 			readParameters.setSourceRegion(sourceArea);
-			RenderedImage raster;
-			try {
-				// read
-				raster= request.getReadType().read(readParameters,imageIndex, granuleUrl, selectedlevel.rasterDimensions, reader, hints,false);
-				
-			} catch (Throwable e) {
-				if (LOGGER.isLoggable(java.util.logging.Level.FINE)){
-					LOGGER.log(java.util.logging.Level.FINE,
-					        "Unable to load raster for granuleDescriptor "
-					        + this.toString() + " with request "
-					        + request.toString() + " Resulting in no granule loaded: Empty result",e);
-				}
-				return null;
+			RenderedImage raster = null;
+			// look for an already decoded raster first
+			final GranuleTileCache tileCache = directRead && rasterManager != null ? rasterManager.granuleTileCache : null;
+			GranuleTileCache.TileKey tileKey = null;
+			if (tileCache != null && readParameters.getDestination() == null) {
+			    tileKey = new GranuleTileCache.TileKey(granuleUrl, imageIndex, readParameters);
+			    raster = tileCache.get(tileKey);
+			}
+			if (raster == null) {
+			    try {
+			        // read
+			        raster= request.getReadType().read(readParameters,imageIndex, granuleUrl, selectedlevel.rasterDimensions, reader, hints,false);
+
+			    } catch (Throwable e) {
+			        // reader in unknown state, do not reuse it
+			        releaseReader = false;
+			        if (LOGGER.isLoggable(java.util.logging.Level.FINE)){
+			            LOGGER.log(java.util.logging.Level.FINE,
+			                    "Unable to load raster for granuleDescriptor "
+			                    + this.toString() + " with request "
+			                    + request.toString() + " Resulting in no granule loaded: Empty result",e);
+			        }
+			        return null;
+			    }
+			    if (tileKey != null && raster != null) {
+			        tileCache.put(tileKey, raster);
+			    }
 			}
 
 			// use fixed source area
@@ -942,13 +971,17 @@ public class GranuleDescriptor {
 			return null;
 
                 } finally {
-                    try {
-                        if (request.getReadType() != ReadType.JAI_IMAGEREAD && inStream != null) {
-                            inStream.close();
-                        }
-                    } finally {
-                        if (request.getReadType() != ReadType.JAI_IMAGEREAD && reader != null) {
-                            reader.dispose();
+                    if (releaseReader) {
+                        readerPool.release(pooled != null ? pooled : new GranuleReaderPool.PooledReader(granuleUrl, inStream, reader));
+                    } else {
+                        try {
+                            if (request.getReadType() != ReadType.JAI_IMAGEREAD && inStream != null) {
+                                inStream.close();
+                            }
+                        } finally {
+                            if (request.getReadType() != ReadType.JAI_IMAGEREAD && reader != null) {
+                                reader.dispose();
+                            }
                         }
                     }
                 }
@@ -0,0 +1,300 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.imagemosaic;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.imageio.ImageReadParam;
+
+import org.geotools.gce.imagemosaic.GranuleDescriptor.GranuleLoadingResult;
+import org.geotools.gce.imagemosaic.OverviewsController.OverviewLevel;
+import org.opengis.geometry.BoundingBox;
+
+/**
+ * Plans the loading of the granules of a mosaic request. Instead of submitting one task per
+ * granule, in the order the catalog returned them, the planner:
+ * <ul>
+ * <li>estimates the amount of pixels each granule load is going to read, at the overview level
+ * and subsampling that will be used for it (the same choice {@link GranuleDescriptor} makes, via
+ * the {@link OverviewsController} and the {@link ReadParamsController})</li>
+ * <li>batches the loads by granule file, ordered by image index, so that each file is read
+ * sequentially, by a single thread, reusing the same pooled reader (see
+ * {@link Utils#MAX_POOLED_GRANULE_READERS})</li>
+ * <li>splits large batches so that there are enough of them to keep all the executor threads
+ * busy</li>
+ * <li>schedules the most expensive batches first, so that the request does not end up waiting
+ * for a large read started last</li>
+ * </ul>
+ * The results are returned in the original mosaic order, each one as soon as it's loaded, so that
+ * the mosaic can be assembled while the other granules are still being read.
+ *
+ * @author Andrea Aime, GeoSolutions SAS
+ */
+class GranuleReadPlanner {
+
+    static final Logger LOGGER = org.geotools.util.logging.Logging
+            .getLogger(GranuleReadPlanner.class);
+
+    /**
+     * A single granule load
+     */
+    static final class PlannedLoad {
+        final int position;
+
+        final String file;
+
+        final int imageIndex;
+
+        final double cost;
+
+        final FutureTask<GranuleLoadingResult> task;
+
+        PlannedLoad(int position, String file, int imageIndex, double cost,
+                Callable<GranuleLoadingResult> loader) {
+            this.position = position;
+            this.file = file;
+            this.imageIndex = imageIndex;
+            this.cost = cost;
+            this.task = new FutureTask<GranuleLoadingResult>(loader);
+        }
+    }
+
+    /**
+     * A sequence of loads performed by the same thread
+     */
+    static final class Batch implements Runnable {
+        final List<PlannedLoad> loads = new ArrayList<PlannedLoad>();
+
+        final String file;
+
+        double cost;
+
+        Batch(String file) {
+            this.file = file;
+        }
+
+        void add(PlannedLoad load) {
+            loads.add(load);
+            cost += load.cost;
+        }
+
+        public void run() {
+            for (PlannedLoad load : loads) {
+                // a no-op if cancelled
+                load.task.run();
+            }
+        }
+    }
+
+    final RasterLayerRequest request;
+
+    final List<PlannedLoad> loads = new ArrayList<PlannedLoad>();
+
+    final List<Future<GranuleLoadingResult>> results = new ArrayList<Future<GranuleLoadingResult>>();
+
+    final List<Future<?>> batchFutures = new ArrayList<Future<?>>();
+
+    boolean submitted;
+
+    GranuleReadPlanner(RasterLayerRequest request) {
+        this.request = request;
+    }
+
+    /**
+     * Adds a granule load. The loads are added in mosaic order.
+     */
+    void add(GranuleLoader loader) {
+        add(loader.getGranule().getGranuleUrl().toExternalForm(), loader.getImageIndex(),
+                estimateCost(loader), loader);
+    }
+
+    void add(String file, int imageIndex, double cost, Callable<GranuleLoadingResult> loader) {
+        PlannedLoad load = new PlannedLoad(loads.size(), file, imageIndex, cost, loader);
+        loads.add(load);
+        results.add(load.task);
+    }
+
+    /**
+     * Returns the number of granule loads
+     */
+    int size() {
+        return loads.size();
+    }
+
+    /**
+     * Estimates the number of pixels the loader will read
+     */
+    double estimateCost(GranuleLoader loader) {
+        try {
+            final GranuleDescriptor granule = loader.getGranule();
+            final BoundingBox granuleBBox = granule.getGranuleBBOX();
+            final BoundingBox cropBBox = loader.getCropBBox();
+            final double width = Math.min(granuleBBox.getMaxX(), cropBBox.getMaxX())
+                    - Math.max(granuleBBox.getMinX(), cropBBox.getMinX());
+            final double height = Math.min(granuleBBox.getMaxY(), cropBBox.getMaxY())
+                    - Math.max(granuleBBox.getMinY(), cropBBox.getMinY());
+            if (width <= 0 || height <= 0) {
+                return 0;
+            }
+
+            // the resolution of the level that is going to be read, and its subsampling
+            OverviewsController controller;
+            ImageReadParam readParameters;
+            int level;
+            if (request.isHeterogeneousGranules() && granule.overviewsController != null) {
+                controller = granule.overviewsController;
+                readParameters = new ImageReadParam();
+                level = ReadParamsController.setReadParams(
+                        request.spatialRequestHelper.getRequestedResolution(),
+                        request.getOverviewPolicy(), request.getDecimationPolicy(),
+                        readParameters, request.rasterManager, controller);
+            } else {
+                controller = request.rasterManager.overviewsController;
+                readParameters = loader.getReadParameters();
+                level = loader.getImageIndex();
+            }
+            if (controller == null || level < 0 || level >= controller.resolutionsLevels.size()) {
+                return width * height;
+            }
+            OverviewLevel overview = controller.resolutionsLevels.get(level);
+            double resX = overview.resolutionX * readParameters.getSourceXSubsampling();
+            double resY = overview.resolutionY * readParameters.getSourceYSubsampling();
+            return resX > 0 && resY > 0 ? (width / resX) * (height / resY) : width * height;
+        } catch (Exception e) {
+            // the estimate is only used to order the loads
+            if (LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.log(Level.FINE, "Failed to estimate the granule read cost", e);
+            }
+            return 0;
+        }
+    }
+
+    /**
+     * Groups the loads in batches, by file, and sorts them by decreasing cost
+     *
+     * @param parallelism the number of batches that can be run in parallel
+     */
+    List<Batch> plan(int parallelism) {
+        // group by file, keeping the file order of appearance for equal costs
+        Map<String, List<PlannedLoad>> byFile = new LinkedHashMap<String, List<PlannedLoad>>();
+        for (PlannedLoad load : loads) {
+            List<PlannedLoad> fileLoads = byFile.get(load.file);
+            if (fileLoads == null) {
+                fileLoads = new ArrayList<PlannedLoad>();
+                byFile.put(load.file, fileLoads);
+            }
+            fileLoads.add(load);
+        }
+
+        // sequential access within each file, split in enough batches to use all threads
+        final int maxBatchSize = Math.max(1,
+                (loads.size() + parallelism - 1) / Math.max(1, parallelism));
+        List<Batch> batches = new ArrayList<Batch>();
+        for (Map.Entry<String, List<PlannedLoad>> entry : byFile.entrySet()) {
+            List<PlannedLoad> fileLoads = entry.getValue();
+            Collections.sort(fileLoads, new Comparator<PlannedLoad>() {
+
+                public int compare(PlannedLoad o1, PlannedLoad o2) {
+                    if (o1.imageIndex != o2.imageIndex) {
+                        return o1.imageIndex < o2.imageIndex ? -1 : 1;
+                    }
+                    return o1.position - o2.position;
+                }
+            });
+            Batch batch = null;
+            for (PlannedLoad load : fileLoads) {
+                if (batch == null || batch.loads.size() >= maxBatchSize) {
+                    batch = new Batch(entry.getKey());
+                    batches.add(batch);
+                }
+                batch.add(load);
+            }
+        }
+
+        // most expensive first (the sort is stable)
+        Collections.sort(batches, new Comparator<Batch>() {
+
+            public int compare(Batch o1, Batch o2) {
+                return Double.compare(o2.cost, o1.cost);
+            }
+        });
+        return batches;
+    }
+
+    /**
+     * Schedules the loads on the executor, or runs them in the current thread if the executor is
+     * null. Subsequent calls have no effect.
+     */
+    void submit(ExecutorService executor) {
+        if (submitted) {
+            return;
+        }
+        submitted = true;
+        if (loads.isEmpty()) {
+            return;
+        }
+        int parallelism = 1;
+        if (executor instanceof ThreadPoolExecutor) {
+            parallelism = Math.max(1, ((ThreadPoolExecutor) executor).getCorePoolSize());
+        } else if (executor != null) {
+            parallelism = Runtime.getRuntime().availableProcessors();
+        }
+        List<Batch> batches = plan(parallelism);
+        if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.fine("Loading " + loads.size() + " granules in " + batches.size()
+                    + " batches");
+        }
+        for (Batch batch : batches) {
+            if (executor != null) {
+                batchFutures.add(executor.submit(batch));
+            } else {
+                batch.run();
+            }
+        }
+    }
+
+    /**
+     * The load results, in mosaic order
+     */
+    List<Future<GranuleLoadingResult>> getResults() {
+        return results;
+    }
+
+    /**
+     * Cancels the loads not yet performed
+     */
+    void cancel() {
+        for (PlannedLoad load : loads) {
+            load.task.cancel(false);
+        }
+        for (Future<?> future : batchFutures) {
+            future.cancel(false);
+        }
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.imagemosaic;
+
+import java.io.File;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+import org.geotools.data.DataUtilities;
+
+/**
+ * A bounded pool of open {@link ImageReader} and {@link ImageInputStream} couples, by granule,
+ * allowing the granules read with {@link ReadType#DIRECT_READ} to skip opening the file and
+ * parsing its header (e.g., the TIFF directories) on each request.
+ * <p>
+ * Only idle readers are kept in the pool, a reader is either used by a single thread, or
+ * sitting in the pool. When the limits are exceeded the idle readers of the least recently used
+ * granules are closed. A pooled reader is discarded if the granule file changed since it was
+ * opened.
+ * </p>
+ *
+ * @author Andrea Aime, GeoSolutions SAS
+ */
+class GranuleReaderPool {
+
+    static final Logger LOGGER = org.geotools.util.logging.Logging
+            .getLogger(GranuleReaderPool.class);
+
+    /**
+     * An open reader, along with its input stream
+     */
+    static final class PooledReader {
+        final String key;
+
+        final ImageInputStream stream;
+
+        final ImageReader reader;
+
+        final long lastModified;
+
+        PooledReader(URL granuleUrl, ImageInputStream stream, ImageReader reader) {
+            this.key = granuleUrl.toExternalForm();
+            this.stream = stream;
+            this.reader = reader;
+            this.lastModified = getLastModified(granuleUrl);
+        }
+
+        void close() {
+            try {
+                stream.close();
+            } catch (Throwable t) {
+                LOGGER.log(Level.FINE, "Failed to close granule stream", t);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    final int maxReaders;
+
+    final int maxReadersPerGranule;
+
+    /**
+     * The idle readers, by granule, in access order
+     */
+    final LinkedHashMap<String, Deque<PooledReader>> idle = new LinkedHashMap<String, Deque<PooledReader>>(
+            16, 0.75f, true);
+
+    int idleCount;
+
+    boolean disposed;
+
+    /**
+     * Builds a new pool
+     *
+     * @param maxReaders the maximum number of idle readers kept open
+     * @param maxReadersPerGranule the maximum number of idle readers kept open for a single
+     *        granule
+     */
+    GranuleReaderPool(int maxReaders, int maxReadersPerGranule) {
+        if (maxReaders < 1 || maxReadersPerGranule < 1) {
+            throw new IllegalArgumentException("The pool limits must be positive");
+        }
+        this.maxReaders = maxReaders;
+        this.maxReadersPerGranule = Math.min(maxReaders, maxReadersPerGranule);
+    }
+
+    static long getLastModified(URL granuleUrl) {
+        File file = DataUtilities.urlToFile(granuleUrl);
+        return file != null ? file.lastModified() : 0;
+    }
+
+    /**
+     * Returns an idle reader for the granule, or null if none is available. The reader must be
+     * given back with {@link #release(PooledReader)} once done, or closed if its state is
+     * unknown (e.g., after a read failure).
+     */
+    PooledReader acquire(URL granuleUrl) {
+        List<PooledReader> stale = null;
+        PooledReader result = null;
+        synchronized (this) {
+            String key = granuleUrl.toExternalForm();
+            Deque<PooledReader> readers = idle.get(key);
+            if (readers != null) {
+                long lastModified = getLastModified(granuleUrl);
+                while (result == null && !readers.isEmpty()) {
+                    PooledReader reader = readers.pollFirst();
+                    idleCount--;
+                    if (reader.lastModified == lastModified) {
+                        result = reader;
+                    } else {
+                        if (stale == null) {
+                            stale = new ArrayList<PooledReader>();
+                        }
+                        stale.add(reader);
+                    }
+                }
+                if (readers.isEmpty()) {
+                    idle.remove(key);
+                }
+            }
+        }
+        close(stale);
+        return result;
+    }
+
+    /**
+     * Gives back a reader to the pool, closing it if the pool is full
+     */
+    void release(PooledReader reader) {
+        List<PooledReader> evicted = new ArrayList<PooledReader>();
+        synchronized (this) {
+            Deque<PooledReader> readers = idle.get(reader.key);
+            if (disposed || (readers != null && readers.size() >= maxReadersPerGranule)) {
+                evicted.add(reader);
+            } else {
+                if (readers == null) {
+                    readers = new ArrayDeque<PooledReader>();
+                    idle.put(reader.key, readers);
+                }
+                readers.addFirst(reader);
+                idleCount++;
+
+                // evict the readers of the least recently used granules
+                Iterator<Deque<PooledReader>> it = idle.values().iterator();
+                while (idleCount > maxReaders && it.hasNext()) {
+                    Deque<PooledReader> lru = it.next();
+                    while (idleCount > maxReaders && !lru.isEmpty()) {
+                        evicted.add(lru.pollLast());
+                        idleCount--;
+                    }
+                    if (lru.isEmpty()) {
+                        it.remove();
+                    }
+                }
+            }
+        }
+        // close outside of the lock, it might require I/O
+        close(evicted);
+    }
+
+    /**
+     * Returns the number of idle readers in the pool
+     */
+    synchronized int size() {
+        return idleCount;
+    }
+
+    /**
+     * Closes all the idle readers, the readers released afterwards are closed as well
+     */
+    void dispose() {
+        List<PooledReader> readers = new ArrayList<PooledReader>();
+        synchronized (this) {
+            disposed = true;
+            for (Deque<PooledReader> granuleReaders : idle.values()) {
+                readers.addAll(granuleReaders);
+            }
+            idle.clear();
+            idleCount = 0;
+        }
+        close(readers);
+    }
+
+    private static void close(List<PooledReader> readers) {
+        if (readers != null) {
+            for (PooledReader reader : readers) {
+                reader.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.imagemosaic;
+
+import java.awt.Rectangle;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import javax.imageio.ImageReadParam;
+
+/**
+ * A memory bounded cache of the rasters decoded from the mosaic granules, keyed by granule,
+ * resolution level (image index) and read parameters, so that requests hitting the same
+ * portions of the same granules (e.g., the tiles of a tiled client, which often overlap the same
+ * granules) do not need to decode them again.
+ * <p>
+ * The cache is shared by setting it in the reader hints with the {@link Utils#GRANULE_TILE_CACHE}
+ * key, and only rasters fully decoded in memory, that is, the ones read with
+ * {@link ReadType#DIRECT_READ}, are cached. The least recently used rasters are evicted first
+ * when the memory budget is exceeded. The key includes the granule file last modification time,
+ * so that granules updated in place are read again.
+ * </p>
+ *
+ * @author Andrea Aime, GeoSolutions SAS
+ */
+public class GranuleTileCache {
+
+    /**
+     * The default memory budget, 128MB
+     */
+    public static final long DEFAULT_MAX_MEMORY = 128 * 1024 * 1024;
+
+    final long maxMemory;
+
+    long memory;
+
+    long hits;
+
+    long misses;
+
+    final LinkedHashMap<TileKey, RenderedImage> tiles = new LinkedHashMap<TileKey, RenderedImage>(
+            64, 0.75f, true);
+
+    /**
+     * Builds a cache with the {@link #DEFAULT_MAX_MEMORY} memory budget
+     */
+    public GranuleTileCache() {
+        this(DEFAULT_MAX_MEMORY);
+    }
+
+    /**
+     * Builds a cache with the specified memory budget
+     *
+     * @param maxMemory The maximum amount of memory, in bytes, the cached rasters should use
+     */
+    public GranuleTileCache(long maxMemory) {
+        if (maxMemory <= 0) {
+            throw new IllegalArgumentException("The memory budget must be positive");
+        }
+        this.maxMemory = maxMemory;
+    }
+
+    /**
+     * Returns the cached raster, or null if not found
+     */
+    synchronized RenderedImage get(TileKey key) {
+        RenderedImage image = tiles.get(key);
+        if (image == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return image;
+    }
+
+    /**
+     * Caches a raster, evicting the least recently used ones if the memory budget is exceeded
+     */
+    synchronized void put(TileKey key, RenderedImage image) {
+        long size = getSize(image);
+        if (size > maxMemory) {
+            return;
+        }
+        RenderedImage previous = tiles.put(key, image);
+        if (previous != null) {
+            memory -= getSize(previous);
+        }
+        memory += size;
+        Iterator<RenderedImage> it = tiles.values().iterator();
+        while (memory > maxMemory && it.hasNext()) {
+            memory -= getSize(it.next());
+            it.remove();
+        }
+    }
+
+    /**
+     * Returns the memory used by the raster data of a fully decoded image
+     */
+    static long getSize(RenderedImage image) {
+        long size = 0;
+        for (int ty = 0; ty < image.getNumYTiles(); ty++) {
+            for (int tx = 0; tx < image.getNumXTiles(); tx++) {
+                Raster raster = image.getTile(image.getMinTileX() + tx, image.getMinTileY() + ty);
+                DataBuffer buffer = raster.getDataBuffer();
+                size += (long) buffer.getSize() * buffer.getNumBanks()
+                        * DataBuffer.getDataTypeSize(buffer.getDataType()) / 8;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Removes all the cached rasters
+     */
+    public synchronized void clear() {
+        tiles.clear();
+        memory = 0;
+    }
+
+    /**
+     * Returns the number of cached rasters
+     */
+    public synchronized int size() {
+        return tiles.size();
+    }
+
+    /**
+     * Returns the amount of memory, in bytes, used by the cached rasters
+     */
+    public synchronized long getMemoryUsage() {
+        return memory;
+    }
+
+    /**
+     * Returns the number of lookups that found a cached raster
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of lookups that did not find a cached raster
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Identifies a raster read from a granule
+     */
+    static final class TileKey {
+        final String granule;
+
+        final long lastModified;
+
+        final int imageIndex;
+
+        final Rectangle sourceRegion;
+
+        final int[] subsampling;
+
+        final int[] sourceBands;
+
+        final int[] destinationBands;
+
+        TileKey(URL granuleUrl, int imageIndex, ImageReadParam params) {
+            this.granule = granuleUrl.toExternalForm();
+            this.lastModified = GranuleReaderPool.getLastModified(granuleUrl);
+            this.imageIndex = imageIndex;
+            this.sourceRegion = params.getSourceRegion() != null ? new Rectangle(
+                    params.getSourceRegion()) : null;
+            this.subsampling = new int[] { params.getSourceXSubsampling(),
+                    params.getSourceYSubsampling(), params.getSubsamplingXOffset(),
+                    params.getSubsamplingYOffset() };
+            this.sourceBands = params.getSourceBands();
+            this.destinationBands = params.getDestinationBands();
+        }
+
+        @Override
+        public int hashCode() {
+            final int prime = 31;
+            int result = granule.hashCode();
+            result = prime * result + (int) (lastModified ^ (lastModified >>> 32));
+            result = prime * result + imageIndex;
+            result = prime * result + (sourceRegion == null ? 0 : sourceRegion.hashCode());
+            result = prime * result + Arrays.hashCode(subsampling);
+            result = prime * result + Arrays.hashCode(sourceBands);
+            result = prime * result + Arrays.hashCode(destinationBands);
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof TileKey)) {
+                return false;
+            }
+            TileKey other = (TileKey) obj;
+            return imageIndex == other.imageIndex && lastModified == other.lastModified
+                    && granule.equals(other.granule)
+                    && (sourceRegion == null ? other.sourceRegion == null : sourceRegion
+                            .equals(other.sourceRegion))
+                    && Arrays.equals(subsampling, other.subsampling)
+                    && Arrays.equals(sourceBands, other.sourceBands)
+                    && Arrays.equals(destinationBands, other.destinationBands);
+        }
+    }
+}
@@ -41,7 +41,6 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.Future;
-import java.util.concurrent.FutureTask;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -361,8 +360,8 @@ class RasterLayerResponse{
         /**We can request a dry run (no tasks are spawn) with this member.*/
         private final boolean dryRun;
 
-        /** The final lists for granules to be computed, splitted per dimension value.*/
-        private final List<Future<GranuleLoadingResult>> granulesFutures = new ArrayList<Future<GranuleLoadingResult>>();
+        /** Plans the loading of the granules to be computed for this dimension value.*/
+        private final GranuleReadPlanner readPlanner = new GranuleReadPlanner(request);
 
         private double[][] sourceThreshold;
 
@@ -396,15 +395,8 @@ class RasterLayerResponse{
                 
                 final GranuleLoader loader = new GranuleLoader(baseReadParameters, imageChoice, mosaicBBox, finalWorldToGridCorner, granuleDescriptor, request, hints);
                 if (!dryRun) {
-                    if (multithreadingAllowed && rasterManager.parentReader.multiThreadedLoader != null) {
-                        // MULTITHREADED EXECUTION submitting the task
-                        granulesFutures.add(rasterManager.parentReader.multiThreadedLoader.submit(loader));
-                    } else {
-                        // SINGLE THREADED Execution, we defer the execution to when we have done the loading
-                        final FutureTask<GranuleLoadingResult> task = new FutureTask<GranuleLoadingResult>(loader);
-                        granulesFutures.add(task);
-                        task.run(); // run in current thread
-                    }
+                    // the actual loading is scheduled once all granules are known
+                    readPlanner.add(loader);
                 }
                 if (LOGGER.isLoggable(Level.FINE)) {
                     LOGGER.fine("We added the granule " + granuleDescriptor.toString());
@@ -421,6 +413,20 @@ class RasterLayerResponse{
             return false;
         }
         
+        /**
+         * Schedules the loading of the collected granules, on the reader executor if
+         * multithreading is allowed, in the current thread otherwise.
+         */
+        private void submitLoads() {
+            if (multithreadingAllowed && rasterManager.parentReader.multiThreadedLoader != null) {
+                // MULTITHREADED EXECUTION submitting the tasks
+                readPlanner.submit(rasterManager.parentReader.multiThreadedLoader);
+            } else {
+                // SINGLE THREADED Execution, run in current thread
+                readPlanner.submit(null);
+            }
+        }
+
         /**
          * This methods collects the granules from their eventual multithreaded processing
          * and turn them into a {@link MosaicInputs} object.
@@ -436,11 +442,15 @@ class RasterLayerResponse{
                 return null;
             }
             
+           // make sure the loads have been scheduled
+           submitLoads();
+
+
            // execute them all
            final StringBuilder paths = new StringBuilder();
            final List<MosaicElement> returnValues= new ArrayList<RasterLayerResponse.MosaicElement>();
            // collect sources for the current dimension and then process them
-           for (Future<GranuleLoadingResult> future :granulesFutures) {
+           for (Future<GranuleLoadingResult> future : readPlanner.getResults()) {
                      
                 try {
                     // get the resulting RenderedImage
@@ -509,6 +519,8 @@ class RasterLayerResponse{
                     if (LOGGER.isLoggable(Level.INFO)){
                         LOGGER.info("Adding to mosaic failed, original request was " + request);
                     }
+                    // no point in loading the other granules
+                    readPlanner.cancel();
                     throw new IOException(e);
                 }               
                
@@ -1057,6 +1069,10 @@ class RasterLayerResponse{
             final List<MosaicElement> mosaicInputs = new ArrayList<RasterLayerResponse.MosaicElement>();
             GranuleCollector first = null; // we take this apart to steal some val
             int size = granuleCollectors.size();
+            // start loading the granules of all collectors before mosaicking the first one
+            for (GranuleCollector collector : granuleCollectors) {
+                collector.submitLoads();
+            }
             for (GranuleCollector collector : granuleCollectors) {
                 if(LOGGER.isLoggable(Level.FINE)) {
                     LOGGER.fine("Using collector with filter:" + collector.granuleFilter.toString());
@@ -894,6 +894,12 @@ public class RasterManager {
     
     MosaicConfigurationBean configuration;
 
+    /** The pool of open granule readers, if enabled */
+    GranuleReaderPool granuleReaderPool;
+
+    /** The cache of decoded granule rasters, if enabled */
+    GranuleTileCache granuleTileCache;
+
     public RasterManager(final ImageMosaicReader parentReader, MosaicConfigurationBean configuration)
             throws IOException {
 
@@ -911,6 +917,14 @@ public class RasterManager {
         if (checkAuxiliaryMetadata) {
             hints.add(new RenderingHints(Utils.CHECK_AUXILIARY_METADATA, checkAuxiliaryMetadata));
         }
+        if (hints != null) {
+            granuleTileCache = (GranuleTileCache) hints.get(Utils.GRANULE_TILE_CACHE);
+            Integer maxReaders = (Integer) hints.get(Utils.MAX_POOLED_GRANULE_READERS);
+            if (maxReaders != null && maxReaders > 0) {
+                granuleReaderPool = new GranuleReaderPool(maxReaders, Runtime.getRuntime()
+                        .availableProcessors());
+            }
+        }
 
         // take ownership of the index : TODO: REMOVE THAT ONCE DEALING WITH MORE CATALOGS/RASTERMANAGERS
         // granuleCatalog = new HintedGranuleCatalog(parentReader.granuleCatalog, hints);
@@ -1398,6 +1412,9 @@ public class RasterManager {
                 if (granuleCatalog != null) {
                     granuleCatalog = null;
                 }
+                if (granuleReaderPool != null) {
+                    granuleReaderPool.dispose();
+                }
             }
         }
     }
@@ -144,6 +144,26 @@ public class Utils {
 
     public final static Key MOSAIC_READER = new Key(ImageMosaicReader.class);
 
+    /**
+     * A {@link GranuleTileCache}, possibly shared among mosaics, caching the rasters decoded
+     * from the granules with {@link ReadType#DIRECT_READ}. Not set by default.
+     */
+    public final static Key GRANULE_TILE_CACHE = new Key(GranuleTileCache.class);
+
+    /**
+     * The maximum number of idle granule readers kept open by a mosaic, allowing
+     * {@link ReadType#DIRECT_READ} reads to skip opening and parsing the granule files on each
+     * request. Not set by default, meaning the granules are opened on each read.
+     */
+    public final static Key MAX_POOLED_GRANULE_READERS = new Key(Integer.class);
+
+    /**
+     * Whether the packed in memory index of the granule catalog, enabled with the
+     * {@link Prop#PACKED_INDEX} property, should store its arrays outside of the Java heap.
+     * Defaults to false.
+     */
+    public final static Key PACKED_INDEX_OFF_HEAP = new Key(Boolean.class);
+
     public static final String RANGE_SPLITTER_CHAR = ";";
 
     public final static String INDEXER_PROPERTIES = "indexer.properties";
@@ -230,6 +250,7 @@ public class Utils {
         public static final String RESOLUTION_LEVELS = "ResolutionLevels";
         public static final String PROPERTY_COLLECTORS = "PropertyCollectors";
         public final static String CACHING= "Caching";
+        public final static String PACKED_INDEX = "PackedIndex";
     }
         /**
      * Extracts a bbox from a filter in case there is at least one.
@@ -562,6 +583,14 @@ public class Utils {
 			}
 		}
 
+		//
+		// packed index
+		//
+		if (properties.containsKey(Prop.PACKED_INDEX)) {
+			String packedIndex = properties.getProperty(Prop.PACKED_INDEX).trim();
+			catalogConfigurationBean.setPackedIndex(Boolean.valueOf(packedIndex));
+		}
+
 		//
 		// name is not optional
 		//
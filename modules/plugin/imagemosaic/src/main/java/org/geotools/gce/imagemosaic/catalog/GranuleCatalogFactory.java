@@ -143,9 +143,15 @@ public abstract class GranuleCatalogFactory {
 		if (overrideParams != null && !overrideParams.isEmpty()) {
 		    params.putAll(overrideParams);
 		}
-		final GranuleCatalog catalog = catalogConfigurationBean.isCaching()?
-		        new STRTreeGranuleCatalog(params,spi,hints):
-		            new CachingDataStoreGranuleCatalog(new GTDataStoreGranuleCatalog(params,false,spi,hints));
+		final GranuleCatalog catalog;
+		if (catalogConfigurationBean.isPackedIndex()) {
+		    catalog = new PackedSTRTreeGranuleCatalog(params, spi, hints);
+		} else if (catalogConfigurationBean.isCaching()) {
+		    catalog = new STRTreeGranuleCatalog(params, spi, hints);
+		} else {
+		    catalog = new CachingDataStoreGranuleCatalog(new GTDataStoreGranuleCatalog(params,
+		            false, spi, hints));
+		}
 
 		return catalog;
 	}
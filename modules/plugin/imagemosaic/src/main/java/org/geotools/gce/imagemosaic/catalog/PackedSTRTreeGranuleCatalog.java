@@ -0,0 +1,843 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.imagemosaic.catalog;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.data.DataStoreFactorySpi;
+import org.geotools.data.Query;
+import org.geotools.data.QueryCapabilities;
+import org.geotools.data.Transaction;
+import org.geotools.data.collection.ListFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.factory.Hints;
+import org.geotools.feature.SchemaException;
+import org.geotools.feature.visitor.FeatureCalc;
+import org.geotools.gce.imagemosaic.GranuleDescriptor;
+import org.geotools.gce.imagemosaic.Utils;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.util.Utilities;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeDescriptor;
+import org.opengis.filter.And;
+import org.opengis.filter.BinaryComparisonOperator;
+import org.opengis.filter.Filter;
+import org.opengis.filter.Or;
+import org.opengis.filter.PropertyIsBetween;
+import org.opengis.filter.PropertyIsEqualTo;
+import org.opengis.filter.PropertyIsGreaterThan;
+import org.opengis.filter.PropertyIsGreaterThanOrEqualTo;
+import org.opengis.filter.PropertyIsLessThan;
+import org.opengis.filter.PropertyIsLessThanOrEqualTo;
+import org.opengis.filter.expression.Expression;
+import org.opengis.filter.expression.Literal;
+import org.opengis.filter.expression.PropertyName;
+import org.opengis.geometry.BoundingBox;
+
+/**
+ * An in memory granule catalog keeping a packed, immutable STR tree of the granules, with the
+ * granule envelopes, the node envelopes and the values of the date attributes (e.g., the time
+ * and end time of the granules) stored in primitive arrays, optionally outside of the Java heap
+ * (see {@link Utils#PACKED_INDEX_OFF_HEAP}).
+ * <p>
+ * The date attributes are indexed along with the envelopes, so that the time constraints of a
+ * query (comparisons and ranges against literal dates) prune the tree nodes and the granules
+ * before the query filter gets evaluated against the remaining granules.
+ * </p>
+ * <p>
+ * The index is built on first access. Changes performed through this catalog in auto commit mode
+ * rebuild the index before returning, reusing the {@link GranuleDescriptor} of the granules that
+ * did not change, while the readers keep on using the current index until the new one is swapped
+ * in. Changes committed in a transaction make the next query rebuild the index instead.
+ * </p>
+ *
+ * @author Andrea Aime, GeoSolutions SAS
+ *
+ * @source $URL$
+ */
+class PackedSTRTreeGranuleCatalog extends GranuleCatalog {
+
+    /** Logger. */
+    final static Logger LOGGER = org.geotools.util.logging.Logging
+            .getLogger(PackedSTRTreeGranuleCatalog.class);
+
+    /**
+     * The number of children of each tree node
+     */
+    static final int NODE_CAPACITY = 16;
+
+    /**
+     * Marks a null date
+     */
+    static final long NULL_TIME = Long.MIN_VALUE;
+
+    /**
+     * Receives the granules matching a query, returns false to stop the query
+     */
+    interface GranuleCollector {
+        boolean add(GranuleDescriptor granule);
+    }
+
+    private final GTDataStoreGranuleCatalog wrappedCatalogue;
+
+    private final String typeName;
+
+    private final boolean offHeap;
+
+    private volatile PackedIndex index;
+
+    /**
+     * Incremented on each change of the underlying catalog, only modified while holding the
+     * catalog lock
+     */
+    private volatile long generation;
+
+    private boolean disposed;
+
+    public PackedSTRTreeGranuleCatalog(final Properties params, DataStoreFactorySpi spi,
+            final Hints hints) {
+        super(hints);
+        Utilities.ensureNonNull("params", params);
+        this.wrappedCatalogue = new GTDataStoreGranuleCatalog(params, false, spi, hints);
+        String typeName = (String) params.get("TypeName");
+        if (typeName == null) {
+            typeName = wrappedCatalogue.typeNames.iterator().next();
+        }
+        this.typeName = typeName;
+        this.offHeap = hints != null
+                && Boolean.TRUE.equals(hints.get(Utils.PACKED_INDEX_OFF_HEAP));
+    }
+
+    /**
+     * Returns the current index, building it if missing, or if a transaction changed the catalog
+     * since it was built
+     */
+    PackedIndex getIndex() throws IOException {
+        PackedIndex current = index;
+        if (current == null || current.generation != generation) {
+            synchronized (this) {
+                checkStore();
+                current = index;
+                if (current == null || current.generation != generation) {
+                    if (LOGGER.isLoggable(Level.FINE)) {
+                        LOGGER.fine("No up to date index exists and we create a new one.");
+                    }
+                    current = buildIndex(current, generation);
+                    index = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Rebuilds the index after a change of the catalog, readers keep on using the current one
+     * until the new one is ready
+     */
+    private synchronized void refresh() {
+        if (disposed) {
+            return;
+        }
+        final long gen = generation + 1;
+        PackedIndex current = index;
+        if (current != null) {
+            try {
+                index = buildIndex(current, gen);
+            } catch (Throwable t) {
+                LOGGER.log(Level.WARNING, "Failed to rebuild the granule index, "
+                        + "it will be built again on next access", t);
+                index = null;
+            }
+        }
+        generation = gen;
+    }
+
+    /**
+     * Loads the granules and packs them in a new index, reusing the descriptors of the previous
+     * index for the granules that did not change
+     */
+    private PackedIndex buildIndex(PackedIndex previous, final long gen) throws IOException {
+        final List<GranuleDescriptor> granules = new ArrayList<GranuleDescriptor>();
+        final List<String> ids = new ArrayList<String>();
+        final Map<String, GranuleDescriptor> reusable = previous != null ? previous.getGranulesById()
+                : Collections.<String, GranuleDescriptor> emptyMap();
+
+        SimpleFeatureIterator it = wrappedCatalogue.getGranules(new Query(typeName)).features();
+        try {
+            while (it.hasNext()) {
+                SimpleFeature sf = it.next();
+                GranuleDescriptor granule = reusable.get(sf.getID());
+                // the ids might get reassigned, e.g., shapefile ones are row numbers
+                if (granule == null || granule.getOriginator() == null
+                        || !granule.getOriginator().getAttributes().equals(sf.getAttributes())) {
+                    MultiLevelROI footprint = getGranuleFootprint(sf);
+                    if (footprint != null && footprint.isEmpty()) {
+                        continue;
+                    }
+                    granule = new GranuleDescriptor(sf, wrappedCatalogue.suggestedRasterSPI,
+                            wrappedCatalogue.pathType, wrappedCatalogue.locationAttribute,
+                            wrappedCatalogue.parentLocation, footprint,
+                            wrappedCatalogue.heterogeneous, wrappedCatalogue.hints);
+                }
+                granules.add(granule);
+                ids.add(sf.getID());
+            }
+        } finally {
+            it.close();
+        }
+
+        PackedIndex result = new PackedIndex(gen, granules, ids,
+                wrappedCatalogue.getType(typeName), offHeap);
+        if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.fine("Built a packed index of " + result.size + " granules");
+        }
+        return result;
+    }
+
+    /**
+     * Rebuilds the index, or sets up the transaction to mark it as stale on commit. The index is
+     * not rebuilt during the commit, as the underlying store might not have committed yet
+     */
+    private void invalidate(Transaction transaction) {
+        if (transaction == null || transaction == Transaction.AUTO_COMMIT) {
+            refresh();
+        } else if (transaction.getState(this) == null) {
+            transaction.putState(this, new Transaction.State() {
+
+                public void setTransaction(Transaction transaction) {
+                }
+
+                public void addAuthorization(String AuthID) throws IOException {
+                }
+
+                public void commit() throws IOException {
+                    synchronized (PackedSTRTreeGranuleCatalog.this) {
+                        generation++;
+                    }
+                }
+
+                public void rollback() throws IOException {
+                }
+            });
+        }
+    }
+
+    public List<GranuleDescriptor> getGranules(final BoundingBox envelope) throws IOException {
+        Utilities.ensureNonNull("envelope", envelope);
+        final List<GranuleDescriptor> result = new ArrayList<GranuleDescriptor>();
+        getIndex().query(ReferencedEnvelope.reference(envelope), null, new GranuleCollector() {
+
+            public boolean add(GranuleDescriptor granule) {
+                result.add(granule);
+                return true;
+            }
+        });
+        return result;
+    }
+
+    public void getGranules(final BoundingBox envelope, final GranuleCatalogVisitor visitor)
+            throws IOException {
+        Utilities.ensureNonNull("envelope", envelope);
+        Utilities.ensureNonNull("visitor", visitor);
+        getGranuleDescriptors(ReferencedEnvelope.reference(envelope), Filter.INCLUDE, -1, visitor);
+    }
+
+    @Override
+    public SimpleFeatureCollection getGranules(Query q) throws IOException {
+        Utilities.ensureNonNull("q", q);
+        q = mergeHints(q);
+        final ListFeatureCollection retVal = new ListFeatureCollection(
+                wrappedCatalogue.getType(typeName));
+        final Filter filter = q.getFilter();
+        getGranuleDescriptors(extractBBox(filter), filter, q.getMaxFeatures(),
+                new GranuleCatalogVisitor() {
+
+                    @Override
+                    public void visit(GranuleDescriptor granule, Object o) {
+                        retVal.add(granule.getOriginator());
+                    }
+                });
+        return retVal;
+    }
+
+    @Override
+    public void getGranuleDescriptors(Query q, GranuleCatalogVisitor visitor) throws IOException {
+        Utilities.ensureNonNull("q", q);
+        Utilities.ensureNonNull("visitor", visitor);
+        final Filter filter = q.getFilter();
+        getGranuleDescriptors(extractBBox(filter), filter, q.getMaxFeatures(), visitor);
+    }
+
+    private void getGranuleDescriptors(ReferencedEnvelope bbox, final Filter filter,
+            final int maxGranules, final GranuleCatalogVisitor visitor) throws IOException {
+        final Map<String, long[]> times = extractTimeRanges(filter);
+        final int[] count = new int[1];
+        getIndex().query(bbox, times, new GranuleCollector() {
+
+            public boolean add(GranuleDescriptor granule) {
+                if (maxGranules > 0 && count[0] >= maxGranules) {
+                    return false;
+                }
+                final SimpleFeature originator = granule.getOriginator();
+                if (originator != null
+                        && (filter == Filter.INCLUDE || filter.evaluate(originator))) {
+                    visitor.visit(granule, null);
+                    count[0]++;
+                }
+                return true;
+            }
+        });
+    }
+
+    /**
+     * Returns the bounding box found in the filter, or null if there is none
+     */
+    private ReferencedEnvelope extractBBox(Filter filter) {
+        if (filter == null || filter == Filter.INCLUDE) {
+            return null;
+        }
+        final Utils.BBOXFilterExtractor bboxExtractor = new Utils.BBOXFilterExtractor();
+        filter.accept(bboxExtractor, null);
+        return bboxExtractor.getBBox();
+    }
+
+    /**
+     * Returns the ranges of values, by attribute, that the dates of the granules matching the
+     * filter must fall into, or null if the filter does not constrain any date. The ranges are
+     * inclusive and might be larger than the ones actually selected by the filter, which still
+     * needs to be evaluated on the granules found.
+     */
+    static Map<String, long[]> extractTimeRanges(Filter filter) {
+        if (filter instanceof And) {
+            Map<String, long[]> result = null;
+            for (Filter child : ((And) filter).getChildren()) {
+                Map<String, long[]> ranges = extractTimeRanges(child);
+                if (ranges == null) {
+                    continue;
+                } else if (result == null) {
+                    result = new HashMap<String, long[]>(ranges);
+                } else {
+                    for (Map.Entry<String, long[]> entry : ranges.entrySet()) {
+                        long[] range = entry.getValue();
+                        long[] other = result.get(entry.getKey());
+                        if (other != null) {
+                            range = new long[] { Math.max(range[0], other[0]),
+                                    Math.min(range[1], other[1]) };
+                        }
+                        result.put(entry.getKey(), range);
+                    }
+                }
+            }
+            return result;
+        } else if (filter instanceof Or) {
+            Map<String, long[]> result = null;
+            for (Filter child : ((Or) filter).getChildren()) {
+                Map<String, long[]> ranges = extractTimeRanges(child);
+                if (ranges == null) {
+                    // this branch can match any date
+                    return null;
+                } else if (result == null) {
+                    result = new HashMap<String, long[]>(ranges);
+                } else {
+                    // only the attributes constrained by all branches are constrained
+                    result.keySet().retainAll(ranges.keySet());
+                    for (Map.Entry<String, long[]> entry : result.entrySet()) {
+                        long[] range = entry.getValue();
+                        long[] other = ranges.get(entry.getKey());
+                        entry.setValue(new long[] { Math.min(range[0], other[0]),
+                                Math.max(range[1], other[1]) });
+                    }
+                }
+            }
+            return result == null || result.isEmpty() ? null : result;
+        } else if (filter instanceof PropertyIsBetween) {
+            PropertyIsBetween between = (PropertyIsBetween) filter;
+            if (between.getExpression() instanceof PropertyName) {
+                Date lower = toDate(between.getLowerBoundary());
+                Date upper = toDate(between.getUpperBoundary());
+                if (lower != null && upper != null) {
+                    return range(between.getExpression(), lower.getTime(), upper.getTime());
+                }
+            }
+        } else if (filter instanceof BinaryComparisonOperator) {
+            BinaryComparisonOperator comparison = (BinaryComparisonOperator) filter;
+            Expression property = comparison.getExpression1();
+            Date date = toDate(comparison.getExpression2());
+            boolean flipped = false;
+            if (!(property instanceof PropertyName) || date == null) {
+                property = comparison.getExpression2();
+                date = toDate(comparison.getExpression1());
+                flipped = true;
+            }
+            if (!(property instanceof PropertyName) || date == null) {
+                return null;
+            }
+            // the strict comparisons are treated as the non strict ones
+            long time = date.getTime();
+            if (filter instanceof PropertyIsEqualTo) {
+                return range(property, time, time);
+            } else if (filter instanceof PropertyIsLessThan
+                    || filter instanceof PropertyIsLessThanOrEqualTo) {
+                return flipped ? range(property, time, Long.MAX_VALUE) : range(property,
+                        Long.MIN_VALUE + 1, time);
+            } else if (filter instanceof PropertyIsGreaterThan
+                    || filter instanceof PropertyIsGreaterThanOrEqualTo) {
+                return flipped ? range(property, Long.MIN_VALUE + 1, time) : range(property,
+                        time, Long.MAX_VALUE);
+            }
+        }
+        return null;
+    }
+
+    private static Map<String, long[]> range(Expression property, long min, long max) {
+        Map<String, long[]> result = new HashMap<String, long[]>();
+        result.put(((PropertyName) property).getPropertyName(), new long[] { min, max });
+        return result;
+    }
+
+    private static Date toDate(Expression expression) {
+        if (expression instanceof Literal) {
+            return expression.evaluate(null, Date.class);
+        }
+        return null;
+    }
+
+    @Override
+    public void dispose() {
+        synchronized (this) {
+            disposed = true;
+            index = null;
+        }
+        try {
+            wrappedCatalogue.dispose();
+        } catch (Exception e) {
+            if (LOGGER.isLoggable(Level.FINE))
+                LOGGER.log(Level.FINE, e.getLocalizedMessage(), e);
+        }
+        if (multiScaleROIProvider != null) {
+            multiScaleROIProvider.dispose();
+            multiScaleROIProvider = null;
+        }
+    }
+
+    /**
+     * @throws IllegalStateException
+     */
+    private synchronized void checkStore() throws IllegalStateException {
+        if (disposed)
+            throw new IllegalStateException("The underlying store has already been disposed!");
+    }
+
+    @Override
+    public BoundingBox getBounds(String typeName) {
+        return wrappedCatalogue.getBounds(typeName);
+    }
+
+    @Override
+    public SimpleFeatureType getType(String typeName) throws IOException {
+        return wrappedCatalogue.getType(typeName);
+    }
+
+    @Override
+    public String[] getTypeNames() {
+        return typeName != null ? new String[] { typeName } : null;
+    }
+
+    @Override
+    public void computeAggregateFunction(Query query, FeatureCalc function) throws IOException {
+        wrappedCatalogue.computeAggregateFunction(mergeHints(query), function);
+    }
+
+    @Override
+    public QueryCapabilities getQueryCapabilities(String typeName) {
+        return wrappedCatalogue.getQueryCapabilities(typeName);
+    }
+
+    @Override
+    public int getGranulesCount(Query q) throws IOException {
+        return wrappedCatalogue.getGranulesCount(mergeHints(q));
+    }
+
+    @Override
+    public void addGranules(String typeName, Collection<SimpleFeature> granules,
+            Transaction transaction) throws IOException {
+        wrappedCatalogue.addGranules(typeName, granules, transaction);
+        invalidate(transaction);
+    }
+
+    @Override
+    public int removeGranules(Query query) {
+        int removed = wrappedCatalogue.removeGranules(query);
+        if (removed != 0) {
+            invalidate(Transaction.AUTO_COMMIT);
+        }
+        return removed;
+    }
+
+    @Override
+    public void createType(String namespace, String typeName, String typeSpec)
+            throws IOException, SchemaException {
+        wrappedCatalogue.createType(namespace, typeName, typeSpec);
+    }
+
+    @Override
+    public void createType(SimpleFeatureType featureType) throws IOException {
+        wrappedCatalogue.createType(featureType);
+    }
+
+    @Override
+    public void createType(String identification, String typeSpec) throws SchemaException,
+            IOException {
+        wrappedCatalogue.createType(identification, typeSpec);
+    }
+
+    @Override
+    public void removeType(String typeName) throws IOException {
+        wrappedCatalogue.removeType(typeName);
+        invalidate(Transaction.AUTO_COMMIT);
+    }
+
+    /**
+     * The values of a date attribute, for each granule, along with their range in each tree node
+     */
+    static final class TimeColumn {
+        final LongBuffer values;
+
+        final LongBuffer nodeMin;
+
+        final LongBuffer nodeMax;
+
+        TimeColumn(LongBuffer values, LongBuffer nodeMin, LongBuffer nodeMax) {
+            this.values = values;
+            this.nodeMin = nodeMin;
+            this.nodeMax = nodeMax;
+        }
+    }
+
+    /**
+     * An immutable, packed STR tree. The granules are sorted in STR order, each leaf node covers
+     * {@link #NODE_CAPACITY} consecutive granules, and each upper level node covers
+     * {@link #NODE_CAPACITY} consecutive nodes of the level below.
+     */
+    static final class PackedIndex {
+
+        final long generation;
+
+        final int size;
+
+        final GranuleDescriptor[] granules;
+
+        final String[] ids;
+
+        /** minx, miny, maxx, maxy of each granule */
+        final DoubleBuffer bounds;
+
+        /** minx, miny, maxx, maxy of each node, level by level, starting from the leaves */
+        final DoubleBuffer nodeBounds;
+
+        /** The position of the first node of each level */
+        final int[] levelOffsets;
+
+        /** The number of nodes of each level */
+        final int[] levelSizes;
+
+        final Map<String, TimeColumn> timeColumns = new HashMap<String, TimeColumn>();
+
+        PackedIndex(long generation, List<GranuleDescriptor> granuleList, List<String> idList,
+                SimpleFeatureType schema, boolean offHeap) {
+            this.generation = generation;
+            this.size = granuleList.size();
+            this.granules = new GranuleDescriptor[size];
+            this.ids = new String[size];
+
+            final double[] envelopes = new double[size * 4];
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                BoundingBox bbox = granuleList.get(i).getGranuleBBOX();
+                envelopes[i * 4] = bbox.getMinX();
+                envelopes[i * 4 + 1] = bbox.getMinY();
+                envelopes[i * 4 + 2] = bbox.getMaxX();
+                envelopes[i * 4 + 3] = bbox.getMaxY();
+                order[i] = i;
+            }
+
+            // sort tile recursive: vertical slices by center x, then by center y in each slice
+            Arrays.sort(order, new CenterComparator(envelopes, 0));
+            int leaves = (size + NODE_CAPACITY - 1) / NODE_CAPACITY;
+            int sliceSize = (int) Math.ceil(Math.sqrt(leaves)) * NODE_CAPACITY;
+            Comparator<Integer> yComparator = new CenterComparator(envelopes, 1);
+            for (int start = 0; start < size; start += sliceSize) {
+                Arrays.sort(order, start, Math.min(size, start + sliceSize), yComparator);
+            }
+            bounds = allocateDoubles(size * 4, offHeap);
+            for (int i = 0; i < size; i++) {
+                int source = order[i];
+                granules[i] = granuleList.get(source);
+                ids[i] = idList.get(source);
+                for (int j = 0; j < 4; j++) {
+                    bounds.put(i * 4 + j, envelopes[source * 4 + j]);
+                }
+            }
+
+            // the tree levels
+            List<Integer> sizes = new ArrayList<Integer>();
+            int count = size;
+            while (count > 1 || sizes.isEmpty() && count > 0) {
+                count = (count + NODE_CAPACITY - 1) / NODE_CAPACITY;
+                sizes.add(count);
+            }
+            levelSizes = new int[sizes.size()];
+            levelOffsets = new int[sizes.size()];
+            int nodes = 0;
+            for (int l = 0; l < levelSizes.length; l++) {
+                levelSizes[l] = sizes.get(l);
+                levelOffsets[l] = nodes;
+                nodes += levelSizes[l];
+            }
+            nodeBounds = allocateDoubles(nodes * 4, offHeap);
+            for (int l = 0; l < levelSizes.length; l++) {
+                DoubleBuffer children = l == 0 ? bounds : nodeBounds;
+                int childOffset = l == 0 ? 0 : levelOffsets[l - 1];
+                for (int node = 0; node < levelSizes[l]; node++) {
+                    int from = node * NODE_CAPACITY;
+                    int to = Math.min(from + NODE_CAPACITY, childCount(l));
+                    double minx = Double.POSITIVE_INFINITY, miny = Double.POSITIVE_INFINITY;
+                    double maxx = Double.NEGATIVE_INFINITY, maxy = Double.NEGATIVE_INFINITY;
+                    for (int c = from; c < to; c++) {
+                        int base = (childOffset + c) * 4;
+                        minx = Math.min(minx, children.get(base));
+                        miny = Math.min(miny, children.get(base + 1));
+                        maxx = Math.max(maxx, children.get(base + 2));
+                        maxy = Math.max(maxy, children.get(base + 3));
+                    }
+                    int base = (levelOffsets[l] + node) * 4;
+                    nodeBounds.put(base, minx);
+                    nodeBounds.put(base + 1, miny);
+                    nodeBounds.put(base + 2, maxx);
+                    nodeBounds.put(base + 3, maxy);
+                }
+            }
+
+            // the date attributes
+            for (AttributeDescriptor ad : schema.getAttributeDescriptors()) {
+                if (Date.class.isAssignableFrom(ad.getType().getBinding())) {
+                    String name = ad.getLocalName();
+                    timeColumns.put(name, buildTimeColumn(name, nodes, offHeap));
+                }
+            }
+        }
+
+        /**
+         * The number of children of the nodes at the specified level
+         */
+        int childCount(int level) {
+            return level == 0 ? size : levelSizes[level - 1];
+        }
+
+        private TimeColumn buildTimeColumn(String name, int nodes, boolean offHeap) {
+            LongBuffer values = allocateLongs(size, offHeap);
+            for (int i = 0; i < size; i++) {
+                SimpleFeature originator = granules[i].getOriginator();
+                Object value = originator != null ? originator.getAttribute(name) : null;
+                values.put(i, value instanceof Date ? ((Date) value).getTime() : NULL_TIME);
+            }
+            LongBuffer nodeMin = allocateLongs(nodes, offHeap);
+            LongBuffer nodeMax = allocateLongs(nodes, offHeap);
+            for (int l = 0; l < levelSizes.length; l++) {
+                int childOffset = l == 0 ? 0 : levelOffsets[l - 1];
+                for (int node = 0; node < levelSizes[l]; node++) {
+                    int from = node * NODE_CAPACITY;
+                    int to = Math.min(from + NODE_CAPACITY, childCount(l));
+                    long min = Long.MAX_VALUE, max = Long.MIN_VALUE;
+                    for (int c = from; c < to; c++) {
+                        if (l == 0) {
+                            long value = values.get(c);
+                            if (value == NULL_TIME) {
+                                // granules without a date are always visited
+                                min = Long.MIN_VALUE;
+                                max = Long.MAX_VALUE;
+                            } else {
+                                min = Math.min(min, value);
+                                max = Math.max(max, value);
+                            }
+                        } else {
+                            min = Math.min(min, nodeMin.get(childOffset + c));
+                            max = Math.max(max, nodeMax.get(childOffset + c));
+                        }
+                    }
+                    nodeMin.put(levelOffsets[l] + node, min);
+                    nodeMax.put(levelOffsets[l] + node, max);
+                }
+            }
+            return new TimeColumn(values, nodeMin, nodeMax);
+        }
+
+        Map<String, GranuleDescriptor> getGranulesById() {
+            Map<String, GranuleDescriptor> result = new HashMap<String, GranuleDescriptor>(
+                    size * 2);
+            for (int i = 0; i < size; i++) {
+                result.put(ids[i], granules[i]);
+            }
+            return result;
+        }
+
+        /**
+         * Collects the granules intersecting the envelope, if any, whose dates fall in the
+         * specified ranges, if any
+         */
+        void query(ReferencedEnvelope envelope, Map<String, long[]> times,
+                GranuleCollector collector) {
+            if (size == 0) {
+                return;
+            }
+            double minx = Double.NEGATIVE_INFINITY, miny = Double.NEGATIVE_INFINITY;
+            double maxx = Double.POSITIVE_INFINITY, maxy = Double.POSITIVE_INFINITY;
+            if (envelope != null) {
+                if (envelope.isNull()) {
+                    return;
+                }
+                minx = envelope.getMinX();
+                miny = envelope.getMinY();
+                maxx = envelope.getMaxX();
+                maxy = envelope.getMaxY();
+            }
+            // the time ranges we can check against the index
+            List<TimeColumn> columns = new ArrayList<TimeColumn>();
+            List<long[]> ranges = new ArrayList<long[]>();
+            if (times != null) {
+                for (Map.Entry<String, long[]> entry : times.entrySet()) {
+                    TimeColumn column = timeColumns.get(entry.getKey());
+                    if (column != null) {
+                        columns.add(column);
+                        ranges.add(entry.getValue());
+                    }
+                }
+            }
+
+            // depth first visit, the stack holds level and node couples
+            int[] stack = new int[levelSizes.length * NODE_CAPACITY * 2 + 2];
+            int top = 0;
+            stack[top++] = levelSizes.length - 1;
+            stack[top++] = 0;
+            while (top > 0) {
+                int node = stack[--top];
+                int level = stack[--top];
+                int nodeIndex = levelOffsets[level] + node;
+                if (!intersects(nodeBounds, nodeIndex, minx, miny, maxx, maxy)) {
+                    continue;
+                }
+                boolean timeMatch = true;
+                for (int i = 0; i < columns.size() && timeMatch; i++) {
+                    TimeColumn column = columns.get(i);
+                    long[] range = ranges.get(i);
+                    timeMatch = column.nodeMax.get(nodeIndex) >= range[0]
+                            && column.nodeMin.get(nodeIndex) <= range[1];
+                }
+                if (!timeMatch) {
+                    continue;
+                }
+
+                int from = node * NODE_CAPACITY;
+                int to = Math.min(from + NODE_CAPACITY, childCount(level));
+                if (level == 0) {
+                    for (int g = from; g < to; g++) {
+                        if (!intersects(bounds, g, minx, miny, maxx, maxy)) {
+                            continue;
+                        }
+                        boolean granuleMatch = true;
+                        for (int i = 0; i < columns.size() && granuleMatch; i++) {
+                            long value = columns.get(i).values.get(g);
+                            long[] range = ranges.get(i);
+                            granuleMatch = value == NULL_TIME
+                                    || (value >= range[0] && value <= range[1]);
+                        }
+                        if (granuleMatch && !collector.add(granules[g])) {
+                            return;
+                        }
+                    }
+                } else {
+                    // push in reverse order, so that the granules are visited in index order
+                    for (int c = to - 1; c >= from; c--) {
+                        stack[top++] = level - 1;
+                        stack[top++] = c;
+                    }
+                }
+            }
+        }
+
+        private static boolean intersects(DoubleBuffer boxes, int index, double minx,
+                double miny, double maxx, double maxy) {
+            int base = index * 4;
+            return boxes.get(base) <= maxx && boxes.get(base + 2) >= minx
+                    && boxes.get(base + 1) <= maxy && boxes.get(base + 3) >= miny;
+        }
+
+        private static DoubleBuffer allocateDoubles(int size, boolean offHeap) {
+            if (offHeap) {
+                return ByteBuffer.allocateDirect(size * 8).order(ByteOrder.nativeOrder())
+                        .asDoubleBuffer();
+            }
+            return DoubleBuffer.allocate(size);
+        }
+
+        private static LongBuffer allocateLongs(int size, boolean offHeap) {
+            if (offHeap) {
+                return ByteBuffer.allocateDirect(size * 8).order(ByteOrder.nativeOrder())
+                        .asLongBuffer();
+            }
+            return LongBuffer.allocate(size);
+        }
+    }
+
+    /**
+     * Compares the granules by the center of their envelopes along one axis
+     */
+    static final class CenterComparator implements Comparator<Integer> {
+        final double[] envelopes;
+
+        final int axis;
+
+        CenterComparator(double[] envelopes, int axis) {
+            this.envelopes = envelopes;
+            this.axis = axis;
+        }
+
+        public int compare(Integer o1, Integer o2) {
+            double c1 = envelopes[o1 * 4 + axis] + envelopes[o1 * 4 + axis + 2];
+            double c2 = envelopes[o2 * 4 + axis] + envelopes[o2 * 4 + axis + 2];
+            return Double.compare(c1, c2);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.imagemosaic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.geotools.gce.imagemosaic.GranuleDescriptor.GranuleLoadingResult;
+import org.geotools.gce.imagemosaic.GranuleReadPlanner.Batch;
+import org.geotools.gce.imagemosaic.GranuleReadPlanner.PlannedLoad;
+import org.junit.Test;
+
+/**
+ * Tests the {@link GranuleReadPlanner}
+ *
+ * @source $URL$
+ */
+public class GranuleReadPlannerTest {
+
+    /**
+     * Records the loads in execution order
+     */
+    static class RecordingLoader implements Callable<GranuleLoadingResult> {
+        final String name;
+
+        final List<String> executed;
+
+        RecordingLoader(String name, List<String> executed) {
+            this.name = name;
+            this.executed = executed;
+        }
+
+        public GranuleLoadingResult call() throws Exception {
+            executed.add(name);
+            return null;
+        }
+    }
+
+    List<String> executed = Collections.synchronizedList(new ArrayList<String>());
+
+    void add(GranuleReadPlanner planner, String file, int imageIndex, double cost) {
+        planner.add(file, imageIndex, cost, new RecordingLoader(file + ":" + imageIndex, executed));
+    }
+
+    static List<Integer> positions(Batch batch) {
+        List<Integer> result = new ArrayList<Integer>();
+        for (PlannedLoad load : batch.loads) {
+            result.add(load.position);
+        }
+        return result;
+    }
+
+    @Test
+    public void testBatchByFile() {
+        GranuleReadPlanner planner = new GranuleReadPlanner(null);
+        add(planner, "a.nc", 1, 10);
+        add(planner, "b.tif", 0, 100);
+        add(planner, "a.nc", 0, 10);
+        add(planner, "c.tif", 0, 5);
+
+        List<Batch> batches = planner.plan(1);
+        assertEquals(3, batches.size());
+        // most expensive first
+        assertEquals("b.tif", batches.get(0).file);
+        assertEquals("a.nc", batches.get(1).file);
+        assertEquals("c.tif", batches.get(2).file);
+        // the same file is read by image index
+        assertEquals(Arrays.asList(2, 0), positions(batches.get(1)));
+    }
+
+    @Test
+    public void testSplitForParallelism() {
+        GranuleReadPlanner planner = new GranuleReadPlanner(null);
+        for (int i = 0; i < 8; i++) {
+            add(planner, "a.nc", 7 - i, 1);
+        }
+
+        List<Batch> batches = planner.plan(4);
+        assertEquals(4, batches.size());
+        for (Batch batch : batches) {
+            assertEquals(2, batch.loads.size());
+            // consecutive image indexes in each batch
+            assertEquals(batch.loads.get(0).imageIndex + 1, batch.loads.get(1).imageIndex);
+        }
+    }
+
+    @Test
+    public void testSubmitInCurrentThread() throws Exception {
+        GranuleReadPlanner planner = new GranuleReadPlanner(null);
+        add(planner, "a.nc", 1, 1);
+        add(planner, "b.tif", 0, 10);
+        add(planner, "a.nc", 0, 1);
+        planner.submit(null);
+
+        assertEquals(Arrays.asList("b.tif:0", "a.nc:0", "a.nc:1"), executed);
+        for (Future<GranuleLoadingResult> result : planner.getResults()) {
+            assertTrue(result.isDone());
+        }
+        // submitting again does nothing
+        planner.submit(null);
+        assertEquals(3, executed.size());
+    }
+
+    @Test
+    public void testSubmitOnExecutor() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            GranuleReadPlanner planner = new GranuleReadPlanner(null);
+            for (int i = 0; i < 20; i++) {
+                add(planner, "file" + (i % 3), i, i);
+            }
+            planner.submit(executor);
+
+            // results come back in mosaic order
+            assertEquals(20, planner.getResults().size());
+            for (Future<GranuleLoadingResult> result : planner.getResults()) {
+                result.get();
+            }
+            assertEquals(20, executed.size());
+
+            // each file has been read in image index order
+            for (int f = 0; f < 3; f++) {
+                int last = -1;
+                for (String name : new ArrayList<String>(executed)) {
+                    if (name.startsWith("file" + f + ":")) {
+                        int index = Integer.parseInt(name.substring(name.indexOf(':') + 1));
+                        assertTrue(index > last);
+                        last = index;
+                    }
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
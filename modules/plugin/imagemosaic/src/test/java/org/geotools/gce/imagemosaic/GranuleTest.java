@@ -192,6 +192,64 @@ public class GranuleTest extends Assert {
 	
 	
 	
+    @Test
+    public void testLoadRasterPooledAndCached() throws Exception {
+        final File testMosaic = TestData.file(this, "/rgb");
+        final URL testUrl = TestData.url(this, "/rgb/global_mosaic_12.png");
+        final GranuleDescriptor granuleDescriptor = new GranuleDescriptor(DataUtilities
+                .urlToFile(testUrl).getAbsolutePath(), TEST_BBOX, spi, (MultiLevelROI) null);
+        final GranuleOverviewLevelDescriptor level = granuleDescriptor.getLevel(0);
+
+        final GranuleTileCache tileCache = new GranuleTileCache();
+        final Hints readerHints = new Hints(Hints.DEFAULT_COORDINATE_REFERENCE_SYSTEM,
+                DefaultGeographicCRS.WGS84);
+        readerHints.put(Utils.GRANULE_TILE_CACHE, tileCache);
+        readerHints.put(Utils.MAX_POOLED_GRANULE_READERS, 4);
+        final ImageMosaicReader reader = (ImageMosaicReader) new ImageMosaicFormat().getReader(
+                testMosaic, readerHints);
+        assertNotNull(reader);
+        try {
+            final RasterManager manager = reader.getRasterManager(reader.getGridCoverageNames()[0]);
+            assertSame(tileCache, manager.granuleTileCache);
+            assertNotNull(manager.granuleReaderPool);
+
+            final ParameterValue<Boolean> useJai = AbstractGridFormat.USE_JAI_IMAGEREAD
+                    .createValue();
+            useJai.setValue(false);
+            final RasterLayerRequest request = new RasterLayerRequest(
+                    new GeneralParameterValue[] { useJai }, manager);
+
+            final ImageReadParam readParameters = new ImageReadParam();
+            readParameters.setSourceRegion(new Rectangle(0, 0, 50, 50));
+            final RenderedImage first = granuleDescriptor.loadRaster(readParameters, 0,
+                    TEST_BBOX, level.getGridToWorldTransform().inverse(), request, new Hints())
+                    .getRaster();
+            assertEquals(1, tileCache.size());
+            assertEquals(0, tileCache.getHits());
+            // the reader went back to the pool
+            assertEquals(1, manager.granuleReaderPool.size());
+
+            // same request, the raster comes from the cache
+            final RenderedImage second = granuleDescriptor.loadRaster(readParameters, 0,
+                    TEST_BBOX, level.getGridToWorldTransform().inverse(), request, new Hints())
+                    .getRaster();
+            assertEquals(1, tileCache.getHits());
+            assertEquals(first.getWidth(), second.getWidth());
+            assertEquals(first.getHeight(), second.getHeight());
+            assertEquals(1, manager.granuleReaderPool.size());
+
+            // the same granule area placed elsewhere in the mosaic uses the cache as well
+            AffineTransform translate = new AffineTransform(level.getGridToWorldTransform());
+            translate.preConcatenate(AffineTransform.getTranslateInstance(2, 2));
+            granuleDescriptor.loadRaster(readParameters, 0, TEST_BBOX,
+                    new AffineTransform2D(translate).inverse(), request, new Hints());
+            assertEquals(2, tileCache.getHits());
+            assertEquals(1, manager.granuleReaderPool.size());
+        } finally {
+            reader.dispose();
+        }
+    }
+
     static final String NZTM_WKT_NE = "PROJCS[\"NZGD2000 / New Zealand Transverse Mercator 2000\", \n"
             + "  GEOGCS[\"NZGD2000\", \n"
             + "    DATUM[\"New Zealand Geodetic Datum 2000\", \n"
@@ -0,0 +1,303 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.imagemosaic.catalog;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.TreeSet;
+
+import org.apache.commons.io.FileUtils;
+import org.geotools.data.DataUtilities;
+import org.geotools.data.DefaultTransaction;
+import org.geotools.data.Query;
+import org.geotools.data.Transaction;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.factory.Hints;
+import org.geotools.gce.imagemosaic.GranuleDescriptor;
+import org.geotools.gce.imagemosaic.ImageMosaicFormat;
+import org.geotools.gce.imagemosaic.ImageMosaicReader;
+import org.geotools.gce.imagemosaic.Utils;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.test.TestData;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory2;
+
+/**
+ * Tests the {@link PackedSTRTreeGranuleCatalog}
+ *
+ * @source $URL$
+ */
+public class PackedSTRTreeGranuleCatalogTest {
+
+    static final FilterFactory2 FF = CommonFactoryFinder.getFilterFactory2();
+
+    File mosaic;
+
+    String typeName;
+
+    GranuleCatalog catalog;
+
+    @Before
+    public void setUp() throws Exception {
+        File source = TestData.file(ImageMosaicReader.class, "time_geotiff");
+        mosaic = new File(TestData.file(ImageMosaicReader.class, "."), "packed_time");
+        if (mosaic.exists()) {
+            FileUtils.deleteDirectory(mosaic);
+        }
+        FileUtils.copyDirectory(source, mosaic);
+
+        // let the reader build the mosaic index
+        ImageMosaicReader reader = new ImageMosaicFormat().getReader(DataUtilities
+                .fileToURL(mosaic));
+        assertNotNull(reader);
+        typeName = reader.getGridCoverageNames()[0];
+        reader.dispose();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (catalog != null) {
+            catalog.dispose();
+        }
+    }
+
+    GranuleCatalog createCatalog(boolean packed, Hints hints) throws Exception {
+        CatalogConfigurationBean bean = new CatalogConfigurationBean();
+        bean.setTypeName(typeName);
+        bean.setLocationAttribute("location");
+        bean.setCaching(true);
+        bean.setPackedIndex(packed);
+        File index = new File(mosaic, typeName + ".shp");
+        assertTrue(index.exists());
+        return GranuleCatalogFactory.createGranuleCatalog(DataUtilities.fileToURL(index), bean,
+                null, hints);
+    }
+
+    static Date date(String date) throws Exception {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd");
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        return format.parse(date);
+    }
+
+    static Set<String> getLocations(SimpleFeatureCollection granules) {
+        Set<String> result = new TreeSet<String>();
+        SimpleFeatureIterator it = granules.features();
+        try {
+            while (it.hasNext()) {
+                result.add((String) it.next().getAttribute("location"));
+            }
+        } finally {
+            it.close();
+        }
+        return result;
+    }
+
+    static Set<String> getLocations(Collection<GranuleDescriptor> granules) {
+        Set<String> result = new TreeSet<String>();
+        for (GranuleDescriptor granule : granules) {
+            result.add((String) granule.getOriginator().getAttribute("location"));
+        }
+        return result;
+    }
+
+    static Set<String> locations(String... locations) {
+        return new TreeSet<String>(Arrays.asList(locations));
+    }
+
+    @Test
+    public void testQueries() throws Exception {
+        catalog = createCatalog(true, null);
+        assertTrue(catalog instanceof PackedSTRTreeGranuleCatalog);
+        checkQueries((PackedSTRTreeGranuleCatalog) catalog);
+    }
+
+    @Test
+    public void testQueriesOffHeap() throws Exception {
+        catalog = createCatalog(true, new Hints(Utils.PACKED_INDEX_OFF_HEAP, true));
+        assertTrue(catalog instanceof PackedSTRTreeGranuleCatalog);
+        checkQueries((PackedSTRTreeGranuleCatalog) catalog);
+    }
+
+    void checkQueries(PackedSTRTreeGranuleCatalog catalog) throws Exception {
+        ReferencedEnvelope bounds = ReferencedEnvelope.reference(catalog.getBounds(typeName));
+        assertEquals(4, catalog.getGranules(bounds).size());
+        assertEquals(4, catalog.getGranules(new Query(typeName)).size());
+
+        // a single time
+        Filter equal = FF.equal(FF.property("time"), FF.literal(date("2004-03-01")), true);
+        assertEquals(locations("world.200403.3x5400x2700.tiff"),
+                getLocations(catalog.getGranules(new Query(typeName, equal))));
+
+        // a time range, the same way RasterManager builds it
+        Filter range = FF.and(
+                FF.lessOrEqual(FF.property("time"), FF.literal(date("2004-05-01"))),
+                FF.greaterOrEqual(FF.property("time"), FF.literal(date("2004-03-15"))));
+        assertEquals(
+                locations("world.200404.3x5400x2700.tiff", "world.200405.3x5400x2700.tiff"),
+                getLocations(catalog.getGranules(new Query(typeName, range))));
+
+        // space and time
+        Filter bbox = FF.bbox("the_geom", -10, -10, 10, 10, null);
+        Query query = new Query(typeName, FF.and(bbox, equal));
+        assertEquals(1, catalog.getGranules(query).size());
+        bbox = FF.bbox("the_geom", 500, 500, 600, 600, null);
+        query = new Query(typeName, FF.and(bbox, equal));
+        assertEquals(0, catalog.getGranules(query).size());
+
+        // max features
+        query = new Query(typeName);
+        query.setMaxFeatures(2);
+        assertEquals(2, catalog.getGranules(query).size());
+
+        // same results as the other in memory catalog
+        GranuleCatalog reference = createCatalog(false, null);
+        try {
+            for (Filter filter : Arrays.asList(equal, range, Filter.INCLUDE)) {
+                assertEquals(getLocations(reference.getGranules(new Query(typeName, filter))),
+                        getLocations(catalog.getGranules(new Query(typeName, filter))));
+            }
+        } finally {
+            reference.dispose();
+        }
+    }
+
+    @Test
+    public void testRebuildOnChange() throws Exception {
+        catalog = createCatalog(true, null);
+        PackedSTRTreeGranuleCatalog packed = (PackedSTRTreeGranuleCatalog) catalog;
+        ReferencedEnvelope bounds = ReferencedEnvelope.reference(catalog.getBounds(typeName));
+        List<GranuleDescriptor> granules = packed.getGranules(bounds);
+        assertEquals(4, granules.size());
+        GranuleDescriptor february = null;
+        SimpleFeature mayFeature = null;
+        for (GranuleDescriptor granule : granules) {
+            Object location = granule.getOriginator().getAttribute("location");
+            if ("world.200402.3x5400x2700.tiff".equals(location)) {
+                february = granule;
+            } else if ("world.200405.3x5400x2700.tiff".equals(location)) {
+                mayFeature = granule.getOriginator();
+            }
+        }
+        assertNotNull(february);
+        assertNotNull(mayFeature);
+
+        Filter may = FF.equal(FF.property("time"), FF.literal(date("2004-05-01")), true);
+        assertEquals(1, catalog.removeGranules(new Query(typeName, may)));
+
+        // the removal is visible right away, by all kinds of query
+        granules = packed.getGranules(bounds);
+        assertEquals(3, granules.size());
+        assertTrue(!getLocations(granules).contains("world.200405.3x5400x2700.tiff"));
+        assertEquals(0, catalog.getGranules(new Query(typeName, may)).size());
+        assertEquals(3, catalog.getGranules(new Query(typeName)).size());
+        // the descriptors of the unchanged granules have been reused
+        boolean reused = false;
+        for (GranuleDescriptor granule : granules) {
+            reused |= granule == february;
+        }
+        assertTrue(reused);
+
+        // same goes for additions
+        catalog.addGranules(typeName, Collections.singletonList(mayFeature),
+                Transaction.AUTO_COMMIT);
+        assertEquals(4, packed.getGranules(bounds).size());
+        assertEquals(locations("world.200405.3x5400x2700.tiff"),
+                getLocations(catalog.getGranules(new Query(typeName, may))));
+    }
+
+    @Test
+    public void testRebuildOnCommit() throws Exception {
+        catalog = createCatalog(true, null);
+        PackedSTRTreeGranuleCatalog packed = (PackedSTRTreeGranuleCatalog) catalog;
+        ReferencedEnvelope bounds = ReferencedEnvelope.reference(catalog.getBounds(typeName));
+        assertEquals(4, packed.getGranules(bounds).size());
+        SimpleFeature feature = DataUtilities.first(catalog.getGranules(new Query(typeName)));
+        Filter same = FF.equal(FF.property("location"),
+                FF.literal(feature.getAttribute("location")), true);
+        assertEquals(1, catalog.removeGranules(new Query(typeName, same)));
+        assertEquals(3, packed.getGranules(bounds).size());
+
+        // the addition is visible only once committed
+        Transaction transaction = new DefaultTransaction();
+        try {
+            catalog.addGranules(typeName, Collections.singletonList(feature), transaction);
+            assertEquals(3, packed.getGranules(bounds).size());
+            transaction.commit();
+        } finally {
+            transaction.close();
+        }
+        assertEquals(4, packed.getGranules(bounds).size());
+    }
+
+    @Test
+    public void testExtractTimeRanges() throws Exception {
+        long march = date("2004-03-01").getTime();
+        long april = date("2004-04-01").getTime();
+        long may = date("2004-05-01").getTime();
+
+        assertNull(PackedSTRTreeGranuleCatalog.extractTimeRanges(Filter.INCLUDE));
+        assertNull(PackedSTRTreeGranuleCatalog.extractTimeRanges(FF.equal(FF.property("name"),
+                FF.literal("abc"), true)));
+
+        Filter equal = FF.equal(FF.property("time"), FF.literal(date("2004-03-01")), true);
+        Map<String, long[]> ranges = PackedSTRTreeGranuleCatalog.extractTimeRanges(equal);
+        assertArrayEquals(new long[] { march, march }, ranges.get("time"));
+
+        // a list of times and ranges
+        Filter range = FF.and(FF.lessOrEqual(FF.property("time"), FF.literal(date("2004-05-01"))),
+                FF.greaterOrEqual(FF.property("time"), FF.literal(date("2004-04-01"))));
+        ranges = PackedSTRTreeGranuleCatalog.extractTimeRanges(FF.or(equal, range));
+        assertArrayEquals(new long[] { march, may }, ranges.get("time"));
+
+        // a range over two attributes, literals first
+        Filter overlap = FF.and(FF.greaterOrEqual(FF.literal(date("2004-05-01")),
+                FF.property("start")), FF.lessOrEqual(FF.literal(date("2004-04-01")),
+                FF.property("end")));
+        ranges = PackedSTRTreeGranuleCatalog.extractTimeRanges(overlap);
+        assertEquals(may, ranges.get("start")[1]);
+        assertEquals(april, ranges.get("end")[0]);
+
+        // an or branch without time constraints
+        Filter name = FF.equal(FF.property("name"), FF.literal("abc"), true);
+        assertNull(PackedSTRTreeGranuleCatalog.extractTimeRanges(FF.or(equal, name)));
+
+        // between
+        ranges = PackedSTRTreeGranuleCatalog.extractTimeRanges(FF.between(FF.property("time"),
+                FF.literal(date("2004-03-01")), FF.literal(date("2004-04-01"))));
+        assertArrayEquals(new long[] { march, april }, ranges.get("time"));
+    }
+}
@@ -0,0 +1,304 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.imagepyramid;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.NoninvertibleTransformException;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.coverage.grid.GridCoverage2D;
+import org.geotools.coverage.grid.GridCoverageFactory;
+import org.geotools.coverage.grid.GridEnvelope2D;
+import org.geotools.coverage.grid.GridGeometry2D;
+import org.geotools.coverage.grid.io.AbstractGridFormat;
+import org.geotools.gce.imagemosaic.ImageMosaicFormat;
+import org.geotools.gce.imagemosaic.ImageMosaicReader;
+import org.geotools.geometry.Envelope2D;
+import org.geotools.geometry.GeneralEnvelope;
+import org.geotools.referencing.operation.transform.AffineTransform2D;
+import org.opengis.coverage.grid.GridEnvelope;
+import org.opengis.parameter.GeneralParameterValue;
+import org.opengis.parameter.ParameterValue;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.referencing.datum.PixelInCell;
+import org.opengis.referencing.operation.MathTransform;
+
+/**
+ * Reads a pyramid level through a {@link PyramidTileCache}: the area to be read is expanded to
+ * the level tile grid, the tiles found in the cache are used as is, the missing ones are read
+ * from the level mosaic and stored in the cache, and the result is assembled from the tiles.
+ *
+ * @author Andrea Aime - GeoSolutions
+ */
+class CachedTilesReader {
+
+    static final Logger LOGGER = org.geotools.util.logging.Logging
+            .getLogger(CachedTilesReader.class);
+
+    /**
+     * The read parameters that do not change the contents of the tiles
+     */
+    static final Set<String> CACHEABLE_PARAMETERS = new HashSet<String>(Arrays.asList(
+            AbstractGridFormat.READ_GRIDGEOMETRY2D.getName().getCode(),
+            AbstractGridFormat.OVERVIEW_POLICY.getName().getCode(),
+            AbstractGridFormat.USE_JAI_IMAGEREAD.getName().getCode(),
+            AbstractGridFormat.SUGGESTED_TILE_SIZE.getName().getCode(),
+            ImageMosaicFormat.ALLOW_MULTITHREADING.getName().getCode()));
+
+    /**
+     * The maximum number of tiles assembled in a single read, larger requests are left to the
+     * level mosaic
+     */
+    static final int MAX_TILES = 64;
+
+    /**
+     * Tolerance used when comparing the requested and level resolutions
+     */
+    static final double EPS = 1e-6;
+
+    final PyramidTileCache cache;
+
+    final GridCoverageFactory coverageFactory;
+
+    final String coverageName;
+
+    int maxTiles = MAX_TILES;
+
+    CachedTilesReader(PyramidTileCache cache, GridCoverageFactory coverageFactory,
+            String coverageName) {
+        this.cache = cache;
+        this.coverageFactory = coverageFactory;
+        this.coverageName = coverageName;
+    }
+
+    /**
+     * Returns true if the read parameters allow the use of cached tiles, that is, if they only
+     * specify the area to be read, and not filters, dimensions, or other parameters altering the
+     * tiles contents
+     */
+    static boolean isCacheable(GeneralParameterValue[] params) {
+        if (params == null) {
+            return true;
+        }
+        for (GeneralParameterValue param : params) {
+            if (param != null
+                    && !CACHEABLE_PARAMETERS.contains(param.getDescriptor().getName().getCode())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads the requested area, or returns null if the level cannot be read through the cache, in
+     * which case the caller should read directly from the level mosaic. The tiles are assembled
+     * at the level native resolution, so the cache is not used when the requested resolution is
+     * coarser than the level one (the mosaic can subsample instead), or when the requested area
+     * spans more than {@link #MAX_TILES} tiles
+     *
+     * @param level The pyramid level
+     * @param reader The level mosaic reader
+     * @param requestedEnvelope The requested area, in the pyramid crs
+     * @param requestedResolution The requested resolution, in the pyramid crs, or null if unknown
+     * @param params The read parameters
+     */
+    GridCoverage2D read(int level, ImageMosaicReader reader, GeneralEnvelope requestedEnvelope,
+            double[] requestedResolution, GeneralParameterValue[] params) throws IOException {
+        // the level grid, only simple north up grids are supported
+        final GridEnvelope range = reader.getOriginalGridRange();
+        final Rectangle levelBounds = new Rectangle(range.getLow(0), range.getLow(1),
+                range.getSpan(0), range.getSpan(1));
+        final MathTransform gridToWorld = reader.getOriginalGridToWorld(PixelInCell.CELL_CORNER);
+        if (!(gridToWorld instanceof AffineTransform)) {
+            return null;
+        }
+        final AffineTransform at = (AffineTransform) gridToWorld;
+        if (at.getShearX() != 0 || at.getShearY() != 0) {
+            return null;
+        }
+        // coarser than the level, the mosaic would subsample instead of reading at full resolution
+        if (requestedResolution != null
+                && (requestedResolution[0] > Math.abs(at.getScaleX()) * (1 + EPS)
+                        || requestedResolution[1] > Math.abs(at.getScaleY()) * (1 + EPS))) {
+            return null;
+        }
+        final AffineTransform worldToGrid;
+        try {
+            worldToGrid = at.createInverse();
+        } catch (NoninvertibleTransformException e) {
+            return null;
+        }
+
+        // the tiles covering the requested area
+        final Rectangle2D requested = worldToGrid.createTransformedShape(
+                new Rectangle2D.Double(requestedEnvelope.getMinimum(0), requestedEnvelope
+                        .getMinimum(1), requestedEnvelope.getSpan(0), requestedEnvelope
+                        .getSpan(1))).getBounds2D();
+        final int minX = (int) Math.floor(requested.getMinX());
+        final int minY = (int) Math.floor(requested.getMinY());
+        final Rectangle pixels = new Rectangle(minX, minY, (int) Math.ceil(requested.getMaxX())
+                - minX, (int) Math.ceil(requested.getMaxY()) - minY).intersection(levelBounds);
+        if (pixels.isEmpty()) {
+            return null;
+        }
+        final int size = PyramidTileCache.TILE_SIZE;
+        final int minCol = (pixels.x - levelBounds.x) / size;
+        final int maxCol = (pixels.x + pixels.width - 1 - levelBounds.x) / size;
+        final int minRow = (pixels.y - levelBounds.y) / size;
+        final int maxRow = (pixels.y + pixels.height - 1 - levelBounds.y) / size;
+        if ((long) (maxCol - minCol + 1) * (maxRow - minRow + 1) > maxTiles) {
+            return null;
+        }
+        final Rectangle area = new Rectangle(levelBounds.x + minCol * size, levelBounds.y
+                + minRow * size, (maxCol - minCol + 1) * size, (maxRow - minRow + 1) * size)
+                .intersection(levelBounds);
+
+        // collect the tiles
+        final CoordinateReferenceSystem crs = reader.getCoordinateReferenceSystem();
+        WritableRaster output = null;
+        ColorModel colorModel = null;
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int col = minCol; col <= maxCol; col++) {
+                Rectangle tileBounds = new Rectangle(levelBounds.x + col * size, levelBounds.y
+                        + row * size, size, size).intersection(levelBounds);
+                RenderedImage tile = getCachedTile(level, col, row, tileBounds);
+                if (tile == null) {
+                    tile = readTile(reader, at, crs, tileBounds, params);
+                    if (tile == null) {
+                        return null;
+                    }
+                    try {
+                        cache.putTile(level, col, row, tile);
+                    } catch (IOException e) {
+                        LOGGER.log(Level.WARNING, "Failed to cache tile " + level + "/" + col
+                                + "/" + row, e);
+                    }
+                }
+
+                if (output == null) {
+                    colorModel = tile.getColorModel();
+                    output = Raster.createWritableRaster(tile.getSampleModel()
+                            .createCompatibleSampleModel(area.width, area.height), null);
+                } else if (tile.getSampleModel().getNumBands() != output.getNumBands()) {
+                    // the cache does not preserve the image structure
+                    return null;
+                }
+                Raster data = tile.getData();
+                output.setRect(tileBounds.x - area.x - data.getMinX(), tileBounds.y - area.y
+                        - data.getMinY(), data);
+            }
+        }
+        if (colorModel == null || !colorModel.isCompatibleRaster(output)) {
+            return null;
+        }
+        final BufferedImage image = new BufferedImage(colorModel, output,
+                colorModel.isAlphaPremultiplied(), null);
+
+        final GeneralEnvelope envelope = new GeneralEnvelope(at.createTransformedShape(area)
+                .getBounds2D());
+        envelope.setCoordinateReferenceSystem(crs);
+        return coverageFactory.create(coverageName, image, envelope);
+    }
+
+    RenderedImage getCachedTile(int level, int col, int row, Rectangle tileBounds) {
+        try {
+            RenderedImage tile = cache.getTile(level, col, row);
+            if (tile != null
+                    && (tile.getWidth() != tileBounds.width || tile.getHeight() != tileBounds.height)) {
+                // not matching the level grid anymore
+                return null;
+            }
+            return tile;
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to read tile " + level + "/" + col + "/" + row
+                    + " from the cache", e);
+            return null;
+        }
+    }
+
+    /**
+     * Reads a tile from the level mosaic, at its native resolution
+     */
+    RenderedImage readTile(ImageMosaicReader reader, AffineTransform gridToWorld,
+            CoordinateReferenceSystem crs, Rectangle tileBounds, GeneralParameterValue[] params)
+            throws IOException {
+        final GridGeometry2D gg = new GridGeometry2D(new GridEnvelope2D(tileBounds),
+                PixelInCell.CELL_CORNER, new AffineTransform2D(gridToWorld), crs, null);
+        final List<GeneralParameterValue> tileParams = new ArrayList<GeneralParameterValue>();
+        final ParameterValue<GridGeometry2D> ggParam = AbstractGridFormat.READ_GRIDGEOMETRY2D
+                .createValue();
+        ggParam.setValue(gg);
+        tileParams.add(ggParam);
+        if (params != null) {
+            for (GeneralParameterValue param : params) {
+                if (param != null
+                        && !AbstractGridFormat.READ_GRIDGEOMETRY2D.getName().getCode()
+                                .equals(param.getDescriptor().getName().getCode())) {
+                    tileParams.add(param);
+                }
+            }
+        }
+        final GridCoverage2D coverage = reader.read(tileParams
+                .toArray(new GeneralParameterValue[tileParams.size()]));
+        if (coverage == null) {
+            return null;
+        }
+
+        // the mosaic might return a slightly different area, place it in the tile
+        final RenderedImage image = coverage.getRenderedImage();
+        final Envelope2D envelope = coverage.getEnvelope2D();
+        final double resolution = Math.abs(gridToWorld.getScaleX());
+        if (Math.abs(envelope.getWidth() / image.getWidth() - resolution) > resolution / 100) {
+            return null;
+        }
+        final Point2D upperLeft;
+        try {
+            upperLeft = gridToWorld.inverseTransform(
+                    new Point2D.Double(envelope.getMinX(), envelope.getMaxY()), null);
+        } catch (NoninvertibleTransformException e) {
+            return null;
+        }
+        final int dx = (int) Math.round(upperLeft.getX()) - tileBounds.x;
+        final int dy = (int) Math.round(upperLeft.getY()) - tileBounds.y;
+        final WritableRaster raster = Raster.createWritableRaster(image.getSampleModel()
+                .createCompatibleSampleModel(tileBounds.width, tileBounds.height), new Point(
+                image.getMinX() - dx, image.getMinY() - dy));
+        image.copyData(raster);
+        final ColorModel colorModel = image.getColorModel();
+        final WritableRaster tileRaster = raster.createWritableTranslatedChild(0, 0);
+        if (colorModel == null || !colorModel.isCompatibleRaster(tileRaster)) {
+            return null;
+        }
+        return new BufferedImage(colorModel, tileRaster, colorModel.isAlphaPremultiplied(), null);
+    }
+}
@@ -146,6 +146,22 @@ public final class ImagePyramidReader extends AbstractGridCoverage2DReader imple
 	 */    
 	private ConcurrentHashMap<Integer, ImageMosaicReader> readers =new ConcurrentHashMap<Integer, ImageMosaicReader>();
 
+	/**
+	 * Hint providing a {@link PyramidTileCache} the reader will use to store the tiles computed
+	 * out of the pyramid levels, and to serve them back on the following requests
+	 */
+	public static final Hints.Key TILE_CACHE = new Hints.Key(PyramidTileCache.class);
+
+	/**
+	 * The tile cache (write behind wrapper of the one provided in the hints), if any
+	 */
+	private WriteBehindTileCache tileCache;
+
+	/**
+	 * Reads the levels through the tile cache, if any
+	 */
+	private CachedTilesReader cachedTilesReader;
+
 	/**
 	 * Constructor for an {@link ImagePyramidReader}.
 	 * 
@@ -223,6 +239,17 @@ public final class ImagePyramidReader extends AbstractGridCoverage2DReader imple
 		// Load properties file with information about levels and envelope
 		//
 		parseMainFile(sourceURL);
+
+		//
+		// Setup the tile cache, if any
+		//
+		final Object cache = hints.get(TILE_CACHE);
+		if (cache instanceof PyramidTileCache) {
+			PyramidTileCache pyramidCache = (PyramidTileCache) cache;
+			pyramidCache.init(coverageName, originalEnvelope, getResolutionLevels());
+			tileCache = new WriteBehindTileCache(pyramidCache);
+			cachedTilesReader = new CachedTilesReader(tileCache, coverageFactory, coverageName);
+		}
 	}
 
 	/**
@@ -484,6 +511,18 @@ public final class ImagePyramidReader extends AbstractGridCoverage2DReader imple
                 ImageMosaicReader reader = getImageMosaicReaderForLevel(imageChoice);
 
 	
+		//
+		// Use the cached tiles if the request only specifies the area to read
+		//
+		if (cachedTilesReader != null && dim != null && CachedTilesReader.isCacheable(params)) {
+		    final double[] requestedRes = getResolution(requestedEnvelope, dim, crs);
+		    GridCoverage2D cached = cachedTilesReader.read(imageChoice, reader,
+		            requestedEnvelope, requestedRes, params);
+		    if (cached != null) {
+		        return cached;
+		    }
+		}
+
 		//
 		// Abusing of the created ImageMosaicreader for getting a
 		// gridcoverage2d, then rename it
@@ -506,6 +545,18 @@ public final class ImagePyramidReader extends AbstractGridCoverage2DReader imple
 		for(Entry<Integer, ImageMosaicReader> element:readers.entrySet())
 		    element.getValue().dispose();
 		readers.clear();
+		if (tileCache != null) {
+		    tileCache.dispose();
+		}
+	}
+
+	/**
+	 * Waits for the tiles computed so far to be written in the tile cache, if any
+	 */
+	void flushTileCache() throws InterruptedException {
+	    if (tileCache != null) {
+	        tileCache.flush();
+	    }
 	}
 	
 	/**
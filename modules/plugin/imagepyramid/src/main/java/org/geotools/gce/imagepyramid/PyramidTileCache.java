@@ -0,0 +1,72 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.imagepyramid;
+
+import java.awt.image.RenderedImage;
+import java.io.IOException;
+
+import org.opengis.geometry.Envelope;
+
+/**
+ * A persistent store for the tiles the {@link ImagePyramidReader} computes out of its levels.
+ * <p>
+ * When a cache is provided to the reader with the {@link ImagePyramidReader#TILE_CACHE} hint,
+ * the reader splits each level in a grid of {@link #TILE_SIZE} pixels tiles, looks them up in the
+ * cache first, and mosaics only the missing ones, which are then handed back to the cache in a
+ * background thread. The tiles are identified by the pyramid level (0 being the highest
+ * resolution one), and by their column and row in the level grid, counted from the upper left
+ * corner.
+ * </p>
+ * <p>
+ * A cache instance is bound to a single pyramid, and is not disposed by the reader. The
+ * implementations must be thread safe.
+ * </p>
+ *
+ * @author Andrea Aime - GeoSolutions
+ */
+public interface PyramidTileCache {
+
+    /**
+     * The size, in pixels, of the cached tiles
+     */
+    public static final int TILE_SIZE = 256;
+
+    /**
+     * Called by the reader before any other method, with the description of the pyramid
+     *
+     * @param coverageName The pyramid coverage name
+     * @param envelope The pyramid envelope
+     * @param resolutions The resolutions of the pyramid levels, from the highest to the lowest
+     */
+    void init(String coverageName, Envelope envelope, double[][] resolutions) throws IOException;
+
+    /**
+     * Returns the cached tile, or null if not found
+     */
+    RenderedImage getTile(int level, int column, int row) throws IOException;
+
+    /**
+     * Stores a tile in the cache
+     */
+    void putTile(int level, int column, int row, RenderedImage tile) throws IOException;
+
+    /**
+     * Releases the resources held by the cache
+     */
+    void dispose();
+
+}
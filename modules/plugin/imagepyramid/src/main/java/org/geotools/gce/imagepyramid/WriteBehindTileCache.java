@@ -0,0 +1,175 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.imagepyramid;
+
+import java.awt.image.RenderedImage;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.opengis.geometry.Envelope;
+
+/**
+ * Wraps a {@link PyramidTileCache} so that the tiles are written in a background thread, without
+ * making the reads wait for the (usually slow, transactional) writes. The tiles waiting to be
+ * written are served from memory. When too many tiles are already waiting the new ones are not
+ * cached, they will be computed again on the next request.
+ *
+ * @author Andrea Aime - GeoSolutions
+ */
+class WriteBehindTileCache implements PyramidTileCache {
+
+    static final Logger LOGGER = org.geotools.util.logging.Logging
+            .getLogger(WriteBehindTileCache.class);
+
+    /**
+     * The default maximum number of tiles waiting to be written
+     */
+    static final int DEFAULT_MAX_PENDING = 256;
+
+    static final ThreadFactory WRITER_FACTORY = new ThreadFactory() {
+
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "ImagePyramidTileWriter");
+            thread.setDaemon(true);
+            return thread;
+        }
+    };
+
+    final PyramidTileCache delegate;
+
+    final ConcurrentHashMap<TileKey, RenderedImage> pending = new ConcurrentHashMap<TileKey, RenderedImage>();
+
+    final ThreadPoolExecutor writer;
+
+    WriteBehindTileCache(PyramidTileCache delegate) {
+        this(delegate, DEFAULT_MAX_PENDING);
+    }
+
+    WriteBehindTileCache(PyramidTileCache delegate, int maxPending) {
+        this.delegate = delegate;
+        this.writer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>(maxPending), WRITER_FACTORY);
+    }
+
+    public void init(String coverageName, Envelope envelope, double[][] resolutions)
+            throws IOException {
+        delegate.init(coverageName, envelope, resolutions);
+    }
+
+    public RenderedImage getTile(int level, int column, int row) throws IOException {
+        RenderedImage tile = pending.get(new TileKey(level, column, row));
+        if (tile == null) {
+            tile = delegate.getTile(level, column, row);
+        }
+        return tile;
+    }
+
+    public void putTile(int level, int column, int row, RenderedImage tile) throws IOException {
+        final TileKey key = new TileKey(level, column, row);
+        if (pending.putIfAbsent(key, tile) != null) {
+            // another thread computed the same tile and is already writing it
+            return;
+        }
+        try {
+            writer.execute(new Runnable() {
+
+                public void run() {
+                    try {
+                        delegate.putTile(key.level, key.column, key.row, pending.get(key));
+                    } catch (Exception e) {
+                        LOGGER.log(Level.WARNING, "Failed to write tile " + key + " in the cache",
+                                e);
+                    } finally {
+                        pending.remove(key);
+                        synchronized (WriteBehindTileCache.this) {
+                            WriteBehindTileCache.this.notifyAll();
+                        }
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // the writer is falling behind, or shut down
+            pending.remove(key);
+            if (LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.fine("Tile " + key + " not cached, too many tiles waiting to be written");
+            }
+        }
+    }
+
+    /**
+     * Waits for the pending tiles to be written
+     */
+    synchronized void flush() throws InterruptedException {
+        while (!pending.isEmpty()) {
+            wait(100);
+        }
+    }
+
+    /**
+     * Writes the pending tiles and stops the writer thread. The wrapped cache is not disposed.
+     */
+    public void dispose() {
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(30, TimeUnit.SECONDS)) {
+                LOGGER.warning("Timed out while writing the pending tiles in the cache");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    static final class TileKey {
+        final int level;
+
+        final int column;
+
+        final int row;
+
+        TileKey(int level, int column, int row) {
+            this.level = level;
+            this.column = column;
+            this.row = row;
+        }
+
+        @Override
+        public int hashCode() {
+            return (level * 31 + column) * 31 + row;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof TileKey)) {
+                return false;
+            }
+            TileKey other = (TileKey) obj;
+            return level == other.level && column == other.column && row == other.row;
+        }
+
+        @Override
+        public String toString() {
+            return level + "/" + column + "/" + row;
+        }
+    }
+}
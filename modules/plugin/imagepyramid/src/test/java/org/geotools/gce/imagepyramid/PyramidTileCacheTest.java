@@ -0,0 +1,267 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.imagepyramid;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.awt.Rectangle;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.geotools.coverage.CoverageFactoryFinder;
+import org.geotools.coverage.grid.GridCoordinates2D;
+import org.geotools.coverage.grid.GridCoverage2D;
+import org.geotools.coverage.grid.GridEnvelope2D;
+import org.geotools.coverage.grid.GridGeometry2D;
+import org.geotools.coverage.grid.io.AbstractGridFormat;
+import org.geotools.factory.Hints;
+import org.geotools.gce.imagemosaic.ImageMosaicReader;
+import org.geotools.geometry.DirectPosition2D;
+import org.geotools.geometry.Envelope2D;
+import org.geotools.geometry.GeneralEnvelope;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.geotools.test.TestData;
+import org.junit.Test;
+import org.opengis.geometry.DirectPosition;
+import org.opengis.geometry.Envelope;
+import org.opengis.parameter.GeneralParameterValue;
+import org.opengis.parameter.ParameterValue;
+
+/**
+ * Tests the {@link ImagePyramidReader} with a {@link PyramidTileCache}
+ *
+ * @source $URL$
+ */
+public class PyramidTileCacheTest {
+
+    /**
+     * A cache keeping the tiles in memory, counting the accesses
+     */
+    static class MemoryTileCache implements PyramidTileCache {
+
+        Map<String, RenderedImage> tiles = new ConcurrentHashMap<String, RenderedImage>();
+
+        AtomicInteger gets = new AtomicInteger();
+
+        AtomicInteger hits = new AtomicInteger();
+
+        String coverageName;
+
+        double[][] resolutions;
+
+        public void init(String coverageName, Envelope envelope, double[][] resolutions) {
+            this.coverageName = coverageName;
+            this.resolutions = resolutions;
+        }
+
+        public RenderedImage getTile(int level, int column, int row) {
+            gets.incrementAndGet();
+            RenderedImage tile = tiles.get(level + "/" + column + "/" + row);
+            if (tile != null) {
+                hits.incrementAndGet();
+            }
+            return tile;
+        }
+
+        public void putTile(int level, int column, int row, RenderedImage tile) {
+            tiles.put(level + "/" + column + "/" + row, tile);
+        }
+
+        public void dispose() {
+            tiles.clear();
+        }
+    }
+
+    GeneralParameterValue readGeometry(ImagePyramidReader reader) {
+        final ParameterValue<GridGeometry2D> gg = AbstractGridFormat.READ_GRIDGEOMETRY2D
+                .createValue();
+        final GeneralEnvelope envelope = reader.getOriginalEnvelope();
+        final GeneralEnvelope cropEnvelope = new GeneralEnvelope(new double[] {
+                envelope.getMinimum(0), envelope.getMinimum(1) }, new double[] {
+                envelope.getMinimum(0) + envelope.getSpan(0) / 2,
+                envelope.getMinimum(1) + envelope.getSpan(1) / 2 });
+        cropEnvelope.setCoordinateReferenceSystem(DefaultGeographicCRS.WGS84);
+        gg.setValue(new GridGeometry2D(new GridEnvelope2D(new Rectangle(0, 0, 250, 250)),
+                cropEnvelope));
+        return gg;
+    }
+
+    @Test
+    public void testReadThrough() throws Exception {
+        final URL testFile = TestData.getResource(this, "goodpyramid/pyramid.properties");
+        final MemoryTileCache cache = new MemoryTileCache();
+        final ImagePyramidReader reader = (ImagePyramidReader) new ImagePyramidFormat()
+                .getReader(testFile, new Hints(ImagePyramidReader.TILE_CACHE, cache));
+        assertNotNull(reader);
+        try {
+            assertEquals("pyramid", cache.coverageName);
+            assertEquals(4, cache.resolutions.length);
+
+            // first read, all tiles are computed and cached
+            final GeneralParameterValue gg = readGeometry(reader);
+            GridCoverage2D first = reader.read(new GeneralParameterValue[] { gg });
+            assertNotNull(first);
+            // the tiles cover the requested area (give or take the rounding errors)
+            Envelope2D requested = ((GridGeometry2D) ((ParameterValue<?>) gg).getValue())
+                    .getEnvelope2D();
+            double eps = requested.getWidth() / 1000;
+            assertTrue(first.getEnvelope2D().contains(requested.getMinX() + eps,
+                    requested.getMinY() + eps, requested.getWidth() - 2 * eps,
+                    requested.getHeight() - 2 * eps));
+            assertEquals(0, cache.hits.get());
+            reader.flushTileCache();
+            final int tileCount = cache.tiles.size();
+            assertTrue(tileCount > 0);
+            for (String key : cache.tiles.keySet()) {
+                assertTrue(key.startsWith("0/"));
+            }
+
+            // second read, all from the cache, same result
+            GridCoverage2D second = reader.read(new GeneralParameterValue[] { gg });
+            assertEquals(tileCount, cache.hits.get());
+            assertEquals(tileCount, cache.tiles.size());
+            assertEquals(first.getEnvelope2D(), second.getEnvelope2D());
+            Raster firstData = first.getRenderedImage().getData();
+            Raster secondData = second.getRenderedImage().getData();
+            assertArrayEquals(
+                    firstData.getPixels(0, 0, firstData.getWidth(), firstData.getHeight(),
+                            (int[]) null),
+                    secondData.getPixels(0, 0, secondData.getWidth(), secondData.getHeight(),
+                            (int[]) null));
+
+            // parameters altering the output bypass the cache
+            final ParameterValue<Color> transparent = AbstractGridFormat.INPUT_TRANSPARENT_COLOR
+                    .createValue();
+            transparent.setValue(Color.black);
+            final int gets = cache.gets.get();
+            assertNotNull(reader.read(new GeneralParameterValue[] { gg, transparent }));
+            assertEquals(gets, cache.gets.get());
+        } finally {
+            reader.dispose();
+        }
+    }
+
+    @Test
+    public void testSameAsMosaic() throws Exception {
+        final URL testFile = TestData.getResource(this, "goodpyramid/pyramid.properties");
+        final MemoryTileCache cache = new MemoryTileCache();
+        final ImagePyramidReader cachedReader = (ImagePyramidReader) new ImagePyramidFormat()
+                .getReader(testFile, new Hints(ImagePyramidReader.TILE_CACHE, cache));
+        final ImagePyramidReader reader = (ImagePyramidReader) new ImagePyramidFormat()
+                .getReader(testFile);
+        try {
+            final GeneralParameterValue gg = readGeometry(reader);
+            GridCoverage2D cached = cachedReader.read(new GeneralParameterValue[] { gg });
+            assertTrue(cache.gets.get() > 0);
+            GridCoverage2D mosaic = reader.read(new GeneralParameterValue[] { gg });
+
+            // compare the pixels of the level in the requested area
+            final Envelope2D requested = ((GridGeometry2D) ((ParameterValue<?>) gg).getValue())
+                    .getEnvelope2D();
+            final GridGeometry2D grid = cached.getGridGeometry();
+            final GridEnvelope2D range = grid.getGridRange2D();
+            final int bands = cached.getNumSampleDimensions();
+            int compared = 0;
+            for (int y = range.y; y < range.y + range.height; y++) {
+                for (int x = range.x; x < range.x + range.width; x++) {
+                    DirectPosition2D center = (DirectPosition2D) grid
+                            .gridToWorld(new GridCoordinates2D(x, y));
+                    if (!requested.contains(center)
+                            || !mosaic.getEnvelope2D().contains(center)) {
+                        continue;
+                    }
+                    assertArrayEquals("Different pixel at " + center,
+                            mosaic.evaluate((DirectPosition) center, new int[bands]),
+                            cached.evaluate((DirectPosition) center, new int[bands]));
+                    compared++;
+                }
+            }
+            assertTrue(compared > 0);
+        } finally {
+            cachedReader.dispose();
+            reader.dispose();
+        }
+    }
+
+    @Test
+    public void testCoarserThanLevels() throws Exception {
+        final URL testFile = TestData.getResource(this, "goodpyramid/pyramid.properties");
+        final MemoryTileCache cache = new MemoryTileCache();
+        final ImagePyramidReader reader = (ImagePyramidReader) new ImagePyramidFormat()
+                .getReader(testFile, new Hints(ImagePyramidReader.TILE_CACHE, cache));
+        try {
+            // the whole pyramid in a few pixels, coarser than the last level, left to the mosaic
+            final ParameterValue<GridGeometry2D> gg = AbstractGridFormat.READ_GRIDGEOMETRY2D
+                    .createValue();
+            final GeneralEnvelope envelope = new GeneralEnvelope(reader.getOriginalEnvelope());
+            envelope.setCoordinateReferenceSystem(DefaultGeographicCRS.WGS84);
+            gg.setValue(new GridGeometry2D(new GridEnvelope2D(new Rectangle(0, 0, 5, 5)),
+                    envelope));
+            assertNotNull(reader.read(new GeneralParameterValue[] { gg }));
+            assertEquals(0, cache.gets.get());
+            assertTrue(cache.tiles.isEmpty());
+        } finally {
+            reader.dispose();
+        }
+    }
+
+    @Test
+    public void testMaxTiles() throws Exception {
+        final URL testFile = TestData.getResource(this, "goodpyramid/pyramid.properties");
+        final ImagePyramidReader reader = (ImagePyramidReader) new ImagePyramidFormat()
+                .getReader(testFile);
+        try {
+            final MemoryTileCache cache = new MemoryTileCache();
+            final CachedTilesReader tilesReader = new CachedTilesReader(cache,
+                    CoverageFactoryFinder.getGridCoverageFactory(null), "pyramid");
+            final GeneralEnvelope envelope = new GeneralEnvelope(reader.getOriginalEnvelope());
+            envelope.setCoordinateReferenceSystem(reader.getCoordinateReferenceSystem());
+            final ImageMosaicReader level = reader.getImageMosaicReaderForLevel(0);
+
+            tilesReader.maxTiles = 0;
+            assertNull(tilesReader.read(0, level, envelope, null, null));
+            assertEquals(0, cache.gets.get());
+
+            tilesReader.maxTiles = CachedTilesReader.MAX_TILES;
+            assertNotNull(tilesReader.read(0, level, envelope, null, null));
+            assertTrue(cache.gets.get() > 0);
+        } finally {
+            reader.dispose();
+        }
+    }
+
+    @Test
+    public void testCacheableParameters() throws Exception {
+        final ParameterValue<Color> transparent = AbstractGridFormat.INPUT_TRANSPARENT_COLOR
+                .createValue();
+        final ParameterValue<Boolean> jai = AbstractGridFormat.USE_JAI_IMAGEREAD.createValue();
+        assertTrue(CachedTilesReader.isCacheable(null));
+        assertTrue(CachedTilesReader.isCacheable(new GeneralParameterValue[] { jai, null }));
+        assertFalse(CachedTilesReader.isCacheable(new GeneralParameterValue[] { jai,
+                transparent }));
+    }
+}
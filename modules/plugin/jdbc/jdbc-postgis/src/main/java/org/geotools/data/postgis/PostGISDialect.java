@@ -17,6 +17,7 @@
 package org.geotools.data.postgis;
 
 import java.io.IOException;
+import java.io.StringReader;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.ResultSet;
@@ -26,8 +27,11 @@ import java.sql.Statement;
 import java.sql.Time;
 import java.sql.Timestamp;
 import java.sql.Types;
+import java.sql.Wrapper;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -35,17 +39,24 @@ import java.util.UUID;
 import java.util.logging.Level;
 
 import org.geotools.data.jdbc.FilterToSQL;
+import org.geotools.data.jdbc.datasource.DataSourceFinder;
+import org.geotools.data.jdbc.datasource.UnWrapper;
 import org.geotools.factory.Hints;
 import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.geotools.jdbc.BasicSQLDialect;
 import org.geotools.jdbc.ColumnMetadata;
 import org.geotools.jdbc.JDBCDataStore;
+import org.geotools.jdbc.PrimaryKey;
+import org.geotools.jdbc.PrimaryKeyColumn;
 import org.geotools.referencing.CRS;
 import org.geotools.util.Version;
+import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.feature.type.AttributeDescriptor;
 import org.opengis.feature.type.GeometryDescriptor;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
 
 import com.vividsolutions.jts.geom.Envelope;
 import com.vividsolutions.jts.geom.Geometry;
@@ -59,6 +70,7 @@ import com.vividsolutions.jts.geom.MultiPolygon;
 import com.vividsolutions.jts.geom.Point;
 import com.vividsolutions.jts.geom.Polygon;
 import com.vividsolutions.jts.io.ParseException;
+import com.vividsolutions.jts.io.WKBWriter;
 import com.vividsolutions.jts.io.WKTReader;
 import com.vividsolutions.jts.io.WKTWriter;
 
@@ -134,7 +146,42 @@ public class PostGISDialect extends BasicSQLDialect {
     
     boolean simplifyEnabled = true;
     
+    boolean copyInsertEnabled = false;
+    
     Version version, pgsqlVersion;
+    
+    /**
+     * The unwrapper used to get to the native PostgreSQL connection, or
+     * {@link #UNWRAPPER_NOT_FOUND} if the lookup has been performed already without success
+     */
+    UnWrapper uw;
+
+    /**
+     * Sentinel value used to mark that the unwrapper lookup happened already, and an unwrapper was
+     * not found
+     */
+    static final UnWrapper UNWRAPPER_NOT_FOUND = new UnWrapper() {
+        
+        @Override
+        public Statement unwrap(Statement statement) {
+            throw new UnsupportedOperationException();
+        }
+        
+        @Override
+        public Connection unwrap(Connection conn) {
+            throw new UnsupportedOperationException();
+        }
+        
+        @Override
+        public boolean canUnwrap(Statement st) {
+            return false;
+        }
+        
+        @Override
+        public boolean canUnwrap(Connection conn) {
+            return false;
+        }
+    };
 
     public boolean isLooseBBOXEnabled() {
         return looseBBOXEnabled;
@@ -176,6 +223,19 @@ public class PostGISDialect extends BasicSQLDialect {
     public void setSimplifyEnabled(boolean simplifyEnabled) {
         this.simplifyEnabled = simplifyEnabled;
     }
+    
+    public boolean isCopyInsertEnabled() {
+        return copyInsertEnabled;
+    }
+
+    /**
+     * Enables/disables usage of the COPY command to insert batches of features
+     * 
+     * @see PostgisNGDataStoreFactory#COPY_INSERT
+     */
+    public void setCopyInsertEnabled(boolean copyInsertEnabled) {
+        this.copyInsertEnabled = copyInsertEnabled;
+    }
 
 
     @Override
@@ -699,6 +759,222 @@ public class PostGISDialect extends BasicSQLDialect {
         return true;
     }
     
+    /**
+     * Inserts the features using the COPY command, in text format. The data is fully encoded
+     * before contacting the database, if any value cannot be encoded the method returns false
+     * and the datastore will fall back on INSERT statements.
+     */
+    @Override
+    public boolean insertBulk(SimpleFeatureType featureType, PrimaryKey key,
+            List<SimpleFeature> features, List<List<Object>> keyValues, Connection cx)
+            throws SQLException, IOException {
+        if (!copyInsertEnabled || features.isEmpty()
+                || dataStore.getVirtualTables().containsKey(featureType.getTypeName())) {
+            return false;
+        }
+        CopyManager copyManager = getCopyManager(cx);
+        if (copyManager == null) {
+            return false;
+        }
+
+        // the pk columns are going to be filled with the key values
+        Set<String> pkColumnNames = new HashSet<String>();
+        for (PrimaryKeyColumn col : key.getColumns()) {
+            pkColumnNames.add(col.getName());
+        }
+        List<AttributeDescriptor> attributes = new ArrayList<AttributeDescriptor>();
+        for (AttributeDescriptor ad : featureType.getAttributeDescriptors()) {
+            if (!pkColumnNames.contains(ad.getLocalName())) {
+                attributes.add(ad);
+            }
+        }
+
+        // encode the data
+        StringBuffer data = new StringBuffer();
+        for (int i = 0; i < features.size(); i++) {
+            SimpleFeature feature = features.get(i);
+            for (AttributeDescriptor ad : attributes) {
+                Object value = feature.getAttribute(ad.getLocalName());
+                if (!encodeCopyValue(value, ad, data)) {
+                    LOGGER.log(Level.FINE, "Cannot encode value {0} of attribute {1} for COPY, "
+                            + "falling back on INSERT", new Object[] { value, ad.getLocalName() });
+                    return false;
+                }
+                data.append('\t');
+            }
+            for (Object keyValue : keyValues.get(i)) {
+                if (!encodeCopyValue(keyValue, null, data)) {
+                    return false;
+                }
+                data.append('\t');
+            }
+            data.setCharAt(data.length() - 1, '\n');
+        }
+
+        // build the command
+        StringBuffer sql = new StringBuffer("COPY ");
+        String schema = dataStore.getDatabaseSchema();
+        if (schema != null) {
+            encodeSchemaName(schema, sql);
+            sql.append(".");
+        }
+        encodeTableName(featureType.getTypeName(), sql);
+        sql.append(" (");
+        for (AttributeDescriptor ad : attributes) {
+            encodeColumnName(ad.getLocalName(), sql);
+            sql.append(",");
+        }
+        for (PrimaryKeyColumn col : key.getColumns()) {
+            encodeColumnName(col.getName(), sql);
+            sql.append(",");
+        }
+        sql.setCharAt(sql.length() - 1, ')');
+        sql.append(" FROM STDIN");
+
+        LOGGER.log(Level.FINE, "Inserting {0} features with: {1}",
+                new Object[] { features.size(), sql });
+        copyManager.copyIn(sql.toString(), new StringReader(data.toString()));
+        return true;
+    }
+
+    /**
+     * Encodes a value in the COPY text format, returns false if the value type is not supported
+     */
+    boolean encodeCopyValue(Object value, AttributeDescriptor ad, StringBuffer data) {
+        if (value == null) {
+            data.append("\\N");
+        } else if (value instanceof Geometry) {
+            Geometry g = (Geometry) value;
+            if (g.isEmpty()) {
+                data.append("\\N");
+                return true;
+            }
+            if (g instanceof LinearRing) {
+                //postgis does not handle linear rings, convert to just a line string
+                g = g.getFactory().createLineString(((LinearRing) g).getCoordinateSequence());
+            }
+            int srid = getCopySRID(g, ad);
+            if (srid > 0 && g.getSRID() != srid) {
+                g = (Geometry) g.clone();
+                g.setSRID(srid);
+            }
+            // hex encoded EWKB is accepted as the text representation of a geometry
+            WKBWriter writer = new WKBWriter(getCopyDimension(g, ad), srid > 0);
+            data.append(WKBWriter.toHex(writer.write(g)));
+        } else if (value instanceof String || value instanceof Character || value instanceof UUID) {
+            String text = value.toString();
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                switch (c) {
+                case '\\':
+                    data.append("\\\\");
+                    break;
+                case '\n':
+                    data.append("\\n");
+                    break;
+                case '\r':
+                    data.append("\\r");
+                    break;
+                case '\t':
+                    data.append("\\t");
+                    break;
+                default:
+                    data.append(c);
+                }
+            }
+        } else if (value instanceof Number || value instanceof Boolean) {
+            data.append(value);
+        } else if (value instanceof java.sql.Date || value instanceof Time
+                || value instanceof Timestamp) {
+            data.append(value);
+        } else if (value instanceof Date) {
+            data.append(new Timestamp(((Date) value).getTime()));
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    int getCopySRID(Geometry g, AttributeDescriptor ad) {
+        if (ad != null && ad.getUserData().get(JDBCDataStore.JDBC_NATIVE_SRID) != null) {
+            return (Integer) ad.getUserData().get(JDBCDataStore.JDBC_NATIVE_SRID);
+        }
+        if (g.getSRID() > 0) {
+            return g.getSRID();
+        }
+        if (g.getUserData() instanceof CoordinateReferenceSystem) {
+            try {
+                Integer code = CRS.lookupEpsgCode((CoordinateReferenceSystem) g.getUserData(),
+                        false);
+                if (code != null) {
+                    return code;
+                }
+            } catch (Exception e) {
+                // ok, we tried...
+            }
+        }
+        return -1;
+    }
+
+    int getCopyDimension(Geometry g, AttributeDescriptor ad) {
+        if (ad != null && ad.getUserData().get(Hints.COORDINATE_DIMENSION) != null) {
+            return (Integer) ad.getUserData().get(Hints.COORDINATE_DIMENSION);
+        }
+        return Double.isNaN(g.getCoordinate().z) ? 2 : 3;
+    }
+
+    /**
+     * Obtains the COPY API from the native PostgreSQL connection, or returns null if the
+     * connection cannot be unwrapped
+     */
+    CopyManager getCopyManager(Connection cx) throws SQLException {
+        PGConnection pgcx = unwrapConnection(cx);
+        return pgcx != null ? pgcx.getCopyAPI() : null;
+    }
+
+    PGConnection unwrapConnection(Connection cx) throws SQLException {
+        if (cx instanceof PGConnection) {
+            return (PGConnection) cx;
+        }
+
+        try {
+            // first lookup ever? (we have UNWRAPPER_NOT_FOUND as a sentinel for a lookup that
+            // will not work (we assume the datasource will always return connections we can
+            // unwrap, or never).
+            if (uw == null) {
+                UnWrapper unwrapper = DataSourceFinder.getUnWrapper(cx);
+                if (unwrapper == null) {
+                    uw = UNWRAPPER_NOT_FOUND;
+                } else {
+                    uw = unwrapper;
+                }
+            }
+            if (uw != UNWRAPPER_NOT_FOUND) {
+                Connection uwcx = uw.unwrap(cx);
+                if (uwcx instanceof PGConnection) {
+                    return (PGConnection) uwcx;
+                }
+            } else if (cx instanceof Wrapper) {
+                // try to use java 6 unwrapping
+                try {
+                    Wrapper w = cx;
+                    if (w.isWrapperFor(PGConnection.class)) {
+                        return w.unwrap(PGConnection.class);
+                    }
+                } catch (Throwable t) {
+                    // not a mistake, old DBCP versions will throw an Error here, we need to catch
+                    // it
+                    LOGGER.log(Level.FINER, "Failed to unwrap connection using java 6 facilities",
+                            t);
+                }
+            }
+        } catch (Exception e) {
+            LOGGER.log(Level.FINE, "Could not obtain the native PostgreSQL connection", e);
+        }
+
+        return null;
+    }
+
     @Override
     public Object getLastAutoGeneratedValue(String schemaName, String tableName, String columnName,
             Connection cx) throws SQLException {
@@ -22,6 +22,7 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Types;
+import java.util.List;
 import java.util.Map;
 
 import org.geotools.factory.Hints;
@@ -29,6 +30,8 @@ import org.geotools.jdbc.ColumnMetadata;
 import org.geotools.jdbc.JDBCDataStore;
 import org.geotools.jdbc.PreparedFilterToSQL;
 import org.geotools.jdbc.PreparedStatementSQLDialect;
+import org.geotools.jdbc.PrimaryKey;
+import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.feature.type.GeometryDescriptor;
 
@@ -198,6 +201,21 @@ public class PostGISPSDialect extends PreparedStatementSQLDialect {
         delegate.setLooseBBOXEnabled(looseBBOXEnabled);
     }
 
+    public boolean isCopyInsertEnabled() {
+        return delegate.isCopyInsertEnabled();
+    }
+
+    public void setCopyInsertEnabled(boolean copyInsertEnabled) {
+        delegate.setCopyInsertEnabled(copyInsertEnabled);
+    }
+
+    @Override
+    public boolean insertBulk(SimpleFeatureType featureType, PrimaryKey key,
+            List<SimpleFeature> features, List<List<Object>> keyValues, Connection cx)
+            throws SQLException, IOException {
+        return delegate.insertBulk(featureType, key, features, keyValues, cx);
+    }
+
     @Override
     public void prepareGeometryValue(Geometry g, int dimension, int srid, Class binding,
             StringBuffer sql) {
@@ -85,6 +85,15 @@ public class PostgisNGDataStoreFactory extends JDBCDataStoreFactory {
     public static final Param SIMPLIFY = new Param("Support on the fly geometry simplification", Boolean.class, 
             "When enabled, operations such as map rendering will pass a hint that will enable the usage of ST_Simplify", false, Boolean.TRUE);
     
+    /**
+     * Enables usage of the COPY command when inserting batches of features
+     */
+    public static final Param COPY_INSERT = new Param("Use COPY for batch inserts", Boolean.class,
+            "When enabled, batches of new features are loaded with the COPY command instead of "
+                    + "INSERT statements, which is significantly faster on large loads. "
+                    + "Requires the batch insert size to be greater than one", false,
+            Boolean.FALSE, new KVP(Param.LEVEL, "advanced"));
+    
     
     @Override
     protected SQLDialect createSQLDialect(JDBCDataStore dataStore) {
@@ -156,6 +165,10 @@ public class PostgisNGDataStoreFactory extends JDBCDataStoreFactory {
         // check geometry simplification (on by default)
         Boolean simplify = (Boolean) SIMPLIFY.lookUp(params);
         dialect.setSimplifyEnabled(simplify == null || simplify);
+        
+        // check if batches should be inserted with COPY (off by default)
+        Boolean copyInsert = (Boolean) COPY_INSERT.lookUp(params);
+        dialect.setCopyInsertEnabled(copyInsert != null && copyInsert);
 
         return dataStore;
     }
@@ -174,6 +187,7 @@ public class PostgisNGDataStoreFactory extends JDBCDataStoreFactory {
         parameters.put(MAX_OPEN_PREPARED_STATEMENTS.key, MAX_OPEN_PREPARED_STATEMENTS);
         parameters.put(ENCODE_FUNCTIONS.key, ENCODE_FUNCTIONS);
         parameters.put(SIMPLIFY.key, SIMPLIFY);
+        parameters.put(COPY_INSERT.key, COPY_INSERT);
         parameters.put(CREATE_DB_IF_MISSING.key, CREATE_DB_IF_MISSING);
         parameters.put(CREATE_PARAMS.key, CREATE_PARAMS);
     }
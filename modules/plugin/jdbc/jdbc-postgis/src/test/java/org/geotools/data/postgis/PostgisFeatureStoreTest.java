@@ -16,8 +16,22 @@
  */
 package org.geotools.data.postgis;
 
+import java.util.List;
+
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.data.simple.SimpleFeatureStore;
+import org.geotools.feature.DefaultFeatureCollection;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
 import org.geotools.jdbc.JDBCFeatureStoreTest;
 import org.geotools.jdbc.JDBCTestSetup;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.filter.FilterFactory;
+import org.opengis.filter.identity.FeatureId;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.Point;
 
 /**
  * 
@@ -31,4 +45,48 @@ public class PostgisFeatureStoreTest extends JDBCFeatureStoreTest {
         return new PostGISTestSetup();
     }
 
+    public void testAddFeaturesCopy() throws Exception {
+        dataStore.setBatchInsertSize(10);
+        ((PostGISDialect) dataStore.getSQLDialect()).setCopyInsertEnabled(true);
+        SimpleFeatureStore featureStore = (SimpleFeatureStore) dataStore
+                .getFeatureSource(tname("ft1"));
+
+        SimpleFeatureBuilder b = new SimpleFeatureBuilder(featureStore.getSchema());
+        DefaultFeatureCollection collection = new DefaultFeatureCollection(null,
+                featureStore.getSchema());
+        for (int i = 3; i < 6; i++) {
+            b.set(aname("intProperty"), new Integer(i));
+            b.set(aname("doubleProperty"), i + 0.5);
+            b.set(aname("stringProperty"), "tab\tnewline\nbackslash\\" + i);
+            b.set(aname("geometry"), new GeometryFactory().createPoint(new Coordinate(i, i)));
+            collection.add(b.buildFeature(null));
+        }
+        List<FeatureId> fids = featureStore.addFeatures((SimpleFeatureCollection) collection);
+        assertEquals(3, fids.size());
+        assertEquals(6, featureStore.getFeatures().size());
+
+        FilterFactory ff = dataStore.getFilterFactory();
+        SimpleFeatureIterator it = featureStore.getFeatures(
+                ff.greater(ff.property(aname("intProperty")), ff.literal(2))).features();
+        try {
+            int count = 0;
+            while (it.hasNext()) {
+                SimpleFeature f = it.next();
+                int i = ((Number) f.getAttribute(aname("intProperty"))).intValue();
+                assertTrue(fids.contains(f.getIdentifier()));
+                assertEquals(i + 0.5, ((Number) f.getAttribute(aname("doubleProperty")))
+                        .doubleValue(), 0d);
+                assertEquals("tab\tnewline\nbackslash\\" + i,
+                        f.getAttribute(aname("stringProperty")));
+                Point p = (Point) f.getDefaultGeometry();
+                assertEquals(i, p.getX(), 0d);
+                assertEquals(i, p.getY(), 0d);
+                count++;
+            }
+            assertEquals(3, count);
+        } finally {
+            it.close();
+        }
+    }
+
 }
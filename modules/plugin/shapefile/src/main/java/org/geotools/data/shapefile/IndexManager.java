@@ -23,6 +23,7 @@ import org.geotools.data.shapefile.index.CachedQuadTree;
 import org.geotools.data.shapefile.index.CloseableIterator;
 import org.geotools.data.shapefile.index.Data;
 import org.geotools.data.shapefile.index.DataDefinition;
+import org.geotools.data.shapefile.index.HilbertRTree;
 import org.geotools.data.shapefile.index.TreeException;
 import org.geotools.data.shapefile.index.quadtree.QuadTree;
 import org.geotools.data.shapefile.index.quadtree.StoreException;
@@ -52,6 +53,12 @@ class IndexManager {
 
     CachedQuadTree cachedTree;
 
+    HilbertRTree rtree;
+
+    long rtreeLastModified;
+
+    long rtreeLength;
+
     ShapefileDataStore store;
     
     /**
@@ -92,12 +99,16 @@ class IndexManager {
     public boolean createSpatialIndex(boolean force) {
         // create index as needed
         try {
-            if (shpFiles.isLocal() && (isIndexStale(QIX) || force)) {
+            ShpFileType indexType = store.getSpatialIndexType();
+            if (shpFiles.isLocal() && (isIndexStale(indexType) || force)) {
                 ShapefileDataStoreFactory.LOGGER.fine("Creating spatial index for "
                         + shpFiles.get(SHP));
+                // the loaded tree would keep the file mapped while it gets replaced
+                closeRTree();
 
                 ShapeFileIndexer indexer = new ShapeFileIndexer();
                 indexer.setShapeFileName(shpFiles);
+                indexer.setIndexType(indexType);
                 indexer.index(false, new NullProgressListener());
 
                 return true;
@@ -176,7 +187,7 @@ class IndexManager {
      * @return
      */
     boolean isSpatialIndexAvailable() {
-        return shpFiles.isLocal() && shpFiles.exists(QIX);
+        return shpFiles.isLocal() && shpFiles.exists(store.getSpatialIndexType());
     }
 
     /**
@@ -297,6 +308,16 @@ class IndexManager {
         // check if the spatial index needs recreating
         createSpatialIndex(false);
 
+        if (store.getSpatialIndexType() == RTX) {
+            HilbertRTree tree = openRTree();
+            if (tree != null && !bbox.contains(tree.getBounds())) {
+                // null if closed in the meantime, the caller will then scan the whole file
+                return tree.search(bbox);
+            } else {
+                return null;
+            }
+        }
+
         if (cachedTree == null) {
             boolean canCache = false;
             URL treeURL = shpFiles.acquireRead(QIX, writer);
@@ -373,7 +394,52 @@ class IndexManager {
         }
     }
 
-    public void dispose() {
+    /**
+     * Returns the packed R-tree index, reusing the one already loaded unless the file has been
+     * modified in the meantime
+     * 
+     * @return The tree, or null if the index file is not available
+     * @throws IOException
+     */
+    synchronized HilbertRTree openRTree() throws IOException {
+        if (!shpFiles.isLocal()) {
+            return null;
+        }
+        URL treeURL = shpFiles.acquireRead(RTX, writer);
+        try {
+            File treeFile = DataUtilities.urlToFile(treeURL);
+            if (!treeFile.exists() || (treeFile.length() == 0)) {
+                closeRTree();
+                return null;
+            }
+
+            long lastModified = treeFile.lastModified();
+            long length = treeFile.length();
+            if (rtree == null || rtreeLastModified != lastModified || rtreeLength != length) {
+                closeRTree();
+                rtree = HilbertRTree.open(treeFile, store.isMemoryMapped());
+                rtreeLastModified = lastModified;
+                rtreeLength = length;
+            }
+            return rtree;
+        } finally {
+            shpFiles.unlockRead(treeURL, writer);
+        }
+    }
+
+    /**
+     * Closes the packed R-tree index, if loaded, releasing its memory mapping. Needs to be called
+     * before the index file gets deleted or regenerated
+     */
+    synchronized void closeRTree() {
+        if (rtree != null) {
+            rtree.close();
+            rtree = null;
+        }
+    }
+
+    public synchronized void dispose() {
         this.cachedTree = null;
+        closeRTree();
     }
 }
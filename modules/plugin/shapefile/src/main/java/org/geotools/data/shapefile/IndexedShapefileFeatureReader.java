@@ -73,7 +73,8 @@ class IndexedShapefileFeatureReader extends ShapefileFeatureReader {
         }
     }
 
-    public boolean hasNext() throws IOException {
+    @Override
+    boolean fetchNext() throws IOException {
         while (nextFeature == null && this.goodRecs.hasNext()) {
             next = (Data) goodRecs.next();
 
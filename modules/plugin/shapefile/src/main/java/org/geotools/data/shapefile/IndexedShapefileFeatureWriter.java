@@ -110,6 +110,8 @@ class IndexedShapefileFeatureWriter extends ShapefileFeatureWriter implements Fi
                 }
 
                 deleteFile(ShpFileType.QIX);
+                indexes.closeRTree();
+                deleteFile(ShpFileType.RTX);
             }
         } catch (Throwable e) {
             ShapefileDataStoreFactory.LOGGER.log(Level.WARNING, "Error creating Spatial index", e);
@@ -0,0 +1,132 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile;
+
+import java.io.IOException;
+import java.util.NoSuchElementException;
+
+import org.geotools.data.shapefile.index.CloseableIterator;
+import org.geotools.data.shapefile.index.Data;
+import org.geotools.data.shapefile.index.DataDefinition;
+import org.geotools.data.shapefile.index.TreeException;
+import org.geotools.data.shapefile.shp.IndexFile;
+
+/**
+ * Returns the records found between two positions of the shx file. If another record iterator is
+ * provided (e.g., the result of a spatial index lookup) its records are returned instead, but
+ * only if their shp file offset falls in the same range.
+ * 
+ * @author Andrea Aime - GeoSolutions
+ */
+class RecordRangeIterator implements CloseableIterator<Data> {
+
+    static final DataDefinition DATA_DEFINITION = new DataDefinition("US-ASCII");
+    static {
+        DATA_DEFINITION.addField(Integer.class);
+        DATA_DEFINITION.addField(Long.class);
+    };
+
+    IndexFile shx;
+
+    CloseableIterator<Data> delegate;
+
+    int current;
+
+    int end;
+
+    long minOffset;
+
+    long maxOffset;
+
+    Data next;
+
+    /**
+     * Builds the iterator
+     * 
+     * @param shx The shx file, will be closed along with the iterator
+     * @param start The first record (zero based)
+     * @param end The record after the last one (zero based, exclusive)
+     * @param delegate The records to be filtered by offset, or null to return all the records in
+     *        the range
+     * @throws IOException
+     */
+    public RecordRangeIterator(IndexFile shx, int start, int end, CloseableIterator<Data> delegate)
+            throws IOException {
+        this.shx = shx;
+        this.delegate = delegate;
+        this.current = start;
+        this.end = Math.min(end, shx.getRecordCount());
+        if (delegate != null) {
+            this.minOffset = shx.getOffsetInBytes(start);
+            this.maxOffset = this.end < shx.getRecordCount() ? shx.getOffsetInBytes(this.end)
+                    : Long.MAX_VALUE;
+        }
+    }
+
+    public boolean hasNext() {
+        if (next != null) {
+            return true;
+        }
+        try {
+            if (delegate != null) {
+                while (delegate.hasNext()) {
+                    Data data = delegate.next();
+                    long offset = ((Long) data.getValue(1)).longValue();
+                    if (offset >= minOffset && offset < maxOffset) {
+                        next = data;
+                        break;
+                    }
+                }
+            } else if (current < end) {
+                Data data = new Data(DATA_DEFINITION);
+                data.addValue(Integer.valueOf(current + 1));
+                data.addValue(Long.valueOf(shx.getOffsetInBytes(current)));
+                current++;
+                next = data;
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } catch (TreeException e) {
+            throw new RuntimeException(e);
+        }
+        return next != null;
+    }
+
+    public Data next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Data result = next;
+        next = null;
+        return result;
+    }
+
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    public void close() throws IOException {
+        try {
+            if (delegate != null) {
+                delegate.close();
+            }
+        } finally {
+            shx.close();
+        }
+    }
+
+}
@@ -31,6 +31,7 @@ import org.geotools.data.shapefile.files.FileWriter;
 import org.geotools.data.shapefile.files.ShpFileType;
 import org.geotools.data.shapefile.files.ShpFiles;
 import org.geotools.data.shapefile.files.StorageFile;
+import org.geotools.data.shapefile.index.HilbertRTreeBuilder;
 import org.geotools.data.shapefile.index.LockTimeoutException;
 import org.geotools.data.shapefile.index.TreeException;
 import org.geotools.data.shapefile.index.quadtree.Node;
@@ -39,6 +40,7 @@ import org.geotools.data.shapefile.index.quadtree.StoreException;
 import org.geotools.data.shapefile.index.quadtree.fs.FileSystemIndexStore;
 import org.geotools.data.shapefile.index.quadtree.fs.IndexHeader;
 import org.geotools.data.shapefile.shp.IndexFile;
+import org.geotools.data.shapefile.shp.ShapeType;
 import org.geotools.data.shapefile.shp.ShapefileHeader;
 import org.geotools.data.shapefile.shp.ShapefileReader;
 import org.geotools.data.shapefile.shp.ShapefileReader.Record;
@@ -66,6 +68,7 @@ class ShapeFileIndexer implements FileWriter {
 	private String byteOrder;
     private boolean interactive = false;
     private ShpFiles shpFiles;
+    private ShpFileType indexType = ShpFileType.QIX;
 
     public static void main(String[] args) throws IOException {
         if ((args.length < 1) || (((args.length - 1) % 2) != 0)) {
@@ -79,9 +82,13 @@ class ShapeFileIndexer implements FileWriter {
 
         for (int i = 0; i < args.length; i++) {
             if (args[i].equals("-t")) {
-                // idx.setIdxType(IndexType.valueOf(args[++i]));
-                // just skip it for backwards compatibility
-                i++;
+                String type = args[++i];
+                if (type.equalsIgnoreCase("RTREE") || type.equalsIgnoreCase("RTX")) {
+                    idx.setIndexType(ShpFileType.RTX);
+                } else {
+                    // anything else is treated as a quadtree for backwards compatibility
+                    idx.setIndexType(ShpFileType.QIX);
+                }
             } else if (args[i].equals("-M")) {
                 idx.setMax(Integer.parseInt(args[++i]));
             } else if (args[i].equals("-s")) {
@@ -115,7 +122,7 @@ class ShapeFileIndexer implements FileWriter {
     }
 
     private static void usage() {
-        System.out.println("Usage: ShapeFileIndexer " + "-t <QIX> "
+        System.out.println("Usage: ShapeFileIndexer " + "-t <QUADTREE | RTREE> "
                 + "[-M <max tree depth>] "
                 + "[-b <byte order NL | NM>] " + "<shape file>"
                 + "[-s <max number of items in a leaf>]");
@@ -123,7 +130,7 @@ class ShapeFileIndexer implements FileWriter {
         System.out.println();
 
         System.out.println("Options:");
-        System.out.println("\t-t Index type: RTREE or QUADTREE");
+        System.out.println("\t-t Index type: RTREE (packed Hilbert R-tree, .rtx) or QUADTREE (.qix, default)");
         System.out.println();
         System.out.println("Following options apllies only to QUADTREE:");
         System.out.println("\t-b byte order to use: NL = LSB; "
@@ -165,13 +172,15 @@ class ShapeFileIndexer implements FileWriter {
         ShapefileReader reader = null;
 
         // Temporary file for building...
-        StorageFile storage = shpFiles.getStorageFile(ShpFileType.QIX);
+        StorageFile storage = shpFiles.getStorageFile(indexType);
         File treeFile = storage.getFile();
 
         try {
             reader = new ShapefileReader(shpFiles, true, false, new GeometryFactory());
             
-            if(max == -1) {
+            if (indexType == ShpFileType.RTX) {
+                cnt = this.buildRTree(reader, treeFile, verbose);
+            } else if(max == -1) {
                 // compute a reasonable index max depth, considering a fully developed
                 // 10 levels one already contains 200k index nodes, good for indexing up
                 // to 3M features without consuming too much memory
@@ -190,7 +199,9 @@ class ShapeFileIndexer implements FileWriter {
                 reader = new ShapefileReader(shpFiles, true, false, new GeometryFactory());
             }
             
-            cnt = this.buildQuadTree(reader, treeFile, verbose);
+            if (indexType == ShpFileType.QIX) {
+                cnt = this.buildQuadTree(reader, treeFile, verbose);
+            }
         } finally {
             if (reader != null)
                 reader.close();
@@ -202,6 +213,38 @@ class ShapeFileIndexer implements FileWriter {
         return cnt;
     }
 
+    private int buildRTree(ShapefileReader reader, File file, boolean verbose)
+            throws IOException {
+        LOGGER.fine("Building packed R-tree spatial index for file " + file.getAbsolutePath());
+
+        IndexFile shpIndex = new IndexFile(shpFiles, false);
+        int cnt = 0;
+        try {
+            int nodeSize = leafSize > 1 ? leafSize : HilbertRTreeBuilder.DEFAULT_NODE_SIZE;
+            HilbertRTreeBuilder builder = new HilbertRTreeBuilder(shpIndex.getRecordCount(),
+                    nodeSize);
+            while (reader.hasNext()) {
+                Record rec = reader.nextRecord();
+                // null shapes cannot match any spatial filter, no need to index them
+                if (rec.type != ShapeType.NULL) {
+                    builder.add(cnt + 1, shpIndex.getOffsetInBytes(cnt), rec.minX, rec.minY,
+                            rec.maxX, rec.maxY);
+                }
+                cnt++;
+
+                if (verbose && ((cnt % 1000) == 0)) {
+                    System.out.print('.');
+                }
+            }
+            if (verbose)
+                System.out.println("done");
+            builder.write(file);
+        } finally {
+            shpIndex.close();
+        }
+        return cnt;
+    }
+
     private int buildQuadTree(ShapefileReader reader, File file, boolean verbose)
             throws IOException, StoreException {
         LOGGER.fine("Building quadtree spatial index with depth " +  max + " for file " + file.getAbsolutePath());
@@ -411,6 +454,16 @@ class ShapeFileIndexer implements FileWriter {
     }
 
 
+    /**
+     * Sets the type of index to be built, {@link ShpFileType#QIX} (default) or
+     * {@link ShpFileType#RTX}
+     * 
+     * @param indexType
+     */
+    public void setIndexType(ShpFileType indexType) {
+        this.indexType = indexType;
+    }
+
     /**
      * DOCUMENT ME!
      * 
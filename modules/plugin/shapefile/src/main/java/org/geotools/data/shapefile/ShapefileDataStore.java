@@ -42,6 +42,8 @@ import org.geotools.data.Query;
 import org.geotools.data.Transaction;
 import org.geotools.data.shapefile.dbf.DbaseFileException;
 import org.geotools.data.shapefile.dbf.DbaseFileHeader;
+import org.geotools.data.shapefile.files.MemoryMapCacheStatistics;
+import org.geotools.data.shapefile.files.ShpFileType;
 import org.geotools.data.shapefile.files.ShpFiles;
 import org.geotools.data.shapefile.files.StorageFile;
 import org.geotools.data.shapefile.shp.ShapeType;
@@ -109,6 +111,8 @@ public class ShapefileDataStore extends ContentDataStore implements FileDataStor
     
     boolean indexCreationEnabled = true;
 
+    ShpFileType spatialIndexType = ShpFileType.QIX;
+
     boolean fidIndexed = true;
 
     IndexManager indexManager;
@@ -178,6 +182,31 @@ public class ShapefileDataStore extends ContentDataStore implements FileDataStor
 
     public void setBufferCachingEnabled(boolean bufferCachingEnabled) {
         this.bufferCachingEnabled = bufferCachingEnabled;
+        shpFiles.setMemoryMapCacheEnabled(bufferCachingEnabled);
+    }
+
+    /**
+     * Sets the maximum number of bytes that can be kept memory mapped by all the shapefile stores
+     * with buffer caching enabled, the least recently used mappings get evicted when the limit is
+     * exceeded. The buffers are cached only while a budget is set, in any order with respect to
+     * {@link #setBufferCachingEnabled(boolean)}
+     * 
+     * @param maxMappedBytes The budget, or {@link Long#MAX_VALUE} to disable buffer caching
+     */
+    public static void setMemoryMapCacheMaxBytes(long maxMappedBytes) {
+        ShpFiles.setMemoryMapCacheMaxBytes(maxMappedBytes);
+    }
+
+    public static long getMemoryMapCacheMaxBytes() {
+        return ShpFiles.getMemoryMapCacheMaxBytes();
+    }
+
+    /**
+     * Returns the usage statistics of the memory mapped buffer cache (hits, remaps, bytes
+     * mapped)
+     */
+    public MemoryMapCacheStatistics getMemoryMapCacheStatistics() {
+        return shpFiles.getMemoryMapCacheStatistics();
     }
 
     public boolean isIndexed() {
@@ -399,6 +428,9 @@ public class ShapefileDataStore extends ContentDataStore implements FileDataStor
     @Override
     public void dispose() {
         super.dispose();
+        if (indexManager != null) {
+            indexManager.dispose();
+        }
         if (shpFiles != null) {
             shpFiles.dispose();
             shpFiles = null;
@@ -440,8 +472,8 @@ public class ShapefileDataStore extends ContentDataStore implements FileDataStor
     public String toString() {
         return "ShapefileDataStore [file=" + shpFiles.get(SHP) + ", charset=" + charset + ", timeZone=" + timeZone
                 + ", memoryMapped=" + memoryMapped + ", bufferCachingEnabled="
-                + bufferCachingEnabled + ", indexed=" + indexed + ", fidIndexed=" + fidIndexed
-                + "]";
+                + bufferCachingEnabled + ", indexed=" + indexed + ", spatialIndexType="
+                + spatialIndexType + ", fidIndexed=" + fidIndexed + "]";
     }
 
     @Override
@@ -478,6 +510,29 @@ public class ShapefileDataStore extends ContentDataStore implements FileDataStor
     public void setIndexCreationEnabled(boolean indexCreationEnabled) {
         this.indexCreationEnabled = indexCreationEnabled;
     }
+
+    /**
+     * Returns the type of spatial index in use, either {@link ShpFileType#QIX} (the default) or
+     * {@link ShpFileType#RTX}
+     */
+    public ShpFileType getSpatialIndexType() {
+        return spatialIndexType;
+    }
+
+    /**
+     * Sets the type of spatial index to be used and created on demand, the quad tree
+     * {@link ShpFileType#QIX} (default, compatible with other software reading shapefiles) or
+     * the packed Hilbert R-tree {@link ShpFileType#RTX}, which is more selective on skewed data
+     * and can be searched with sequential I/O
+     * 
+     * @param spatialIndexType
+     */
+    public void setSpatialIndexType(ShpFileType spatialIndexType) {
+        if (spatialIndexType != ShpFileType.QIX && spatialIndexType != ShpFileType.RTX) {
+            throw new IllegalArgumentException("Not a spatial index type: " + spatialIndexType);
+        }
+        this.spatialIndexType = spatialIndexType;
+    }
     
     
 
@@ -37,6 +37,7 @@ import org.geotools.data.FileDataStore;
 import org.geotools.data.FileDataStoreFactorySpi;
 import org.geotools.data.directory.DirectoryDataStore;
 import org.geotools.data.directory.FileStoreFactory;
+import org.geotools.data.shapefile.files.ShpFileType;
 import org.geotools.data.shapefile.files.ShpFiles;
 import org.geotools.util.KVP;
 import org.geotools.util.logging.Logging;
@@ -140,6 +141,15 @@ public class ShapefileDataStoreFactory extends AbstractDataStoreFactory implemen
             Boolean.class, "enable/disable the use of spatial index for local shapefiles", false,
             true, new KVP(Param.LEVEL, "advanced"));
 
+    /**
+     * Optional - the type of spatial index, either "qix" (quad tree) or "rtx" (packed Hilbert
+     * R-tree)
+     */
+    public static final Param SPATIAL_INDEX_TYPE = new Param("spatial index type",
+            String.class, "the type of spatial index to be used and created, qix or rtx", false,
+            "qix", new KVP(Param.LEVEL, "advanced", Param.OPTIONS, Arrays.asList(new String[] {
+                    "qix", "rtx" })));
+
     public String getDisplayName() {
         return "Shapefile";
     }
@@ -150,7 +160,7 @@ public class ShapefileDataStoreFactory extends AbstractDataStoreFactory implemen
 
     public Param[] getParametersInfo() {
         return new Param[] { URLP, NAMESPACEP, ENABLE_SPATIAL_INDEX, CREATE_SPATIAL_INDEX, DBFCHARSET, DBFTIMEZONE,
-                MEMORY_MAPPED, CACHE_MEMORY_MAPS, FILE_TYPE, FSTYPE };
+                MEMORY_MAPPED, CACHE_MEMORY_MAPS, FILE_TYPE, FSTYPE, SPATIAL_INDEX_TYPE };
     }
 
     public boolean isAvailable() {
@@ -170,6 +180,7 @@ public class ShapefileDataStoreFactory extends AbstractDataStoreFactory implemen
         TimeZone dbfTimeZone = lookup(DBFTIMEZONE, params, TimeZone.class);
         Boolean isCreateSpatialIndex = lookup(CREATE_SPATIAL_INDEX, params, Boolean.class);
         Boolean isEnableSpatialIndex = (Boolean) ENABLE_SPATIAL_INDEX.lookUp(params);
+        String spatialIndexType = lookup(SPATIAL_INDEX_TYPE, params, String.class);
         if (isEnableSpatialIndex == null) {
             // should not be needed as default is TRUE
             isEnableSpatialIndex = Boolean.TRUE;
@@ -199,6 +210,12 @@ public class ShapefileDataStoreFactory extends AbstractDataStoreFactory implemen
             store.setTimeZone(dbfTimeZone);
             store.setIndexed(enableIndex);
             store.setIndexCreationEnabled(createIndex);
+            if ("rtx".equalsIgnoreCase(spatialIndexType)) {
+                store.setSpatialIndexType(ShpFileType.RTX);
+            } else if (!"qix".equalsIgnoreCase(spatialIndexType)) {
+                throw new IOException("Unknown spatial index type " + spatialIndexType
+                        + ", supported values are qix and rtx");
+            }
             return store;
         }
     }
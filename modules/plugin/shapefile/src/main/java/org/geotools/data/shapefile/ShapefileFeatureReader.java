@@ -29,6 +29,7 @@ import org.geotools.data.shapefile.fid.IndexedFidReader;
 import org.geotools.data.shapefile.shp.ShapeType;
 import org.geotools.data.shapefile.shp.ShapefileReader;
 import org.geotools.data.shapefile.shp.ShapefileReader.Record;
+import org.geotools.feature.simple.SimpleFeatureBatch;
 import org.geotools.feature.simple.SimpleFeatureBuilder;
 import org.geotools.renderer.ScreenMap;
 import org.opengis.feature.simple.SimpleFeature;
@@ -65,6 +66,12 @@ class ShapefileFeatureReader implements FeatureReader<SimpleFeatureType, SimpleF
 
     IndexedFidReader fidReader;
 
+    SimpleFeatureBatch batch;
+
+    SimpleFeatureBatch.View view;
+
+    Object[] batchValues;
+
     public ShapefileFeatureReader(SimpleFeatureType schema, ShapefileReader shp, DbaseFileReader dbf, IndexedFidReader fidReader)
             throws IOException {
         this.schema = schema;
@@ -88,32 +95,35 @@ class ShapefileFeatureReader implements FeatureReader<SimpleFeatureType, SimpleF
                 if (att instanceof GeometryDescriptor) {
                     dbfindexes[i] = -1;
                 } else {
-                    String attName = att.getLocalName();
-                    int count = 0;
-                    Map<Object, Object> userData = att.getUserData();
-                    if (userData.get(ShapefileDataStore.ORIGINAL_FIELD_NAME) != null) {
-                        attName = (String) userData.get(ShapefileDataStore.ORIGINAL_FIELD_NAME);
-                        count = (Integer) userData
-                                .get(ShapefileDataStore.ORIGINAL_FIELD_DUPLICITY_COUNT);
-                    }
-
-                    boolean found = false;
-                    for (int j = 0; j < head.getNumFields(); j++) {
-                        if (head.getFieldName(j).equals(attName) && count-- <= 0) {
-                            dbfindexes[i] = j;
-                            found = true;
-                            break;
-                        }
-                    }
-                    if (!found) {
-                        throw new IOException("Could not find attribute " + attName
-                                + " (mul count: " + count);
-                    }
+                    dbfindexes[i] = getDbfIndex(att, head);
                 }
             }
         }
     }
 
+    /**
+     * Returns the index of the dbf field backing the specified attribute, taking into
+     * consideration the duplicated dbf field names issue
+     */
+    static int getDbfIndex(AttributeDescriptor att, DbaseFileHeader head) throws IOException {
+        String attName = att.getLocalName();
+        int count = 0;
+        Map<Object, Object> userData = att.getUserData();
+        if (userData.get(ShapefileDataStore.ORIGINAL_FIELD_NAME) != null) {
+            attName = (String) userData.get(ShapefileDataStore.ORIGINAL_FIELD_NAME);
+            count = (Integer) userData
+                    .get(ShapefileDataStore.ORIGINAL_FIELD_DUPLICITY_COUNT);
+        }
+
+        for (int j = 0; j < head.getNumFields(); j++) {
+            if (head.getFieldName(j).equals(attName) && count-- <= 0) {
+                return j;
+            }
+        }
+        throw new IOException("Could not find attribute " + attName
+                + " (mul count: " + count);
+    }
+
     @Override
     public SimpleFeatureType getFeatureType() {
         return schema;
@@ -155,6 +165,45 @@ class ShapefileFeatureReader implements FeatureReader<SimpleFeatureType, SimpleF
 
     @Override
     public boolean hasNext() throws IOException {
+        if (batch != null) {
+            return hasNextInBatch();
+        } else {
+            return fetchNext();
+        }
+    }
+
+    /**
+     * Moves to the next row of the batch, filling it again once it has been fully read
+     * 
+     * @return
+     * @throws IOException
+     */
+    boolean hasNextInBatch() throws IOException {
+        if (nextFeature == null) {
+            int row = batch.size() > 0 ? view.getRow() + 1 : 0;
+            if (row >= batch.size()) {
+                batch.clear();
+                row = 0;
+                while (!batch.isFull() && fetchNext()) {
+                    // the feature has been added to the batch already
+                    nextFeature = null;
+                }
+            }
+            if (row < batch.size()) {
+                view.setRow(row);
+                nextFeature = view;
+            }
+        }
+        return nextFeature != null;
+    }
+
+    /**
+     * Reads the next feature that is not skipped, if any, in {@link #nextFeature}
+     * 
+     * @return
+     * @throws IOException
+     */
+    boolean fetchNext() throws IOException {
         while (nextFeature == null && filesHaveMore()) {
             Record record = shp.nextRecord();
 
@@ -212,6 +261,9 @@ class ShapefileFeatureReader implements FeatureReader<SimpleFeatureType, SimpleF
     }
 
     SimpleFeature buildFeature(int number, Geometry geometry, Row row) throws IOException {
+        if (batch != null) {
+            return addToBatch(number, geometry, row);
+        }
         if (dbfindexes != null) {
             for (int i = 0; i < dbfindexes.length; i++) {
                 if (dbfindexes[i] == -1) {
@@ -228,6 +280,22 @@ class ShapefileFeatureReader implements FeatureReader<SimpleFeatureType, SimpleF
         return builder.buildFeature(featureId);
     }
     
+    SimpleFeature addToBatch(int number, Geometry geometry, Row row) throws IOException {
+        if (dbfindexes != null) {
+            for (int i = 0; i < dbfindexes.length; i++) {
+                if (dbfindexes[i] == -1) {
+                    batchValues[i] = geometry;
+                } else {
+                    batchValues[i] = row.read(dbfindexes[i]);
+                }
+            }
+        } else if (batchValues.length > 0) {
+            batchValues[0] = geometry;
+        }
+        batch.add(buildFeatureId(number), batchValues);
+        return view;
+    }
+
     protected String buildFeatureId(int number) throws IOException {
         if(fidReader == null) {
             idxBuffer.delete(idxBaseLen, idxBuffer.length());
@@ -291,6 +359,24 @@ class ShapefileFeatureReader implements FeatureReader<SimpleFeatureType, SimpleF
         this.screenMap = screenMap;
     }
 
+    /**
+     * Makes the reader return flyweight features backed by a columnar batch of the specified
+     * size. The features returned are valid only until the next call to {@link #next()}
+     * 
+     * @param batchSize
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize > 0) {
+            this.batch = new SimpleFeatureBatch(schema, batchSize);
+            this.view = batch.newView();
+            this.batchValues = new Object[schema.getAttributeCount()];
+        } else {
+            this.batch = null;
+            this.view = null;
+            this.batchValues = null;
+        }
+    }
+
     void disableShxUsage() throws IOException {
         this.shp.disableShxUsage();
 
@@ -39,6 +39,7 @@ import org.geotools.data.FilteringFeatureReader;
 import org.geotools.data.PrjFileReader;
 import org.geotools.data.Query;
 import org.geotools.data.ReTypeFeatureReader;
+import org.geotools.data.Transaction;
 import org.geotools.data.shapefile.dbf.DbaseFileHeader;
 import org.geotools.data.shapefile.dbf.DbaseFileReader;
 import org.geotools.data.shapefile.fid.IndexedFidReader;
@@ -57,8 +58,11 @@ import org.geotools.factory.Hints;
 import org.geotools.factory.Hints.Key;
 import org.geotools.feature.AttributeTypeBuilder;
 import org.geotools.feature.FeatureTypes;
+import org.geotools.feature.collection.ParallelVisitExecutor;
 import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
 import org.geotools.feature.type.BasicFeatureTypes;
+import org.geotools.feature.visitor.BatchFeatureVisitor;
+import org.geotools.feature.visitor.BatchVisitorBuffer;
 import org.geotools.filter.FilterAttributeExtractor;
 import org.geotools.filter.visitor.ExtractBoundsFilterVisitor;
 import org.geotools.geometry.jts.ReferencedEnvelope;
@@ -73,6 +77,8 @@ import org.opengis.feature.type.GeometryDescriptor;
 import org.opengis.feature.type.GeometryType;
 import org.opengis.filter.Filter;
 import org.opengis.filter.Id;
+import org.opengis.filter.expression.PropertyName;
+import org.opengis.filter.sort.SortBy;
 import org.opengis.referencing.FactoryException;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
 
@@ -95,6 +101,13 @@ class ShapefileFeatureSource extends ContentFeatureSource {
 
     static final Logger LOGGER = Logging.getLogger(ShapefileFeatureSource.class);
 
+    /**
+     * Restricts the read to a range of records, expressed as an <code>int[]</code> holding the
+     * first record (zero based) and the record after the last one. Used to split a visit in
+     * parallel reads over separate portions of the shapefile
+     */
+    static final Hints.Key RECORD_RANGE = new Hints.Key(int[].class);
+
     ShpFiles shpFiles;
 
     public ShapefileFeatureSource(ContentEntry entry, ShpFiles shpFiles) {
@@ -106,6 +119,8 @@ class ShapefileFeatureSource extends ContentFeatureSource {
         hints.add(Hints.JTS_COORDINATE_SEQUENCE_FACTORY);
         hints.add(Hints.GEOMETRY_DISTANCE);
         hints.add(Hints.SCREENMAP);
+        hints.add(Hints.FEATURE_BATCH_SIZE);
+        hints.add(RECORD_RANGE);
         this.hints = Collections.unmodifiableSet(hints);
     }
 
@@ -244,6 +259,18 @@ class ShapefileFeatureSource extends ContentFeatureSource {
                 throw new IOException("Error querying index: " + e.getMessage());
             }
         }
+        // restrict to a range of records, if requested
+        int[] range = (int[]) q.getHints().get(RECORD_RANGE);
+        if (range != null) {
+            IndexFile shx = getDataStore().shpManager.openIndexFile();
+            if (shx == null) {
+                if (goodRecs != null) {
+                    goodRecs.close();
+                }
+                throw new IOException("Cannot read a range of records without the shx file");
+            }
+            goodRecs = new RecordRangeIterator(shx, range[0], range[1], goodRecs);
+        }
         // do we have anything to read at all? If not don't bother opening all the files
         if (goodRecs != null && !goodRecs.hasNext()) {
             LOGGER.log(Level.FINE, "Empty results for " + resultSchema.getName().getLocalPart()
@@ -294,6 +321,13 @@ class ShapefileFeatureSource extends ContentFeatureSource {
                 if (Boolean.TRUE.equals(hints.get(Hints.FEATURE_2D))) {
                     shapeReader.setFlatGeometry(true);
                 }
+
+                // flyweight features only if they are consumed one at a time, the in memory
+                // sorting would keep them around instead
+                Integer batchSize = (Integer) hints.get(Hints.FEATURE_BATCH_SIZE);
+                if (batchSize != null && !isSortedInMemory(q)) {
+                    result.setBatchSize(batchSize);
+                }
             }
 
         }
@@ -495,9 +529,121 @@ class ShapefileFeatureSource extends ContentFeatureSource {
         }
     }
 
+    /**
+     * Splits the query in ranges of records with about the same size, using the shx file to
+     * locate them
+     */
+    @Override
+    protected List<Query> splitQuery(Query query, int parts) throws IOException {
+        IndexFile shx = getDataStore().shpManager.openIndexFile();
+        if (shx == null) {
+            return null;
+        }
+        int count;
+        try {
+            count = shx.getRecordCount();
+        } finally {
+            shx.close();
+        }
+        int n = ParallelVisitExecutor.getPartCount(count, parts);
+        if (n < 2) {
+            return null;
+        }
+        List<Query> result = new ArrayList<Query>(n);
+        for (int i = 0; i < n; i++) {
+            int start = (int) ((long) count * i / n);
+            int end = (int) ((long) count * (i + 1) / n);
+            Query part = new Query(query);
+            Hints hints = new Hints(query.getHints());
+            hints.put(RECORD_RANGE, new int[] { start, end });
+            part.setHints(hints);
+            result.add(part);
+        }
+        return result;
+    }
+
     @Override
     protected boolean handleVisitor(Query query, FeatureVisitor visitor) throws IOException {
+        if (visitor instanceof BatchFeatureVisitor
+                && visitDbf(query, (BatchFeatureVisitor) visitor)) {
+            return true;
+        }
         return super.handleVisitor(query, visitor);
     }
 
+    /**
+     * Feeds a batch visitor working against a plain dbf attribute straight from the dbf file,
+     * without reading the geometries nor building any feature. Only unfiltered and unpaged
+     * queries are handled.
+     */
+    boolean visitDbf(Query query, BatchFeatureVisitor visitor) throws IOException {
+        if ((query.getFilter() != null && query.getFilter() != Filter.INCLUDE)
+                || (query.getStartIndex() != null && query.getStartIndex() > 0)
+                || (query.getMaxFeatures() != -1 && query.getMaxFeatures() < Integer.MAX_VALUE)
+                || (query.getSortBy() != null && query.getSortBy().length > 0
+                        && query.getSortBy()[0] != SortBy.NATURAL_ORDER)
+                || (getTransaction() != null && getTransaction() != Transaction.AUTO_COMMIT)
+                || query.getHints().containsKey(RECORD_RANGE)
+                || !(visitor.getExpression() instanceof PropertyName)) {
+            return false;
+        }
+        String name = ((PropertyName) visitor.getExpression()).getPropertyName();
+        AttributeDescriptor descriptor = getSchema().getDescriptor(name);
+        if (descriptor == null || descriptor instanceof GeometryDescriptor
+                || (!query.retrieveAllProperties()
+                        && !Arrays.asList(query.getPropertyNames()).contains(name))) {
+            return false;
+        }
+
+        DbaseFileReader dbf = getDataStore().shpManager.openDbfReader(false);
+        if (dbf == null) {
+            return false;
+        }
+        try {
+            DbaseFileHeader header = dbf.getHeader();
+            int field = ShapefileFeatureReader.getDbfIndex(descriptor, header);
+            Class<?> binding = descriptor.getType().getBinding();
+            char type = header.getFieldType(field);
+            boolean numeric = type == 'N' || type == 'F';
+            boolean integral = numeric && BatchVisitorBuffer.isIntegral(binding);
+            boolean floating = numeric && BatchVisitorBuffer.isFloating(binding);
+            BatchVisitorBuffer buffer = new BatchVisitorBuffer(visitor, binding);
+            while (dbf.hasNext()) {
+                if (dbf.readRow().isDeleted()) {
+                    continue;
+                }
+                if (integral) {
+                    if (dbf.isNumericNull(field)) {
+                        buffer.addNull();
+                        continue;
+                    }
+                    try {
+                        long value = dbf.readLong(field);
+                        if (binding == Integer.class
+                                && (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE)) {
+                            // the reader would have returned a Long in this case
+                            buffer.add(Long.valueOf(value));
+                        } else {
+                            buffer.addLong(value);
+                        }
+                    } catch (NumberFormatException e) {
+                        buffer.add(dbf.readField(field));
+                    }
+                } else if (floating) {
+                    if (dbf.isNumericNull(field)) {
+                        buffer.addNull();
+                    } else {
+                        buffer.addDouble(dbf.readDouble(field));
+                    }
+                } else {
+                    buffer.add(dbf.readField(field));
+                }
+            }
+            buffer.flush();
+        } finally {
+            dbf.close();
+        }
+        return true;
+    }
+
 }
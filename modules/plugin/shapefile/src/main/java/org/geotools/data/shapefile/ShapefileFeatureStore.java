@@ -17,6 +17,7 @@
 package org.geotools.data.shapefile;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Set;
 
 import org.geotools.data.FeatureReader;
@@ -169,5 +170,10 @@ class ShapefileFeatureStore extends ContentFeatureStore {
     protected boolean handleVisitor(Query query, FeatureVisitor visitor) throws IOException {
         return delegate.handleVisitor(query, visitor);
     }
+
+    @Override
+    protected List<Query> splitQuery(Query query, int parts) throws IOException {
+        return delegate.splitQuery(query, parts);
+    }
     
 }
@@ -132,6 +132,17 @@ public class DbaseFileReader implements FileReader {
 
     private final long MILLISECS_PER_DAY = 24*60*60*1000;
 
+    /**
+     * The largest mantissa that can be converted to a double without rounding
+     */
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    /**
+     * The powers of ten that can be represented exactly as doubles
+     */
+    private static final double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8,
+            1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
     
     /**
      * Creates a new instance of DBaseFileReader
@@ -400,6 +411,122 @@ public class DbaseFileReader implements FileReader {
         return readObject(fieldOffsets[fieldNum], fieldNum);
     }
 
+    /**
+     * Returns true if the specified numeric field of the current record is null, that is, empty
+     * or starting with '*'. Remember to call {@link #read()} before.
+     * 
+     * @param fieldNum The field number to be checked (zero based)
+     */
+    public boolean isNumericNull(final int fieldNum) {
+        return fieldLengths[fieldNum] == 0 || bytes[fieldOffsets[fieldNum]] == '*';
+    }
+
+    /**
+     * Reads an integral numeric field from the current record without allocating any object.
+     * Remember to call {@link #read()} before, and to check the field is not null using
+     * {@link #isNumericNull(int)}.
+     * 
+     * @param fieldNum The field number to be read (zero based)
+     * @return The value of the field
+     * @throws NumberFormatException if the field does not contain an integral number fitting a
+     *         long, use {@link #readField(int)} to read it in that case
+     */
+    public long readLong(final int fieldNum) throws NumberFormatException {
+        int start = fieldOffsets[fieldNum];
+        int end = start + fieldLengths[fieldNum];
+        // same as String.trim()
+        while (start < end && (bytes[start] & 0xFF) <= ' ') {
+            start++;
+        }
+        while (end > start && (bytes[end - 1] & 0xFF) <= ' ') {
+            end--;
+        }
+        boolean negative = false;
+        if (start < end && (bytes[start] == '-' || bytes[start] == '+')) {
+            negative = bytes[start] == '-';
+            start++;
+        }
+        if (start == end) {
+            throw new NumberFormatException("Not a number");
+        }
+        // accumulate as a negative number, to handle Long.MIN_VALUE as well
+        long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        long result = 0;
+        for (int i = start; i < end; i++) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9 || result < limit / 10) {
+                throw new NumberFormatException("Not an integral number");
+            }
+            result *= 10;
+            if (result < limit + digit) {
+                throw new NumberFormatException("Not an integral number");
+            }
+            result -= digit;
+        }
+        return negative ? result : -result;
+    }
+
+    /**
+     * Reads a floating point numeric field from the current record, avoiding any allocation for
+     * the common case of plain decimal numbers. Remember to call {@link #read()} before, and to
+     * check the field is not null using {@link #isNumericNull(int)}. The result is the same as
+     * {@link #readField(int)}, including the zero returned for values that cannot be parsed.
+     * 
+     * @param fieldNum The field number to be read (zero based)
+     * @return The value of the field
+     */
+    public double readDouble(final int fieldNum) {
+        final int offset = fieldOffsets[fieldNum];
+        final int length = fieldLengths[fieldNum];
+        int start = offset;
+        int end = offset + length;
+        while (start < end && (bytes[start] & 0xFF) <= ' ') {
+            start++;
+        }
+        while (end > start && (bytes[end - 1] & 0xFF) <= ' ') {
+            end--;
+        }
+        boolean negative = false;
+        if (start < end && (bytes[start] == '-' || bytes[start] == '+')) {
+            negative = bytes[start] == '-';
+            start++;
+        }
+        // the mantissa and the power of ten are both represented exactly as doubles, their
+        // division is then correctly rounded, just like Double.parseDouble would do
+        long mantissa = 0;
+        int digits = 0;
+        int decimals = -1;
+        boolean fast = start < end;
+        for (int i = start; i < end && fast; i++) {
+            final byte b = bytes[i];
+            if (b >= '0' && b <= '9') {
+                mantissa = mantissa * 10 + (b - '0');
+                digits++;
+                if (decimals >= 0) {
+                    decimals++;
+                }
+                fast = mantissa < MAX_EXACT_MANTISSA;
+            } else if (b == '.' && decimals < 0) {
+                decimals = 0;
+            } else {
+                fast = false;
+            }
+        }
+        if (fast && digits > 0 && decimals < POWERS_OF_TEN.length) {
+            double value = mantissa;
+            if (decimals > 0) {
+                value /= POWERS_OF_TEN[decimals];
+            }
+            return negative ? -value : value;
+        }
+
+        try {
+            return Double.parseDouble(fastParse(bytes, offset, length));
+        } catch (final NumberFormatException e) {
+            return 0.0;
+        }
+    }
+
     /**
      * Transfer, by bytes, the next record to the writer.
      */
@@ -24,6 +24,10 @@ import java.nio.channels.FileChannel;
 import java.nio.channels.FileLock;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.geotools.data.shapefile.files.MemoryMapCache.Mapping;
 
 
 /**
@@ -46,6 +50,10 @@ public class FileChannelDecorator extends FileChannel implements
     private final FileReader reader;
     private final FileWriter writer;
     private boolean closed;
+    /**
+     * The cached mappings handed out by this channel, released on close
+     */
+    private final List<Mapping> mappings = new ArrayList<Mapping>();
 
     public FileChannelDecorator(FileChannel channel, ShpFiles shapefileFiles,
             URL url, FileReader requestor) {
@@ -77,8 +85,9 @@ public class FileChannelDecorator extends FileChannel implements
 
     public MappedByteBuffer map(MapMode mode, long position, long size)
             throws IOException {
-//    	return wrapped.map(mode, position, size)
-    	 return shapefileFiles.map(wrapped, url, mode, position, size);
+        synchronized (mappings) {
+            return shapefileFiles.map(wrapped, url, mode, position, size, mappings);
+        }
     }
 
     public long position() throws IOException {
@@ -150,6 +159,12 @@ public class FileChannelDecorator extends FileChannel implements
                 } else {
                     shapefileFiles.unlockWrite(url, writer);
                 }
+                synchronized (mappings) {
+                    for (Mapping mapping : mappings) {
+                        mapping.release();
+                    }
+                    mappings.clear();
+                }
             }
         }
 
@@ -23,110 +23,410 @@ import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileChannel.MapMode;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.geotools.data.DataUtilities;
 import org.geotools.resources.NIOUtilities;
-import org.geotools.util.SoftValueHashMap;
-import org.geotools.util.SoftValueHashMap.ValueCleaner;
 import org.geotools.util.logging.Logging;
 
 /**
  * A cache for memory mapped buffers, used to avoid generating over and over
- * read only memory mapped buffers. Mapping a file is a synchronized operation,
- * plus by generating light copies the same buffer can be shared by various threads
+ * read only memory mapped buffers. Mapping a file is an expensive operation,
+ * plus by generating light copies the same buffer can be shared by various threads.
+ * <p>
+ * The cache keeps the mappings until the total size mapped by all the caches exceeds the budget
+ * configured either via {@link #setMaxMappedBytes(long)} or with the
+ * "org.geotools.shapefile.maxMappedBytes" system variable, at which point the least recently used
+ * ones are evicted. Without a budget the cache is not used. Only the first mapping of a given file
+ * region is performed, under a lock specific to that region, while cache hits just stamp the
+ * mapping access time without taking any lock. The eviction runs only when a new region gets
+ * mapped or the budget changes.
+ * <p>
+ * Each mapping counts the channels using a copy of it, an evicted mapping is forcefully unmapped
+ * as soon as the last of them is closed, so that the file is not kept locked (on Windows) until
+ * the garbage collector catches up.
+ *
  * @author Andrea Aime - OpenGeo
  *
  */
 class MemoryMapCache {
-	
-	static final Logger LOGGER = Logging.getLogger(MemoryMapCache.class);
-
-    SoftValueHashMap<MappingKey, MappedByteBuffer> buffers = new SoftValueHashMap<MappingKey, MappedByteBuffer>(0, new BufferCleaner());
-    
-	MappedByteBuffer map(FileChannel wrapped, URL url, MapMode mode, long position, long size) throws IOException {
-		if(mode != MapMode.READ_ONLY) {
-			return wrapped.map(mode, position, size);
-		}
-		
-		File file = DataUtilities.urlToFile(url).getCanonicalFile();
-		MappingKey mk = new MappingKey(file, position, size);
-		MappedByteBuffer buffer = buffers.get(mk);
-		if(buffer == null) {
-			synchronized (this) {
-				buffer = buffers.get(mk);
-				if(buffer == null) {
-					buffer = wrapped.map(mode, position, size);
-					buffers.put(mk, buffer);
-					if(LOGGER.isLoggable(Level.FINE)) {
-						LOGGER.log(Level.FINE, "Mapping and caching " + file.getAbsolutePath());
-					}
-				}
-			}
-		} else {
-			if(LOGGER.isLoggable(Level.FINE)) {
-				LOGGER.log(Level.FINE, "Using cached map for " + file.getAbsolutePath());
-			}
-		}
-		
-		return (MappedByteBuffer) buffer.duplicate();
-	}
-	
-	/**
-	 * Cleans up all memory mapped regions for a specified file. It is necessary to call this
-	 * method before any attempt to open a file for writing on Windows
-	 * @param file
-	 */
-	void cleanFileCache(URL url) {
-	    try {
-    	    final File rawFile = DataUtilities.urlToFile(url);
-    	    if(rawFile == null) {
-    	        // not a local file
-    	        return;
-    	    }
-            File file = rawFile.getCanonicalFile();
-    	    List<MappingKey> keys = new ArrayList<MappingKey>(buffers.keySet());
-    	    for (MappingKey key : keys) {
-                if(key.file.equals(file)) {
-                    MappedByteBuffer buffer = buffers.remove(key);
-                    NIOUtilities.clean(buffer, true);
-                    if(LOGGER.isLoggable(Level.FINE)) {
-        				LOGGER.log(Level.FINE, "Removed mapping for " + file.getAbsolutePath());
+
+    static final Logger LOGGER = Logging.getLogger(MemoryMapCache.class);
+
+    /**
+     * The maximum number of evicted regions each cache remembers to track remaps
+     */
+    static final int MAX_EVICTED_KEYS = 256;
+
+    /**
+     * The budget, in bytes, for the regions kept mapped by all the caches. When unbounded (the
+     * default) the cache is not used
+     */
+    static volatile long maxMappedBytes = Long.getLong("org.geotools.shapefile.maxMappedBytes",
+            Long.MAX_VALUE);
+
+    /**
+     * The mappings within the budget, of all caches
+     */
+    static final Map<Mapping, Boolean> MAPPED = new ConcurrentHashMap<Mapping, Boolean>();
+
+    /**
+     * The bytes mapped by the mappings in {@link #MAPPED}
+     */
+    static final AtomicLong MAPPED_BYTES = new AtomicLong();
+
+    /**
+     * Serializes the evictions, so that concurrent ones do not evict more than needed
+     */
+    static final Object EVICTION_LOCK = new Object();
+
+    ConcurrentHashMap<MappingKey, Mapping> mappings = new ConcurrentHashMap<MappingKey, Mapping>();
+
+    /**
+     * The canonical files of the urls mapped so far
+     */
+    ConcurrentHashMap<String, File> canonicalFiles = new ConcurrentHashMap<String, File>();
+
+    /**
+     * The most recently evicted regions, used to track remaps
+     */
+    Map<MappingKey, Boolean> evictedKeys = Collections
+            .synchronizedMap(new LinkedHashMap<MappingKey, Boolean>() {
+                private static final long serialVersionUID = -2878418950209549387L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<MappingKey, Boolean> eldest) {
+                    return size() > MAX_EVICTED_KEYS;
+                }
+            });
+
+    AtomicLong hits = new AtomicLong();
+
+    AtomicLong misses = new AtomicLong();
+
+    AtomicLong remaps = new AtomicLong();
+
+    AtomicLong evictions = new AtomicLong();
+
+    AtomicLong mappedBytes = new AtomicLong();
+
+    /**
+     * Returns a copy of the mapped region. The mapping backing it is added to the acquired ones,
+     * the caller must {@link Mapping#release() release} them once the copies are no longer used
+     */
+    MappedByteBuffer map(FileChannel wrapped, URL url, MapMode mode, long position, long size,
+            Collection<Mapping> acquired) throws IOException {
+        if(mode != MapMode.READ_ONLY) {
+            return wrapped.map(mode, position, size);
+        }
+
+        File file = getCanonicalFile(url);
+        if (file == null) {
+            return wrapped.map(mode, position, size);
+        }
+        MappingKey mk = new MappingKey(file, position, size);
+        Mapping mapping = mappings.get(mk);
+        MappedByteBuffer buffer = mapping != null ? mapping.acquire() : null;
+        if (buffer != null) {
+            hits.incrementAndGet();
+            if (LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.log(Level.FINE, "Using cached map for " + file.getAbsolutePath());
+            }
+        } else {
+            while (buffer == null) {
+                mapping = mappings.get(mk);
+                if (mapping == null) {
+                    Mapping newMapping = new Mapping(this, mk);
+                    mapping = mappings.putIfAbsent(mk, newMapping);
+                    if (mapping == null) {
+                        mapping = newMapping;
+                    }
+                }
+                // only one thread maps a given region, the others wait for it to complete
+                boolean mapped = false;
+                synchronized (mapping) {
+                    buffer = mapping.acquire();
+                    if (buffer == null && mapping.evicted) {
+                        // evicted while we were looking it up, try again with a new one
+                        continue;
+                    } else if (buffer == null) {
+                        buffer = wrapped.map(mode, position, size);
+                        mapping.buffer = buffer;
+                        mapping.acquire();
+                        mappedBytes.addAndGet(size);
+                        MAPPED_BYTES.addAndGet(size);
+                        MAPPED.put(mapping, Boolean.TRUE);
+                        mapped = true;
                     }
                 }
+                if (mapped) {
+                    misses.incrementAndGet();
+                    if (evictedKeys.remove(mk) != null) {
+                        remaps.incrementAndGet();
+                    }
+                    evict(mapping);
+                    if (LOGGER.isLoggable(Level.FINE)) {
+                        LOGGER.log(Level.FINE, "Mapping and caching " + file.getAbsolutePath());
+                    }
+                } else {
+                    hits.incrementAndGet();
+                }
+            }
+        }
+        acquired.add(mapping);
+
+        return (MappedByteBuffer) buffer.duplicate();
+    }
+
+    /**
+     * Returns the canonical file for the specified url, or null if the url is not a local file
+     */
+    File getCanonicalFile(URL url) throws IOException {
+        String spec = url.toExternalForm();
+        File file = canonicalFiles.get(spec);
+        if (file == null) {
+            File rawFile = DataUtilities.urlToFile(url);
+            if (rawFile == null) {
+                return null;
+            }
+            file = rawFile.getCanonicalFile();
+            canonicalFiles.put(spec, file);
+        }
+        return file;
+    }
+
+    /**
+     * Returns true if a budget has been configured, and the mappings can thus be cached
+     */
+    static boolean isBounded() {
+        return maxMappedBytes != Long.MAX_VALUE;
+    }
+
+    /**
+     * Evicts the least recently used mappings, among the ones of all caches, until the mapped
+     * bytes are back within budget, or all of them if there is no budget. The specified mapping,
+     * if any, is never evicted.
+     */
+    static void evict(Mapping current) {
+        long max = isBounded() ? maxMappedBytes : 0;
+        if (MAPPED_BYTES.get() <= max) {
+            return;
+        }
+        synchronized (EVICTION_LOCK) {
+            while (MAPPED_BYTES.get() > max) {
+                Mapping lru = null;
+                long lruTime = 0;
+                for (Mapping mapping : MAPPED.keySet()) {
+                    long time = mapping.lastUsed;
+                    if (mapping != current && (lru == null || time - lruTime < 0)) {
+                        lru = mapping;
+                        lruTime = time;
+                    }
+                }
+                if (lru == null) {
+                    break;
+                }
+                lru.cache.evicted(lru);
             }
-	    } catch(Throwable t) {
-	        LOGGER.log(Level.WARNING, "An error occurred while trying to clean the memory map cache", t);
-	    }
-	}
-	
-	void clean() {
-		List<MappingKey> keys = new ArrayList<MappingKey>(buffers.keySet());
-	    for (MappingKey key : keys) {
-            MappedByteBuffer buffer = buffers.remove(key);
-            NIOUtilities.clean(buffer, true);
-            if(LOGGER.isLoggable(Level.FINE)) {
-				LOGGER.log(Level.FINE, "Removed mapping for " + key.file.getAbsolutePath());
+        }
+    }
+
+    /**
+     * Evicts the mapping from this cache, it gets unmapped once released by all its users
+     */
+    void evicted(Mapping mapping) {
+        if (unlink(mapping)) {
+            mappings.remove(mapping.key, mapping);
+            evictedKeys.put(mapping.key, Boolean.TRUE);
+            evictions.incrementAndGet();
+            mapping.dispose();
+            if (LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.log(Level.FINE, "Evicted mapping for " + mapping.key.file.getAbsolutePath());
             }
         }
-	}
-	
-	/**
-	 * Tracks a memory mapped region of a certain file
-	 */
-	static class MappingKey {
-		File file;
-		long position;
-		long size;
-		
-		public MappingKey(File file, long position, long size) {
-			super();
-			this.file = file;
-			this.position = position;
-			this.size = size;
-		}
+    }
+
+    /**
+     * Removes the mapping from the ones within budget, returns true if it was still there
+     */
+    boolean unlink(Mapping mapping) {
+        if (MAPPED.remove(mapping) != null) {
+            MAPPED_BYTES.addAndGet(-mapping.key.size);
+            mappedBytes.addAndGet(-mapping.key.size);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Cleans up all memory mapped regions for a specified file. It is necessary to call this
+     * method before any attempt to open a file for writing on Windows
+     * @param file
+     */
+    void cleanFileCache(URL url) {
+        try {
+            File file = getCanonicalFile(url);
+            if(file == null) {
+                // not a local file
+                return;
+            }
+            List<MappingKey> keys = new ArrayList<MappingKey>(mappings.keySet());
+            for (MappingKey key : keys) {
+                if(key.file.equals(file)) {
+                    remove(key);
+                }
+            }
+        } catch(Throwable t) {
+            LOGGER.log(Level.WARNING, "An error occurred while trying to clean the memory map cache", t);
+        }
+    }
+
+    void clean() {
+        List<MappingKey> keys = new ArrayList<MappingKey>(mappings.keySet());
+        for (MappingKey key : keys) {
+            remove(key);
+        }
+    }
+
+    /**
+     * Removes the specified region, unmapping it once released by all its users
+     */
+    private void remove(MappingKey key) {
+        Mapping mapping = mappings.remove(key);
+        if (mapping != null) {
+            synchronized (mapping) {
+                unlink(mapping);
+                mapping.dispose();
+            }
+            if (LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.log(Level.FINE, "Removed mapping for " + key.file.getAbsolutePath());
+            }
+        }
+    }
+
+    /**
+     * Sets the maximum amount of bytes that can be kept mapped by all caches, the least recently
+     * used mappings are evicted if the total mapped size goes beyond it. Use
+     * {@link Long#MAX_VALUE} to stop caching the mappings
+     *
+     * @param maxMappedBytes
+     */
+    static void setMaxMappedBytes(long maxMappedBytes) {
+        MemoryMapCache.maxMappedBytes = maxMappedBytes;
+        evict(null);
+    }
+
+    static long getMaxMappedBytes() {
+        return maxMappedBytes;
+    }
+
+    /**
+     * Returns a snapshot of the cache usage statistics
+     */
+    MemoryMapCacheStatistics getStatistics() {
+        return new MemoryMapCacheStatistics(hits.get(), misses.get(), remaps.get(),
+                evictions.get(), mappedBytes.get());
+    }
+
+    /**
+     * A cached mapping. The buffer is allocated lazily, so that only one thread ends up mapping
+     * a given region. The users are counted, so that the buffer can be unmapped as soon as it's
+     * evicted and no longer used
+     */
+    static class Mapping {
+        final MemoryMapCache cache;
+
+        final MappingKey key;
+
+        volatile MappedByteBuffer buffer;
+
+        /**
+         * The last time the mapping has been acquired, as returned by {@link System#nanoTime()}
+         */
+        volatile long lastUsed;
+
+        volatile boolean evicted;
+
+        final AtomicInteger users = new AtomicInteger();
+
+        final AtomicBoolean unmapped = new AtomicBoolean();
+
+        public Mapping(MemoryMapCache cache, MappingKey key) {
+            this.cache = cache;
+            this.key = key;
+        }
+
+        /**
+         * Returns the mapped buffer, registering a new user, or null if not mapped yet, or
+         * evicted
+         */
+        MappedByteBuffer acquire() {
+            users.incrementAndGet();
+            MappedByteBuffer result = buffer;
+            // the eviction flag is checked after registering, either we see it, or the
+            // eviction sees us as a user and leaves the unmapping to our release
+            if (result == null || evicted) {
+                release();
+                return null;
+            }
+            lastUsed = System.nanoTime();
+            return result;
+        }
+
+        /**
+         * Unregisters a user, unmapping the buffer if it was the last one of an evicted mapping
+         */
+        void release() {
+            if (users.decrementAndGet() == 0 && evicted) {
+                unmap();
+            }
+        }
+
+        /**
+         * Marks the mapping as evicted, unmapping the buffer right away if nobody is using it
+         */
+        void dispose() {
+            evicted = true;
+            if (users.get() == 0) {
+                unmap();
+            }
+        }
+
+        private void unmap() {
+            if (unmapped.compareAndSet(false, true)) {
+                MappedByteBuffer result = buffer;
+                buffer = null;
+                if (result != null) {
+                    NIOUtilities.clean(result, true);
+                }
+            }
+        }
+    }
+
+    /**
+     * Tracks a memory mapped region of a certain file
+     */
+    static class MappingKey {
+        File file;
+        long position;
+        long size;
+
+        public MappingKey(File file, long position, long size) {
+            super();
+            this.file = file;
+            this.position = position;
+            this.size = size;
+        }
 
         @Override
         public int hashCode() {
@@ -158,23 +458,6 @@ class MemoryMapCache {
                 return false;
             return true;
         }
-	}
-	
-	/**
-	 * Cleans up the buffers before the soft reference gets deallocated
-	 * @author Andrea Aime
- *
- *
- * @source $URL$
-	 */
-	public class BufferCleaner implements ValueCleaner {
-
-        public void clean(Object key, Object object) {
-            MappedByteBuffer buffer = (MappedByteBuffer) object;
-            NIOUtilities.clean(buffer, true);
-        }
-
     }
 
-
 }
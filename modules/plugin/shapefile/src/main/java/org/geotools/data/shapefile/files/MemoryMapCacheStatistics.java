@@ -0,0 +1,86 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile.files;
+
+/**
+ * A snapshot of the memory map cache usage statistics for a shapefile
+ * 
+ * @author Andrea Aime - GeoSolutions
+ */
+public class MemoryMapCacheStatistics {
+
+    long hits;
+
+    long misses;
+
+    long remaps;
+
+    long evictions;
+
+    long mappedBytes;
+
+    MemoryMapCacheStatistics(long hits, long misses, long remaps, long evictions,
+            long mappedBytes) {
+        this.hits = hits;
+        this.misses = misses;
+        this.remaps = remaps;
+        this.evictions = evictions;
+        this.mappedBytes = mappedBytes;
+    }
+
+    /**
+     * The number of map requests served by reusing a cached mapping
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * The number of map requests that resulted in a new mapping
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * The number of times a file region had to be mapped again after its mapping got evicted
+     */
+    public long getRemaps() {
+        return remaps;
+    }
+
+    /**
+     * The number of mappings evicted to stay within the configured budget
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * The number of bytes currently mapped by the cache
+     */
+    public long getMappedBytes() {
+        return mappedBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "MemoryMapCacheStatistics [hits=" + hits + ", misses=" + misses + ", remaps="
+                + remaps + ", evictions=" + evictions + ", mappedBytes=" + mappedBytes + "]";
+    }
+
+}
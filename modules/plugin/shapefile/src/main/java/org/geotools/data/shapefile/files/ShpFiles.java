@@ -918,13 +918,16 @@ public class ShpFiles {
      * @param mode
      * @param position
      * @param size
+     * @param acquired the cached mappings used by the returned buffer get added here, and have to
+     *        be released once the buffer is no longer used
      * @return
      * @throws IOException
      */
-    MappedByteBuffer map(FileChannel wrapped, URL url, MapMode mode, long position, long size)
-            throws IOException {
-        if (memoryMapCacheEnabled) {
-            return mapCache.map(wrapped, url, mode, position, size);
+    MappedByteBuffer map(FileChannel wrapped, URL url, MapMode mode, long position, long size,
+            Collection<MemoryMapCache.Mapping> acquired) throws IOException {
+        // without a budget the cached mappings could pin an unbounded amount of address space
+        if (memoryMapCacheEnabled && MemoryMapCache.isBounded()) {
+            return mapCache.map(wrapped, url, mode, position, size, acquired);
         } else {
             return wrapped.map(mode, position, size);
         }
@@ -942,7 +945,8 @@ public class ShpFiles {
 
     /**
      * Enables the memory map cache. When enabled the memory mapped portions of the files are cached
-     * and shared (giving each thread a clone of it)
+     * and shared (giving each thread a clone of it), as long as a budget has been set with
+     * {@link #setMemoryMapCacheMaxBytes(long)}, regardless of the order of the calls
      * 
      * @param memoryMapCacheEnabled
      */
@@ -953,6 +957,32 @@ public class ShpFiles {
         }
     }
 
+    /**
+     * Sets the maximum number of bytes the memory map caches of all shapefiles can keep mapped,
+     * the least recently used mappings get evicted when the limit is exceeded. When set to
+     * {@link Long#MAX_VALUE} (the default, unless the "org.geotools.shapefile.maxMappedBytes"
+     * system variable is set) the mappings are not cached
+     * 
+     * @param maxMappedBytes
+     */
+    public static void setMemoryMapCacheMaxBytes(long maxMappedBytes) {
+        MemoryMapCache.setMaxMappedBytes(maxMappedBytes);
+    }
+
+    /**
+     * Returns the maximum number of bytes the memory map caches of all shapefiles can keep mapped
+     */
+    public static long getMemoryMapCacheMaxBytes() {
+        return MemoryMapCache.getMaxMappedBytes();
+    }
+
+    /**
+     * Returns the memory map cache usage statistics
+     */
+    public MemoryMapCacheStatistics getMemoryMapCacheStatistics() {
+        return mapCache.getStatistics();
+    }
+
     /**
      * Returns true if the file exists. Throws an exception if the file is not local.
      * 
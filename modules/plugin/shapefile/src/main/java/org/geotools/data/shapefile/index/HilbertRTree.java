@@ -0,0 +1,338 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile.index;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.geotools.resources.NIOUtilities;
+
+import com.vividsolutions.jts.geom.Envelope;
+
+/**
+ * A packed Hilbert R-tree spatial index for shapefiles, stored in the .rtx file.
+ * <p>
+ * The tree is a flat structure, the nodes are stored level by level, leaves first and root last,
+ * each one with its envelope and the position of its first child (or the record number, for the
+ * leaves). The leaves are followed by the shp file offsets of the records. All the values are
+ * read straight out of a byte buffer (memory mapped, or loaded in memory), so the searches do not
+ * allocate any node object, and the instance can be shared among threads. The tree must be
+ * {@link #close() closed} once no longer needed, to release the memory mapping before the file
+ * gets deleted or replaced.
+ * </p>
+ * <p>
+ * The file layout is:
+ * <ul>
+ * <li>a 64 bytes header: magic, version, node size, number of records, number of nodes, number
+ * of levels, bounds (minx, miny, maxx, maxy)</li>
+ * <li>the end position of each level (int)</li>
+ * <li>the node envelopes (4 doubles each)</li>
+ * <li>the node indices (int), first child for inner nodes, record number for leaves</li>
+ * <li>the shp offset of each leaf (long)</li>
+ * </ul>
+ * All values are little endian.
+ * </p>
+ *
+ * @see HilbertRTreeBuilder
+ * @author Andrea Aime - GeoSolutions
+ */
+public class HilbertRTree {
+
+    static final int MAGIC = 0x58525447; // "GTRX"
+
+    static final int VERSION = 1;
+
+    static final int HEADER_SIZE = 64;
+
+    static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    static final DataDefinition DATA_DEFINITION = new DataDefinition("US-ASCII");
+    static {
+        DATA_DEFINITION.addField(Integer.class);
+        DATA_DEFINITION.addField(Long.class);
+    };
+
+    ByteBuffer buffer;
+
+    int nodeSize;
+
+    int numItems;
+
+    int numNodes;
+
+    int[] levelEnds;
+
+    Envelope bounds;
+
+    int boxesOffset;
+
+    int indicesOffset;
+
+    int offsetsOffset;
+
+    boolean memoryMapped;
+
+    boolean closed;
+
+    /**
+     * Makes sure the buffer is not unmapped while searching it
+     */
+    final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Opens the tree stored in the specified file
+     *
+     * @param file The .rtx file
+     * @param memoryMapped If true the file will be memory mapped, otherwise it will be loaded in
+     *        memory
+     * @throws IOException If the file cannot be read, or is not a valid tree
+     */
+    public static HilbertRTree open(File file, boolean memoryMapped) throws IOException {
+        FileInputStream fis = new FileInputStream(file);
+        try {
+            FileChannel channel = fis.getChannel();
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Spatial index file " + file + " is too large");
+            }
+            ByteBuffer buffer;
+            if (memoryMapped) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            } else {
+                buffer = ByteBuffer.allocate((int) size);
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer) < 0) {
+                        throw new IOException("Unexpected end of file reading " + file);
+                    }
+                }
+                buffer.flip();
+            }
+            try {
+                HilbertRTree tree = new HilbertRTree(buffer);
+                tree.memoryMapped = memoryMapped;
+                return tree;
+            } catch (IOException e) {
+                if (memoryMapped) {
+                    NIOUtilities.clean(buffer, true);
+                }
+                throw e;
+            }
+        } finally {
+            fis.close();
+        }
+    }
+
+    HilbertRTree(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer.order(BYTE_ORDER);
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a packed R-tree spatial index file");
+        }
+        int version = buffer.getInt(4);
+        if (version != VERSION) {
+            throw new IOException("Unsupported spatial index version " + version);
+        }
+        nodeSize = buffer.getInt(8);
+        numItems = buffer.getInt(12);
+        numNodes = buffer.getInt(16);
+        int levels = buffer.getInt(20);
+        bounds = new Envelope(buffer.getDouble(24), buffer.getDouble(40), buffer.getDouble(32),
+                buffer.getDouble(48));
+        levelEnds = new int[levels];
+        for (int i = 0; i < levels; i++) {
+            levelEnds[i] = buffer.getInt(HEADER_SIZE + i * 4);
+        }
+        boxesOffset = HEADER_SIZE + levels * 4;
+        indicesOffset = boxesOffset + numNodes * 32;
+        offsetsOffset = indicesOffset + numNodes * 4;
+        if (buffer.limit() < offsetsOffset + numItems * 8) {
+            throw new IOException("Truncated spatial index file");
+        }
+    }
+
+    /**
+     * The bounds of all the records in the tree
+     */
+    public Envelope getBounds() {
+        return new Envelope(bounds);
+    }
+
+    /**
+     * The number of records in the tree
+     */
+    public int size() {
+        return numItems;
+    }
+
+    /**
+     * Returns the records whose envelope intersects the specified one, in the same order as they
+     * are found in the shapefile, so that they can be read with sequential I/O. Each
+     * {@link Data} contains the record number and the shp file offset.
+     *
+     * @param bbox
+     * @return The matching records, or null if the tree has been closed
+     */
+    public CloseableIterator<Data> search(Envelope bbox) {
+        lock.readLock().lock();
+        try {
+            if (closed) {
+                return null;
+            }
+            // resolve the offsets right away, the iterator does not access the buffer
+            long[] hits = searchLeaves(bbox);
+            int[] records = new int[hits.length];
+            long[] offsets = new long[hits.length];
+            for (int i = 0; i < hits.length; i++) {
+                records[i] = (int) (hits[i] >>> 31);
+                int leaf = (int) (hits[i] & Integer.MAX_VALUE);
+                offsets[i] = buffer.getLong(offsetsOffset + leaf * 8);
+            }
+            return new DataIterator(records, offsets);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Releases the tree buffer, unmapping it right away if memory mapped. Searches performed
+     * after this call return null
+     */
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            if (!closed) {
+                closed = true;
+                if (memoryMapped) {
+                    NIOUtilities.clean(buffer, true);
+                }
+                buffer = null;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the leaves intersecting the envelope, returns them as an array of sorted longs,
+     * with the record number in the high bits and the leaf position in the low ones
+     */
+    long[] searchLeaves(Envelope bbox) {
+        if (numItems == 0 || bbox.isNull()) {
+            return new long[0];
+        }
+        final double minX = bbox.getMinX();
+        final double minY = bbox.getMinY();
+        final double maxX = bbox.getMaxX();
+        final double maxY = bbox.getMaxY();
+
+        // depth first visit, the stack never holds more than a node worth of entries per level
+        int[] stack = new int[levelEnds.length * nodeSize + 1];
+        int top = 0;
+        long[] hits = new long[16];
+        int hitCount = 0;
+        int node = numNodes - 1;
+        while (true) {
+            int start = node;
+            int end = node == numNodes - 1 ? numNodes : Math.min(node + nodeSize,
+                    upperBound(node));
+            for (int pos = start; pos < end; pos++) {
+                int b = boxesOffset + pos * 32;
+                if (buffer.getDouble(b + 16) < minX || buffer.getDouble(b + 24) < minY
+                        || buffer.getDouble(b) > maxX || buffer.getDouble(b + 8) > maxY) {
+                    continue;
+                }
+                int index = buffer.getInt(indicesOffset + pos * 4);
+                if (pos < numItems) {
+                    if (hitCount == hits.length) {
+                        hits = Arrays.copyOf(hits, hitCount * 2);
+                    }
+                    hits[hitCount++] = ((long) index << 31) | pos;
+                } else {
+                    stack[top++] = index;
+                }
+            }
+            if (top == 0) {
+                break;
+            }
+            node = stack[--top];
+        }
+
+        hits = Arrays.copyOf(hits, hitCount);
+        Arrays.sort(hits);
+        return hits;
+    }
+
+    /**
+     * Returns the end of the level containing the specified node
+     */
+    int upperBound(int node) {
+        for (int i = 0; i < levelEnds.length; i++) {
+            if (node < levelEnds[i]) {
+                return levelEnds[i];
+            }
+        }
+        return numNodes;
+    }
+
+    static class DataIterator implements CloseableIterator<Data> {
+
+        int[] records;
+
+        long[] offsets;
+
+        int current;
+
+        DataIterator(int[] records, long[] offsets) {
+            this.records = records;
+            this.offsets = offsets;
+        }
+
+        public boolean hasNext() {
+            return current < records.length;
+        }
+
+        public Data next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Data data = new Data(DATA_DEFINITION);
+            try {
+                data.addValue(records[current]);
+                data.addValue(offsets[current]);
+                current++;
+            } catch (TreeException e) {
+                throw new RuntimeException(e);
+            }
+            return data;
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        public void close() throws IOException {
+            // nothing to do, the tree is shared
+        }
+    }
+}
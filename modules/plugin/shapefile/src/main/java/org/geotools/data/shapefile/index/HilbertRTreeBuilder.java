@@ -0,0 +1,327 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile.index;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+import com.vividsolutions.jts.geom.Envelope;
+
+/**
+ * Builds a packed Hilbert R-tree and writes it to disk in the format read by
+ * {@link HilbertRTree}.
+ * <p>
+ * The record envelopes are accumulated in memory, sorted along the Hilbert curve of their
+ * centers, and then packed bottom up in nodes of fixed size, so the resulting tree is fully
+ * balanced and each node is completely filled, but the last one of each level.
+ * </p>
+ *
+ * @author Andrea Aime - GeoSolutions
+ */
+public class HilbertRTreeBuilder {
+
+    public static final int DEFAULT_NODE_SIZE = 16;
+
+    /**
+     * The grid used to compute the Hilbert values, 2^16 cells on each axis
+     */
+    static final int HILBERT_MAX = (1 << 16) - 1;
+
+    int nodeSize;
+
+    int count;
+
+    int[] records;
+
+    long[] offsets;
+
+    double[] boxes;
+
+    Envelope bounds = new Envelope();
+
+    /**
+     * Builds a new tree builder
+     *
+     * @param capacity The expected number of records
+     * @param nodeSize The number of entries in each node
+     */
+    public HilbertRTreeBuilder(int capacity, int nodeSize) {
+        if (nodeSize < 2) {
+            throw new IllegalArgumentException("Node size must be at least 2, was " + nodeSize);
+        }
+        this.nodeSize = nodeSize;
+        capacity = Math.max(capacity, 1);
+        this.records = new int[capacity];
+        this.offsets = new long[capacity];
+        this.boxes = new double[capacity * 4];
+    }
+
+    /**
+     * Adds a record to the tree
+     *
+     * @param record The record number, as found in the shp file (one based)
+     * @param offset The offset of the record in the shp file, in bytes
+     */
+    public void add(int record, long offset, double minX, double minY, double maxX, double maxY) {
+        if (count == records.length) {
+            int capacity = count + (count >> 1) + 1;
+            records = Arrays.copyOf(records, capacity);
+            offsets = Arrays.copyOf(offsets, capacity);
+            boxes = Arrays.copyOf(boxes, capacity * 4);
+        }
+        records[count] = record;
+        offsets[count] = offset;
+        int b = count * 4;
+        boxes[b] = minX;
+        boxes[b + 1] = minY;
+        boxes[b + 2] = maxX;
+        boxes[b + 3] = maxY;
+        bounds.expandToInclude(minX, minY);
+        bounds.expandToInclude(maxX, maxY);
+        count++;
+    }
+
+    /**
+     * Returns the number of records added so far
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Packs the tree and writes it to the specified file
+     *
+     * @param file
+     * @throws IOException
+     */
+    public void write(File file) throws IOException {
+        // compute the level structure, leaves first and root last
+        int[] levelEnds = new int[32];
+        int levels = 0;
+        int numNodes = 0;
+        if (count > 0) {
+            int n = count;
+            numNodes = count;
+            levelEnds[levels++] = numNodes;
+            do {
+                n = (n + nodeSize - 1) / nodeSize;
+                numNodes += n;
+                levelEnds[levels++] = numNodes;
+            } while (n > 1);
+        }
+
+        // sort the leaves along the Hilbert curve, the key holds the position in the low bits
+        long[] keys = new long[count];
+        double width = bounds.getWidth();
+        double height = bounds.getHeight();
+        for (int i = 0; i < count; i++) {
+            int b = i * 4;
+            int x = 0, y = 0;
+            if (width > 0) {
+                x = (int) Math.floor(HILBERT_MAX
+                        * ((boxes[b] + boxes[b + 2]) / 2 - bounds.getMinX()) / width);
+            }
+            if (height > 0) {
+                y = (int) Math.floor(HILBERT_MAX
+                        * ((boxes[b + 1] + boxes[b + 3]) / 2 - bounds.getMinY()) / height);
+            }
+            keys[i] = (hilbert(x, y) << 31) | i;
+        }
+        Arrays.sort(keys);
+
+        // build the tree, leaves first, then each parent level
+        double[] nodeBoxes = new double[numNodes * 4];
+        int[] indices = new int[numNodes];
+        long[] leafOffsets = new long[count];
+        for (int i = 0; i < count; i++) {
+            int source = (int) (keys[i] & Integer.MAX_VALUE);
+            System.arraycopy(boxes, source * 4, nodeBoxes, i * 4, 4);
+            indices[i] = records[source];
+            leafOffsets[i] = offsets[source];
+        }
+        keys = null;
+        int parent = count;
+        for (int level = 0; level < levels - 1; level++) {
+            int start = level == 0 ? 0 : levelEnds[level - 1];
+            int end = levelEnds[level];
+            for (int i = start; i < end; i += nodeSize) {
+                int last = Math.min(i + nodeSize, end);
+                double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+                double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+                for (int j = i; j < last; j++) {
+                    int b = j * 4;
+                    minX = Math.min(minX, nodeBoxes[b]);
+                    minY = Math.min(minY, nodeBoxes[b + 1]);
+                    maxX = Math.max(maxX, nodeBoxes[b + 2]);
+                    maxY = Math.max(maxY, nodeBoxes[b + 3]);
+                }
+                int b = parent * 4;
+                nodeBoxes[b] = minX;
+                nodeBoxes[b + 1] = minY;
+                nodeBoxes[b + 2] = maxX;
+                nodeBoxes[b + 3] = maxY;
+                indices[parent] = i;
+                parent++;
+            }
+        }
+
+        // and finally write it out
+        FileOutputStream fos = new FileOutputStream(file);
+        try {
+            Writer writer = new Writer(fos.getChannel());
+            writer.putInt(HilbertRTree.MAGIC);
+            writer.putInt(HilbertRTree.VERSION);
+            writer.putInt(nodeSize);
+            writer.putInt(count);
+            writer.putInt(numNodes);
+            writer.putInt(levels);
+            writer.putDouble(bounds.isNull() ? 0 : bounds.getMinX());
+            writer.putDouble(bounds.isNull() ? 0 : bounds.getMinY());
+            writer.putDouble(bounds.isNull() ? 0 : bounds.getMaxX());
+            writer.putDouble(bounds.isNull() ? 0 : bounds.getMaxY());
+            while (writer.written() < HilbertRTree.HEADER_SIZE) {
+                writer.putInt(0);
+            }
+            for (int i = 0; i < levels; i++) {
+                writer.putInt(levelEnds[i]);
+            }
+            for (int i = 0; i < nodeBoxes.length; i++) {
+                writer.putDouble(nodeBoxes[i]);
+            }
+            for (int i = 0; i < indices.length; i++) {
+                writer.putInt(indices[i]);
+            }
+            for (int i = 0; i < leafOffsets.length; i++) {
+                writer.putLong(leafOffsets[i]);
+            }
+            writer.flush();
+        } finally {
+            fos.close();
+        }
+    }
+
+    /**
+     * Computes the position along the Hilbert curve of a point on a 2^16 x 2^16 grid
+     * (non recursive formulation, see http://threadlocalmutex.com/?p=126)
+     */
+    static long hilbert(int x, int y) {
+        int a = x ^ y;
+        int b = 0xFFFF ^ a;
+        int c = 0xFFFF ^ (x | y);
+        int d = x & (y ^ 0xFFFF);
+
+        int A = a | (b >> 1);
+        int B = (a >> 1) ^ a;
+        int C = ((c >> 1) ^ (b & (d >> 1))) ^ c;
+        int D = ((a & (c >> 1)) ^ (d >> 1)) ^ d;
+
+        a = A;
+        b = B;
+        c = C;
+        d = D;
+        A = ((a & (a >> 2)) ^ (b & (b >> 2)));
+        B = ((a & (b >> 2)) ^ (b & ((a ^ b) >> 2)));
+        C ^= ((a & (c >> 2)) ^ (b & (d >> 2)));
+        D ^= ((b & (c >> 2)) ^ ((a ^ b) & (d >> 2)));
+
+        a = A;
+        b = B;
+        c = C;
+        d = D;
+        A = ((a & (a >> 4)) ^ (b & (b >> 4)));
+        B = ((a & (b >> 4)) ^ (b & ((a ^ b) >> 4)));
+        C ^= ((a & (c >> 4)) ^ (b & (d >> 4)));
+        D ^= ((b & (c >> 4)) ^ ((a ^ b) & (d >> 4)));
+
+        a = A;
+        b = B;
+        c = C;
+        d = D;
+        C ^= ((a & (c >> 8)) ^ (b & (d >> 8)));
+        D ^= ((b & (c >> 8)) ^ ((a ^ b) & (d >> 8)));
+
+        a = C ^ (C >> 1);
+        b = D ^ (D >> 1);
+
+        int i0 = x ^ y;
+        int i1 = b | (0xFFFF ^ (i0 | a));
+
+        i0 = (i0 | (i0 << 8)) & 0x00FF00FF;
+        i0 = (i0 | (i0 << 4)) & 0x0F0F0F0F;
+        i0 = (i0 | (i0 << 2)) & 0x33333333;
+        i0 = (i0 | (i0 << 1)) & 0x55555555;
+
+        i1 = (i1 | (i1 << 8)) & 0x00FF00FF;
+        i1 = (i1 | (i1 << 4)) & 0x0F0F0F0F;
+        i1 = (i1 | (i1 << 2)) & 0x33333333;
+        i1 = (i1 | (i1 << 1)) & 0x55555555;
+
+        return ((i1 << 1) | i0) & 0xFFFFFFFFL;
+    }
+
+    /**
+     * Buffered writer over a file channel, using the tree byte order
+     */
+    static class Writer {
+        FileChannel channel;
+
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024).order(HilbertRTree.BYTE_ORDER);
+
+        long written;
+
+        Writer(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void putInt(int value) throws IOException {
+            ensureCapacity(4);
+            buffer.putInt(value);
+        }
+
+        void putLong(long value) throws IOException {
+            ensureCapacity(8);
+            buffer.putLong(value);
+        }
+
+        void putDouble(double value) throws IOException {
+            ensureCapacity(8);
+            buffer.putDouble(value);
+        }
+
+        long written() {
+            return written + buffer.position();
+        }
+
+        void ensureCapacity(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                written += channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
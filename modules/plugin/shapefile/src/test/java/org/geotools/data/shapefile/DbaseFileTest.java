@@ -107,6 +107,33 @@ public class DbaseFileTest extends TestCaseSupport {
         dbf2.close();
     }
 
+    @Test
+    public void testPrimitiveReads() throws Exception {
+        DbaseFileHeader header = dbf.getHeader();
+        DbaseFileReader dbf2 = new DbaseFileReader(shpFiles, false,
+                ShapefileDataStore.DEFAULT_STRING_CHARSET);
+        try {
+            while (dbf.hasNext()) {
+                dbf.read();
+                DbaseFileReader.Row r = dbf2.readRow();
+                for (int i = 0, ii = header.getNumFields(); i < ii; i++) {
+                    if (header.getFieldType(i) != 'N') {
+                        continue;
+                    }
+                    Object expected = r.read(i);
+                    assertEquals(expected == null, dbf.isNumericNull(i));
+                    if (expected instanceof Double) {
+                        assertEquals(expected, dbf.readDouble(i));
+                    } else if (expected != null) {
+                        assertEquals(((Number) expected).longValue(), dbf.readLong(i));
+                    }
+                }
+            }
+        } finally {
+            dbf2.close();
+        }
+    }
+
     @Test
     public void testHeader() throws Exception {
         DbaseFileHeader header = new DbaseFileHeader();
@@ -60,6 +60,7 @@ import org.geotools.data.FeatureReader;
 import org.geotools.data.FeatureWriter;
 import org.geotools.data.Query;
 import org.geotools.data.Transaction;
+import org.geotools.data.shapefile.files.MemoryMapCacheStatistics;
 import org.geotools.data.shapefile.files.ShpFileType;
 import org.geotools.data.simple.SimpleFeatureCollection;
 import org.geotools.data.simple.SimpleFeatureIterator;
@@ -69,11 +70,20 @@ import org.geotools.data.store.ContentFeatureSource;
 import org.geotools.data.store.ContentFeatureStore;
 import org.geotools.factory.CommonFactoryFinder;
 import org.geotools.factory.FactoryRegistryException;
+import org.geotools.factory.Hints;
 import org.geotools.feature.DefaultFeatureCollection;
 import org.geotools.feature.FeatureTypes;
+import org.geotools.feature.collection.ParallelVisitExecutor;
+import org.geotools.feature.simple.SimpleFeatureBatch;
 import org.geotools.feature.simple.SimpleFeatureBuilder;
 import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
 import org.geotools.feature.type.BasicFeatureTypes;
+import org.geotools.feature.visitor.CountVisitor;
+import org.geotools.feature.visitor.FeatureCalc;
+import org.geotools.feature.visitor.MaxVisitor;
+import org.geotools.feature.visitor.MinVisitor;
+import org.geotools.feature.visitor.SumVisitor;
+import org.geotools.feature.visitor.UniqueVisitor;
 import org.geotools.filter.IllegalFilterException;
 import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.geotools.referencing.CRS;
@@ -85,12 +95,15 @@ import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.feature.type.AttributeDescriptor;
 import org.opengis.feature.type.FeatureType;
+import org.opengis.feature.type.GeometryDescriptor;
 import org.opengis.filter.Filter;
 import org.opengis.filter.FilterFactory;
 import org.opengis.filter.FilterFactory2;
 import org.opengis.filter.Id;
 import org.opengis.filter.identity.FeatureId;
 import org.opengis.filter.identity.Identifier;
+import org.opengis.filter.sort.SortBy;
+import org.opengis.filter.sort.SortOrder;
 import org.opengis.geometry.BoundingBox;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
 
@@ -175,6 +188,230 @@ public class ShapefileDataStoreTest extends TestCaseSupport {
         loadFeatures(STATE_POP, Query.ALL);
     }
     
+    @Test
+    public void testMemoryMapCacheDisabledWithoutBudget() throws Exception {
+        assertEquals(Long.MAX_VALUE, ShapefileDataStore.getMemoryMapCacheMaxBytes());
+        URL url = TestData.url(STATE_POP);
+        store = new ShapefileDataStore(url);
+        store.setMemoryMapped(true);
+        store.setBufferCachingEnabled(true);
+        SimpleFeatureSource fs = store.getFeatureSource();
+        assertEquals(fs.getFeatures().size(), DataUtilities.list(fs.getFeatures()).size());
+
+        // no budget, the mappings are not cached
+        MemoryMapCacheStatistics stats = store.getMemoryMapCacheStatistics();
+        assertEquals(0, stats.getMisses());
+        assertEquals(0, stats.getMappedBytes());
+    }
+
+    @Test
+    public void testMemoryMapCacheEnabledBeforeBudget() throws Exception {
+        long maxBytes = ShapefileDataStore.getMemoryMapCacheMaxBytes();
+        try {
+            URL url = TestData.url(STATE_POP);
+            store = new ShapefileDataStore(url);
+            store.setMemoryMapped(true);
+            store.setBufferCachingEnabled(true);
+            ShapefileDataStore.setMemoryMapCacheMaxBytes(1024 * 1024 * 1024);
+            SimpleFeatureSource fs = store.getFeatureSource();
+            int count = fs.getFeatures().size();
+            assertEquals(count, DataUtilities.list(fs.getFeatures()).size());
+            assertEquals(count, DataUtilities.list(fs.getFeatures()).size());
+
+            MemoryMapCacheStatistics stats = store.getMemoryMapCacheStatistics();
+            assertTrue(stats.getMisses() > 0);
+            assertTrue(stats.getHits() > 0);
+
+            // removing the budget releases the mappings
+            ShapefileDataStore.setMemoryMapCacheMaxBytes(Long.MAX_VALUE);
+            assertEquals(0, store.getMemoryMapCacheStatistics().getMappedBytes());
+        } finally {
+            ShapefileDataStore.setMemoryMapCacheMaxBytes(maxBytes);
+        }
+    }
+
+    @Test
+    public void testMemoryMapCacheStatistics() throws Exception {
+        long maxBytes = ShapefileDataStore.getMemoryMapCacheMaxBytes();
+        try {
+            ShapefileDataStore.setMemoryMapCacheMaxBytes(1024 * 1024 * 1024);
+            URL url = TestData.url(STATE_POP);
+            store = new ShapefileDataStore(url);
+            store.setMemoryMapped(true);
+            store.setBufferCachingEnabled(true);
+            SimpleFeatureSource fs = store.getFeatureSource();
+            int count = fs.getFeatures().size();
+            assertEquals(count, DataUtilities.list(fs.getFeatures()).size());
+            assertEquals(count, DataUtilities.list(fs.getFeatures()).size());
+
+            MemoryMapCacheStatistics stats = store.getMemoryMapCacheStatistics();
+            assertTrue(stats.getMisses() > 0);
+            assertTrue(stats.getHits() > 0);
+            assertTrue(stats.getMappedBytes() > 0);
+            assertEquals(0, stats.getRemaps());
+            assertEquals(0, stats.getEvictions());
+
+            // shrink the budget, everything gets evicted
+            ShapefileDataStore.setMemoryMapCacheMaxBytes(1);
+            stats = store.getMemoryMapCacheStatistics();
+            assertTrue(stats.getEvictions() > 0);
+            assertEquals(0, stats.getMappedBytes());
+
+            // reading again requires a remap
+            assertEquals(count, DataUtilities.list(fs.getFeatures()).size());
+            stats = store.getMemoryMapCacheStatistics();
+            assertTrue(stats.getRemaps() > 0);
+        } finally {
+            ShapefileDataStore.setMemoryMapCacheMaxBytes(maxBytes);
+        }
+    }
+
+    @Test
+    public void testReadBatch() throws Exception {
+        URL url = TestData.url(STATE_POP);
+        store = new ShapefileDataStore(url);
+        SimpleFeatureSource fs = store.getFeatureSource();
+        List<SimpleFeature> expected = DataUtilities.list(fs.getFeatures());
+
+        Query q = new Query(Query.ALL);
+        q.setHints(new Hints(Hints.FEATURE_BATCH_SIZE, 7));
+        SimpleFeatureIterator fi = fs.getFeatures(q).features();
+        try {
+            int i = 0;
+            while (fi.hasNext()) {
+                SimpleFeature f = fi.next();
+                assertTrue(f instanceof SimpleFeatureBatch.View);
+                SimpleFeature e = expected.get(i++);
+                assertEquals(e.getID(), f.getID());
+                assertEquals(e.getAttributes(), f.getAttributes());
+            }
+            assertEquals(expected.size(), i);
+        } finally {
+            fi.close();
+        }
+    }
+
+    @Test
+    public void testBatchVisitors() throws Exception {
+        URL url = TestData.url(STATE_POP);
+        store = new ShapefileDataStore(url);
+        SimpleFeatureSource fs = store.getFeatureSource();
+        List<SimpleFeature> features = DataUtilities.list(fs.getFeatures());
+
+        for (AttributeDescriptor ad : fs.getSchema().getAttributeDescriptors()) {
+            if (ad instanceof GeometryDescriptor) {
+                continue;
+            }
+            String name = ad.getLocalName();
+            List<FeatureCalc> expected = new ArrayList<FeatureCalc>();
+            List<FeatureCalc> actual = new ArrayList<FeatureCalc>();
+            expected.add(new MinVisitor(name));
+            actual.add(new MinVisitor(name));
+            expected.add(new MaxVisitor(name));
+            actual.add(new MaxVisitor(name));
+            expected.add(new UniqueVisitor(name));
+            actual.add(new UniqueVisitor(name));
+            if (Number.class.isAssignableFrom(ad.getType().getBinding())) {
+                expected.add(new SumVisitor(name, fs.getSchema()));
+                actual.add(new SumVisitor(name, fs.getSchema()));
+            }
+            for (int i = 0; i < expected.size(); i++) {
+                for (SimpleFeature feature : features) {
+                    expected.get(i).visit((Feature) feature);
+                }
+                // goes straight to the dbf
+                fs.getFeatures().accepts(actual.get(i), null);
+                assertEquals(name, expected.get(i).getResult().getValue(), actual.get(i)
+                        .getResult().getValue());
+            }
+        }
+
+        // with a filter the reader gets used, fed in batches
+        Filter filter = ff.greater(ff.property("PERSONS"), ff.literal(3000000));
+        SumVisitor expected = new SumVisitor("PERSONS", fs.getSchema());
+        fs.getFeatures(filter).accepts(expected, null);
+        double sum = 0;
+        for (SimpleFeature feature : features) {
+            if (filter.evaluate(feature)) {
+                sum += ((Number) feature.getAttribute("PERSONS")).doubleValue();
+            }
+        }
+        assertEquals(sum, expected.getResult().toDouble(), 0d);
+    }
+
+    @Test
+    public void testBatchVisitorsSortedPaged() throws Exception {
+        URL url = TestData.url(STATE_POP);
+        store = new ShapefileDataStore(url);
+        SimpleFeatureSource fs = store.getFeatureSource();
+
+        Query sorted = new Query(Query.ALL);
+        sorted.setSortBy(new SortBy[] { ff.sort("STATE_NAME", SortOrder.ASCENDING) });
+        Query sortedLimited = new Query(sorted);
+        sortedLimited.setMaxFeatures(10);
+        Query paged = new Query(Query.ALL);
+        paged.setStartIndex(5);
+        paged.setMaxFeatures(10);
+        for (Query q : new Query[] { sorted, sortedLimited, paged }) {
+            List<SimpleFeature> features = DataUtilities.list(fs.getFeatures(q));
+            List<FeatureCalc> expected = new ArrayList<FeatureCalc>();
+            List<FeatureCalc> actual = new ArrayList<FeatureCalc>();
+            expected.add(new SumVisitor("PERSONS", fs.getSchema()));
+            actual.add(new SumVisitor("PERSONS", fs.getSchema()));
+            expected.add(new MinVisitor("PERSONS"));
+            actual.add(new MinVisitor("PERSONS"));
+            expected.add(new MaxVisitor("STATE_NAME"));
+            actual.add(new MaxVisitor("STATE_NAME"));
+            UniqueVisitor orderedUnique = new UniqueVisitor("STATE_ABBR");
+            orderedUnique.setPreserveOrder(true);
+            expected.add(orderedUnique);
+            UniqueVisitor actualUnique = new UniqueVisitor("STATE_ABBR");
+            actualUnique.setPreserveOrder(true);
+            actual.add(actualUnique);
+            for (int i = 0; i < expected.size(); i++) {
+                for (SimpleFeature feature : features) {
+                    expected.get(i).visit((Feature) feature);
+                }
+                fs.getFeatures(q).accepts(actual.get(i), null);
+                Object expectedValue = expected.get(i).getResult().getValue();
+                Object actualValue = actual.get(i).getResult().getValue();
+                if (expectedValue instanceof Set) {
+                    // compare the order too
+                    expectedValue = new ArrayList<Object>((Set<?>) expectedValue);
+                    actualValue = new ArrayList<Object>((Set<?>) actualValue);
+                }
+                assertEquals(expectedValue, actualValue);
+            }
+        }
+    }
+
+    @Test
+    public void testReadBatchSorted() throws Exception {
+        URL url = TestData.url(STATE_POP);
+        store = new ShapefileDataStore(url);
+        SimpleFeatureSource fs = store.getFeatureSource();
+
+        // sorted in memory, and paged, which sorts in natural order
+        Query sorted = new Query(Query.ALL);
+        sorted.setSortBy(new SortBy[] { ff.sort("PERSONS", SortOrder.DESCENDING) });
+        Query paged = new Query(Query.ALL);
+        paged.setStartIndex(3);
+        paged.setMaxFeatures(20);
+        for (Query q : new Query[] { sorted, paged }) {
+            List<SimpleFeature> expected = DataUtilities.list(fs.getFeatures(q));
+            Query batched = new Query(q);
+            batched.setHints(new Hints(Hints.FEATURE_BATCH_SIZE, 7));
+            // the features are retained by the sorting, they must not be flyweights
+            List<SimpleFeature> actual = DataUtilities.list(fs.getFeatures(batched));
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertFalse(actual.get(i) instanceof SimpleFeatureBatch.View);
+                assertEquals(expected.get(i).getID(), actual.get(i).getID());
+                assertEquals(expected.get(i).getAttributes(), actual.get(i).getAttributes());
+            }
+        }
+    }
+
     @Test
     public void testNullReproject() throws Exception {
         // try to reproject to the target CRS, used to fail due to a missing check in 
@@ -390,6 +627,86 @@ public class ShapefileDataStoreTest extends TestCaseSupport {
         ds2.dispose();
     }
     
+    @Test
+    public void testCreateAndReadRTX() throws Exception {
+        File shpFile = copyShapefiles(STATE_POP);
+        URL url = shpFile.toURI().toURL();
+
+        String name = shpFile.getName();
+        String base = name.substring(0, name.lastIndexOf('.'));
+        File file = new File(shpFile.getParent(), base + ".rtx");
+        File qix = new File(shpFile.getParent(), base + ".qix");
+        qix.delete();
+
+        ShapefileDataStore ds = new ShapefileDataStore(url);
+        ds.setSpatialIndexType(ShpFileType.RTX);
+        ShapefileDataStore ds2 = new ShapefileDataStore(url);
+        ds2.setIndexed(false);
+
+        // reduce the bounds, thus making the store use the spatial index
+        ReferencedEnvelope bounds = ds.getFeatureSource().getBounds();
+        double dx = bounds.getWidth() / 4;
+        double dy = bounds.getHeight() / 4;
+        ReferencedEnvelope queryBounds = new ReferencedEnvelope(bounds.getMinX() + dx,
+                bounds.getMaxX() - dx, bounds.getMinY() + dy, bounds.getMaxY() - dy,
+                bounds.getCoordinateReferenceSystem());
+        performQueryComparison(ds, ds2, queryBounds);
+        assertTrue(file.exists());
+        assertFalse(qix.exists());
+
+        // a small area, and one outside of the data
+        ReferencedEnvelope small = new ReferencedEnvelope(-100, -99.5, 40, 40.5,
+                bounds.getCoordinateReferenceSystem());
+        performQueryComparison(ds, ds2, small);
+        ReferencedEnvelope outside = new ReferencedEnvelope(0, 1, 0, 1,
+                bounds.getCoordinateReferenceSystem());
+        performQueryComparison(ds, ds2, outside);
+
+        ds.dispose();
+        ds2.dispose();
+    }
+
+    @Test
+    public void testRTXReleasedOnWrite() throws Exception {
+        File shpFile = copyShapefiles(STATE_POP);
+        URL url = shpFile.toURI().toURL();
+
+        String name = shpFile.getName();
+        String base = name.substring(0, name.lastIndexOf('.'));
+        File file = new File(shpFile.getParent(), base + ".rtx");
+
+        ShapefileDataStore ds = new ShapefileDataStore(url);
+        ds.setMemoryMapped(true);
+        ds.setSpatialIndexType(ShpFileType.RTX);
+
+        ReferencedEnvelope bounds = ds.getFeatureSource().getBounds();
+        ReferencedEnvelope small = new ReferencedEnvelope(-100, -99.5, 40, 40.5,
+                bounds.getCoordinateReferenceSystem());
+        ShapefileDataStore baseline = new ShapefileDataStore(url);
+        baseline.setIndexed(false);
+        assertFalse(performQueryComparison(ds, baseline, small).isEmpty());
+        baseline.dispose();
+        assertNotNull(ds.indexManager.rtree);
+
+        // the writer drops the index, the loaded tree has to go as well
+        String geometryName = ds.getSchema().getGeometryDescriptor().getLocalName();
+        SimpleFeatureStore fs = (SimpleFeatureStore) ds.getFeatureSource();
+        fs.removeFeatures(ff.bbox(ff.property(geometryName), small));
+        assertNull(ds.indexManager.rtree);
+        assertFalse(file.exists());
+
+        // the index gets rebuilt, and does not return the removed features
+        baseline = new ShapefileDataStore(url);
+        baseline.setIndexed(false);
+        assertTrue(performQueryComparison(ds, baseline, small).isEmpty());
+        assertTrue(file.exists());
+        assertNotNull(ds.indexManager.rtree);
+
+        ds.dispose();
+        assertNull(ds.indexManager.rtree);
+        baseline.dispose();
+    }
+
     @Test
     public void testSelectionQuery() throws Exception {
         File shpFile = copyShapefiles(STATE_POP);
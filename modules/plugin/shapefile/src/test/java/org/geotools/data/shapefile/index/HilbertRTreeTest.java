@@ -0,0 +1,136 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile.index;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vividsolutions.jts.geom.Envelope;
+
+public class HilbertRTreeTest {
+
+    File file;
+
+    @Before
+    public void setUp() throws Exception {
+        file = File.createTempFile("tree", ".rtx");
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        new HilbertRTreeBuilder(0, 16).write(file);
+        HilbertRTree tree = HilbertRTree.open(file, false);
+        assertEquals(0, tree.size());
+        assertFalse(tree.search(new Envelope(-180, 180, -90, 90)).hasNext());
+    }
+
+    @Test
+    public void testSingle() throws Exception {
+        HilbertRTreeBuilder builder = new HilbertRTreeBuilder(1, 16);
+        builder.add(1, 100, 10, 10, 20, 20);
+        builder.write(file);
+        HilbertRTree tree = HilbertRTree.open(file, false);
+        assertEquals(1, tree.size());
+        assertEquals(new Envelope(10, 20, 10, 20), tree.getBounds());
+        CloseableIterator<Data> it = tree.search(new Envelope(15, 30, 15, 30));
+        assertTrue(it.hasNext());
+        Data data = it.next();
+        assertEquals(1, data.getValue(0));
+        assertEquals(100l, data.getValue(1));
+        assertFalse(it.hasNext());
+        assertFalse(tree.search(new Envelope(21, 30, 21, 30)).hasNext());
+    }
+
+    @Test
+    public void testClose() throws Exception {
+        HilbertRTreeBuilder builder = new HilbertRTreeBuilder(1, 16);
+        builder.add(1, 100, 10, 10, 20, 20);
+        builder.write(file);
+        HilbertRTree tree = HilbertRTree.open(file, true);
+        CloseableIterator<Data> it = tree.search(new Envelope(15, 30, 15, 30));
+        tree.close();
+
+        // the iterator does not need the tree anymore, new searches are not possible
+        assertTrue(it.hasNext());
+        assertEquals(100l, it.next().getValue(1));
+        assertNull(tree.search(new Envelope(15, 30, 15, 30)));
+        assertTrue(file.delete());
+    }
+
+    @Test
+    public void testRandomClustered() throws Exception {
+        // clustered data, the kind of distribution a quad tree has troubles with
+        Random random = new Random(42);
+        int count = 5000;
+        double[][] boxes = new double[count][];
+        HilbertRTreeBuilder builder = new HilbertRTreeBuilder(10, 8);
+        for (int i = 0; i < count; i++) {
+            double cx = (i % 5) * 100 + random.nextGaussian();
+            double cy = (i % 3) * 50 + random.nextGaussian();
+            double size = random.nextDouble() * 0.5;
+            boxes[i] = new double[] { cx, cy, cx + size, cy + size };
+            // records are one based, the offsets grow with them
+            builder.add(i + 1, 100 + i * 10l, cx, cy, cx + size, cy + size);
+        }
+        builder.write(file);
+
+        for (boolean memoryMapped : new boolean[] { false, true }) {
+            HilbertRTree tree = HilbertRTree.open(file, memoryMapped);
+            assertEquals(count, tree.size());
+            for (int q = 0; q < 50; q++) {
+                double x = random.nextDouble() * 420 - 10;
+                double y = random.nextDouble() * 120 - 10;
+                double w = random.nextDouble() * 20;
+                Envelope query = new Envelope(x, x + w, y, y + w);
+
+                List<Integer> expected = new ArrayList<Integer>();
+                for (int i = 0; i < count; i++) {
+                    Envelope box = new Envelope(boxes[i][0], boxes[i][2], boxes[i][1],
+                            boxes[i][3]);
+                    if (box.intersects(query)) {
+                        expected.add(i + 1);
+                    }
+                }
+
+                // results are sorted by record, with the right offsets
+                List<Integer> actual = new ArrayList<Integer>();
+                CloseableIterator<Data> it = tree.search(query);
+                while (it.hasNext()) {
+                    Data data = it.next();
+                    int record = (Integer) data.getValue(0);
+                    assertEquals(100 + (record - 1) * 10l, data.getValue(1));
+                    actual.add(record);
+                }
+                it.close();
+                assertEquals(expected, actual);
+            }
+        }
+    }
+}
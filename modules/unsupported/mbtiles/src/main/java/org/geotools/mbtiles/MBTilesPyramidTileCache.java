@@ -0,0 +1,177 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.mbtiles;
+
+import java.awt.image.RenderedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.imageio.ImageIO;
+
+import org.geotools.gce.imagepyramid.ImagePyramidReader;
+import org.geotools.gce.imagepyramid.PyramidTileCache;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.geotools.util.logging.Logging;
+import org.opengis.geometry.Envelope;
+
+/**
+ * A {@link PyramidTileCache} storing the tiles in a MBTiles file, so that the tiles computed by
+ * an {@link ImagePyramidReader} survive restarts and can be shipped along with the pyramid in
+ * offline deployments.
+ * <p>
+ * The pyramid levels are stored as zoom levels, the lowest resolution level being zoom level 0,
+ * and the rows are numbered from the bottom, as in the MBTiles specification. However the tiles
+ * follow the pyramid own grid, not the spherical mercator one, so the file is meant to be used as
+ * a cache for the reader, rather than as a tileset for other MBTiles clients.
+ * </p>
+ * <p>
+ * Usage:
+ * <pre>
+ * MBTilesPyramidTileCache cache = new MBTilesPyramidTileCache(new File("pyramid.mbtiles"));
+ * ImagePyramidReader reader = new ImagePyramidReader(pyramidDirectory, new Hints(
+ *         ImagePyramidReader.TILE_CACHE, cache));
+ * ...
+ * reader.dispose();
+ * cache.dispose();
+ * </pre>
+ * </p>
+ */
+public class MBTilesPyramidTileCache implements PyramidTileCache {
+
+    protected static final Logger LOGGER = Logging.getLogger("org.geotools.mbtiles");
+
+    protected final MBTilesFile file;
+
+    protected final MBTilesMetadata.t_format format;
+
+    /**
+     * The number of tile rows of each pyramid level
+     */
+    protected int[] rows;
+
+    /**
+     * Creates a cache storing PNG tiles in the specified file, which is created if missing
+     */
+    public MBTilesPyramidTileCache(File file) throws IOException {
+        this(new MBTilesFile(file), MBTilesMetadata.t_format.PNG);
+    }
+
+    /**
+     * Creates a cache storing the tiles in the specified MBTiles file. The JPEG format does not
+     * support transparency, and is lossy, use it only for opaque imagery.
+     */
+    public MBTilesPyramidTileCache(MBTilesFile file, MBTilesMetadata.t_format format) {
+        this.file = file;
+        this.format = format;
+    }
+
+    public void init(String coverageName, Envelope envelope, double[][] resolutions)
+            throws IOException {
+        file.init();
+
+        rows = new int[resolutions.length];
+        for (int i = 0; i < resolutions.length; i++) {
+            long height = Math.round(envelope.getSpan(1) / resolutions[i][1]);
+            rows[i] = (int) ((height + TILE_SIZE - 1) / TILE_SIZE);
+        }
+
+        MBTilesMetadata metadata = file.loadMetaData();
+        if (metadata.getName() == null) {
+            metadata.setName(coverageName);
+            metadata.setDescription("Tile cache of the " + coverageName + " image pyramid");
+            metadata.setVersion("1.0");
+            metadata.setType(MBTilesMetadata.t_type.OVERLAY);
+            metadata.setFormat(format);
+            try {
+                metadata.setBounds(new ReferencedEnvelope(envelope)
+                        .transform(DefaultGeographicCRS.WGS84, true));
+            } catch (Exception e) {
+                LOGGER.log(Level.FINE, "Could not compute the geographic bounds of the pyramid",
+                        e);
+            }
+            metadata.setMinZoom(0);
+            metadata.setMaxZoom(resolutions.length - 1);
+            file.saveMetaData(metadata);
+        }
+    }
+
+    public RenderedImage getTile(int level, int column, int row) throws IOException {
+        MBTilesTile tile = createTile(level, column, row);
+        if (tile == null) {
+            return null;
+        }
+        byte[] data = file.loadTile(tile).getData();
+        if (data == null) {
+            return null;
+        }
+        return ImageIO.read(new ByteArrayInputStream(data));
+    }
+
+    public void putTile(int level, int column, int row, RenderedImage image) throws IOException {
+        MBTilesTile tile = createTile(level, column, row);
+        if (tile == null) {
+            return;
+        }
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        if (!ImageIO.write(image, getFormatName(), bos)) {
+            if (LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.fine("Cannot encode tile " + level + "/" + column + "/" + row + " as "
+                        + getFormatName());
+            }
+            return;
+        }
+        tile.setData(bos.toByteArray());
+        file.saveTile(tile);
+    }
+
+    /**
+     * Maps the pyramid tile to the MBTiles one, returns null if the tile is outside of the
+     * pyramid grid
+     */
+    protected MBTilesTile createTile(int level, int column, int row) {
+        if (rows == null) {
+            throw new IllegalStateException("The cache has not been initialized");
+        }
+        if (level < 0 || level >= rows.length || row < 0 || row >= rows[level] || column < 0) {
+            return null;
+        }
+        return new MBTilesTile(rows.length - 1 - level, column, rows[level] - 1 - row);
+    }
+
+    protected String getFormatName() {
+        return format == MBTilesMetadata.t_format.JPEG ? "jpeg" : "png";
+    }
+
+    /**
+     * The underlying MBTiles file
+     */
+    public MBTilesFile getFile() {
+        return file;
+    }
+
+    /**
+     * Closes the MBTiles file
+     */
+    public void dispose() {
+        file.close();
+    }
+}
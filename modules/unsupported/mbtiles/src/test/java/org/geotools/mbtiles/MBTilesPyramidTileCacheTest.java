@@ -0,0 +1,92 @@
+package org.geotools.mbtiles;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.RenderedImage;
+import java.io.IOException;
+
+import org.geotools.gce.imagepyramid.PyramidTileCache;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.junit.Test;
+
+public class MBTilesPyramidTileCacheTest {
+
+    static final int SIZE = PyramidTileCache.TILE_SIZE;
+
+    BufferedImage createTile(Color color) {
+        BufferedImage image = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(color);
+        graphics.fillRect(0, 0, SIZE, SIZE);
+        graphics.dispose();
+        return image;
+    }
+
+    MBTilesPyramidTileCache createCache(MBTilesFile file) throws IOException {
+        MBTilesPyramidTileCache cache = new MBTilesPyramidTileCache(file,
+                MBTilesMetadata.t_format.PNG);
+        // two levels, 4x2 and 2x1 tiles
+        ReferencedEnvelope envelope = new ReferencedEnvelope(0, 4 * SIZE, 0, 2 * SIZE,
+                DefaultGeographicCRS.WGS84);
+        cache.init("test", envelope, new double[][] { { 1, 1 }, { 2, 2 } });
+        return cache;
+    }
+
+    @Test
+    public void testPutGet() throws Exception {
+        MBTilesFile file = new MBTilesFile();
+        MBTilesPyramidTileCache cache = createCache(file);
+        try {
+            MBTilesMetadata metadata = file.loadMetaData();
+            assertEquals("test", metadata.getName());
+            assertEquals(MBTilesMetadata.t_format.PNG, metadata.getFormat());
+            assertEquals(1, metadata.getMaxZoom());
+
+            assertNull(cache.getTile(0, 1, 0));
+            cache.putTile(0, 1, 0, createTile(Color.RED));
+            cache.putTile(1, 0, 0, createTile(Color.BLUE));
+
+            RenderedImage tile = cache.getTile(0, 1, 0);
+            assertNotNull(tile);
+            assertEquals(SIZE, tile.getWidth());
+            assertEquals(Color.RED.getRGB(), ((BufferedImage) tile).getRGB(10, 10));
+            assertEquals(Color.BLUE.getRGB(), ((BufferedImage) cache.getTile(1, 0, 0)).getRGB(
+                    10, 10));
+
+            // the highest resolution level is the highest zoom level, rows from the bottom
+            assertNotNull(file.loadTile(1, 1, 1).getData());
+            assertNotNull(file.loadTile(0, 0, 0).getData());
+            assertEquals(2, file.numberOfTiles());
+
+            // outside of the grid
+            cache.putTile(0, 1, 2, createTile(Color.GREEN));
+            assertNull(cache.getTile(0, 1, 2));
+            assertEquals(2, file.numberOfTiles());
+        } finally {
+            cache.dispose();
+        }
+    }
+
+    @Test
+    public void testPersistent() throws IOException {
+        MBTilesFile file = new MBTilesFile();
+        MBTilesPyramidTileCache cache = createCache(file);
+        cache.putTile(0, 3, 1, createTile(Color.RED));
+        cache.dispose();
+
+        cache = createCache(new MBTilesFile(file.getFile()));
+        try {
+            RenderedImage tile = cache.getTile(0, 3, 1);
+            assertNotNull(tile);
+            assertEquals(Color.RED.getRGB(), ((BufferedImage) tile).getRGB(0, 0));
+        } finally {
+            cache.dispose();
+        }
+    }
+}
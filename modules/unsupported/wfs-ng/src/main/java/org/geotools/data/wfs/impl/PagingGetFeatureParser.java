@@ -0,0 +1,440 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.wfs.impl;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import org.geotools.data.wfs.internal.GetFeatureParser;
+import org.geotools.data.wfs.internal.GetFeatureRequest;
+import org.geotools.data.wfs.internal.GetFeatureResponse;
+import org.geotools.data.wfs.internal.Loggers;
+import org.geotools.data.wfs.internal.WFSClient;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.type.FeatureType;
+import org.opengis.filter.Filter;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+
+/**
+ * A {@link GetFeatureParser} that splits a query in several paged GetFeature requests, fetched and
+ * parsed concurrently on a bounded pool of threads, and returns their features as a single
+ * stream.
+ * <p>
+ * A limited number of pages is kept in flight, a new one is requested only when the consumer is
+ * done with a previous one, so memory usage is bound by the page size and the pool size. Pages
+ * are returned either in request order, or as soon as they are available.
+ * </p>
+ *
+ * @author Andrea Aime - GeoSolutions
+ */
+class PagingGetFeatureParser implements GetFeatureParser {
+
+    static final Logger LOGGER = Loggers.MODULE;
+
+    static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+    /**
+     * The paging strategy, provides the request for each page
+     */
+    static abstract class Pages {
+
+        /**
+         * Returns the request for the page at the specified index, or null if there are no more
+         * pages
+         */
+        abstract GetFeatureRequest getRequest(int page);
+
+        /**
+         * Returns true if the page is the last one, based on the number of features it contained
+         */
+        abstract boolean isLast(GetFeatureRequest request, int featureCount);
+
+        /**
+         * Returns true if the feature, found in the specified page, is to be returned. Allows
+         * pages that can contain the same feature to return it only once.
+         */
+        boolean accept(int page, SimpleFeature feature) {
+            return true;
+        }
+    }
+
+    /**
+     * Pages using startIndex and count, the page count is not known in advance, paging stops at
+     * the first page that is not full
+     */
+    static class StartIndexPages extends Pages {
+
+        GetFeatureRequest base;
+
+        int pageSize;
+
+        int offset;
+
+        int maxFeatures;
+
+        StartIndexPages(GetFeatureRequest base, int pageSize) {
+            this.base = base;
+            this.pageSize = pageSize;
+            this.offset = base.getStartIndex() == null ? 0 : base.getStartIndex();
+            this.maxFeatures = base.getMaxFeatures() == null ? Integer.MAX_VALUE : base
+                    .getMaxFeatures();
+        }
+
+        @Override
+        GetFeatureRequest getRequest(int page) {
+            long start = (long) page * pageSize;
+            if (start >= maxFeatures) {
+                return null;
+            }
+            GetFeatureRequest request = base.createCopy();
+            request.setStartIndex((int) (offset + start));
+            request.setMaxFeatures((int) Math.min(pageSize, maxFeatures - start));
+            return request;
+        }
+
+        @Override
+        boolean isLast(GetFeatureRequest request, int featureCount) {
+            return featureCount < request.getMaxFeatures();
+        }
+    }
+
+    /**
+     * Pages using a list of filters, each one selecting the features intersecting a tile of the
+     * data area. A feature crossing more than one tile is returned by all of them, but it's
+     * accepted only in the tile containing its first vertex: tiles include their lower and left
+     * borders, but not their upper and right ones, so exactly one tile contains that vertex, and
+     * that tile is sure to return the feature, as it intersects it.
+     */
+    static class FilterPages extends Pages {
+
+        GetFeatureRequest base;
+
+        List<Filter> filters;
+
+        List<Envelope> tiles;
+
+        String geometryName;
+
+        int expected;
+
+        /**
+         * @param filters The filter selecting the features of each tile
+         * @param tiles The tiles, in the same order as the filters
+         * @param geometryName The geometry property the filters are working against
+         * @param expected The number of features the pages are expected to return overall
+         */
+        FilterPages(GetFeatureRequest base, List<Filter> filters, List<Envelope> tiles,
+                String geometryName, int expected) {
+            this.base = base;
+            this.filters = filters;
+            this.tiles = tiles;
+            this.geometryName = geometryName;
+            this.expected = expected;
+        }
+
+        @Override
+        GetFeatureRequest getRequest(int page) {
+            if (page >= filters.size()) {
+                return null;
+            }
+            GetFeatureRequest request = base.createCopy();
+            request.setFilter(filters.get(page));
+            return request;
+        }
+
+        @Override
+        boolean isLast(GetFeatureRequest request, int featureCount) {
+            return false;
+        }
+
+        @Override
+        boolean accept(int page, SimpleFeature feature) {
+            Object geometry = feature.getAttribute(geometryName);
+            if (!(geometry instanceof Geometry) || ((Geometry) geometry).isEmpty()) {
+                // cannot be matched by the tile filters anyways
+                return true;
+            }
+            Coordinate c = ((Geometry) geometry).getCoordinate();
+            Envelope tile = tiles.get(page);
+            return c.x >= tile.getMinX() && c.x < tile.getMaxX() && c.y >= tile.getMinY()
+                    && c.y < tile.getMaxY();
+        }
+    }
+
+    /**
+     * The features of a page, already parsed
+     */
+    static class Page {
+        int index;
+
+        List<SimpleFeature> features;
+
+        boolean last;
+
+        Page(int index, List<SimpleFeature> features, boolean last) {
+            this.index = index;
+            this.features = features;
+            this.last = last;
+        }
+    }
+
+    final WFSClient client;
+
+    final Pages pages;
+
+    final int maxFeatures;
+
+    final int window;
+
+    final boolean preserveOrder;
+
+    final ExecutorService executor;
+
+    /** The pages in flight, in request order, used when preserving order */
+    final LinkedList<Future<Page>> pending = new LinkedList<Future<Page>>();
+
+    /** The pages in flight, in completion order, used when not preserving order */
+    final CompletionService<Page> completion;
+
+    volatile GeometryFactory geometryFactory;
+
+    volatile FeatureType featureType;
+
+    int inFlight;
+
+    int nextPage;
+
+    int lastPage = Integer.MAX_VALUE;
+
+    int returned;
+
+    boolean done;
+
+    Iterator<SimpleFeature> current = Collections.<SimpleFeature> emptyList().iterator();
+
+    /**
+     * @param client The client issuing the requests
+     * @param pages The paging strategy
+     * @param maxFeatures The max number of features to return overall, or a negative number for
+     *        no limit
+     * @param threads The number of pages fetched and parsed at the same time
+     * @param preserveOrder If true, pages are returned in request order, otherwise as soon as
+     *        they are available
+     * @param geometryFactory The geometry factory used to build the geometries, may be null
+     */
+    public PagingGetFeatureParser(WFSClient client, Pages pages, int maxFeatures, int threads,
+            boolean preserveOrder, GeometryFactory geometryFactory) {
+        this.client = client;
+        this.pages = pages;
+        this.maxFeatures = maxFeatures;
+        this.preserveOrder = preserveOrder;
+        this.geometryFactory = geometryFactory;
+        // one extra page per thread, so that the threads are kept busy while the consumer
+        // is going through the current page
+        this.window = threads * 2;
+
+        final String name = "WFSPager-" + SEQUENCE.incrementAndGet();
+        this.executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            AtomicInteger count = new AtomicInteger();
+
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, name + "-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        this.completion = preserveOrder ? null : new ExecutorCompletionService<Page>(executor);
+
+        // start fetching right away
+        fill();
+    }
+
+    @Override
+    public SimpleFeature parse() throws IOException {
+        while (!done && (maxFeatures < 0 || returned < maxFeatures)) {
+            if (current.hasNext()) {
+                SimpleFeature feature = current.next();
+                returned++;
+                return feature;
+            }
+
+            Page page = nextPage();
+            if (page == null) {
+                done = true;
+                checkExpected();
+                return null;
+            }
+            current = page.features.iterator();
+        }
+
+        return null;
+    }
+
+    /**
+     * Warns if the filter pages missed some features, e.g. due to the data changing while being
+     * paged
+     */
+    void checkExpected() {
+        if (pages instanceof FilterPages) {
+            int expected = ((FilterPages) pages).expected;
+            if (returned < expected && (maxFeatures < 0 || returned < maxFeatures)) {
+                LOGGER.warning("Paged GetFeature returned " + returned + " features, but "
+                        + expected + " were expected, " + ((FilterPages) pages).base.getTypeName()
+                        + " was probably modified in the meantime");
+            }
+        }
+    }
+
+    /**
+     * Submits new page requests until the window is full, or there are no more pages
+     */
+    void fill() {
+        while (inFlight < window && nextPage <= lastPage) {
+            final int index = nextPage;
+            final GetFeatureRequest request = pages.getRequest(index);
+            if (request == null) {
+                lastPage = Math.min(lastPage, index - 1);
+                return;
+            }
+            Callable<Page> task = new Callable<Page>() {
+
+                public Page call() throws Exception {
+                    return fetch(index, request);
+                }
+            };
+            if (preserveOrder) {
+                pending.add(executor.submit(task));
+            } else {
+                completion.submit(task);
+            }
+            inFlight++;
+            nextPage++;
+        }
+    }
+
+    /**
+     * Returns the next page to be consumed, or null if there are no more pages
+     */
+    Page nextPage() throws IOException {
+        while (true) {
+            fill();
+            if (inFlight == 0) {
+                executor.shutdown();
+                return null;
+            }
+
+            Page page;
+            try {
+                Future<Page> future = preserveOrder ? pending.removeFirst() : completion.take();
+                inFlight--;
+                page = future.get();
+            } catch (InterruptedException e) {
+                throw new IOException("Interrupted while waiting for the next page", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new IOException(e.getCause());
+            }
+
+            if (page.last) {
+                lastPage = Math.min(lastPage, page.index);
+                if (preserveOrder) {
+                    // the pages still in flight are all past the last one
+                    for (Future<Page> future : pending) {
+                        future.cancel(true);
+                    }
+                    pending.clear();
+                    inFlight = 0;
+                }
+            }
+            // in case the pages arrive out of order, the ones past the last are empty anyways
+            if (page.index <= lastPage) {
+                return page;
+            }
+        }
+    }
+
+    /**
+     * Issues the request for a page and parses all of its features
+     */
+    Page fetch(int index, GetFeatureRequest request) throws IOException {
+        GetFeatureResponse response = client.issueRequest(request);
+        GetFeatureParser parser = response.getSimpleFeatures(geometryFactory);
+        try {
+            if (featureType == null) {
+                featureType = parser.getFeatureType();
+            }
+            List<SimpleFeature> features = new ArrayList<SimpleFeature>();
+            SimpleFeature feature;
+            int count = 0;
+            while ((feature = parser.parse()) != null) {
+                count++;
+                // features belonging to another page are skipped right away
+                if (pages.accept(index, feature)) {
+                    features.add(feature);
+                }
+            }
+            return new Page(index, features, pages.isLast(request, count));
+        } finally {
+            parser.close();
+        }
+    }
+
+    @Override
+    public int getNumberOfFeatures() {
+        return -1;
+    }
+
+    @Override
+    public FeatureType getFeatureType() {
+        return featureType;
+    }
+
+    @Override
+    public void setGeometryFactory(GeometryFactory geometryFactory) {
+        if (geometryFactory != null) {
+            this.geometryFactory = geometryFactory;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        // pages being fetched will be interrupted, pending ones won't start at all
+        executor.shutdownNow();
+        pending.clear();
+        current = Collections.<SimpleFeature> emptyList().iterator();
+    }
+}
@@ -169,4 +169,10 @@ public class WFSContentDataStore extends ContentDataStore {
         return client;
     }
 
+    @Override
+    public void dispose() {
+        super.dispose();
+        client.dispose();
+    }
+
 }
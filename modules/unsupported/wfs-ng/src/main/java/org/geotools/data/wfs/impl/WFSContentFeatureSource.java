@@ -17,6 +17,8 @@
 package org.geotools.data.wfs.impl;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -38,10 +40,14 @@ import org.geotools.data.crs.ForceCoordinateSystemFeatureReader;
 import org.geotools.data.crs.ReprojectFeatureReader;
 import org.geotools.data.store.ContentEntry;
 import org.geotools.data.store.ContentFeatureSource;
+import org.geotools.data.wfs.impl.PagingGetFeatureParser.FilterPages;
+import org.geotools.data.wfs.impl.PagingGetFeatureParser.Pages;
+import org.geotools.data.wfs.impl.PagingGetFeatureParser.StartIndexPages;
 import org.geotools.data.wfs.internal.GetFeatureParser;
 import org.geotools.data.wfs.internal.GetFeatureRequest;
 import org.geotools.data.wfs.internal.GetFeatureRequest.ResultType;
 import org.geotools.data.wfs.internal.GetFeatureResponse;
+import org.geotools.data.wfs.internal.Versions;
 import org.geotools.data.wfs.internal.WFSClient;
 import org.geotools.data.wfs.internal.WFSConfig;
 import org.geotools.factory.CommonFactoryFinder;
@@ -58,9 +64,13 @@ import org.opengis.feature.type.GeometryDescriptor;
 import org.opengis.feature.type.Name;
 import org.opengis.filter.Filter;
 import org.opengis.filter.FilterFactory2;
+import org.opengis.filter.Id;
+import org.opengis.filter.expression.PropertyName;
+import org.opengis.filter.sort.SortBy;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
 
 import com.vividsolutions.jts.geom.CoordinateSequenceFactory;
+import com.vividsolutions.jts.geom.Envelope;
 import com.vividsolutions.jts.geom.GeometryFactory;
 import com.vividsolutions.jts.geom.impl.PackedCoordinateSequenceFactory;
 
@@ -250,10 +260,12 @@ class WFSContentFeatureSource extends ContentFeatureSource {
         final SimpleFeatureType contentType = getQueryType(localQuery, (SimpleFeatureType) request.getFullType());
         request.setQueryType(contentType);
 
-        GetFeatureResponse response = client.issueRequest(request);
-
         GeometryFactory geometryFactory = findGeometryFactory(localQuery.getHints());
-        GetFeatureParser features = response.getSimpleFeatures(geometryFactory);
+        GetFeatureParser features = createPagingParser(request, geometryFactory);
+        if (features == null) {
+            GetFeatureResponse response = client.issueRequest(request);
+            features = response.getSimpleFeatures(geometryFactory);
+        }
 
         FeatureReader<SimpleFeatureType, SimpleFeature> reader;
         reader = new WFSFeatureReader(features);
@@ -283,6 +295,129 @@ class WFSContentFeatureSource extends ContentFeatureSource {
         return reader;
     }
     
+    /**
+     * Returns a parser splitting the request in pages that are fetched and parsed concurrently,
+     * or {@code null} if paging is disabled or not worth it for this request.
+     */
+    private GetFeatureParser createPagingParser(GetFeatureRequest request,
+            GeometryFactory geometryFactory) throws IOException {
+        final WFSConfig config = request.getStrategy().getConfig();
+        final int pageSize = config.getPageSize();
+        final Integer maxFeatures = request.getMaxFeatures();
+        if (pageSize <= 0 || request.getFilter() instanceof Id
+                || (maxFeatures != null && maxFeatures <= pageSize)) {
+            return null;
+        }
+
+        final SortBy[] sortBy = request.getSortBy();
+        final boolean sorted = sortBy != null && sortBy.length > 0;
+        final Pages pages;
+        if (Versions.v2_0_0.equals(request.getStrategy().getServiceVersion())) {
+            pages = new StartIndexPages(request, pageSize);
+        } else if (sorted) {
+            // tiles cannot be merged back in sort order
+            return null;
+        } else {
+            // no paging before WFS 2.0, split the data bounding box in tiles instead
+            pages = createTilePages(request, pageSize);
+            if (pages == null) {
+                return null;
+            }
+        }
+
+        return new PagingGetFeatureParser(client, pages, maxFeatures == null ? -1 : maxFeatures,
+                Math.max(1, config.getConcurrentRequests()), config.isPreserveOrder() || sorted,
+                geometryFactory);
+    }
+
+    /**
+     * Splits the advertised bounds of the feature type in tiles holding, on average, a page of
+     * features each. The border tiles extend indefinitely outwards, so that no feature is lost
+     * if the advertised bounds are not accurate. Returns {@code null} if the server cannot tell
+     * how many features there are, there are not enough to need paging, or the returned features
+     * could not be matched against the tiles.
+     */
+    private Pages createTilePages(GetFeatureRequest request, int pageSize) throws IOException {
+        final SimpleFeatureType fullType = (SimpleFeatureType) request.getFullType();
+        final GeometryDescriptor geometry = fullType.getGeometryDescriptor();
+        if (geometry == null || !client.canCount()) {
+            return null;
+        }
+        // the returned geometries are needed to tell which tile a feature belongs to
+        final SimpleFeatureType queryType = (SimpleFeatureType) request.getQueryType();
+        if (queryType != null && queryType.getDescriptor(geometry.getLocalName()) == null) {
+            return null;
+        }
+        final QName typeName = request.getTypeName();
+        final CoordinateReferenceSystem crs = client.getDefaultCRS(typeName);
+        final String srsName = request.getSrsName();
+        if (srsName != null) {
+            String epsgCode = GML2EncodingUtils.epsgCode(crs);
+            if (epsgCode == null || !srsName.endsWith(":" + epsgCode)) {
+                return null;
+            }
+        }
+
+        GetFeatureRequest hits = request.createCopy();
+        hits.setResultType(ResultType.HITS);
+        GetFeatureParser hitsParser = client.issueRequest(hits).getFeatures(null);
+        int count;
+        try {
+            count = hitsParser.getNumberOfFeatures();
+        } finally {
+            hitsParser.close();
+        }
+        if (request.getMaxFeatures() != null) {
+            count = Math.min(count, request.getMaxFeatures());
+        }
+        if (count <= pageSize) {
+            return null;
+        }
+
+        final ReferencedEnvelope bounds = client.getBounds(typeName, crs);
+        if (bounds == null || bounds.isNull()) {
+            return null;
+        }
+
+        final int tiles = (int) Math.ceil(count / (double) pageSize);
+        final int cols = (int) Math.ceil(Math.sqrt(tiles));
+        final int rows = (int) Math.ceil(tiles / (double) cols);
+        final double width = bounds.getWidth() / cols;
+        final double height = bounds.getHeight() / rows;
+
+        FilterFactory2 ff = CommonFactoryFinder.getFilterFactory2(null);
+        InvertAxisFilterVisitor invertAxis = null;
+        if (WFSConfig.invertAxisNeeded(client.getAxisOrderFilter(), crs)) {
+            invertAxis = new InvertAxisFilterVisitor(ff, new GeometryFactory());
+        }
+        PropertyName property = ff.property(geometry.getLocalName());
+        Filter filter = request.getFilter();
+        List<Filter> filters = new ArrayList<Filter>();
+        List<Envelope> tiles = new ArrayList<Envelope>();
+        for (int r = 0; r < rows; r++) {
+            double miny = r == 0 ? -Double.MAX_VALUE : bounds.getMinY() + r * height;
+            double maxy = r == rows - 1 ? Double.MAX_VALUE : bounds.getMinY() + (r + 1) * height;
+            for (int c = 0; c < cols; c++) {
+                double minx = c == 0 ? -Double.MAX_VALUE : bounds.getMinX() + c * width;
+                double maxx = c == cols - 1 ? Double.MAX_VALUE : bounds.getMinX() + (c + 1)
+                        * width;
+                ReferencedEnvelope tile = new ReferencedEnvelope(minx, maxx, miny, maxy, crs);
+                tiles.add(tile);
+                Filter bbox = ff.bbox(property, tile);
+                if (invertAxis != null) {
+                    bbox = (Filter) bbox.accept(invertAxis, null);
+                }
+                if (filter == null || Filter.INCLUDE.equals(filter)) {
+                    filters.add(bbox);
+                } else {
+                    filters.add(ff.and(filter, bbox));
+                }
+            }
+        }
+
+        return new FilterPages(request, filters, tiles, geometry.getLocalName(), count);
+    }
+
     protected String getSupportedSrsName(GetFeatureRequest request, Query query) {
         String epsgCode = GML2EncodingUtils.epsgCode(query.getCoordinateSystem());
         Set<String> supported = request.getStrategy().getSupportedCRSIdentifiers(request.getTypeName());
@@ -143,7 +143,7 @@ public class WFSDataStoreFactory extends AbstractDataStoreFactory {
     }
 
     /** Access with {@link WFSDataStoreFactory#getParametersInfo()  */
-    private static final WFSFactoryParam<?>[] parametersInfo = new WFSFactoryParam[17];
+    private static final WFSFactoryParam<?>[] parametersInfo = new WFSFactoryParam[21];
 
     /**
      * Mandatory DataStore parameter indicating the URL for the WFS GetCapabilities document.
@@ -410,6 +410,71 @@ public class WFSDataStoreFactory extends AbstractDataStoreFactory {
                 String.class, title, description, null, "advanced");
     }
 
+    /**
+     * Optional {@code Integer} DataStore parameter indicating how many threads are used to decode
+     * the features of a GetFeature response. With more than one thread the response is split
+     * into single features while being read, and the features are decoded in parallel, in order.
+     */
+    public static final WFSFactoryParam<Integer> PARSER_THREADS;
+    static {
+        String key = "WFSDataStoreFactory:PARSER_THREADS";
+        String title = "Parser threads";
+        String description = "Number of threads used to decode the features of a GetFeature "
+                + "response, values greater than 1 enable parallel decoding. Default is 1";
+
+        parametersInfo[17] = PARSER_THREADS = new WFSFactoryParam<Integer>(key, Integer.class,
+                title, description, 1, "advanced");
+    }
+
+    /**
+     * Optional {@code Integer} DataStore parameter indicating how many features are fetched by
+     * each GetFeature request when paging. A value of zero disables paging. WFS 2.0 servers are
+     * paged with startIndex/count, older ones by splitting the data bounding box in tiles.
+     */
+    public static final WFSFactoryParam<Integer> PAGE_SIZE;
+    static {
+        String key = "WFSDataStoreFactory:PAGE_SIZE";
+        String title = "Page size";
+        String description = "Number of features fetched by each GetFeature request when paging "
+                + "large queries, zero disables paging. WFS 2.0 servers are paged using "
+                + "startIndex/count, older ones by splitting the data bounding box in tiles. "
+                + "Default is 0";
+
+        parametersInfo[18] = PAGE_SIZE = new WFSFactoryParam<Integer>(key, Integer.class,
+                title, description, 0, "advanced");
+    }
+
+    /**
+     * Optional {@code Integer} DataStore parameter indicating how many paged GetFeature requests
+     * can be running at the same time for a single query.
+     */
+    public static final WFSFactoryParam<Integer> CONCURRENT_REQUESTS;
+    static {
+        String key = "WFSDataStoreFactory:CONCURRENT_REQUESTS";
+        String title = "Concurrent requests";
+        String description = "Maximum number of paged GetFeature requests fetched and parsed "
+                + "at the same time for a single query, used only when paging. Default is 4";
+
+        parametersInfo[19] = CONCURRENT_REQUESTS = new WFSFactoryParam<Integer>(key,
+                Integer.class, title, description, 4, "advanced");
+    }
+
+    /**
+     * Optional {@code Boolean} DataStore parameter indicating whether paged results are returned
+     * in page order, or as soon as each page is available.
+     */
+    public static final WFSFactoryParam<Boolean> PRESERVE_ORDER;
+    static {
+        String key = "WFSDataStoreFactory:PRESERVE_ORDER";
+        String title = "Preserve order";
+        String description = "When paging, return the pages in order (true), or as soon as "
+                + "each one is available (false), which is faster but loses any sorting. "
+                + "Default is true";
+
+        parametersInfo[20] = PRESERVE_ORDER = new WFSFactoryParam<Boolean>(key, Boolean.class,
+                title, description, true, "advanced");
+    }
+
     /**
      * Requests the WFS Capabilities document from the {@link WFSDataStoreFactory#URL url} parameter
      * in {@code params} and returns a {@link WFSDataStore} according to the version of the
@@ -438,7 +503,15 @@ public class WFSDataStoreFactory extends AbstractDataStoreFactory {
             }
         }
 
-        final HTTPClient http = new SimpleHttpClient();// new MultithreadedHttpClient();
+        final HTTPClient http;
+        if (config.getPageSize() > 0 && config.getConcurrentRequests() > 1) {
+            // paged requests are issued concurrently, use a client that can pool connections
+            MultithreadedHttpClient multithreaded = new MultithreadedHttpClient();
+            multithreaded.setMaxConnections(config.getConcurrentRequests());
+            http = multithreaded;
+        } else {
+            http = new SimpleHttpClient();
+        }
         // TODO: let HTTPClient be configured for gzip
         // http.setTryGzip(tryGZIP);
         http.setUser(config.getUser());
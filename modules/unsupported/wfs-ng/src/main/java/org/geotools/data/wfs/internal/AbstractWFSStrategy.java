@@ -214,7 +214,12 @@ public abstract class AbstractWFSStrategy extends WFSStrategy {
         map.put("OUTPUTFORMAT", outputFormat);
 
         if (request.getMaxFeatures() != null) {
-            map.put("MAXFEATURES", String.valueOf(request.getMaxFeatures()));
+            // WFS 2.0 renamed maxFeatures to count
+            String key = Versions.v2_0_0.equals(serviceVersion) ? "COUNT" : "MAXFEATURES";
+            map.put(key, String.valueOf(request.getMaxFeatures()));
+        }
+        if (request.getStartIndex() != null) {
+            map.put("STARTINDEX", String.valueOf(request.getStartIndex()));
         }
 
         QName typeName = request.getTypeName();
@@ -410,7 +415,7 @@ public abstract class AbstractWFSStrategy extends WFSStrategy {
      */
     @Override
     public void dispose() {
-        // do nothing
+        disposeParserExecutor();
     }
 
     protected Map<String, String> buildDescribeFeatureTypeParametersForGET(
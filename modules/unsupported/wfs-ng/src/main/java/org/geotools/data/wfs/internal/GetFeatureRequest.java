@@ -38,6 +38,8 @@ public class GetFeatureRequest extends WFSRequest {
 
     private Integer maxFeatures;
 
+    private Integer startIndex;
+
     private ResultType resultType;
 
     private SortBy[] sortBy;
@@ -80,6 +82,10 @@ public class GetFeatureRequest extends WFSRequest {
         return maxFeatures;
     }
 
+    public Integer getStartIndex() {
+        return startIndex;
+    }
+
     public ResultType getResultType() {
         return resultType;
     }
@@ -120,6 +126,14 @@ public class GetFeatureRequest extends WFSRequest {
         this.maxFeatures = maxFeatures;
     }
 
+    /**
+     * @param startIndex
+     *            the index of the first feature to return, only WFS 2.0 supports it
+     */
+    public void setStartIndex(Integer startIndex) {
+        this.startIndex = startIndex;
+    }
+
     /**
      * @param resultType
      *            the resultType to set
@@ -159,4 +173,24 @@ public class GetFeatureRequest extends WFSRequest {
     public Filter getUnsupportedFilter() {
         return unsupportedFilter == null ? Filter.INCLUDE : unsupportedFilter;
     }
+
+    /**
+     * Creates a new request with the same settings as this one, used to issue several requests
+     * (e.g., pages) out of a single query. The filter, sort and type objects are shared.
+     */
+    public GetFeatureRequest createCopy() {
+        GetFeatureRequest copy = new GetFeatureRequest(config, strategy);
+        copy.setTypeName(getTypeName());
+        copy.setOutputFormat(getOutputFormat());
+        copy.setPropertyNames(propertyNames);
+        copy.setSrsName(srsName);
+        copy.setFilter(filter);
+        copy.setMaxFeatures(maxFeatures);
+        copy.setStartIndex(startIndex);
+        copy.setResultType(resultType);
+        copy.setSortBy(sortBy);
+        copy.setFullType(fullType);
+        copy.setQueryType(queryType);
+        return copy;
+    }
 }
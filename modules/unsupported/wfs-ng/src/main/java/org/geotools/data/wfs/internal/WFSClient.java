@@ -347,4 +347,11 @@ public class WFSClient extends AbstractOpenWebService<WFSGetCapabilities, QName>
     public String getAxisOrderFilter(){
         return config.getAxisOrderFilter();
     }
+
+    /**
+     * Releases the resources held by the strategy in use
+     */
+    public void dispose() {
+        getStrategy().dispose();
+    }
 }
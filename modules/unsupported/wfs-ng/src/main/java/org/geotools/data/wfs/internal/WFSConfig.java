@@ -29,6 +29,10 @@ import static org.geotools.data.wfs.impl.WFSDataStoreFactory.TRY_GZIP;
 import static org.geotools.data.wfs.impl.WFSDataStoreFactory.USERNAME;
 import static org.geotools.data.wfs.impl.WFSDataStoreFactory.WFS_STRATEGY;
 import static org.geotools.data.wfs.impl.WFSDataStoreFactory.OUTPUTFORMAT;
+import static org.geotools.data.wfs.impl.WFSDataStoreFactory.PARSER_THREADS;
+import static org.geotools.data.wfs.impl.WFSDataStoreFactory.PAGE_SIZE;
+import static org.geotools.data.wfs.impl.WFSDataStoreFactory.CONCURRENT_REQUESTS;
+import static org.geotools.data.wfs.impl.WFSDataStoreFactory.PRESERVE_ORDER;
 
 import java.io.IOException;
 import java.nio.charset.Charset;
@@ -74,6 +78,14 @@ public class WFSConfig {
     private String axisOrder;
     
     private String axisOrderFilter;
+
+    private int parserThreads;
+
+    private int pageSize;
+
+    private int concurrentRequests;
+
+    private boolean preserveOrder;
     
     
 
@@ -93,6 +105,10 @@ public class WFSConfig {
         wfsStrategy = (String) WFS_STRATEGY.getDefaultValue();
         filterCompliance = (Integer) FILTER_COMPLIANCE.getDefaultValue();
         namespaceOverride = (String) NAMESPACE.getDefaultValue();
+        parserThreads = (Integer) PARSER_THREADS.getDefaultValue();
+        pageSize = (Integer) PAGE_SIZE.getDefaultValue();
+        concurrentRequests = (Integer) CONCURRENT_REQUESTS.getDefaultValue();
+        preserveOrder = (Boolean) PRESERVE_ORDER.getDefaultValue();
     }
 
     public static WFSConfig fromParams(Map<?, ?> params) throws IOException {
@@ -125,6 +141,10 @@ public class WFSConfig {
         config.filterCompliance = (Integer) FILTER_COMPLIANCE.lookUp(params);
         config.namespaceOverride = (String) NAMESPACE.lookUp(params);
         config.outputformatOverride = (String) OUTPUTFORMAT.lookUp(params);        
+        config.parserThreads = (Integer) PARSER_THREADS.lookUp(params);
+        config.pageSize = (Integer) PAGE_SIZE.lookUp(params);
+        config.concurrentRequests = (Integer) CONCURRENT_REQUESTS.lookUp(params);
+        config.preserveOrder = (Boolean) PRESERVE_ORDER.lookUp(params);
 
         return config;
     }
@@ -240,6 +260,35 @@ public class WFSConfig {
     public String getAxisOrderFilter() {
         return axisOrderFilter;
     }    
+
+    /**
+     * @return the number of threads decoding the features of a GetFeature response
+     */
+    public int getParserThreads() {
+        return parserThreads;
+    }
+
+    /**
+     * @return the number of features fetched by each paged GetFeature request, zero if paging is
+     *         disabled
+     */
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * @return the max number of paged GetFeature requests running at the same time
+     */
+    public int getConcurrentRequests() {
+        return concurrentRequests;
+    }
+
+    /**
+     * @return whether paged results are returned in page order
+     */
+    public boolean isPreserveOrder() {
+        return preserveOrder;
+    }
     
     /**
      * Checks if axis flipping is needed comparing axis order requested for the
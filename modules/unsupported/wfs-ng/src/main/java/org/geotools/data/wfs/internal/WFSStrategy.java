@@ -24,6 +24,10 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 import javax.xml.namespace.QName;
@@ -54,8 +58,12 @@ import org.opengis.filter.capability.FilterCapabilities;
  */
 public abstract class WFSStrategy extends Specification {
 
+    private static final AtomicInteger PARSER_SEQUENCE = new AtomicInteger();
+
     private Map<WFSOperationType, AtomicLong> requestHandleSequences;
 
+    private ExecutorService parserExecutor;
+
     public WFSStrategy() {
         requestHandleSequences = new HashMap<WFSOperationType, AtomicLong>();
         requestHandleSequences.put(WFSOperationType.GET_CAPABILITIES, new AtomicLong());
@@ -194,6 +202,43 @@ public abstract class WFSStrategy extends Specification {
      */
     public abstract void dispose();
 
+    /**
+     * Returns the thread pool decoding the GetFeature responses in parallel, shared by all the
+     * responses of this instance. The pool is created on first use, with as many threads as the
+     * configured {@link WFSConfig#getParserThreads() parser threads}, and released by
+     * {@link #disposeParserExecutor()}.
+     * 
+     * @return the shared parser thread pool
+     */
+    public synchronized ExecutorService getParserExecutor() {
+        if (parserExecutor == null) {
+            final String name = "WFSParser-" + PARSER_SEQUENCE.incrementAndGet();
+            parserExecutor = Executors.newFixedThreadPool(getConfig().getParserThreads(),
+                    new ThreadFactory() {
+                        AtomicInteger count = new AtomicInteger();
+
+                        public Thread newThread(Runnable r) {
+                            Thread thread = new Thread(r, name + "-decoder-"
+                                    + count.incrementAndGet());
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+        }
+        return parserExecutor;
+    }
+
+    /**
+     * Shuts down the parser thread pool, if it was ever created. Meant to be called by
+     * {@link #dispose()}.
+     */
+    protected synchronized void disposeParserExecutor() {
+        if (parserExecutor != null) {
+            parserExecutor.shutdownNow();
+            parserExecutor = null;
+        }
+    }
+
     public abstract String getDefaultOutputFormat(WFSOperationType operation);
 
     public abstract URL buildUrlGET(WFSRequest request);
@@ -42,6 +42,7 @@ import org.geotools.data.wfs.internal.WFSOperationType;
 import org.geotools.data.wfs.internal.WFSRequest;
 import org.geotools.data.wfs.internal.WFSResponse;
 import org.geotools.data.wfs.internal.WFSResponseFactory;
+import org.geotools.data.wfs.internal.WFSStrategy;
 import org.geotools.ows.ServiceException;
 import org.geotools.util.logging.Logging;
 import org.opengis.feature.simple.SimpleFeatureType;
@@ -211,6 +212,13 @@ public class GmlGetFeatureResponseParserFactory implements WFSResponseFactory {
 
         SimpleFeatureType schema = (SimpleFeatureType) queryType;
 
+        final WFSStrategy strategy = request.getStrategy();
+        final int threads = strategy.getConfig().getParserThreads();
+        if (threads > 1) {
+            return new ParallelXmlSimpleFeatureParser(in, schema, remoteFeatureName, axisOrder,
+                    strategy.getParserExecutor(), threads);
+        }
+
         GetFeatureParser featureReader = new XmlSimpleFeatureParser(in, schema, remoteFeatureName, axisOrder);
         return featureReader;
     }
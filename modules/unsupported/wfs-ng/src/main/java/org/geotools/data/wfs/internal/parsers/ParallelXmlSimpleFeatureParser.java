@@ -0,0 +1,463 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.wfs.internal.parsers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.geotools.data.DataSourceException;
+import org.geotools.data.wfs.internal.GetFeatureParser;
+import org.geotools.data.wfs.internal.Loggers;
+import org.geotools.wfs.WFS;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.FeatureType;
+import org.xml.sax.helpers.NamespaceSupport;
+
+import com.vividsolutions.jts.geom.GeometryFactory;
+
+/**
+ * A {@link GetFeatureParser} that decodes the features of a GetFeature response in parallel.
+ * <p>
+ * A background thread reads the response with StAX and copies each feature element, along with
+ * the namespace declarations in scope, into a standalone XML fragment. The fragments are decoded
+ * into {@link SimpleFeature} by a pool of worker threads, each one using its own
+ * {@link XmlSimpleFeatureParser}. The features are returned in the same order they have in the
+ * response, and the number of fragments being decoded or waiting to be returned is bounded, so
+ * the memory usage does not depend on the response size.
+ * </p>
+ * <p>
+ * The worker pool can be shared among parsers, in that case it's not shut down when the parser
+ * is closed, only the pending decodes of this parser get cancelled.
+ * </p>
+ *
+ * @author Andrea Aime - GeoSolutions
+ */
+public class ParallelXmlSimpleFeatureParser implements GetFeatureParser {
+
+    private static final Logger LOGGER = Loggers.RESPONSES;
+
+    /**
+     * Marks the end of the feature stream in the queue
+     */
+    private static final Future<SimpleFeature> END;
+    static {
+        FutureTask<SimpleFeature> end = new FutureTask<SimpleFeature>(
+                new Callable<SimpleFeature>() {
+                    public SimpleFeature call() throws Exception {
+                        return null;
+                    }
+                });
+        end.run();
+        END = end;
+    }
+
+    private static final XMLInputFactory INPUT_FACTORY = XMLInputFactory.newInstance();
+    static {
+        INPUT_FACTORY.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.TRUE);
+        INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+    }
+
+    private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+    private final SimpleFeatureType targetType;
+
+    private final QName featureName;
+
+    private final String axisOrder;
+
+    private volatile GeometryFactory geometryFactory;
+
+    private InputStream inputStream;
+
+    private XMLStreamReader reader;
+
+    private int numberOfFeatures = -1;
+
+    private final BlockingQueue<Future<SimpleFeature>> features;
+
+    private final ExecutorService decoders;
+
+    private final boolean ownDecoders;
+
+    private final ThreadLocal<XmlSimpleFeatureParser> parsers = new ThreadLocal<XmlSimpleFeatureParser>();
+
+    private Thread splitter;
+
+    private volatile boolean closed;
+
+    private boolean done;
+
+    /**
+     * @param getFeatureResponseStream The GetFeature response
+     * @param targetType The type of the features to be parsed
+     * @param featureDescriptorName The name of the feature elements in the response
+     * @param axisOrder The axis order of the response coordinates
+     * @param threads The number of threads decoding the features
+     */
+    public ParallelXmlSimpleFeatureParser(final InputStream getFeatureResponseStream,
+            final SimpleFeatureType targetType, QName featureDescriptorName, String axisOrder,
+            int threads) throws IOException {
+        this(getFeatureResponseStream, targetType, featureDescriptorName, axisOrder, null,
+                threads);
+    }
+
+    /**
+     * @param getFeatureResponseStream The GetFeature response
+     * @param targetType The type of the features to be parsed
+     * @param featureDescriptorName The name of the feature elements in the response
+     * @param axisOrder The axis order of the response coordinates
+     * @param decoders The shared thread pool decoding the features, or {@code null} to use a
+     *        private one, that will be shut down when the parser is closed
+     * @param threads The number of threads decoding the features
+     */
+    public ParallelXmlSimpleFeatureParser(final InputStream getFeatureResponseStream,
+            final SimpleFeatureType targetType, QName featureDescriptorName, String axisOrder,
+            ExecutorService decoders, int threads) throws IOException {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Invalid number of threads: " + threads);
+        }
+        this.inputStream = getFeatureResponseStream;
+        this.targetType = targetType;
+        this.featureName = featureDescriptorName;
+        this.axisOrder = axisOrder;
+
+        // parse the root element on the calling thread, to report errors right away
+        try {
+            reader = INPUT_FACTORY.createXMLStreamReader(inputStream);
+            reader.nextTag();
+            reader.require(XMLStreamConstants.START_ELEMENT, WFS.NAMESPACE,
+                    WFS.FeatureCollection.getLocalPart());
+
+            String nof = reader.getAttributeValue(null, "numberOfFeatures");
+            if (nof != null) {
+                try {
+                    this.numberOfFeatures = Integer.valueOf(nof);
+                } catch (NumberFormatException nfe) {
+                    LOGGER.warning("Can't parse numberOfFeatures out of " + nof);
+                }
+            }
+        } catch (XMLStreamException e) {
+            inputStream.close();
+            throw new DataSourceException(e);
+        }
+
+        // up to four features per thread are kept in flight, enough to keep the threads
+        // busy while the splitter is reading, without keeping too much in memory
+        this.features = new ArrayBlockingQueue<Future<SimpleFeature>>(threads * 4);
+        final String name = "WFSParser-" + SEQUENCE.incrementAndGet();
+        if (decoders != null) {
+            this.decoders = decoders;
+            this.ownDecoders = false;
+        } else {
+            this.decoders = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+                AtomicInteger count = new AtomicInteger();
+
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, name + "-decoder-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            this.ownDecoders = true;
+        }
+        this.splitter = new Thread(new Splitter(), name + "-splitter");
+        this.splitter.setDaemon(true);
+        this.splitter.start();
+    }
+
+    @Override
+    public void setGeometryFactory(GeometryFactory geometryFactory) {
+        if (null != geometryFactory) {
+            this.geometryFactory = geometryFactory;
+        }
+    }
+
+    @Override
+    public FeatureType getFeatureType() {
+        return targetType;
+    }
+
+    @Override
+    public int getNumberOfFeatures() {
+        return numberOfFeatures;
+    }
+
+    @Override
+    public SimpleFeature parse() throws IOException {
+        if (done || closed) {
+            return null;
+        }
+        try {
+            Future<SimpleFeature> future = features.take();
+            if (future == END) {
+                done = true;
+                return null;
+            }
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the next feature", e);
+        } catch (ExecutionException e) {
+            done = true;
+            close();
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new DataSourceException(cause);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        splitter.interrupt();
+        if (ownDecoders) {
+            decoders.shutdownNow();
+        }
+        cancelPending();
+        // the reader is in use by the splitter, closing the stream will make it stop
+        inputStream.close();
+    }
+
+    /**
+     * Cancels the decodes still in the queue
+     */
+    void cancelPending() {
+        Future<SimpleFeature> future;
+        while ((future = features.poll()) != null) {
+            future.cancel(true);
+        }
+    }
+
+    /**
+     * Decodes a single feature fragment, on a worker thread
+     */
+    SimpleFeature decode(String fragment) throws IOException {
+        XmlSimpleFeatureParser parser = parsers.get();
+        if (parser == null) {
+            parser = new XmlSimpleFeatureParser(targetType, featureName, axisOrder);
+            parsers.set(parser);
+        }
+        parser.setGeometryFactory(geometryFactory);
+        parser.setInput(new StringReader(fragment));
+        SimpleFeature feature = parser.parse();
+        if (feature == null) {
+            throw new IOException("Could not find a feature in the fragment: " + fragment);
+        }
+        return feature;
+    }
+
+    /**
+     * Splits the response into feature fragments, and queues them for decoding
+     */
+    class Splitter implements Runnable {
+
+        NamespaceSupport namespaces = new NamespaceSupport();
+
+        public void run() {
+            try {
+                // the root element namespaces
+                namespaces.pushContext();
+                declareNamespaces();
+
+                int depth = 1;
+                while (depth > 0 && !closed) {
+                    int event = reader.next();
+                    if (event == XMLStreamConstants.START_ELEMENT) {
+                        if (featureName.getNamespaceURI().equals(reader.getNamespaceURI())
+                                && featureName.getLocalPart().equals(reader.getLocalName())) {
+                            final String fragment = copyFeature();
+                            queue(decoders.submit(new Callable<SimpleFeature>() {
+                                public SimpleFeature call() throws Exception {
+                                    return decode(fragment);
+                                }
+                            }));
+                        } else {
+                            depth++;
+                            namespaces.pushContext();
+                            declareNamespaces();
+                        }
+                    } else if (event == XMLStreamConstants.END_ELEMENT) {
+                        depth--;
+                        namespaces.popContext();
+                    } else if (event == XMLStreamConstants.END_DOCUMENT) {
+                        break;
+                    }
+                }
+                queue(END);
+            } catch (InterruptedException e) {
+                // closed, just exit
+            } catch (final Throwable t) {
+                // anything going wrong, errors included, must reach parse(), or it would wait
+                // forever for the next feature
+                if (!closed) {
+                    FutureTask<SimpleFeature> failure = new FutureTask<SimpleFeature>(
+                            new Callable<SimpleFeature>() {
+                                public SimpleFeature call() throws Exception {
+                                    if (t instanceof Error) {
+                                        throw (Error) t;
+                                    }
+                                    throw (Exception) t;
+                                }
+                            });
+                    failure.run();
+                    try {
+                        queue(failure);
+                    } catch (InterruptedException ie) {
+                        // closed, just exit
+                    }
+                }
+            }
+        }
+
+        void queue(Future<SimpleFeature> future) throws InterruptedException {
+            features.put(future);
+            if (closed) {
+                // closed while queueing, nobody is going to take it
+                cancelPending();
+            }
+        }
+
+        void declareNamespaces() {
+            for (int i = 0; i < reader.getNamespaceCount(); i++) {
+                String prefix = reader.getNamespacePrefix(i);
+                namespaces.declarePrefix(prefix == null ? "" : prefix, reader.getNamespaceURI(i));
+            }
+        }
+
+        /**
+         * Copies the feature the reader is positioned on into a standalone document, leaving
+         * the reader on the feature end element
+         */
+        String copyFeature() throws XMLStreamException {
+            StringWriter out = new StringWriter();
+            XMLStreamWriter writer = OUTPUT_FACTORY.createXMLStreamWriter(out);
+
+            // the feature element, declaring all the namespaces in scope
+            writeStartElement(writer);
+            Set<String> declared = new HashSet<String>();
+            for (int i = 0; i < reader.getNamespaceCount(); i++) {
+                String prefix = reader.getNamespacePrefix(i);
+                declared.add(prefix == null ? "" : prefix);
+            }
+            for (Enumeration<?> e = namespaces.getPrefixes(); e.hasMoreElements();) {
+                String prefix = (String) e.nextElement();
+                if (!declared.contains(prefix) && !XMLConstants.XML_NS_PREFIX.equals(prefix)) {
+                    writer.writeNamespace(prefix, namespaces.getURI(prefix));
+                }
+            }
+            String defaultNamespace = namespaces.getURI("");
+            if (!declared.contains("") && defaultNamespace != null
+                    && !"".equals(defaultNamespace)) {
+                writer.writeDefaultNamespace(defaultNamespace);
+            }
+            writeNamespacesAndAttributes(writer);
+
+            int depth = 1;
+            while (depth > 0) {
+                int event = reader.next();
+                switch (event) {
+                case XMLStreamConstants.START_ELEMENT:
+                    depth++;
+                    writeStartElement(writer);
+                    writeNamespacesAndAttributes(writer);
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    depth--;
+                    writer.writeEndElement();
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    writer.writeCharacters(reader.getTextCharacters(), reader.getTextStart(),
+                            reader.getTextLength());
+                    break;
+                case XMLStreamConstants.END_DOCUMENT:
+                    throw new XMLStreamException("Unexpected end of document while reading "
+                            + featureName);
+                default:
+                    // comments and processing instructions are not needed
+                }
+            }
+            writer.close();
+
+            return out.toString();
+        }
+
+        void writeStartElement(XMLStreamWriter writer) throws XMLStreamException {
+            String prefix = reader.getPrefix();
+            String namespace = reader.getNamespaceURI();
+            writer.writeStartElement(prefix == null ? "" : prefix, reader.getLocalName(),
+                    namespace == null ? "" : namespace);
+        }
+
+        void writeNamespacesAndAttributes(XMLStreamWriter writer) throws XMLStreamException {
+            for (int i = 0; i < reader.getNamespaceCount(); i++) {
+                String prefix = reader.getNamespacePrefix(i);
+                if (prefix == null || "".equals(prefix)) {
+                    writer.writeDefaultNamespace(reader.getNamespaceURI(i));
+                } else {
+                    writer.writeNamespace(prefix, reader.getNamespaceURI(i));
+                }
+            }
+            for (int i = 0; i < reader.getAttributeCount(); i++) {
+                String prefix = reader.getAttributePrefix(i);
+                if (prefix == null || "".equals(prefix)) {
+                    writer.writeAttribute(reader.getAttributeLocalName(i),
+                            reader.getAttributeValue(i));
+                } else {
+                    writer.writeAttribute(prefix, reader.getAttributeNamespace(i),
+                            reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+                }
+            }
+        }
+    }
+}
@@ -21,6 +21,7 @@ import static org.xmlpull.v1.XmlPullParser.START_TAG;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.Reader;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -138,14 +139,58 @@ public class XmlSimpleFeatureParser implements GetFeatureParser {
             throw new DataSourceException(e);
         }
 
+        expectedProperties = expectedProperties(targetType);
+    }
+
+    /**
+     * Creates a parser for documents whose root is a single feature element, as produced by
+     * {@link ParallelXmlSimpleFeatureParser}. The input is provided, one feature at a time, via
+     * {@link #setInput(Reader)}
+     */
+    XmlSimpleFeatureParser(final SimpleFeatureType targetType, QName featureDescriptorName,
+            String axisOrder) throws IOException {
+        this.featureNamespace = featureDescriptorName.getNamespaceURI();
+        this.featureName = featureDescriptorName.getLocalPart();
+        this.targetType = targetType;
+        this.builder = new SimpleFeatureBuilder(targetType);
+        this.axisOrder = axisOrder;
+
+        try {
+            XmlPullParserFactory factory = XmlPullParserFactory.newInstance();
+            factory.setNamespaceAware(true);
+            factory.setValidating(false);
+            parser = factory.newPullParser();
+        } catch (XmlPullParserException e) {
+            throw new DataSourceException(e);
+        }
+
+        expectedProperties = expectedProperties(targetType);
+    }
+
+    private static Map<String, AttributeDescriptor> expectedProperties(
+            SimpleFeatureType targetType) {
         // HACK! use a case insensitive set to compare the comming attribute names with the ones in
         // the schema. Rationale being that the FGDC CubeWerx server has a missmatch in the case of
         // property names between what it states in a DescribeFeatureType and in a GetFeature
         // requests
-        expectedProperties = new TreeMap<String, AttributeDescriptor>(String.CASE_INSENSITIVE_ORDER);
+        Map<String, AttributeDescriptor> expectedProperties = new TreeMap<String, AttributeDescriptor>(
+                String.CASE_INSENSITIVE_ORDER);
         for (AttributeDescriptor desc : targetType.getAttributeDescriptors()) {
             expectedProperties.put(desc.getLocalName(), desc);
         }
+        return expectedProperties;
+    }
+
+    /**
+     * Sets the single feature document to be parsed next, see
+     * {@link #XmlSimpleFeatureParser(SimpleFeatureType, QName, String)}
+     */
+    void setInput(Reader reader) throws IOException {
+        try {
+            parser.setInput(reader);
+        } catch (XmlPullParserException e) {
+            throw new DataSourceException(e);
+        }
     }
 
     @Override
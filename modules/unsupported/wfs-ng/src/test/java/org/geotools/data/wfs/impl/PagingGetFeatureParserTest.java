@@ -0,0 +1,361 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.wfs.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.xml.namespace.QName;
+
+import org.apache.commons.io.IOUtils;
+import org.geotools.data.DataUtilities;
+import org.geotools.data.Query;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.data.simple.SimpleFeatureSource;
+import org.geotools.data.wfs.impl.PagingGetFeatureParser.FilterPages;
+import org.geotools.data.wfs.impl.PagingGetFeatureParser.StartIndexPages;
+import org.geotools.data.wfs.internal.GetFeatureRequest;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.Filter;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.io.WKTReader;
+
+/**
+ * Tests paged GetFeature requests against a stub WFS 1.1 server, which is paged by splitting the
+ * data bounds in tiles
+ *
+ * @source $URL$
+ */
+public class PagingGetFeatureParserTest {
+
+    static final String TEST_DATA = "/org/geotools/data/wfs/internal/v1_1/test-data/geoserver/";
+
+    static final QName TYPE_NAME = new QName("http://www.openplans.org/spearfish", "archsites");
+
+    static final Pattern LOWER_CORNER = Pattern
+            .compile("<(?:\\w+:)?lowerCorner[^>]*>([^<]+)<");
+
+    static final Pattern UPPER_CORNER = Pattern
+            .compile("<(?:\\w+:)?upperCorner[^>]*>([^<]+)<");
+
+    HttpServer server;
+
+    ExecutorService serverExecutor;
+
+    String baseURL;
+
+    /** The points served by the stub */
+    List<Coordinate> points = new ArrayList<Coordinate>();
+
+    AtomicInteger getFeatureRequests = new AtomicInteger();
+
+    AtomicInteger running = new AtomicInteger();
+
+    AtomicInteger maxRunning = new AtomicInteger();
+
+    @Before
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        serverExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(serverExecutor);
+        server.createContext("/geoserver", new StubWFS());
+        server.start();
+        baseURL = "http://localhost:" + server.getAddress().getPort() + "/";
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    WFSContentDataStore createDataStore(int pageSize, boolean preserveOrder) throws IOException {
+        Map<String, Serializable> params = new HashMap<String, Serializable>();
+        params.put(WFSDataStoreFactory.URL.key, new URL(baseURL
+                + "geoserver/wfs?service=WFS&request=GetCapabilities&version=1.1.0"));
+        params.put(WFSDataStoreFactory.PAGE_SIZE.key, pageSize);
+        params.put(WFSDataStoreFactory.CONCURRENT_REQUESTS.key, 4);
+        params.put(WFSDataStoreFactory.PRESERVE_ORDER.key, preserveOrder);
+        WFSContentDataStore store = new WFSDataStoreFactory().createDataStore(params);
+
+        // a 10x10 grid of points covering the advertised bounds, plus one in the middle,
+        // which sits right on the border between two tiles, and one outside of the
+        // advertised bounds
+        ReferencedEnvelope bounds = store.getWfsClient().getBounds(TYPE_NAME,
+                store.getWfsClient().getDefaultCRS(TYPE_NAME));
+        for (int i = 0; i < 10; i++) {
+            for (int j = 0; j < 10; j++) {
+                points.add(new Coordinate(bounds.getMinX() + bounds.getWidth() * i / 9,
+                        bounds.getMinY() + bounds.getHeight() * j / 9));
+            }
+        }
+        points.add(new Coordinate(bounds.getMedian(0), bounds.getMinY() + bounds.getHeight()
+                / 10));
+        points.add(new Coordinate(bounds.getMaxX() + bounds.getWidth(), bounds.getMinY()
+                - bounds.getHeight()));
+
+        return store;
+    }
+
+    List<SimpleFeature> read(WFSContentDataStore store, Query query) throws IOException {
+        SimpleFeatureSource source = store.getFeatureSource("sf_archsites");
+        List<SimpleFeature> result = new ArrayList<SimpleFeature>();
+        SimpleFeatureIterator it = source.getFeatures(query).features();
+        try {
+            while (it.hasNext()) {
+                result.add(it.next());
+            }
+        } finally {
+            it.close();
+        }
+        return result;
+    }
+
+    Set<String> ids(List<SimpleFeature> features) {
+        Set<String> ids = new HashSet<String>();
+        for (SimpleFeature feature : features) {
+            ids.add(feature.getID());
+        }
+        return ids;
+    }
+
+    @Test
+    public void testTiles() throws Exception {
+        WFSContentDataStore store = createDataStore(10, true);
+        List<SimpleFeature> features = read(store, new Query("sf_archsites"));
+
+        // all features, and no duplicates
+        assertEquals(102, features.size());
+        assertEquals(102, ids(features).size());
+        // one hits request, then 11 tiles rounded up to a 4x3 grid
+        assertEquals(13, getFeatureRequests.get());
+        assertTrue(maxRunning.get() > 1);
+    }
+
+    @Test
+    public void testTilesUnordered() throws Exception {
+        WFSContentDataStore store = createDataStore(10, false);
+        List<SimpleFeature> features = read(store, new Query("sf_archsites"));
+
+        assertEquals(102, features.size());
+        assertEquals(102, ids(features).size());
+    }
+
+    @Test
+    public void testTilesMaxFeatures() throws Exception {
+        WFSContentDataStore store = createDataStore(10, true);
+        Query query = new Query("sf_archsites");
+        query.setMaxFeatures(25);
+        List<SimpleFeature> features = read(store, query);
+
+        assertEquals(25, features.size());
+        assertEquals(25, ids(features).size());
+    }
+
+    @Test
+    public void testNoPaging() throws Exception {
+        WFSContentDataStore store = createDataStore(1000, true);
+        List<SimpleFeature> features = read(store, new Query("sf_archsites"));
+
+        assertEquals(102, features.size());
+        // one hits request, then a single GetFeature
+        assertEquals(2, getFeatureRequests.get());
+    }
+
+    @Test
+    public void testStartIndexPages() throws Exception {
+        WFSContentDataStore store = createDataStore(10, true);
+        GetFeatureRequest base = store.getWfsClient().createGetFeatureRequest();
+        base.setTypeName(TYPE_NAME);
+        base.setMaxFeatures(25);
+        StartIndexPages pages = new StartIndexPages(base, 10);
+
+        int[] starts = new int[] { 0, 10, 20 };
+        int[] counts = new int[] { 10, 10, 5 };
+        for (int i = 0; i < starts.length; i++) {
+            GetFeatureRequest page = pages.getRequest(i);
+            assertEquals(TYPE_NAME, page.getTypeName());
+            assertEquals(starts[i], page.getStartIndex().intValue());
+            assertEquals(counts[i], page.getMaxFeatures().intValue());
+        }
+        assertNull(pages.getRequest(3));
+
+        // a page that is not full is the last one
+        assertFalse(pages.isLast(pages.getRequest(0), 10));
+        assertTrue(pages.isLast(pages.getRequest(0), 7));
+    }
+
+    @Test
+    public void testFilterPagesAccept() throws Exception {
+        SimpleFeatureType type = DataUtilities.createType("tiled", "geom:Geometry,name:String");
+
+        // two tiles side by side, sharing the x = 0 border
+        List<Envelope> tiles = new ArrayList<Envelope>();
+        tiles.add(new Envelope(-Double.MAX_VALUE, 0, -Double.MAX_VALUE, Double.MAX_VALUE));
+        tiles.add(new Envelope(0, Double.MAX_VALUE, -Double.MAX_VALUE, Double.MAX_VALUE));
+        List<Filter> filters = new ArrayList<Filter>();
+        filters.add(Filter.INCLUDE);
+        filters.add(Filter.INCLUDE);
+        FilterPages pages = new FilterPages(null, filters, tiles, "geom", 0);
+
+        // a line crossing both tiles is accepted only by the one holding its first vertex,
+        // the same goes for a point on the shared border
+        GeometryFactory gf = new GeometryFactory();
+        String[] wkts = { "LINESTRING(-5 0, 5 0)", "LINESTRING(5 0, -5 0)", "POINT(0 0)" };
+        boolean[] inFirst = { true, false, false };
+        for (int i = 0; i < wkts.length; i++) {
+            SimpleFeatureBuilder fb = new SimpleFeatureBuilder(type);
+            fb.set("geom", new WKTReader(gf).read(wkts[i]));
+            SimpleFeature feature = fb.buildFeature(null);
+            assertEquals(wkts[i], inFirst[i], pages.accept(0, feature));
+            assertEquals(wkts[i], !inFirst[i], pages.accept(1, feature));
+        }
+
+        // no geometry, no way to tell
+        SimpleFeature empty = new SimpleFeatureBuilder(type).buildFeature(null);
+        assertTrue(pages.accept(0, empty));
+        assertTrue(pages.accept(1, empty));
+    }
+
+    /**
+     * A minimal WFS 1.1 server, serving the archsites layer out of {@link #points}, honoring
+     * the bbox filter and hits requests
+     */
+    class StubWFS implements HttpHandler {
+
+        public void handle(HttpExchange exchange) throws IOException {
+            String query = String.valueOf(exchange.getRequestURI().getQuery());
+            String body = IOUtils.toString(exchange.getRequestBody(), "UTF-8");
+
+            String contentType = "text/xml";
+            String response;
+            if (query.toLowerCase().contains("request=getcapabilities")) {
+                response = resource("GetCapabilities_1_1_0.xml").replace(
+                        "http://localhost:8080/", baseURL);
+            } else if (body.contains("DescribeFeatureType")
+                    || query.toLowerCase().contains("request=describefeaturetype")) {
+                response = resource("DescribeFeatureType_archsites.xsd");
+            } else {
+                getFeatureRequests.incrementAndGet();
+                int current = running.incrementAndGet();
+                try {
+                    synchronized (maxRunning) {
+                        maxRunning.set(Math.max(current, maxRunning.get()));
+                    }
+                    // give the client a chance to issue the other requests
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                } finally {
+                    running.decrementAndGet();
+                }
+                contentType = "text/xml; subtype=gml/3.1.1";
+                response = getFeature(body);
+            }
+
+            byte[] bytes = response.getBytes("UTF-8");
+            exchange.getResponseHeaders().set("Content-Type", contentType);
+            exchange.sendResponseHeaders(200, bytes.length);
+            OutputStream os = exchange.getResponseBody();
+            try {
+                os.write(bytes);
+            } finally {
+                os.close();
+            }
+        }
+
+        String resource(String name) throws IOException {
+            InputStream is = getClass().getResourceAsStream(TEST_DATA + name);
+            try {
+                return IOUtils.toString(is, "UTF-8");
+            } finally {
+                is.close();
+            }
+        }
+
+        String getFeature(String body) {
+            ReferencedEnvelope bbox = null;
+            Matcher lower = LOWER_CORNER.matcher(body);
+            Matcher upper = UPPER_CORNER.matcher(body);
+            if (lower.find() && upper.find()) {
+                String[] l = lower.group(1).trim().split("\\s+");
+                String[] u = upper.group(1).trim().split("\\s+");
+                bbox = new ReferencedEnvelope(Double.parseDouble(l[0]), Double.parseDouble(u[0]),
+                        Double.parseDouble(l[1]), Double.parseDouble(u[1]), null);
+            }
+            boolean hits = body.contains("hits");
+
+            StringBuilder members = new StringBuilder();
+            int count = 0;
+            for (int i = 0; i < points.size(); i++) {
+                Coordinate c = points.get(i);
+                if (bbox != null && !bbox.contains(c)) {
+                    continue;
+                }
+                count++;
+                if (hits) {
+                    continue;
+                }
+                members.append("<gml:featureMember><sf:archsites gml:id=\"archsites.")
+                        .append(i).append("\"><sf:the_geom><gml:Point srsName=\"EPSG:26713\">")
+                        .append("<gml:pos>").append(c.x).append(' ').append(c.y)
+                        .append("</gml:pos></gml:Point></sf:the_geom><sf:cat>").append(i)
+                        .append("</sf:cat><sf:str1>Site ").append(i)
+                        .append("</sf:str1></sf:archsites></gml:featureMember>");
+            }
+
+            return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                    + "<wfs:FeatureCollection numberOfFeatures=\"" + count + "\""
+                    + " xmlns:wfs=\"http://www.opengis.net/wfs\""
+                    + " xmlns:gml=\"http://www.opengis.net/gml\""
+                    + " xmlns:sf=\"http://www.openplans.org/spearfish\">" + members
+                    + "</wfs:FeatureCollection>";
+        }
+    }
+}
@@ -135,7 +135,7 @@ public abstract class AbstractGetFeatureParserTest {
      *            the property names to include from the original schema in the one to be returned
      * @return a subset of the original featuretype containing only the required {@code properties}
      */
-    private SimpleFeatureType getTypeView(final QName featureName, final URL schemaLocation,
+    protected SimpleFeatureType getTypeView(final QName featureName, final URL schemaLocation,
             final String epsgCrsId, final String[] properties) throws Exception {
 
         CoordinateReferenceSystem crs = CRS.decode(epsgCrsId);
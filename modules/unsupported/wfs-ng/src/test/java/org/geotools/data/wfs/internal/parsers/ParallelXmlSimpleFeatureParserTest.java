@@ -0,0 +1,108 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.wfs.internal.parsers;
+
+import static org.geotools.data.wfs.impl.WFSTestData.GEOS_ARCHSITES_11;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.xml.namespace.QName;
+
+import org.apache.commons.io.IOUtils;
+import org.geotools.data.wfs.impl.WFSDataStoreFactory;
+import org.geotools.data.wfs.internal.GetFeatureParser;
+import org.junit.Test;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+/**
+ * 
+ * 
+ * @source $URL$
+ */
+public class ParallelXmlSimpleFeatureParserTest extends AbstractGetFeatureParserTest {
+
+    @Override
+    protected GetFeatureParser getParser(final QName featureName, final URL schemaLocation,
+            final SimpleFeatureType featureType, final URL getFeaturesRequest) throws IOException {
+
+        InputStream inputStream = new BufferedInputStream(getFeaturesRequest.openStream());
+        GetFeatureParser parser = new ParallelXmlSimpleFeatureParser(inputStream, featureType,
+                featureName, WFSDataStoreFactory.AXIS_ORDER_COMPLIANT, 4);
+        return parser;
+    }
+
+    SimpleFeatureType getArchSitesType() throws Exception {
+        return getTypeView(GEOS_ARCHSITES_11.TYPENAME, GEOS_ARCHSITES_11.SCHEMA,
+                GEOS_ARCHSITES_11.CRS, new String[] { "cat", "str1", "the_geom" });
+    }
+
+    @Test
+    public void testSharedDecoders() throws Exception {
+        SimpleFeatureType featureType = getArchSitesType();
+        ExecutorService decoders = Executors.newFixedThreadPool(2);
+        try {
+            // the same pool serves several responses, and survives them being closed
+            for (int i = 0; i < 3; i++) {
+                InputStream in = new BufferedInputStream(GEOS_ARCHSITES_11.DATA.openStream());
+                GetFeatureParser parser = new ParallelXmlSimpleFeatureParser(in, featureType,
+                        GEOS_ARCHSITES_11.TYPENAME, WFSDataStoreFactory.AXIS_ORDER_COMPLIANT,
+                        decoders, 2);
+                int count = 0;
+                while (parser.parse() != null) {
+                    count++;
+                }
+                parser.close();
+                assertEquals(3, count);
+                assertFalse(decoders.isShutdown());
+            }
+        } finally {
+            decoders.shutdownNow();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testTruncatedResponse() throws Exception {
+        SimpleFeatureType featureType = getArchSitesType();
+        String response = IOUtils.toString(GEOS_ARCHSITES_11.DATA.openStream(), "UTF-8");
+        // cut the response in the middle of the last feature
+        String truncated = response.substring(0, response.lastIndexOf("<sf:the_geom>"));
+
+        GetFeatureParser parser = new ParallelXmlSimpleFeatureParser(new ByteArrayInputStream(
+                truncated.getBytes("UTF-8")), featureType, GEOS_ARCHSITES_11.TYPENAME,
+                WFSDataStoreFactory.AXIS_ORDER_COMPLIANT, 2);
+        try {
+            while (parser.parse() != null) {
+                // keep on reading
+            }
+            fail("The truncated response should have failed the parse");
+        } catch (IOException e) {
+            // the failure is reported instead of waiting forever for the next feature
+        }
+        assertNull(parser.parse());
+        parser.close();
+    }
+}